@@ -0,0 +1,84 @@
+package com.busticket.config;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis template that caps the commands in flight at once with a semaphore.
+ *
+ * Every operation, pipeline and script runs through {@link #execute(RedisCallback, boolean, boolean)},
+ * so bounding it bounds them all. Permits are per thread and reentrant: a session or
+ * pipeline holds one permit for all the commands it issues.
+ */
+public class BoundedRedisTemplate extends RedisTemplate<String, Object> {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * @param maxInFlight the most commands in flight at once
+     * @param acquireTimeoutMs how long to wait for a permit
+     */
+    public BoundedRedisTemplate(int maxInFlight, long acquireTimeoutMs) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Redis needs at least one command in flight");
+        }
+        this.permits = new Semaphore(maxInFlight, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+        acquire();
+        try {
+            return super.execute(action, exposeConnection, pipeline);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public <T> T execute(SessionCallback<T> session) {
+        acquire();
+        try {
+            return super.execute(session);
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire() {
+        int[] held = depth.get();
+        if (held[0] == 0) {
+            boolean acquired = false;
+            try {
+                acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!acquired) {
+                    depth.remove();
+                }
+            }
+            if (!acquired) {
+                throw new RedisConnectionFailureException(
+                        "No Redis connection available within " + acquireTimeoutMs + "ms");
+            }
+        }
+        held[0]++;
+    }
+
+    private void release() {
+        int[] held = depth.get();
+        if (--held[0] == 0) {
+            depth.remove();
+            permits.release();
+        }
+    }
+}
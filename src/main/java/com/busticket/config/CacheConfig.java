@@ -26,7 +26,6 @@ public class CacheConfig {
 
         return RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(config)
-                .withCacheConfiguration("citySuggestions", config.entryTtl(Duration.ofHours(1))) // City suggestions cache for 1 hour
                 .withCacheConfiguration("departureCities", config.entryTtl(Duration.ofHours(2))) // Departure cities cache for 2 hours
                 .withCacheConfiguration("destinationCities", config.entryTtl(Duration.ofHours(2))) // Destination cities cache for 2 hours
                 .withCacheConfiguration("busOperators", config.entryTtl(Duration.ofHours(1))) // Bus operators cache for 1 hour
@@ -0,0 +1,44 @@
+package com.busticket.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Settings for running on virtual threads, active with the {@code virtual-threads} profile.
+ *
+ * Spring Boot itself moves the web server, {@code @Async} tasks and scheduled jobs onto
+ * virtual threads once {@code spring.threads.virtual.enabled} is set on Java 21 or later.
+ * What it does not do is bound the resources those threads block on, so here the data
+ * source is capped at the pool size; Redis is capped in {@link RedisConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    /**
+     * Wrap the data source in a {@link BoundedDataSource}.
+     *
+     * @param environment the environment to read the limits from
+     * @return the post processor
+     */
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BoundedDataSource) {
+                    return bean;
+                }
+                int maxInFlight = environment.getProperty("concurrency.jdbc.max-in-flight", Integer.class,
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                long acquireTimeoutMs = environment.getProperty("concurrency.acquire-timeout-ms", Long.class, 30000L);
+                return new BoundedDataSource(dataSource, maxInFlight, acquireTimeoutMs);
+            }
+        };
+    }
+}
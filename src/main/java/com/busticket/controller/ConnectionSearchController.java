@@ -0,0 +1,41 @@
+package com.busticket.controller;
+
+import com.busticket.dto.ItineraryResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.service.ConnectionSearchService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Journeys with bus changes, for city pairs with no or poor direct service.
+ */
+@RestController
+@RequestMapping("/api/search")
+public class ConnectionSearchController {
+
+    private final ConnectionSearchService connectionSearchService;
+
+    public ConnectionSearchController(ConnectionSearchService connectionSearchService) {
+        this.connectionSearchService = connectionSearchService;
+    }
+
+    /**
+     * Search itineraries whose first leg departs on the requested date.
+     *
+     * @param request the departure city, destination city, date and sort option
+     * @param transfers the maximum number of bus changes, the configured maximum if absent
+     * @return the itineraries, best first
+     */
+    @GetMapping("/connections")
+    public List<ItineraryResponse> searchConnections(@ModelAttribute TripSearchRequest request,
+            @RequestParam(required = false) Integer transfers) {
+        return transfers != null
+                ? connectionSearchService.searchConnections(request, transfers)
+                : connectionSearchService.searchConnections(request);
+    }
+}
@@ -0,0 +1,43 @@
+package com.busticket.controller;
+
+import com.busticket.dto.FareCalendarDay;
+import com.busticket.service.FareCalendarService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Flexible-date browsing: cheapest fare and availability per day in one call.
+ */
+@RestController
+@RequestMapping("/api/search")
+public class FareCalendarController {
+
+    private final FareCalendarService fareCalendarService;
+
+    public FareCalendarController(FareCalendarService fareCalendarService) {
+        this.fareCalendarService = fareCalendarService;
+    }
+
+    /**
+     * Get the fare calendar of a city pair around a date.
+     *
+     * @param from the departure city name
+     * @param to the destination city name
+     * @param date the preferred travel date
+     * @param flexDays the number of days to include on each side of the date
+     * @return one entry per day in date order
+     */
+    @GetMapping("/fare-calendar")
+    public List<FareCalendarDay> getFareCalendar(@RequestParam String from,
+            @RequestParam String to,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "3") int flexDays) {
+        return fareCalendarService.getFareCalendar(from, to, date, flexDays);
+    }
+}
@@ -0,0 +1,33 @@
+package com.busticket.controller;
+
+import com.busticket.dto.GatewayStatus;
+import com.busticket.service.PaymentGateway;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Circuit breaker and bulkhead state of the payment and refund gateways.
+ */
+@RestController
+@RequestMapping("/api/gateways")
+public class GatewayStatusController {
+
+    private final PaymentGateway paymentGateway;
+
+    public GatewayStatusController(PaymentGateway paymentGateway) {
+        this.paymentGateway = paymentGateway;
+    }
+
+    /**
+     * Get the state and call counters of each gateway path.
+     *
+     * @return one status per gateway path
+     */
+    @GetMapping("/status")
+    public List<GatewayStatus> getStatuses() {
+        return paymentGateway.getStatuses();
+    }
+}
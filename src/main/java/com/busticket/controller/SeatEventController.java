@@ -0,0 +1,35 @@
+package com.busticket.controller;
+
+import com.busticket.event.SeatEventBroadcaster;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events stream of seat status changes for a trip.
+ */
+@RestController
+@RequestMapping("/api/trips")
+public class SeatEventController {
+
+    private final SeatEventBroadcaster seatEventBroadcaster;
+
+    public SeatEventController(SeatEventBroadcaster seatEventBroadcaster) {
+        this.seatEventBroadcaster = seatEventBroadcaster;
+    }
+
+    /**
+     * Stream seat deltas for a trip. Clients load the seat map once and apply
+     * the deltas instead of polling it.
+     *
+     * @param tripId the trip ID
+     * @return the event stream
+     */
+    @GetMapping(path = "/{tripId}/seat-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatEvents(@PathVariable String tripId) {
+        return seatEventBroadcaster.subscribe(tripId);
+    }
+}
@@ -0,0 +1,62 @@
+package com.busticket.controller;
+
+import com.busticket.dto.SeatMapGeometry;
+import com.busticket.dto.SeatMapStatus;
+import com.busticket.service.SeatMapService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Compact seat map: geometry cached by ETag, statuses packed and versioned.
+ */
+@RestController
+@RequestMapping("/api/trips")
+public class SeatMapController {
+
+    private final SeatMapService seatMapService;
+
+    public SeatMapController(SeatMapService seatMapService) {
+        this.seatMapService = seatMapService;
+    }
+
+    /**
+     * Get the seat map geometry of a trip. Answers 304 when the client's
+     * If-None-Match still matches.
+     *
+     * @param tripId the trip ID
+     * @param request the current request
+     * @return the geometry, or null when not modified
+     */
+    @GetMapping("/{tripId}/seat-map")
+    public ResponseEntity<SeatMapGeometry> getGeometry(@PathVariable String tripId, WebRequest request) {
+        SeatMapGeometry geometry = seatMapService.getGeometry(tripId);
+        String eTag = "\"" + geometry.getVersion() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(geometry);
+    }
+
+    /**
+     * Get the packed seat statuses of a trip, or only the changes since a version.
+     *
+     * @param tripId the trip ID
+     * @param since the seat map version the client holds
+     * @return the statuses or changes
+     */
+    @GetMapping("/{tripId}/seat-map/status")
+    public SeatMapStatus getStatus(@PathVariable String tripId,
+            @RequestParam(required = false) Long since) {
+        return seatMapService.getStatus(tripId, since);
+    }
+}
@@ -0,0 +1,44 @@
+package com.busticket.controller;
+
+import com.busticket.dto.TripPage;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.service.SearchService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Paged trip search: the first page from the search filters, each next page from the
+ * cursor of the page before.
+ */
+@RestController
+@RequestMapping("/api/search")
+public class TripSearchController {
+
+    private final SearchService searchService;
+
+    public TripSearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Search one page of trips.
+     *
+     * Paging is stable for every sort option except MOST_AVAILABLE. That order follows
+     * live seat counts, so a trip booked or cancelled between two page requests may be
+     * skipped or appear twice; clients that need an exact listing should sort otherwise.
+     *
+     * @param request the search filters and sort option, ignored when a cursor is given
+     * @param cursor the nextCursor of the previous page, absent for the first page
+     * @param size the maximum number of trips per page
+     * @return the page of trips with the cursor of the next page, if any
+     */
+    @GetMapping("/trips")
+    public TripPage searchTrips(@ModelAttribute TripSearchRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return searchService.searchTripsPage(request, cursor, size);
+    }
+}
@@ -0,0 +1,50 @@
+package com.busticket.dto;
+
+/**
+ * A city that matches a possibly misspelled city name, with how closely it matches.
+ */
+public class CityMatch {
+
+    private String name;
+    private String state;
+    private Double score;
+
+    public CityMatch() {
+    }
+
+    /**
+     * @param name the city name
+     * @param state the city's state
+     * @param score 1.0 for an exact name or alias match, lower the more edits were needed
+     */
+    public CityMatch(String name, String state, Double score) {
+        this.name = name;
+        this.state = state;
+        this.score = score;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+}
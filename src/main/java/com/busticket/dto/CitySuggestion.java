@@ -0,0 +1,35 @@
+package com.busticket.dto;
+
+/**
+ * A city offered while the user types a city name.
+ */
+public class CitySuggestion {
+
+    private String name;
+    private String state;
+
+    public CitySuggestion() {
+    }
+
+    public CitySuggestion(String name, String state) {
+        this.name = name;
+        this.state = state;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,74 @@
+package com.busticket.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Cheapest fare and seat availability of one travel day between two cities.
+ */
+public class FareCalendarDay {
+
+    private LocalDate date;
+    private BigDecimal cheapestPrice;
+    private Integer availableSeats;
+    private Integer tripCount;
+
+    public FareCalendarDay() {
+    }
+
+    /**
+     * @param date the travel day
+     * @param cheapestPrice the lowest price of a trip with seats left, null if none
+     * @param availableSeats the seats left over all trips of the day
+     * @param tripCount the number of trips still to depart that day
+     */
+    public FareCalendarDay(LocalDate date, BigDecimal cheapestPrice, Integer availableSeats, Integer tripCount) {
+        this.date = date;
+        this.cheapestPrice = cheapestPrice;
+        this.availableSeats = availableSeats;
+        this.tripCount = tripCount;
+    }
+
+    /**
+     * A day without trips.
+     *
+     * @param date the travel day
+     * @return the empty day
+     */
+    public static FareCalendarDay empty(LocalDate date) {
+        return new FareCalendarDay(date, null, 0, 0);
+    }
+
+    // Getters and Setters
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public BigDecimal getCheapestPrice() {
+        return cheapestPrice;
+    }
+
+    public void setCheapestPrice(BigDecimal cheapestPrice) {
+        this.cheapestPrice = cheapestPrice;
+    }
+
+    public Integer getAvailableSeats() {
+        return availableSeats;
+    }
+
+    public void setAvailableSeats(Integer availableSeats) {
+        this.availableSeats = availableSeats;
+    }
+
+    public Integer getTripCount() {
+        return tripCount;
+    }
+
+    public void setTripCount(Integer tripCount) {
+        this.tripCount = tripCount;
+    }
+}
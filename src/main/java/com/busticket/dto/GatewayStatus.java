@@ -0,0 +1,124 @@
+package com.busticket.dto;
+
+/**
+ * Circuit state and call counters of a remote gateway. Counters run since startup;
+ * the failure rate covers the calls in the circuit's current window.
+ */
+public class GatewayStatus {
+
+    private String name;
+    private String state;
+    private double failureRate;
+    private int windowCalls;
+    private int inFlightCalls;
+    private int maxConcurrentCalls;
+    private long successfulCalls;
+    private long failedCalls;
+    private long timedOutCalls;
+    private long bulkheadRejections;
+    private long circuitRejections;
+
+    public GatewayStatus() {
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the circuit state: CLOSED, OPEN or HALF_OPEN.
+     */
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    /**
+     * Get the percentage of failed calls in the window.
+     */
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public int getWindowCalls() {
+        return windowCalls;
+    }
+
+    public void setWindowCalls(int windowCalls) {
+        this.windowCalls = windowCalls;
+    }
+
+    public int getInFlightCalls() {
+        return inFlightCalls;
+    }
+
+    public void setInFlightCalls(int inFlightCalls) {
+        this.inFlightCalls = inFlightCalls;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public long getSuccessfulCalls() {
+        return successfulCalls;
+    }
+
+    public void setSuccessfulCalls(long successfulCalls) {
+        this.successfulCalls = successfulCalls;
+    }
+
+    public long getFailedCalls() {
+        return failedCalls;
+    }
+
+    public void setFailedCalls(long failedCalls) {
+        this.failedCalls = failedCalls;
+    }
+
+    public long getTimedOutCalls() {
+        return timedOutCalls;
+    }
+
+    public void setTimedOutCalls(long timedOutCalls) {
+        this.timedOutCalls = timedOutCalls;
+    }
+
+    /**
+     * Get the calls refused because the gateway's concurrency limit was reached.
+     */
+    public long getBulkheadRejections() {
+        return bulkheadRejections;
+    }
+
+    public void setBulkheadRejections(long bulkheadRejections) {
+        this.bulkheadRejections = bulkheadRejections;
+    }
+
+    /**
+     * Get the calls refused because the circuit was open.
+     */
+    public long getCircuitRejections() {
+        return circuitRejections;
+    }
+
+    public void setCircuitRejections(long circuitRejections) {
+        this.circuitRejections = circuitRejections;
+    }
+}
@@ -0,0 +1,79 @@
+package com.busticket.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A journey of one or more trips, changing buses between consecutive legs.
+ */
+public class ItineraryResponse {
+
+    private List<TripResponse> legs;
+    private Integer transfers;
+    private BigDecimal totalPrice;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    private Long durationMinutes;
+
+    public ItineraryResponse() {
+    }
+
+    public ItineraryResponse(List<TripResponse> legs, BigDecimal totalPrice) {
+        this.legs = legs;
+        this.transfers = legs.size() - 1;
+        this.totalPrice = totalPrice;
+        this.departureTime = legs.get(0).getDepartureTime();
+        this.arrivalTime = legs.get(legs.size() - 1).getArrivalTime();
+        this.durationMinutes = java.time.Duration.between(departureTime, arrivalTime).toMinutes();
+    }
+
+    // Getters and Setters
+    public List<TripResponse> getLegs() {
+        return legs;
+    }
+
+    public void setLegs(List<TripResponse> legs) {
+        this.legs = legs;
+    }
+
+    public Integer getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(Integer transfers) {
+        this.transfers = transfers;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public LocalDateTime getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(LocalDateTime departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    public LocalDateTime getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public void setArrivalTime(LocalDateTime arrivalTime) {
+        this.arrivalTime = arrivalTime;
+    }
+
+    public Long getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(Long durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+}
@@ -0,0 +1,66 @@
+package com.busticket.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Compact change of seat status pushed to clients watching a trip's seat map.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatDelta {
+
+    private String tripId;
+    private List<String> seatNumbers;
+    private String status;
+    private Long expiresAt;
+
+    public SeatDelta() {
+    }
+
+    /**
+     * @param tripId the trip ID
+     * @param seatNumbers the seats that changed
+     * @param status the new seat status (AVAILABLE, LOCKED or BOOKED)
+     * @param expiresAt epoch millis at which a LOCKED seat frees up, null otherwise
+     */
+    public SeatDelta(String tripId, List<String> seatNumbers, String status, Long expiresAt) {
+        this.tripId = tripId;
+        this.seatNumbers = seatNumbers;
+        this.status = status;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(String tripId) {
+        this.tripId = tripId;
+    }
+
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public void setSeatNumbers(List<String> seatNumbers) {
+        this.seatNumbers = seatNumbers;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,104 @@
+package com.busticket.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Static part of a trip's seat map: the bus layout and the seat price.
+ *
+ * Seat i has its number, row and column at position i of the arrays, and the
+ * same position in the packed statuses of {@link SeatMapStatus}. Clients cache
+ * it by ETag and only fetch statuses while choosing seats.
+ */
+public class SeatMapGeometry {
+
+    private String tripId;
+    private String version;
+    private Integer rows;
+    private Integer columns;
+    private BigDecimal price;
+    private String[] seatNumbers;
+    private int[] seatRows;
+    private int[] seatColumns;
+
+    public SeatMapGeometry() {
+    }
+
+    public SeatMapGeometry(String tripId, Integer rows, Integer columns, BigDecimal price, String[] seatNumbers,
+            int[] seatRows, int[] seatColumns) {
+        this.tripId = tripId;
+        this.rows = rows;
+        this.columns = columns;
+        this.price = price;
+        this.seatNumbers = seatNumbers;
+        this.seatRows = seatRows;
+        this.seatColumns = seatColumns;
+    }
+
+    // Getters and Setters
+    public String getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(String tripId) {
+        this.tripId = tripId;
+    }
+
+    /**
+     * Changes whenever the bus layout or the trip price changes; served as the ETag.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public Integer getRows() {
+        return rows;
+    }
+
+    public void setRows(Integer rows) {
+        this.rows = rows;
+    }
+
+    public Integer getColumns() {
+        return columns;
+    }
+
+    public void setColumns(Integer columns) {
+        this.columns = columns;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String[] getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public void setSeatNumbers(String[] seatNumbers) {
+        this.seatNumbers = seatNumbers;
+    }
+
+    public int[] getSeatRows() {
+        return seatRows;
+    }
+
+    public void setSeatRows(int[] seatRows) {
+        this.seatRows = seatRows;
+    }
+
+    public int[] getSeatColumns() {
+        return seatColumns;
+    }
+
+    public void setSeatColumns(int[] seatColumns) {
+        this.seatColumns = seatColumns;
+    }
+}
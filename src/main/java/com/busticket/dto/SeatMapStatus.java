@@ -0,0 +1,136 @@
+package com.busticket.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Seat statuses of a trip at a seat map version.
+ *
+ * A full snapshot carries {@code statuses}: two bits per seat, seat i in bits
+ * {@code 2 * (i % 4)} and up of byte {@code i / 4}, holding the ordinal of
+ * {@code SeatSelectionService.SeatStatus}. A delta carries only the
+ * {@code changes} made after the version the client asked for, oldest first.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatMapStatus {
+
+    private String tripId;
+    private long version;
+    private int seatCount;
+    private byte[] statuses;
+    private List<SeatMapChange> changes;
+
+    public SeatMapStatus() {
+    }
+
+    public static SeatMapStatus snapshot(String tripId, long version, int seatCount, byte[] statuses) {
+        SeatMapStatus status = new SeatMapStatus(tripId, version, seatCount);
+        status.setStatuses(statuses);
+        return status;
+    }
+
+    public static SeatMapStatus delta(String tripId, long version, int seatCount, List<SeatMapChange> changes) {
+        SeatMapStatus status = new SeatMapStatus(tripId, version, seatCount);
+        status.setChanges(changes);
+        return status;
+    }
+
+    private SeatMapStatus(String tripId, long version, int seatCount) {
+        this.tripId = tripId;
+        this.version = version;
+        this.seatCount = seatCount;
+    }
+
+    public boolean isDelta() {
+        return changes != null;
+    }
+
+    // Getters and Setters
+    public String getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(String tripId) {
+        this.tripId = tripId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    public void setSeatCount(int seatCount) {
+        this.seatCount = seatCount;
+    }
+
+    public byte[] getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(byte[] statuses) {
+        this.statuses = statuses;
+    }
+
+    public List<SeatMapChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<SeatMapChange> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Seats that moved to the same status in one seat map version.
+     */
+    public static class SeatMapChange {
+        private long version;
+        private int status;
+        private int[] seats;
+
+        public SeatMapChange() {
+        }
+
+        /**
+         * @param version the seat map version of the change
+         * @param status the new status ordinal
+         * @param seats the seat indexes that changed
+         */
+        public SeatMapChange(long version, int status, int[] seats) {
+            this.version = version;
+            this.status = status;
+            this.seats = seats;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        public int[] getSeats() {
+            return seats;
+        }
+
+        public void setSeats(int[] seats) {
+            this.seats = seats;
+        }
+    }
+}
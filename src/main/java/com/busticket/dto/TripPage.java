@@ -0,0 +1,41 @@
+package com.busticket.dto;
+
+import java.util.List;
+
+/**
+ * One page of trip search results.
+ */
+public class TripPage {
+
+    private List<TripResponse> trips;
+    private String nextCursor;
+
+    public TripPage() {
+    }
+
+    /**
+     * @param trips the trips of this page, in search order
+     * @param nextCursor the opaque cursor of the next page, null on the last page
+     */
+    public TripPage(List<TripResponse> trips, String nextCursor) {
+        this.trips = trips;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<TripResponse> getTrips() {
+        return trips;
+    }
+
+    public void setTrips(List<TripResponse> trips) {
+        this.trips = trips;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
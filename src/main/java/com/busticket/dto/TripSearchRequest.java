@@ -2,6 +2,7 @@ package com.busticket.dto;
 
 import com.busticket.model.BusType;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.format.annotation.DateTimeFormat;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -17,16 +18,19 @@ public class TripSearchRequest {
     private String destinationCity;
     
     @NotNull(message = "Date is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private LocalDate date;
     
     private BigDecimal minPrice;
     private BigDecimal maxPrice;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.TIME)
     private LocalTime departureTimeStart;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.TIME)
     private LocalTime departureTimeEnd;
     private List<BusType> busTypes;
     private Integer minAvailableSeats;
     private List<String> busOperators;
-    private String sortBy; // CHEAPEST, FASTEST, EARLIEST_DEPARTURE
+    private String sortBy; // CHEAPEST, FASTEST, EARLIEST_DEPARTURE, MOST_AVAILABLE
 
     public TripSearchRequest() {
     }
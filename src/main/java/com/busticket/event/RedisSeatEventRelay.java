@@ -0,0 +1,97 @@
+package com.busticket.event;
+
+import com.busticket.dto.SeatDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Shares seat changes made on this node with the other nodes.
+ *
+ * Each node holds a single subscription to one Redis channel and hands what it
+ * receives to its {@link SeatEventBroadcaster}, however many clients it serves.
+ * Expiries are not relayed because every node already sees them through
+ * keyspace notifications.
+ */
+@Component
+@ConditionalOnProperty(name = "seat-lock.backend", havingValue = "redis", matchIfMissing = true)
+public class RedisSeatEventRelay implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisSeatEventRelay.class);
+    static final String CHANNEL = "seat_events";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SeatEventBroadcaster broadcaster;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public RedisSeatEventRelay(RedisTemplate<String, Object> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               SeatEventBroadcaster broadcaster) {
+        this.redisTemplate = redisTemplate;
+        this.broadcaster = broadcaster;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @EventListener
+    public void onSeatEvent(SeatEvent event) {
+        if (event instanceof SeatReleasedEvent released && released.getReason() == SeatReleasedEvent.Reason.EXPIRED) {
+            return;
+        }
+
+        try {
+            redisTemplate.convertAndSend(CHANNEL, new RelayedDelta(nodeId, SeatEventBroadcaster.toDelta(event)));
+        } catch (RuntimeException e) {
+            // Other nodes' clients miss this change until their next seat map fetch
+            logger.warn("Failed to relay seat event for trip {}: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object payload = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (payload instanceof RelayedDelta relayed && !nodeId.equals(relayed.getOrigin())) {
+            broadcaster.broadcast(relayed.getDelta());
+        }
+    }
+
+    /**
+     * A seat delta tagged with the node it came from.
+     */
+    public static class RelayedDelta {
+        private String origin;
+        private SeatDelta delta;
+
+        public RelayedDelta() {
+        }
+
+        public RelayedDelta(String origin, SeatDelta delta) {
+            this.origin = origin;
+            this.delta = delta;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public void setOrigin(String origin) {
+            this.origin = origin;
+        }
+
+        public SeatDelta getDelta() {
+            return delta;
+        }
+
+        public void setDelta(SeatDelta delta) {
+            this.delta = delta;
+        }
+    }
+}
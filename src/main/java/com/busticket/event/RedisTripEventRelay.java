@@ -0,0 +1,97 @@
+package com.busticket.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Shares trip changes made on this node with the other nodes.
+ *
+ * A change is sent on one Redis channel and republished on every other node as a
+ * {@link TripChangedEvent} from another node, so their search indexes and connection
+ * graphs follow it at once instead of at their next reload. Relayed events are not
+ * sent on again.
+ */
+@Component
+@ConditionalOnProperty(name = "seat-lock.backend", havingValue = "redis", matchIfMissing = true)
+public class RedisTripEventRelay implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisTripEventRelay.class);
+    static final String CHANNEL = "trip_events";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public RedisTripEventRelay(RedisTemplate<String, Object> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               ApplicationEventPublisher eventPublisher) {
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @EventListener
+    public void onTripChanged(TripChangedEvent event) {
+        if (event.isFromOtherNode()) {
+            return;
+        }
+
+        try {
+            redisTemplate.convertAndSend(CHANNEL, new RelayedTripChange(nodeId, event.getTripId()));
+        } catch (RuntimeException e) {
+            // Other nodes pick the change up at their next reload
+            logger.warn("Failed to relay change of trip {}: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object payload = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (payload instanceof RelayedTripChange relayed && !nodeId.equals(relayed.getOrigin())) {
+            eventPublisher.publishEvent(new TripChangedEvent(relayed.getTripId(), true));
+        }
+    }
+
+    /**
+     * A changed trip tagged with the node it was changed on.
+     */
+    public static class RelayedTripChange {
+        private String origin;
+        private String tripId;
+
+        public RelayedTripChange() {
+        }
+
+        public RelayedTripChange(String origin, String tripId) {
+            this.origin = origin;
+            this.tripId = tripId;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public void setOrigin(String origin) {
+            this.origin = origin;
+        }
+
+        public String getTripId() {
+            return tripId;
+        }
+
+        public void setTripId(String tripId) {
+            this.tripId = tripId;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.busticket.event;
+
+import java.util.List;
+
+/**
+ * Seats were booked by a confirmed booking.
+ */
+public class SeatBookedEvent extends SeatEvent {
+
+    private final String bookingId;
+
+    public SeatBookedEvent(String tripId, List<String> seatNumbers, String bookingId) {
+        super(tripId, seatNumbers);
+        this.bookingId = bookingId;
+    }
+
+    public String getBookingId() {
+        return bookingId;
+    }
+}
@@ -0,0 +1,32 @@
+package com.busticket.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Base class of in-process events about seats of a trip changing state.
+ */
+public abstract class SeatEvent {
+
+    private final String tripId;
+    private final List<String> seatNumbers;
+    private final LocalDateTime occurredAt;
+
+    protected SeatEvent(String tripId, List<String> seatNumbers) {
+        this.tripId = tripId;
+        this.seatNumbers = List.copyOf(seatNumbers);
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public String getTripId() {
+        return tripId;
+    }
+
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,277 @@
+package com.busticket.event;
+
+import com.busticket.dto.SeatDelta;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes seat status changes to the clients of this node watching a trip.
+ *
+ * There is one channel per trip with subscribers on this node. Each change is
+ * serialized once and queued for every subscriber of its trip. Every subscriber has
+ * a bounded queue of its own that a small pool of dispatcher threads drains one
+ * subscriber at a time, so publishers never wait on clients and every client sees
+ * the changes of a trip in order. A client that falls a full queue behind, or whose
+ * write stays blocked past the send timeout, is disconnected and resyncs when it
+ * reconnects, so a slow client holds up only itself.
+ */
+@Component
+public class SeatEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatEventBroadcaster.class);
+    private static final String EVENT_NAME = "seat-delta";
+    private static final long EMITTER_TIMEOUT_MINUTES = 30;
+    // Events sent to one client before its dispatcher thread moves on to others
+    private static final int MAX_EVENTS_PER_DRAIN = 32;
+
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final long sendTimeoutMs;
+    private final Map<String, TripChannel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+
+    public SeatEventBroadcaster(ObjectMapper objectMapper,
+                                @Value("${seat-events.dispatch-threads:4}") int dispatchThreads,
+                                @Value("${seat-events.client-queue-capacity:256}") int queueCapacity,
+                                @Value("${seat-events.send-timeout-ms:10000}") long sendTimeoutMs) {
+        if (dispatchThreads < 1 || queueCapacity < 1 || sendTimeoutMs < 1) {
+            throw new IllegalArgumentException(
+                    "Seat event dispatch threads, queue capacity and send timeout must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutMs = sendTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "seat-event-dispatcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open a seat event stream for a trip.
+     *
+     * @param tripId the trip ID
+     * @return the emitter the client reads seat deltas from
+     */
+    public SseEmitter subscribe(String tripId) {
+        return subscribe(tripId, new SseEmitter(TimeUnit.MINUTES.toMillis(EMITTER_TIMEOUT_MINUTES)));
+    }
+
+    SseEmitter subscribe(String tripId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(tripId, emitter);
+        // Added under the map's lock, so a concurrent unsubscribe cannot drop the channel in between
+        channels.compute(tripId, (id, channel) -> {
+            TripChannel current = channel != null ? channel : new TripChannel();
+            current.subscribers.add(subscriber);
+            return current;
+        });
+
+        Runnable unsubscribe = () -> unsubscribe(subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    /**
+     * Number of clients on this node watching a trip.
+     *
+     * @param tripId the trip ID
+     * @return the subscriber count
+     */
+    public int getSubscriberCount(String tripId) {
+        TripChannel channel = channels.get(tripId);
+        return channel != null ? channel.subscribers.size() : 0;
+    }
+
+    @EventListener
+    public void onSeatEvent(SeatEvent event) {
+        broadcast(toDelta(event));
+    }
+
+    /**
+     * Push a seat delta to this node's subscribers of its trip.
+     *
+     * @param delta the seat delta
+     */
+    public void broadcast(SeatDelta delta) {
+        TripChannel channel = channels.get(delta.getTripId());
+        if (channel == null) {
+            return; // Nobody on this node is watching the trip
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize seat delta for trip {}: {}", delta.getTripId(), e.getMessage());
+            return;
+        }
+
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(EVENT_NAME).data(json, MediaType.APPLICATION_JSON);
+        channel.subscribers.forEach(subscriber -> subscriber.enqueue(event));
+    }
+
+    /**
+     * Keep idle streams open through proxies that drop silent connections, and
+     * disconnect clients whose writes have been blocked past the send timeout.
+     */
+    @Scheduled(fixedRate = 15000)
+    public void sendHeartbeat() {
+        long now = System.currentTimeMillis();
+        SseEmitter.SseEventBuilder heartbeat = SseEmitter.event().comment("heartbeat");
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> {
+            long sendStartedAt = subscriber.sendStartedAt;
+            if (sendStartedAt != 0 && now - sendStartedAt > sendTimeoutMs) {
+                disconnect(subscriber, "write blocked for " + (now - sendStartedAt) + "ms");
+            } else {
+                subscriber.enqueue(heartbeat);
+            }
+        }));
+    }
+
+    /**
+     * Convert an in-process seat event to the delta sent to clients.
+     *
+     * @param event the seat event
+     * @return the seat delta
+     */
+    public static SeatDelta toDelta(SeatEvent event) {
+        if (event instanceof SeatLockedEvent locked) {
+            return delta(event, SeatStatus.LOCKED, locked.getExpiresAt());
+        }
+        if (event instanceof SeatLockExtendedEvent extended) {
+            return delta(event, SeatStatus.LOCKED, extended.getExpiresAt());
+        }
+        if (event instanceof SeatBookedEvent) {
+            return delta(event, SeatStatus.BOOKED, null);
+        }
+        return delta(event, SeatStatus.AVAILABLE, null);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void disconnect(Subscriber subscriber, String reason) {
+        logger.info("Disconnecting seat event client of trip {}: {}", subscriber.tripId, reason);
+        unsubscribe(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to complete seat event stream: {}", e.getMessage());
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        channels.computeIfPresent(subscriber.tripId, (id, channel) -> {
+            channel.subscribers.remove(subscriber);
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    private static SeatDelta delta(SeatEvent event, SeatStatus status, LocalDateTime expiresAt) {
+        Long expiresAtMillis = expiresAt != null
+                ? expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : null;
+        return new SeatDelta(event.getTripId(), List.copyOf(event.getSeatNumbers()), status.name(), expiresAtMillis);
+    }
+
+    private static final class TripChannel {
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * One client's stream and the events queued for it. At most one dispatcher thread
+     * drains a subscriber at a time, which keeps its events in order.
+     */
+    private final class Subscriber {
+        final String tripId;
+        final SseEmitter emitter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile long sendStartedAt;
+        volatile boolean closed;
+
+        Subscriber(String tripId, SseEmitter emitter) {
+            this.tripId = tripId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                disconnect(this, queueCapacity + " events behind");
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false); // Shutting down
+            }
+        }
+
+        void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                for (int sent = 0; sent < MAX_EVENTS_PER_DRAIN && !closed && (event = queue.poll()) != null; sent++) {
+                    sendStartedAt = System.currentTimeMillis();
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // Client went away; drop it without affecting the others
+                        unsubscribe(this);
+                        return;
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            if (!closed && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.busticket.event;
+
+/**
+ * A seat hold ran out before its booking was confirmed.
+ * Published once per hold, even when several nodes see the expiry.
+ */
+public class SeatHoldExpiredEvent {
+
+    private final String lockId;
+
+    public SeatHoldExpiredEvent(String lockId) {
+        this.lockId = lockId;
+    }
+
+    public String getLockId() {
+        return lockId;
+    }
+}
@@ -0,0 +1,93 @@
+package com.busticket.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.KeyExpirationEventMessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns Redis expired-key notifications for seat holds into in-process events.
+ *
+ * Every node receives every notification. Seat releases are published on each
+ * node so each can push them to its own clients, but only the node that claims a
+ * seat's expiry with SETNX records it in the shared seat map change log. Hold
+ * expiry is claimed the same way so only one node acts on it.
+ */
+@Component
+@ConditionalOnProperty(name = "seat-lock.backend", havingValue = "redis", matchIfMissing = true)
+public class SeatHoldExpiryListener extends KeyExpirationEventMessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatHoldExpiryListener.class);
+    private static final String LOCK_PREFIX = "lock:";
+    private static final String SEAT_LOCK_PREFIX = "seat_lock:";
+    private static final String EXPIRY_CLAIM_PREFIX = "lock_expired:";
+    private static final String SEAT_EXPIRY_CLAIM_PREFIX = "seat_lock_expired:";
+    private static final long EXPIRY_CLAIM_MINUTES = 5;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SeatHoldExpiryListener(RedisMessageListenerContainer listenerContainer,
+                                  RedisTemplate<String, Object> redisTemplate,
+                                  ApplicationEventPublisher eventPublisher) {
+        super(listenerContainer);
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        // Only expired-key events are needed
+        setKeyspaceNotificationsConfigParameter("Ex");
+    }
+
+    @Override
+    protected void doHandleMessage(Message message) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        try {
+            if (key.startsWith(SEAT_LOCK_PREFIX)) {
+                onSeatLockExpired(key.substring(SEAT_LOCK_PREFIX.length()));
+            } else if (key.startsWith(LOCK_PREFIX)) {
+                onLockExpired(key.substring(LOCK_PREFIX.length()));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to handle expiry of {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void onSeatLockExpired(String tripAndSeat) {
+        int separator = tripAndSeat.indexOf(':');
+        if (separator <= 0 || separator == tripAndSeat.length() - 1) {
+            return;
+        }
+
+        String tripId = tripAndSeat.substring(0, separator);
+        String seatNumber = tripAndSeat.substring(separator + 1);
+        // A seat is held again for at least the lock timeout, so its next expiry finds the claim gone
+        boolean claimed;
+        try {
+            claimed = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(
+                    SEAT_EXPIRY_CLAIM_PREFIX + tripAndSeat, "1", EXPIRY_CLAIM_MINUTES, TimeUnit.MINUTES));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to claim expiry of seat {}: {}", tripAndSeat, e.getMessage());
+            claimed = false;
+        }
+        eventPublisher.publishEvent(new SeatReleasedEvent(tripId, List.of(seatNumber), null,
+                SeatReleasedEvent.Reason.EXPIRED, claimed));
+    }
+
+    private void onLockExpired(String lockId) {
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(EXPIRY_CLAIM_PREFIX + lockId, "1",
+                EXPIRY_CLAIM_MINUTES, TimeUnit.MINUTES);
+        if (Boolean.TRUE.equals(claimed)) {
+            logger.debug("Seat hold expired: {}", lockId);
+            eventPublisher.publishEvent(new SeatHoldExpiredEvent(lockId));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.busticket.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A hold on seats was extended and now expires later.
+ */
+public class SeatLockExtendedEvent extends SeatEvent {
+
+    private final String lockId;
+    private final LocalDateTime expiresAt;
+
+    public SeatLockExtendedEvent(String tripId, List<String> seatNumbers, String lockId, LocalDateTime expiresAt) {
+        super(tripId, seatNumbers);
+        this.lockId = lockId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLockId() {
+        return lockId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,27 @@
+package com.busticket.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Seats were put on hold for a user.
+ */
+public class SeatLockedEvent extends SeatEvent {
+
+    private final String lockId;
+    private final LocalDateTime expiresAt;
+
+    public SeatLockedEvent(String tripId, List<String> seatNumbers, String lockId, LocalDateTime expiresAt) {
+        super(tripId, seatNumbers);
+        this.lockId = lockId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLockId() {
+        return lockId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,58 @@
+package com.busticket.event;
+
+import java.util.List;
+
+/**
+ * Seats went back to available because their hold was released or expired,
+ * or their confirmed booking was cancelled.
+ */
+public class SeatReleasedEvent extends SeatEvent {
+
+    public enum Reason {
+        RELEASED,
+        EXPIRED,
+        CANCELLED
+    }
+
+    private final String lockId;
+    private final Reason reason;
+    private final boolean recordChange;
+
+    /**
+     * @param tripId the trip ID
+     * @param seatNumbers the released seat numbers
+     * @param lockId the hold the seats belonged to, null if no longer known or not held
+     * @param reason why the seats were released
+     */
+    public SeatReleasedEvent(String tripId, List<String> seatNumbers, String lockId, Reason reason) {
+        this(tripId, seatNumbers, lockId, reason, true);
+    }
+
+    /**
+     * @param tripId the trip ID
+     * @param seatNumbers the released seat numbers
+     * @param lockId the hold the seats belonged to, null if no longer known or not held
+     * @param reason why the seats were released
+     * @param recordChange false if another node records this release in the shared seat map
+     *                     change log, as for expiries every node is notified of
+     */
+    public SeatReleasedEvent(String tripId, List<String> seatNumbers, String lockId, Reason reason,
+                             boolean recordChange) {
+        super(tripId, seatNumbers);
+        this.lockId = lockId;
+        this.reason = reason;
+        this.recordChange = recordChange;
+    }
+
+    public String getLockId() {
+        return lockId;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public boolean shouldRecordChange() {
+        return recordChange;
+    }
+}
@@ -0,0 +1,37 @@
+package com.busticket.event;
+
+/**
+ * A trip was created, rescheduled, repriced, moved to another bus, opened or closed.
+ * Publish it after the change is committed so in-memory views of the trip are rebuilt.
+ * Changes made on another node arrive through the {@link RedisTripEventRelay}.
+ *
+ * The application has no trip create or edit path: trips are maintained in the
+ * database directly, and only {@code TripCancellationService} publishes this event
+ * when it closes a trip. Every other trip change reaches the search index and the
+ * connection graph through their periodic reload.
+ */
+public class TripChangedEvent {
+
+    private final String tripId;
+    private final boolean fromOtherNode;
+
+    public TripChangedEvent(String tripId) {
+        this(tripId, false);
+    }
+
+    public TripChangedEvent(String tripId, boolean fromOtherNode) {
+        this.tripId = tripId;
+        this.fromOtherNode = fromOtherNode;
+    }
+
+    public String getTripId() {
+        return tripId;
+    }
+
+    /**
+     * @return true if the trip was changed on another node and relayed to this one
+     */
+    public boolean isFromOtherNode() {
+        return fromOtherNode;
+    }
+}
@@ -0,0 +1,33 @@
+package com.busticket.exception;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps exceptions thrown by the API to HTTP responses.
+ *
+ * Services reject bad input, such as a malformed search cursor or an out-of-range
+ * page size, with IllegalArgumentException. That is the caller's error, so it is
+ * answered with 400 instead of the default 500.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    /**
+     * Answer rejected input with 400 Bad Request.
+     *
+     * @param e the rejection
+     * @return the problem detail carrying the rejection message
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail handleIllegalArgument(IllegalArgumentException e) {
+        logger.debug("Rejected request: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
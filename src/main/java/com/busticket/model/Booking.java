@@ -60,6 +60,9 @@ public class Booking {
     @Column(name = "payment_id", length = 36)
     private String paymentId;
     
+    @Column(name = "fencing_token")
+    private Long fencingToken;
+    
     @Column(name = "cancellation_reason", columnDefinition = "TEXT")
     private String cancellationReason;
     
@@ -209,4 +212,12 @@ public class Booking {
     public void setCancelledAt(LocalDateTime cancelledAt) {
         this.cancelledAt = cancelledAt;
     }
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(Long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
 }
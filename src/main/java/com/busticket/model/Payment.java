@@ -43,6 +43,9 @@ public class Payment {
     
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
+    
+    @Column(name = "processing_started_at")
+    private LocalDateTime processingStartedAt;
 
     public Payment() {
     }
@@ -118,4 +121,12 @@ public class Payment {
     public void setCompletedAt(LocalDateTime completedAt) {
         this.completedAt = completedAt;
     }
+
+    public LocalDateTime getProcessingStartedAt() {
+        return processingStartedAt;
+    }
+
+    public void setProcessingStartedAt(LocalDateTime processingStartedAt) {
+        this.processingStartedAt = processingStartedAt;
+    }
 }
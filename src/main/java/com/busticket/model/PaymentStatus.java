@@ -1,7 +1,15 @@
 package com.busticket.model;
 
+/**
+ * Payment states. A payment is created PENDING, becomes PROCESSING while its gateway
+ * call is in flight, and settles as SUCCESS or FAILED. Payments that do not settle in
+ * time are failed by a timeout sweep. A charge that went through for a booking that can
+ * no longer be confirmed is kept as SUCCESS, with a refund of its full amount queued; so
+ * is a charge cut off by the gateway deadline, whose outcome at the gateway is unknown.
+ */
 public enum PaymentStatus {
     PENDING,
+    PROCESSING,
     SUCCESS,
     FAILED
 }
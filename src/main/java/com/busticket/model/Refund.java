@@ -45,6 +45,12 @@ public class Refund {
     @Column(name = "transaction_id", length = 100)
     private String transactionId;
 
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
     public Refund() {
     }
 
@@ -128,4 +134,26 @@ public class Refund {
     public void setTransactionId(String transactionId) {
         this.transactionId = transactionId;
     }
+
+    /**
+     * Get the number of times the refund was sent to the gateway.
+     */
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Get when a refund worker last claimed the refund; the claim lapses after the lease period.
+     */
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
 }
@@ -40,6 +40,14 @@ public class Trip {
     @Column(name = "is_open", nullable = false)
     private Boolean isOpen = true;
 
+    // Maintained by bulk updates on confirm and cancel; set from the bus on insert by the database
+    @Column(name = "available_seats", insertable = false, updatable = false)
+    private Integer availableSeats;
+
+    // Generated by the database from the departure and arrival times
+    @Column(name = "duration_minutes", insertable = false, updatable = false)
+    private Integer durationMinutes;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "operating_days", columnDefinition = "jsonb")
     private String operatingDays;
@@ -124,6 +132,22 @@ public class Trip {
         this.isOpen = isOpen;
     }
 
+    public Integer getAvailableSeats() {
+        return availableSeats;
+    }
+
+    public void setAvailableSeats(Integer availableSeats) {
+        this.availableSeats = availableSeats;
+    }
+
+    public Integer getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(Integer durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
     public String getOperatingDays() {
         return operatingDays;
     }
@@ -3,11 +3,13 @@ package com.busticket.repository;
 import com.busticket.model.Booking;
 import com.busticket.model.BookingStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +33,15 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
      */
     List<Booking> findByTripIdAndStatus(String tripId, BookingStatus status);
     
+    /**
+     * Find a trip's bookings in any of the given statuses.
+     * 
+     * @param tripId the trip ID
+     * @param statuses the booking statuses
+     * @return the bookings in those statuses
+     */
+    List<Booking> findByTripIdAndStatusIn(String tripId, Collection<BookingStatus> statuses);
+    
     /**
      * Find bookings by user ID.
      * 
@@ -213,4 +224,85 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
            "WHERE bus.adminUserId = :adminUserId " +
            "AND b.status = 'CONFIRMED'")
     Double calculateAdminRevenue(@Param("adminUserId") String adminUserId);
-}
\ No newline at end of file
+    
+    /**
+     * Record a booking's fencing token on each of its seats, but only where no hold
+     * with an equal or newer token has written the seat before and no confirmed
+     * booking owns it. The confirmed flag lives on the fence row, so an upsert that
+     * waited for a confirming transaction sees its outcome.
+     * 
+     * @param tripId the trip ID
+     * @param seatNumbers comma separated seat numbers
+     * @param fencingToken the fencing token of the booking's seat hold
+     * @param bookingId the booking ID
+     * @return the number of seats written; fewer than requested means the hold is stale
+     */
+    @Modifying
+    @Query(value = "INSERT INTO seat_fences (trip_id, seat_number, fencing_token, booking_id, updated_at) " +
+           "SELECT :tripId, seat, :fencingToken, :bookingId, CURRENT_TIMESTAMP " +
+           "FROM unnest(string_to_array(:seatNumbers, ',')) AS seat " +
+           "ON CONFLICT (trip_id, seat_number) DO UPDATE " +
+           "SET fencing_token = EXCLUDED.fencing_token, booking_id = EXCLUDED.booking_id, updated_at = EXCLUDED.updated_at " +
+           "WHERE seat_fences.fencing_token < EXCLUDED.fencing_token AND NOT seat_fences.confirmed",
+           nativeQuery = true)
+    int fenceSeats(@Param("tripId") String tripId,
+                   @Param("seatNumbers") String seatNumbers,
+                   @Param("fencingToken") long fencingToken,
+                   @Param("bookingId") String bookingId);
+    
+    /**
+     * Mark the seats whose latest fencing write belongs to a booking as sold.
+     * The fence rows stay locked until the transaction ends, so no newer hold can
+     * take them between this check and the booking's confirmation.
+     * 
+     * @param bookingId the booking ID
+     * @return the number of seats the booking still holds the fence for
+     */
+    @Modifying
+    @Query(value = "UPDATE seat_fences SET confirmed = TRUE, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE booking_id = :bookingId",
+           nativeQuery = true)
+    int confirmFencedSeats(@Param("bookingId") String bookingId);
+    
+    /**
+     * Let newer holds fence the seats of a booking again after it was cancelled.
+     * 
+     * @param bookingId the booking ID
+     * @return the number of seats released
+     */
+    @Modifying
+    @Query(value = "UPDATE seat_fences SET confirmed = FALSE, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE booking_id = :bookingId AND confirmed",
+           nativeQuery = true)
+    int releaseFencedSeats(@Param("bookingId") String bookingId);
+    
+    /**
+     * Mark a booking as expired if it is still pending.
+     * 
+     * @param bookingId the booking ID
+     * @param expiredAt the time the seat hold expired
+     * @return 1 if the booking was expired, 0 if it was no longer pending
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = com.busticket.model.BookingStatus.EXPIRED, " +
+           "b.cancelledAt = :expiredAt, b.cancellationReason = 'Seat hold expired' " +
+           "WHERE b.id = :bookingId AND b.status = com.busticket.model.BookingStatus.PENDING")
+    int expirePendingBooking(@Param("bookingId") String bookingId, @Param("expiredAt") LocalDateTime expiredAt);
+    
+    /**
+     * Cancel every pending and confirmed booking of a trip, in one statement.
+     * 
+     * @param tripId the trip ID
+     * @param cancelledAt the cancellation time
+     * @param reason the cancellation reason
+     * @return the number of bookings cancelled
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = com.busticket.model.BookingStatus.CANCELLED, " +
+           "b.cancelledAt = :cancelledAt, b.cancellationReason = :reason " +
+           "WHERE b.tripId = :tripId " +
+           "AND b.status IN (com.busticket.model.BookingStatus.PENDING, com.busticket.model.BookingStatus.CONFIRMED)")
+    int cancelTripBookings(@Param("tripId") String tripId,
+                           @Param("cancelledAt") LocalDateTime cancelledAt,
+                           @Param("reason") String reason);
+}
@@ -0,0 +1,11 @@
+package com.busticket.repository;
+
+/**
+ * Projection of another name a city is known by.
+ */
+public interface CityAliasRow {
+
+    String getAlias();
+
+    String getCityId();
+}
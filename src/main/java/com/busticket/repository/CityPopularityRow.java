@@ -0,0 +1,15 @@
+package com.busticket.repository;
+
+/**
+ * Projection of a city with the number of routes starting or ending there.
+ */
+public interface CityPopularityRow {
+
+    String getId();
+
+    String getName();
+
+    String getState();
+
+    Long getPopularity();
+}
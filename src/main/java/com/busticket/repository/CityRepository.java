@@ -29,6 +29,25 @@ public interface CityRepository extends JpaRepository<City, String> {
      */
     List<City> findByNameStartsWithIgnoreCaseOrderByName(String prefix);
     
+    /**
+     * Find all cities with their popularity, measured as the number of routes
+     * starting or ending in the city. Used to load the autocomplete index.
+     * 
+     * @return all cities with their popularity
+     */
+    @Query("SELECT c.id AS id, c.name AS name, c.state AS state, " +
+           "(SELECT COUNT(r) FROM Route r WHERE r.departureCityId = c.id OR r.destinationCityId = c.id) AS popularity " +
+           "FROM City c")
+    List<CityPopularityRow> findAllWithPopularity();
+    
+    /**
+     * Find all city aliases, such as former names and transliterations.
+     * 
+     * @return all aliases with the ID of their city
+     */
+    @Query(value = "SELECT a.alias AS alias, a.city_id AS cityId FROM city_aliases a", nativeQuery = true)
+    List<CityAliasRow> findAllAliases();
+    
     /**
      * Find all cities that are available as departure cities in routes.
      * 
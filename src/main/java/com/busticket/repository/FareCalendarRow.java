@@ -0,0 +1,18 @@
+package com.busticket.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Projection of the trips of one travel day between two cities, aggregated.
+ */
+public interface FareCalendarRow {
+
+    LocalDate getDay();
+
+    BigDecimal getCheapestPrice();
+
+    Long getAvailableSeats();
+
+    Long getTripCount();
+}
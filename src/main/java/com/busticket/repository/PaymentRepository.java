@@ -3,6 +3,7 @@ package com.busticket.repository;
 import com.busticket.model.Payment;
 import com.busticket.model.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -112,4 +113,92 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
            "AND p.createdAt > :cutoffTime " +
            "ORDER BY p.createdAt DESC")
     List<Payment> findRetryableFailedPayments(@Param("cutoffTime") LocalDateTime cutoffTime);
-}
\ No newline at end of file
+    
+    /**
+     * Move a payment from one state to another, if it is still in the first.
+     * 
+     * @param paymentId the payment ID
+     * @param from the state the payment must be in
+     * @param to the new state
+     * @return 1 if the payment moved, 0 if it was no longer in the first state
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to WHERE p.id = :paymentId AND p.status = :from")
+    int transitionStatus(@Param("paymentId") String paymentId,
+                         @Param("from") PaymentStatus from,
+                         @Param("to") PaymentStatus to);
+    
+    /**
+     * Record a successful gateway charge, if the payment is still being processed.
+     * 
+     * @param paymentId the payment ID
+     * @param transactionId the gateway's transaction ID
+     * @param completedAt the time of the charge
+     * @return 1 if the payment succeeded, 0 if it was no longer being processed
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = com.busticket.model.PaymentStatus.SUCCESS, " +
+           "p.transactionId = :transactionId, p.completedAt = :completedAt " +
+           "WHERE p.id = :paymentId AND p.status = com.busticket.model.PaymentStatus.PROCESSING")
+    int markSucceeded(@Param("paymentId") String paymentId,
+                      @Param("transactionId") String transactionId,
+                      @Param("completedAt") LocalDateTime completedAt);
+    
+    /**
+     * Claim a pending payment for charging, stamping when processing started.
+     * 
+     * @param paymentId the payment ID
+     * @param startedAt the time the worker claimed it
+     * @return 1 if the payment was claimed, 0 if it was no longer pending
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = com.busticket.model.PaymentStatus.PROCESSING, " +
+           "p.processingStartedAt = :startedAt " +
+           "WHERE p.id = :paymentId AND p.status = com.busticket.model.PaymentStatus.PENDING")
+    int claimForProcessing(@Param("paymentId") String paymentId,
+                           @Param("startedAt") LocalDateTime startedAt);
+    
+    /**
+     * Record a gateway charge that cannot be honoured, whether the payment is still being
+     * processed or was failed by the timeout sweep meanwhile. The charge is kept as a
+     * success so a refund can reverse it.
+     * 
+     * @param paymentId the payment ID
+     * @param transactionId the gateway's transaction ID
+     * @param completedAt the time of the charge
+     * @return 1 if the charge was recorded, 0 if the payment had already succeeded
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = com.busticket.model.PaymentStatus.SUCCESS, " +
+           "p.transactionId = :transactionId, p.completedAt = :completedAt " +
+           "WHERE p.id = :paymentId AND p.status IN " +
+           "(com.busticket.model.PaymentStatus.PROCESSING, com.busticket.model.PaymentStatus.FAILED)")
+    int markChargedForReversal(@Param("paymentId") String paymentId,
+                               @Param("transactionId") String transactionId,
+                               @Param("completedAt") LocalDateTime completedAt);
+    
+    /**
+     * Fail every payment that has not settled in time: a pending payment queued before
+     * the cutoff, or a payment in flight whose processing started before it.
+     * 
+     * @param cutoff payments queued or claimed before this time are failed
+     * @return the number of payments failed
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = com.busticket.model.PaymentStatus.FAILED " +
+           "WHERE (p.status = com.busticket.model.PaymentStatus.PENDING AND p.createdAt < :cutoff) " +
+           "OR (p.status = com.busticket.model.PaymentStatus.PROCESSING AND p.processingStartedAt < :cutoff)")
+    int failUnsettledPayments(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Fail every pending payment of a trip's bookings, so none of them is charged.
+     * 
+     * @param tripId the trip ID
+     * @return the number of payments failed
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = com.busticket.model.PaymentStatus.FAILED " +
+           "WHERE p.status = com.busticket.model.PaymentStatus.PENDING " +
+           "AND p.bookingId IN (SELECT b.id FROM Booking b WHERE b.tripId = :tripId)")
+    int failTripPendingPayments(@Param("tripId") String tripId);
+}
@@ -3,11 +3,13 @@ package com.busticket.repository;
 import com.busticket.model.Refund;
 import com.busticket.model.RefundStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -89,4 +91,57 @@ public interface RefundRepository extends JpaRepository<Refund, String> {
            "AND r.createdAt < :cutoffTime " +
            "ORDER BY r.createdAt ASC")
     List<Refund> findStaleRefunds(@Param("cutoffTime") LocalDateTime cutoffTime);
-}
\ No newline at end of file
+    
+    /**
+     * Lock a batch of pending refunds that no worker holds a live claim on, oldest first.
+     * Rows another worker is claiming right now are skipped instead of waited for, so
+     * workers on several nodes claim disjoint batches.
+     * 
+     * @param staleBefore claims taken before this time have lapsed
+     * @param limit the most refunds to lock
+     * @return the IDs of the locked refunds
+     */
+    @Query(value = "SELECT r.id FROM refunds r " +
+           "WHERE r.status = 'PENDING' " +
+           "AND (r.claimed_at IS NULL OR r.claimed_at < :staleBefore) " +
+           "ORDER BY r.created_at " +
+           "LIMIT :limit " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<String> lockClaimableRefundIds(@Param("staleBefore") LocalDateTime staleBefore, @Param("limit") int limit);
+    
+    /**
+     * Claim locked refunds for one more gateway attempt.
+     * 
+     * @param ids the refund IDs
+     * @param claimedAt the claim time
+     * @return the number of refunds claimed
+     */
+    @Modifying
+    @Query("UPDATE Refund r SET r.claimedAt = :claimedAt, r.attempts = r.attempts + 1 WHERE r.id IN :ids")
+    int claimRefunds(@Param("ids") Collection<String> ids, @Param("claimedAt") LocalDateTime claimedAt);
+    
+    /**
+     * Queue a pending refund of the unrefunded amount of every successful payment for
+     * a trip's bookings, in one statement.
+     * 
+     * @param tripId the trip ID
+     * @param reason the refund reason
+     * @param createdAt the creation time of the refunds
+     * @return the number of refunds queued
+     */
+    @Modifying
+    @Query(value = "INSERT INTO refunds (id, payment_id, booking_id, amount, status, reason, created_at, attempts) " +
+           "SELECT CAST(gen_random_uuid() AS VARCHAR), p.id, p.booking_id, p.amount - p.refunded, " +
+           "'PENDING', :reason, :createdAt, 0 " +
+           "FROM (SELECT p.id, p.booking_id, p.amount, " +
+           "      COALESCE((SELECT SUM(r.amount) FROM refunds r " +
+           "                WHERE r.payment_id = p.id AND r.status <> 'FAILED'), 0) AS refunded " +
+           "      FROM payments p JOIN bookings b ON b.id = p.booking_id " +
+           "      WHERE b.trip_id = :tripId AND p.status = 'SUCCESS') p " +
+           "WHERE p.amount > p.refunded",
+           nativeQuery = true)
+    int insertTripRefunds(@Param("tripId") String tripId,
+                          @Param("reason") String reason,
+                          @Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,14 @@
+package com.busticket.repository;
+
+/**
+ * Projection of an open trip as loaded into the in-memory trip search index,
+ * with the route and city IDs it is partitioned by.
+ */
+public interface TripIndexRow extends TripSearchRow {
+
+    String getRouteId();
+
+    String getDepartureCityId();
+
+    String getDestinationCityId();
+}
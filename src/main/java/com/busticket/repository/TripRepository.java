@@ -2,7 +2,10 @@ package com.busticket.repository;
 
 import com.busticket.model.BusType;
 import com.busticket.model.Trip;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,11 +14,46 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TripRepository extends JpaRepository<Trip, String> {
     
+    /**
+     * Open trips on a set of routes within a departure range, with bus and city names
+     * joined in and the optional search filters applied.
+     */
+    String TRIP_SEARCH_ROWS =
+           "SELECT t.id AS id, t.busId AS busId, b.companyName AS busCompany, b.busNumber AS busNumber, " +
+           "dc.name AS departureCity, ac.name AS destinationCity, " +
+           "t.departureTime AS departureTime, t.arrivalTime AS arrivalTime, t.price AS price, " +
+           "b.busType AS busType, b.totalSeats AS totalSeats, t.availableSeats AS availableSeats, " +
+           "b.amenities AS amenities " +
+           "FROM Trip t " +
+           "JOIN Route r ON t.routeId = r.id " +
+           "JOIN Bus b ON t.busId = b.id " +
+           "JOIN City dc ON r.departureCityId = dc.id " +
+           "JOIN City ac ON r.destinationCityId = ac.id " +
+           "WHERE t.routeId IN :routeIds " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
+           "AND t.departureTime > CURRENT_TIMESTAMP " +
+           "AND t.isOpen = true " +
+           "AND (:earliestDeparture IS NULL OR t.departureTime >= :earliestDeparture) " +
+           "AND (:latestDeparture IS NULL OR t.departureTime <= :latestDeparture) " +
+           "AND (:minPrice IS NULL OR t.price >= :minPrice) " +
+           "AND (:maxPrice IS NULL OR t.price <= :maxPrice) " +
+           "AND (:busTypes IS NULL OR b.busType IN :busTypes) " +
+           "AND (:minAvailableSeats IS NULL OR t.availableSeats >= :minAvailableSeats) " +
+           "AND (:busOperators IS NULL OR b.companyName IN :busOperators)";
+    
+    /**
+     * Keyset condition on departure and ID, the tie breakers of every paged search order.
+     */
+    String AFTER_DEPARTURE_AND_ID =
+           "(t.departureTime > :afterDeparture OR (t.departureTime = :afterDeparture AND t.id > :afterId))";
+    
     /**
      * Find trips by route and date with basic filtering.
      * 
@@ -23,12 +61,27 @@ public interface TripRepository extends JpaRepository<Trip, String> {
      * @param date the travel date
      * @return a list of trips for the route on the specified date
      */
+    default List<Trip> findAvailableTripsByRouteAndDate(String routeId, LocalDate date) {
+        return findAvailableTripsByRouteAndDepartureRange(routeId, startOfDay(date), startOfDay(date.plusDays(1)));
+    }
+    
+    /**
+     * Find open trips of a route departing in [departureFrom, departureUntil).
+     * 
+     * @param routeId the route ID
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return a list of trips ordered by departure time
+     */
     @Query("SELECT t FROM Trip t WHERE t.routeId = :routeId " +
-           "AND DATE(t.departureTime) = :date " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
            "AND t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
            "ORDER BY t.departureTime")
-    List<Trip> findAvailableTripsByRouteAndDate(@Param("routeId") String routeId, @Param("date") LocalDate date);
+    List<Trip> findAvailableTripsByRouteAndDepartureRange(
+            @Param("routeId") String routeId,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil);
     
     /**
      * Search trips with comprehensive filtering and sorting.
@@ -45,35 +98,397 @@ public interface TripRepository extends JpaRepository<Trip, String> {
      * @param busOperators the list of bus operators to filter by (optional)
      * @return a list of trips matching the criteria
      */
+    default List<Trip> searchTrips(
+            String departureCityId,
+            String destinationCityId,
+            LocalDate date,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalTime departureTimeStart,
+            LocalTime departureTimeEnd,
+            List<BusType> busTypes,
+            Integer minAvailableSeats,
+            List<String> busOperators) {
+        return searchTripsInRange(departureCityId, destinationCityId,
+                startOfDay(date), startOfDay(date.plusDays(1)),
+                departureTimeStart != null ? date.atTime(departureTimeStart) : null,
+                departureTimeEnd != null ? date.atTime(departureTimeEnd) : null,
+                minPrice, maxPrice, busTypes, minAvailableSeats, busOperators);
+    }
+    
+    /**
+     * Search trips departing in [departureFrom, departureUntil) with comprehensive filtering.
+     * 
+     * @param departureCityId the departure city ID
+     * @param destinationCityId the destination city ID
+     * @param departureFrom start of the travel day, inclusive
+     * @param departureUntil start of the next day, exclusive
+     * @param earliestDeparture the earliest departure (optional)
+     * @param latestDeparture the latest departure, inclusive (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param busTypes the list of bus types to filter by (optional)
+     * @param minAvailableSeats the minimum available seats (optional)
+     * @param busOperators the list of bus operators to filter by (optional)
+     * @return a list of trips matching the criteria
+     */
     @Query("SELECT t FROM Trip t " +
            "JOIN Route r ON t.routeId = r.id " +
            "JOIN Bus b ON t.busId = b.id " +
            "WHERE r.departureCityId = :departureCityId " +
            "AND r.destinationCityId = :destinationCityId " +
-           "AND DATE(t.departureTime) = :date " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
            "AND t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
+           "AND (:earliestDeparture IS NULL OR t.departureTime >= :earliestDeparture) " +
+           "AND (:latestDeparture IS NULL OR t.departureTime <= :latestDeparture) " +
            "AND (:minPrice IS NULL OR t.price >= :minPrice) " +
            "AND (:maxPrice IS NULL OR t.price <= :maxPrice) " +
-           "AND (:departureTimeStart IS NULL OR TIME(t.departureTime) >= :departureTimeStart) " +
-           "AND (:departureTimeEnd IS NULL OR TIME(t.departureTime) <= :departureTimeEnd) " +
            "AND (:busTypes IS NULL OR b.busType IN :busTypes) " +
-           "AND (:minAvailableSeats IS NULL OR (b.totalSeats - " +
-           "    (SELECT COUNT(bk.id) FROM Booking bk WHERE bk.tripId = t.id AND bk.status = 'CONFIRMED')) >= :minAvailableSeats) " +
+           "AND (:minAvailableSeats IS NULL OR t.availableSeats >= :minAvailableSeats) " +
            "AND (:busOperators IS NULL OR b.companyName IN :busOperators)")
-    List<Trip> searchTrips(
+    List<Trip> searchTripsInRange(
             @Param("departureCityId") String departureCityId,
             @Param("destinationCityId") String destinationCityId,
-            @Param("date") LocalDate date,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture,
             @Param("minPrice") BigDecimal minPrice,
             @Param("maxPrice") BigDecimal maxPrice,
-            @Param("departureTimeStart") LocalTime departureTimeStart,
-            @Param("departureTimeEnd") LocalTime departureTimeEnd,
             @Param("busTypes") List<BusType> busTypes,
             @Param("minAvailableSeats") Integer minAvailableSeats,
             @Param("busOperators") List<String> busOperators
     );
     
+    /**
+     * Search trips on any of the given routes, returning each trip with its bus and
+     * city names joined in, so results can be built without further lookups.
+     * 
+     * @param routeIds the IDs of the routes to search
+     * @param date the travel date
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param departureTimeStart the earliest departure time (optional)
+     * @param departureTimeEnd the latest departure time (optional)
+     * @param busTypes the list of bus types to filter by (optional)
+     * @param minAvailableSeats the minimum available seats (optional)
+     * @param busOperators the list of bus operators to filter by (optional)
+     * @return a list of trip search rows matching the criteria
+     */
+    default List<TripSearchRow> searchTripRows(
+            Collection<String> routeIds,
+            LocalDate date,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalTime departureTimeStart,
+            LocalTime departureTimeEnd,
+            List<BusType> busTypes,
+            Integer minAvailableSeats,
+            List<String> busOperators) {
+        return searchTripRowsInRange(routeIds,
+                startOfDay(date), startOfDay(date.plusDays(1)),
+                departureTimeStart != null ? date.atTime(departureTimeStart) : null,
+                departureTimeEnd != null ? date.atTime(departureTimeEnd) : null,
+                minPrice, maxPrice, busTypes, minAvailableSeats, busOperators);
+    }
+    
+    /**
+     * Search trips on any of the given routes departing in [departureFrom, departureUntil),
+     * returning each trip with its bus and city names joined in.
+     * 
+     * @param routeIds the IDs of the routes to search
+     * @param departureFrom start of the travel day, inclusive
+     * @param departureUntil start of the next day, exclusive
+     * @param earliestDeparture the earliest departure (optional)
+     * @param latestDeparture the latest departure, inclusive (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param busTypes the list of bus types to filter by (optional)
+     * @param minAvailableSeats the minimum available seats (optional)
+     * @param busOperators the list of bus operators to filter by (optional)
+     * @return a list of trip search rows matching the criteria
+     */
+    @Query(TRIP_SEARCH_ROWS)
+    List<TripSearchRow> searchTripRowsInRange(
+            @Param("routeIds") Collection<String> routeIds,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("busTypes") List<BusType> busTypes,
+            @Param("minAvailableSeats") Integer minAvailableSeats,
+            @Param("busOperators") List<String> busOperators
+    );
+    
+    /**
+     * Find one page of trips on any of the given routes, ordered by a sort option and
+     * continuing after the position of the last trip of the previous page. Each order
+     * reads its page as an index range instead of sorting every matching trip.
+     * 
+     * @param routeIds the IDs of the routes to search
+     * @param date the travel date
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param departureTimeStart the earliest departure time (optional)
+     * @param departureTimeEnd the latest departure time (optional)
+     * @param busTypes the list of bus types to filter by (optional)
+     * @param minAvailableSeats the minimum available seats (optional)
+     * @param busOperators the list of bus operators to filter by (optional)
+     * @param sortBy CHEAPEST, FASTEST or MOST_AVAILABLE; anything else orders by departure
+     * @param afterKey the sort key of the last trip: price in minor units, duration in minutes
+     *                 or negated available seats; null for the first page
+     * @param afterDeparture the departure of the last trip (ignored for the first page)
+     * @param afterId the ID of the last trip (ignored for the first page)
+     * @param limit the maximum number of trips
+     * @return the page of trip search rows, ordered by the sort key, departure and ID
+     */
+    default List<TripSearchRow> findTripRowPage(
+            Collection<String> routeIds,
+            LocalDate date,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalTime departureTimeStart,
+            LocalTime departureTimeEnd,
+            List<BusType> busTypes,
+            Integer minAvailableSeats,
+            List<String> busOperators,
+            String sortBy,
+            Long afterKey,
+            LocalDateTime afterDeparture,
+            String afterId,
+            int limit) {
+        LocalDateTime departureFrom = startOfDay(date);
+        LocalDateTime departureUntil = startOfDay(date.plusDays(1));
+        LocalDateTime earliestDeparture = departureTimeStart != null ? date.atTime(departureTimeStart) : null;
+        LocalDateTime latestDeparture = departureTimeEnd != null ? date.atTime(departureTimeEnd) : null;
+        Pageable page = PageRequest.of(0, limit);
+
+        // The first page starts before any trip: below every key, or at the day's start with the lowest ID
+        LocalDateTime departure = afterKey != null ? afterDeparture : departureFrom;
+        String id = afterKey != null ? afterId : "";
+        switch (sortBy != null ? sortBy.toUpperCase() : "") {
+            case "CHEAPEST":
+                return findTripRowsAfterPrice(routeIds, departureFrom, departureUntil, earliestDeparture,
+                        latestDeparture, minPrice, maxPrice, busTypes, minAvailableSeats, busOperators,
+                        afterKey != null ? BigDecimal.valueOf(afterKey, 2) : BigDecimal.valueOf(-1),
+                        departure, id, page);
+            case "FASTEST":
+                return findTripRowsAfterDuration(routeIds, departureFrom, departureUntil, earliestDeparture,
+                        latestDeparture, minPrice, maxPrice, busTypes, minAvailableSeats, busOperators,
+                        afterKey != null ? afterKey.intValue() : -1, departure, id, page);
+            case "MOST_AVAILABLE":
+                return findTripRowsAfterSeats(routeIds, departureFrom, departureUntil, earliestDeparture,
+                        latestDeparture, minPrice, maxPrice, busTypes, minAvailableSeats, busOperators,
+                        afterKey != null ? (int) -afterKey : Integer.MAX_VALUE, departure, id, page);
+            default:
+                return findTripRowsAfterDeparture(routeIds, departureFrom, departureUntil, earliestDeparture,
+                        latestDeparture, minPrice, maxPrice, busTypes, minAvailableSeats, busOperators,
+                        departure, id, page);
+        }
+    }
+    
+    @Query(TRIP_SEARCH_ROWS + " AND " + AFTER_DEPARTURE_AND_ID +
+           " ORDER BY t.departureTime, t.id")
+    List<TripSearchRow> findTripRowsAfterDeparture(
+            @Param("routeIds") Collection<String> routeIds,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("busTypes") List<BusType> busTypes,
+            @Param("minAvailableSeats") Integer minAvailableSeats,
+            @Param("busOperators") List<String> busOperators,
+            @Param("afterDeparture") LocalDateTime afterDeparture,
+            @Param("afterId") String afterId,
+            Pageable page
+    );
+    
+    @Query(TRIP_SEARCH_ROWS +
+           " AND (t.price > :afterPrice OR (t.price = :afterPrice AND " + AFTER_DEPARTURE_AND_ID + "))" +
+           " ORDER BY t.price, t.departureTime, t.id")
+    List<TripSearchRow> findTripRowsAfterPrice(
+            @Param("routeIds") Collection<String> routeIds,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("busTypes") List<BusType> busTypes,
+            @Param("minAvailableSeats") Integer minAvailableSeats,
+            @Param("busOperators") List<String> busOperators,
+            @Param("afterPrice") BigDecimal afterPrice,
+            @Param("afterDeparture") LocalDateTime afterDeparture,
+            @Param("afterId") String afterId,
+            Pageable page
+    );
+    
+    @Query(TRIP_SEARCH_ROWS +
+           " AND (t.durationMinutes > :afterDuration OR (t.durationMinutes = :afterDuration AND " +
+           AFTER_DEPARTURE_AND_ID + "))" +
+           " ORDER BY t.durationMinutes, t.departureTime, t.id")
+    List<TripSearchRow> findTripRowsAfterDuration(
+            @Param("routeIds") Collection<String> routeIds,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("busTypes") List<BusType> busTypes,
+            @Param("minAvailableSeats") Integer minAvailableSeats,
+            @Param("busOperators") List<String> busOperators,
+            @Param("afterDuration") Integer afterDuration,
+            @Param("afterDeparture") LocalDateTime afterDeparture,
+            @Param("afterId") String afterId,
+            Pageable page
+    );
+    
+    @Query(TRIP_SEARCH_ROWS +
+           " AND (t.availableSeats < :afterSeats OR (t.availableSeats = :afterSeats AND " +
+           AFTER_DEPARTURE_AND_ID + "))" +
+           " ORDER BY t.availableSeats DESC, t.departureTime, t.id")
+    List<TripSearchRow> findTripRowsAfterSeats(
+            @Param("routeIds") Collection<String> routeIds,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("busTypes") List<BusType> busTypes,
+            @Param("minAvailableSeats") Integer minAvailableSeats,
+            @Param("busOperators") List<String> busOperators,
+            @Param("afterSeats") Integer afterSeats,
+            @Param("afterDeparture") LocalDateTime afterDeparture,
+            @Param("afterId") String afterId,
+            Pageable page
+    );
+    
+    /**
+     * Find the open trips departing in [departureFrom, departureUntil) for the in-memory
+     * trip search index.
+     * 
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return the index rows of the trips
+     */
+    default List<TripIndexRow> findTripIndexRows(LocalDateTime departureFrom, LocalDateTime departureUntil) {
+        return findTripIndexRowsInRange(departureFrom, departureUntil, null, null, null);
+    }
+    
+    /**
+     * Find the open trips between two cities departing on a date, i.e. one partition
+     * of the trip search index.
+     * 
+     * @param departureCityId the departure city ID
+     * @param destinationCityId the destination city ID
+     * @param date the travel date
+     * @return the index rows of the trips
+     */
+    default List<TripIndexRow> findTripIndexRows(String departureCityId, String destinationCityId, LocalDate date) {
+        return findTripIndexRowsInRange(startOfDay(date), startOfDay(date.plusDays(1)),
+                departureCityId, destinationCityId, null);
+    }
+    
+    /**
+     * Find a trip for the trip search index if it is open and departs in
+     * [departureFrom, departureUntil).
+     * 
+     * @param tripId the trip ID
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return the index row of the trip
+     */
+    default Optional<TripIndexRow> findTripIndexRow(String tripId, LocalDateTime departureFrom,
+            LocalDateTime departureUntil) {
+        return findTripIndexRowsInRange(departureFrom, departureUntil, null, null, tripId)
+                .stream()
+                .findFirst();
+    }
+    
+    /**
+     * Find open trips departing in [departureFrom, departureUntil), returning each trip
+     * with its route, city and bus columns joined in.
+     * 
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @param departureCityId the departure city ID (optional)
+     * @param destinationCityId the destination city ID (optional)
+     * @param tripId the trip ID (optional)
+     * @return the index rows of the trips
+     */
+    @Query("SELECT t.id AS id, t.routeId AS routeId, r.departureCityId AS departureCityId, " +
+           "r.destinationCityId AS destinationCityId, t.busId AS busId, b.companyName AS busCompany, " +
+           "b.busNumber AS busNumber, dc.name AS departureCity, ac.name AS destinationCity, " +
+           "t.departureTime AS departureTime, t.arrivalTime AS arrivalTime, t.price AS price, " +
+           "b.busType AS busType, b.totalSeats AS totalSeats, t.availableSeats AS availableSeats, " +
+           "b.amenities AS amenities " +
+           "FROM Trip t " +
+           "JOIN Route r ON t.routeId = r.id " +
+           "JOIN Bus b ON t.busId = b.id " +
+           "JOIN City dc ON r.departureCityId = dc.id " +
+           "JOIN City ac ON r.destinationCityId = ac.id " +
+           "WHERE t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
+           "AND t.isOpen = true " +
+           "AND (:departureCityId IS NULL OR r.departureCityId = :departureCityId) " +
+           "AND (:destinationCityId IS NULL OR r.destinationCityId = :destinationCityId) " +
+           "AND (:tripId IS NULL OR t.id = :tripId)")
+    List<TripIndexRow> findTripIndexRowsInRange(
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil,
+            @Param("departureCityId") String departureCityId,
+            @Param("destinationCityId") String destinationCityId,
+            @Param("tripId") String tripId
+    );
+    
+    /**
+     * Find the available seat counters of open trips departing in [departureFrom, departureUntil).
+     * 
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return the seat counters of the trips
+     */
+    @Query("SELECT t.id AS id, t.availableSeats AS availableSeats FROM Trip t " +
+           "WHERE t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
+           "AND t.isOpen = true")
+    List<TripSeatAvailability> findAvailableSeatsDepartingBetween(
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil);
+    
+    /**
+     * Aggregate the open trips between two cities per travel day, for the fare calendar.
+     * The cheapest price only considers trips with seats left.
+     * 
+     * @param departureCityId the departure city ID
+     * @param destinationCityId the destination city ID
+     * @param departureFrom start of the first day, inclusive
+     * @param departureUntil start of the day after the last day, exclusive
+     * @return one row per day that has trips, ordered by day
+     */
+    @Query("SELECT CAST(t.departureTime AS LocalDate) AS day, " +
+           "MIN(CASE WHEN t.availableSeats > 0 THEN t.price END) AS cheapestPrice, " +
+           "SUM(CASE WHEN t.availableSeats > 0 THEN t.availableSeats ELSE 0 END) AS availableSeats, " +
+           "COUNT(t) AS tripCount " +
+           "FROM Trip t " +
+           "JOIN Route r ON t.routeId = r.id " +
+           "WHERE r.departureCityId = :departureCityId AND r.destinationCityId = :destinationCityId " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
+           "AND t.departureTime > CURRENT_TIMESTAMP " +
+           "AND t.isOpen = true " +
+           "GROUP BY CAST(t.departureTime AS LocalDate) " +
+           "ORDER BY CAST(t.departureTime AS LocalDate)")
+    List<FareCalendarRow> findFareCalendar(
+            @Param("departureCityId") String departureCityId,
+            @Param("destinationCityId") String destinationCityId,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil);
+    
     /**
      * Find trips by bus ID.
      * 
@@ -107,15 +522,24 @@ public interface TripRepository extends JpaRepository<Trip, String> {
      * @param endTime the latest departure time
      * @return a list of trips departing within the time range
      */
-    @Query("SELECT t FROM Trip t WHERE DATE(t.departureTime) = :date " +
-           "AND TIME(t.departureTime) BETWEEN :startTime AND :endTime " +
+    default List<Trip> findTripsByDateAndTimeRange(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return findOpenTripsDepartingBetween(date.atTime(startTime), date.atTime(endTime));
+    }
+    
+    /**
+     * Find open trips departing between two instants, both inclusive.
+     * 
+     * @param earliestDeparture the earliest departure
+     * @param latestDeparture the latest departure
+     * @return a list of trips ordered by departure time
+     */
+    @Query("SELECT t FROM Trip t WHERE t.departureTime BETWEEN :earliestDeparture AND :latestDeparture " +
            "AND t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
            "ORDER BY t.departureTime")
-    List<Trip> findTripsByDateAndTimeRange(
-            @Param("date") LocalDate date,
-            @Param("startTime") LocalTime startTime,
-            @Param("endTime") LocalTime endTime
+    List<Trip> findOpenTripsDepartingBetween(
+            @Param("earliestDeparture") LocalDateTime earliestDeparture,
+            @Param("latestDeparture") LocalDateTime latestDeparture
     );
     
     /**
@@ -145,20 +569,101 @@ public interface TripRepository extends JpaRepository<Trip, String> {
     List<Trip> findTripsByBusAdmin(@Param("adminUserId") String adminUserId);
     
     /**
-     * Calculate available seats for a trip.
+     * Calculate available seats for a trip from its confirmed bookings.
+     * Reads should use {@link #findAvailableSeats}; this is the source of truth
+     * the counter is reconciled against. Seats are counted by booking_seat_count,
+     * which reads both stored seat number formats.
      * 
      * @param tripId the trip ID
      * @return the number of available seats
      */
-    @Query("SELECT (b.totalSeats - COALESCE(SUM(CASE WHEN bk.status = 'CONFIRMED' THEN " +
-           "    (SELECT COUNT(*) FROM json_array_elements_text(CAST(bk.seatNumbers AS json))) ELSE 0 END), 0)) " +
-           "FROM Trip t " +
-           "JOIN Bus b ON t.busId = b.id " +
-           "LEFT JOIN Booking bk ON bk.tripId = t.id " +
+    @Query(value = "SELECT b.total_seats - COALESCE(SUM(booking_seat_count(bk.seat_numbers)), 0) " +
+           "FROM trips t " +
+           "JOIN buses b ON b.id = t.bus_id " +
+           "LEFT JOIN bookings bk ON bk.trip_id = t.id AND bk.status = 'CONFIRMED' " +
            "WHERE t.id = :tripId " +
-           "GROUP BY b.totalSeats")
+           "GROUP BY b.total_seats",
+           nativeQuery = true)
     Integer calculateAvailableSeats(@Param("tripId") String tripId);
     
+    /**
+     * Read the maintained available seat counter of a trip.
+     * 
+     * @param tripId the trip ID
+     * @return the number of available seats, null if the trip does not exist
+     */
+    @Query("SELECT t.availableSeats FROM Trip t WHERE t.id = :tripId")
+    Integer findAvailableSeats(@Param("tripId") String tripId);
+    
+    /**
+     * Take seats off a trip's available seat counter when a booking is confirmed.
+     * 
+     * @param tripId the trip ID
+     * @param seats the number of seats booked
+     * @return the number of trips updated
+     */
+    @Modifying
+    @Query("UPDATE Trip t SET t.availableSeats = t.availableSeats - :seats WHERE t.id = :tripId")
+    int decrementAvailableSeats(@Param("tripId") String tripId, @Param("seats") int seats);
+    
+    /**
+     * Give seats back to a trip's available seat counter when a confirmed booking is cancelled.
+     * 
+     * @param tripId the trip ID
+     * @param seats the number of seats freed
+     * @return the number of trips updated
+     */
+    @Modifying
+    @Query("UPDATE Trip t SET t.availableSeats = t.availableSeats + :seats WHERE t.id = :tripId")
+    int incrementAvailableSeats(@Param("tripId") String tripId, @Param("seats") int seats);
+    
+    /**
+     * Close a trip to new bookings and searches.
+     * 
+     * @param tripId the trip ID
+     * @return the number of trips closed
+     */
+    @Modifying
+    @Query("UPDATE Trip t SET t.isOpen = false WHERE t.id = :tripId AND t.isOpen = true")
+    int closeTrip(@Param("tripId") String tripId);
+    
+    /**
+     * Overwrite a trip's available seat counter.
+     * 
+     * @param tripId the trip ID
+     * @param availableSeats the recomputed number of available seats
+     * @return the number of trips updated
+     */
+    @Modifying
+    @Query("UPDATE Trip t SET t.availableSeats = :availableSeats WHERE t.id = :tripId")
+    int setAvailableSeats(@Param("tripId") String tripId, @Param("availableSeats") int availableSeats);
+    
+    /**
+     * Lock a trip row until the end of the transaction, so its seat counter
+     * cannot change while it is being recomputed.
+     * 
+     * @param tripId the trip ID
+     * @return the trip ID if the trip exists
+     */
+    @Query(value = "SELECT t.id FROM trips t WHERE t.id = :tripId FOR UPDATE", nativeQuery = true)
+    Optional<String> lockTrip(@Param("tripId") String tripId);
+    
+    /**
+     * Find trips departing after a given time whose available seat counter does not
+     * match their confirmed bookings.
+     * 
+     * @param departingAfter only trips departing after this time are checked
+     * @return the IDs of trips whose counter has drifted
+     */
+    @Query(value = "SELECT t.id FROM trips t " +
+           "JOIN buses b ON b.id = t.bus_id " +
+           "LEFT JOIN bookings bk ON bk.trip_id = t.id AND bk.status = 'CONFIRMED' " +
+           "WHERE t.departure_time > :departingAfter " +
+           "GROUP BY t.id, t.available_seats, b.total_seats " +
+           "HAVING t.available_seats <> b.total_seats - COALESCE(SUM(booking_seat_count(bk.seat_numbers)), 0)",
+           nativeQuery = true)
+    List<String> findTripsWithSeatCounterDrift(@Param("departingAfter") LocalDateTime departingAfter);
+    
     /**
      * Find trips with minimum available seats.
      * 
@@ -169,8 +674,7 @@ public interface TripRepository extends JpaRepository<Trip, String> {
            "JOIN Bus b ON t.busId = b.id " +
            "WHERE t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
-           "AND (b.totalSeats - COALESCE(" +
-           "    (SELECT COUNT(*) FROM Booking bk WHERE bk.tripId = t.id AND bk.status = 'CONFIRMED'), 0)) >= :minSeats " +
+           "AND t.availableSeats >= :minSeats " +
            "ORDER BY t.departureTime")
     List<Trip> findTripsWithMinimumAvailableSeats(@Param("minSeats") Integer minSeats);
     
@@ -192,12 +696,27 @@ public interface TripRepository extends JpaRepository<Trip, String> {
      * @param date the travel date
      * @return a list of trips ordered by price (cheapest first)
      */
+    default List<Trip> findCheapestTrips(String routeId, LocalDate date) {
+        return findCheapestTripsInRange(routeId, startOfDay(date), startOfDay(date.plusDays(1)));
+    }
+    
+    /**
+     * Find open trips of a route departing in [departureFrom, departureUntil), cheapest first.
+     * 
+     * @param routeId the route ID
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return a list of trips ordered cheapest first
+     */
     @Query("SELECT t FROM Trip t WHERE t.routeId = :routeId " +
-           "AND DATE(t.departureTime) = :date " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
            "AND t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
            "ORDER BY t.price ASC")
-    List<Trip> findCheapestTrips(@Param("routeId") String routeId, @Param("date") LocalDate date);
+    List<Trip> findCheapestTripsInRange(
+            @Param("routeId") String routeId,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil);
     
     /**
      * Find fastest trips for a route and date (by arrival time).
@@ -206,12 +725,27 @@ public interface TripRepository extends JpaRepository<Trip, String> {
      * @param date the travel date
      * @return a list of trips ordered by duration (fastest first)
      */
+    default List<Trip> findFastestTrips(String routeId, LocalDate date) {
+        return findFastestTripsInRange(routeId, startOfDay(date), startOfDay(date.plusDays(1)));
+    }
+    
+    /**
+     * Find open trips of a route departing in [departureFrom, departureUntil), fastest first.
+     * 
+     * @param routeId the route ID
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return a list of trips ordered fastest first
+     */
     @Query("SELECT t FROM Trip t WHERE t.routeId = :routeId " +
-           "AND DATE(t.departureTime) = :date " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
            "AND t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
            "ORDER BY (t.arrivalTime - t.departureTime) ASC")
-    List<Trip> findFastestTrips(@Param("routeId") String routeId, @Param("date") LocalDate date);
+    List<Trip> findFastestTripsInRange(
+            @Param("routeId") String routeId,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil);
     
     /**
      * Find earliest departure trips for a route and date.
@@ -220,10 +754,37 @@ public interface TripRepository extends JpaRepository<Trip, String> {
      * @param date the travel date
      * @return a list of trips ordered by departure time (earliest first)
      */
+    default List<Trip> findEarliestTrips(String routeId, LocalDate date) {
+        return findEarliestTripsInRange(routeId, startOfDay(date), startOfDay(date.plusDays(1)));
+    }
+    
+    /**
+     * Find open trips of a route departing in [departureFrom, departureUntil), earliest departure first.
+     * 
+     * @param routeId the route ID
+     * @param departureFrom the earliest departure, inclusive
+     * @param departureUntil the latest departure, exclusive
+     * @return a list of trips ordered earliest departure first
+     */
     @Query("SELECT t FROM Trip t WHERE t.routeId = :routeId " +
-           "AND DATE(t.departureTime) = :date " +
+           "AND t.departureTime >= :departureFrom AND t.departureTime < :departureUntil " +
            "AND t.departureTime > CURRENT_TIMESTAMP " +
            "AND t.isOpen = true " +
            "ORDER BY t.departureTime ASC")
-    List<Trip> findEarliestTrips(@Param("routeId") String routeId, @Param("date") LocalDate date);
-}
\ No newline at end of file
+    List<Trip> findEarliestTripsInRange(
+            @Param("routeId") String routeId,
+            @Param("departureFrom") LocalDateTime departureFrom,
+            @Param("departureUntil") LocalDateTime departureUntil);
+    
+    /**
+     * Start of a travel day. Date filters compare departure_time against a
+     * half-open [day start, next day start) range instead of DATE(departure_time),
+     * so the (route_id, departure_time) indexes can be range scanned.
+     * 
+     * @param date the travel date
+     * @return midnight at the start of the date
+     */
+    private static LocalDateTime startOfDay(LocalDate date) {
+        return date.atStartOfDay();
+    }
+}
@@ -0,0 +1,38 @@
+package com.busticket.repository;
+
+import com.busticket.model.BusType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a trip search result with its bus and city names already joined.
+ */
+public interface TripSearchRow {
+
+    String getId();
+
+    String getBusId();
+
+    String getBusCompany();
+
+    String getBusNumber();
+
+    String getDepartureCity();
+
+    String getDestinationCity();
+
+    LocalDateTime getDepartureTime();
+
+    LocalDateTime getArrivalTime();
+
+    BigDecimal getPrice();
+
+    BusType getBusType();
+
+    Integer getTotalSeats();
+
+    Integer getAvailableSeats();
+
+    String getAmenities();
+}
@@ -0,0 +1,11 @@
+package com.busticket.repository;
+
+/**
+ * Projection of a trip's available seat counter.
+ */
+public interface TripSeatAvailability {
+
+    String getId();
+
+    Integer getAvailableSeats();
+}
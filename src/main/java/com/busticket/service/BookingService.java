@@ -3,6 +3,9 @@ package com.busticket.service;
 import com.busticket.dto.BookingRequest;
 import com.busticket.dto.BookingResponse;
 import com.busticket.dto.PassengerInfo;
+import com.busticket.event.SeatBookedEvent;
+import com.busticket.event.SeatHoldExpiredEvent;
+import com.busticket.event.SeatReleasedEvent;
 import com.busticket.model.Booking;
 import com.busticket.model.BookingStatus;
 import com.busticket.model.Trip;
@@ -12,13 +15,20 @@ import com.busticket.repository.TripRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -31,25 +41,53 @@ public class BookingService {
     private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
     private static final BigDecimal TAX_RATE = new BigDecimal("0.18"); // 18% tax
     private static final BigDecimal SERVICE_FEE_RATE = new BigDecimal("0.05"); // 5% service fee
-    private static final String LOCK_PREFIX = "lock:";
+    private static final String LOCK_BOOKING_PREFIX = "lock_booking:";
+    private static final String BOOKING_LOCK_PREFIX = "booking_lock:";
+    private static final long LOCK_MAPPING_TTL_HOURS = 24;
 
     private final BookingRepository bookingRepository;
     private final BusRepository busRepository;
     private final TripRepository tripRepository;
     private final SeatLockManager seatLockManager;
+    private final SeatOccupancyService seatOccupancyService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyService idempotencyService;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public BookingService(BookingRepository bookingRepository,
             BusRepository busRepository,
             TripRepository tripRepository,
             SeatLockManager seatLockManager,
-            RedisTemplate<String, Object> redisTemplate) {
+            SeatOccupancyService seatOccupancyService,
+            RedisTemplate<String, Object> redisTemplate,
+            ApplicationEventPublisher eventPublisher,
+            IdempotencyService idempotencyService,
+            PlatformTransactionManager transactionManager) {
         this.bookingRepository = bookingRepository;
         this.busRepository = busRepository;
         this.tripRepository = tripRepository;
         this.seatLockManager = seatLockManager;
+        this.seatOccupancyService = seatOccupancyService;
         this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.idempotencyService = idempotencyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates a new booking once per idempotency key. A retry with the same key gets the
+     * booking created by the first request; the response is stored only after the
+     * booking committed.
+     *
+     * @param request the booking request
+     * @param idempotencyKey the client-supplied key, or null to always create a booking
+     * @return the booking
+     */
+    public BookingResponse createBooking(BookingRequest request, String idempotencyKey) {
+        return idempotencyService.execute("booking", request.getUserId(), idempotencyKey, request,
+                BookingResponse.class, () -> transactionTemplate.execute(status -> createBooking(request)));
     }
 
     /**
@@ -60,7 +98,8 @@ public class BookingService {
         logger.info("Creating booking for trip: {}, seats: {}", request.getTripId(), request.getSeatNumbers());
 
         // Validate lock
-        validateLock(request.getLockId(), request.getTripId(), request.getSeatNumbers());
+        SeatLockManager.LockInfo lockInfo = validateLock(request.getLockId(), request.getTripId(),
+                request.getSeatNumbers(), request.getUserId());
 
         // Validate passenger count
         validatePassengerCount(request.getPassengers(), request.getSeatNumbers());
@@ -87,8 +126,16 @@ public class BookingService {
         booking.setTaxes(pricing.taxes);
         booking.setServiceFee(pricing.serviceFee);
         booking.setStatus(BookingStatus.PENDING);
+        booking.setFencingToken(lockInfo.getFencingToken());
         booking.setCreatedAt(LocalDateTime.now());
 
+        // Claim the seats in Postgres; a hold that was superseded while we got here loses
+        int fencedSeats = bookingRepository.fenceSeats(request.getTripId(), booking.getSeatNumbers(),
+                lockInfo.getFencingToken(), booking.getId());
+        if (fencedSeats != request.getSeatNumbers().size()) {
+            throw new IllegalStateException("Seat lock was superseded by a newer lock");
+        }
+
         // Save booking
         bookingRepository.save(booking);
 
@@ -114,6 +161,14 @@ public class BookingService {
             throw new IllegalStateException("Booking already processed: " + booking.getStatus());
         }
 
+        // A newer hold may have fenced some of the seats since this booking was created;
+        // the seats still fenced are locked and marked sold along with the confirmation
+        List<String> seatNumbers = SeatOccupancyService.parseSeatNumbers(booking.getSeatNumbers());
+        if (booking.getFencingToken() != null
+                && bookingRepository.confirmFencedSeats(bookingId) != seatNumbers.size()) {
+            throw new IllegalStateException("Seats of booking " + bookingId + " were taken by a newer lock");
+        }
+
         // Update booking status
         booking.setStatus(BookingStatus.CONFIRMED);
         booking.setPaymentId(paymentId);
@@ -121,8 +176,16 @@ public class BookingService {
 
         bookingRepository.save(booking);
 
-        // Release seat locks
-        releaseLockForBooking(bookingId);
+        // The trip's seat counter changes in the same transaction as the booking status
+        tripRepository.decrementAvailableSeats(booking.getTripId(), seatNumbers.size());
+
+        // Mark seats as booked before the hold goes away, once the confirmation is committed
+        // The booked event goes out after the hold's release event, so watchers end on BOOKED
+        runAfterCommit(() -> {
+            seatOccupancyService.markBooked(booking.getTripId(), seatNumbers);
+            releaseLockForBooking(bookingId);
+            eventPublisher.publishEvent(new SeatBookedEvent(booking.getTripId(), seatNumbers, bookingId));
+        });
 
         // Get trip details for response
         Trip trip = tripRepository.findById(booking.getTripId())
@@ -152,20 +215,55 @@ public class BookingService {
             throw new IllegalStateException("Booking already cancelled");
         }
 
+        BookingStatus previousStatus = booking.getStatus();
+
         // Update booking status
         booking.setStatus(BookingStatus.CANCELLED);
         booking.setCancelledAt(LocalDateTime.now());
 
         bookingRepository.save(booking);
 
-        // Release locks if booking was pending
-        if (booking.getStatus() == BookingStatus.PENDING) {
+        // Release locks if booking was pending, free the seats if it was confirmed
+        if (previousStatus == BookingStatus.PENDING) {
             releaseLockForBooking(bookingId);
+        } else if (previousStatus == BookingStatus.CONFIRMED) {
+            List<String> seatNumbers = SeatOccupancyService.parseSeatNumbers(booking.getSeatNumbers());
+            tripRepository.incrementAvailableSeats(booking.getTripId(), seatNumbers.size());
+            bookingRepository.releaseFencedSeats(bookingId);
+            runAfterCommit(() -> {
+                seatOccupancyService.markAvailable(booking.getTripId(), seatNumbers);
+                eventPublisher.publishEvent(new SeatReleasedEvent(booking.getTripId(), seatNumbers, null,
+                        SeatReleasedEvent.Reason.CANCELLED));
+            });
         }
 
         logger.info("Booking cancelled successfully: PNR={}", booking.getPnr());
     }
 
+    /**
+     * Releases the seats of bookings cancelled in bulk, such as those of a cancelled trip.
+     * The holds of the pending bookings are released and the seats of the confirmed ones
+     * freed. Call it once the cancellation is committed.
+     *
+     * @param tripId the trip of the bookings
+     * @param cancelled the bookings as they were before they were cancelled
+     */
+    public void releaseCancelledBookings(String tripId, List<Booking> cancelled) {
+        List<String> freedSeats = new ArrayList<>();
+        for (Booking booking : cancelled) {
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                releaseLockForBooking(booking.getId());
+            } else if (booking.getStatus() == BookingStatus.CONFIRMED) {
+                freedSeats.addAll(SeatOccupancyService.parseSeatNumbers(booking.getSeatNumbers()));
+            }
+        }
+        if (!freedSeats.isEmpty()) {
+            seatOccupancyService.markAvailable(tripId, freedSeats);
+            eventPublisher.publishEvent(new SeatReleasedEvent(tripId, freedSeats, null,
+                    SeatReleasedEvent.Reason.CANCELLED));
+        }
+    }
+
     /**
      * Retrieves a booking by ID
      */
@@ -207,25 +305,45 @@ public class BookingService {
         return convertToBookingResponse(booking, trip);
     }
 
+    /**
+     * Expires the pending booking of a seat hold that ran out before payment
+     */
+    @EventListener
+    @Transactional
+    public void onSeatHoldExpired(SeatHoldExpiredEvent event) {
+        String lockId = event.getLockId();
+        Object bookingId = redisTemplate.opsForValue().get(LOCK_BOOKING_PREFIX + lockId);
+        if (bookingId == null) {
+            return; // Hold never got a booking
+        }
+
+        int expired = bookingRepository.expirePendingBooking(bookingId.toString(), LocalDateTime.now());
+        redisTemplate.delete(List.of(LOCK_BOOKING_PREFIX + lockId, BOOKING_LOCK_PREFIX + bookingId));
+
+        if (expired > 0) {
+            logger.info("Booking expired with its seat hold: booking={}, lock={}", bookingId, lockId);
+        }
+    }
+
     // Private helper methods
 
-    private void validateLock(String lockId, String tripId, List<String> seatNumbers) {
+    private SeatLockManager.LockInfo validateLock(String lockId, String tripId, List<String> seatNumbers,
+            String userId) {
         if (lockId == null || lockId.trim().isEmpty()) {
             throw new IllegalArgumentException("Lock ID is required");
         }
 
-        // Check if lock exists and is valid
-        Object lockInfo = redisTemplate.opsForValue().get(LOCK_PREFIX + lockId);
+        // Check that the lock exists and still owns every seat in one round trip
+        SeatLockManager.LockInfo lockInfo = seatLockManager.verifyHold(lockId, tripId, seatNumbers);
         if (lockInfo == null) {
             throw new IllegalStateException("Lock expired or invalid");
         }
 
-        // Verify all seats are still locked
-        for (String seatNumber : seatNumbers) {
-            if (!seatLockManager.isLocked(tripId, seatNumber)) {
-                throw new IllegalStateException("Seat " + seatNumber + " is no longer locked");
-            }
+        if (userId != null && lockInfo.getUserId() != null && !userId.equals(lockInfo.getUserId())) {
+            throw new IllegalStateException("Lock " + lockId + " belongs to another user");
         }
+
+        return lockInfo;
     }
 
     private void validatePassengerCount(List<PassengerInfo> passengers, List<String> seatNumbers) {
@@ -301,7 +419,9 @@ public class BookingService {
     }
 
     private void storeLockBookingMapping(String lockId, String bookingId) {
-        redisTemplate.opsForValue().set("lock_booking:" + lockId, bookingId, 15, TimeUnit.MINUTES);
+        // Kept well past the hold's lifetime, since holds can be extended; removed once the booking settles
+        redisTemplate.opsForValue().set(LOCK_BOOKING_PREFIX + lockId, bookingId, LOCK_MAPPING_TTL_HOURS, TimeUnit.HOURS);
+        redisTemplate.opsForValue().set(BOOKING_LOCK_PREFIX + bookingId, lockId, LOCK_MAPPING_TTL_HOURS, TimeUnit.HOURS);
     }
 
     private void releaseLockForBooking(String bookingId) {
@@ -310,17 +430,30 @@ public class BookingService {
             String lockId = findLockIdForBooking(bookingId);
             if (lockId != null) {
                 seatLockManager.releaseLock(lockId);
-                redisTemplate.delete("lock_booking:" + lockId);
+                redisTemplate.delete(List.of(LOCK_BOOKING_PREFIX + lockId, BOOKING_LOCK_PREFIX + bookingId));
             }
         } catch (Exception e) {
             logger.warn("Failed to release lock for booking {}: {}", bookingId, e.getMessage());
         }
     }
 
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private String findLockIdForBooking(String bookingId) {
-        // This is a simplified approach - in production, you might want to store this
-        // mapping more efficiently
-        return null; // Implementation would depend on how you store the lock-booking mapping
+        Object lockId = redisTemplate.opsForValue().get(BOOKING_LOCK_PREFIX + bookingId);
+        return lockId != null ? lockId.toString() : null;
     }
 
     private BookingResponse convertToBookingResponse(Booking booking, Trip trip) {
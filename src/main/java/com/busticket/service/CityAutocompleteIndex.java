@@ -0,0 +1,291 @@
+package com.busticket.service;
+
+import com.busticket.dto.CityMatch;
+import com.busticket.dto.CitySuggestion;
+import com.busticket.repository.CityAliasRow;
+import com.busticket.repository.CityPopularityRow;
+import com.busticket.repository.CityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index of city names for autocomplete.
+ *
+ * City names are held in a trie whose every node knows the best ranked cities below
+ * it, so a suggestion is a walk down the typed prefix with no I/O and no scan of the
+ * matching cities. Cities rank by popularity, then by name. Aliases such as former
+ * names and transliterations lead to their city, and misspelled names are matched by
+ * edit distance through a {@link FuzzyCityMatcher}. The index is loaded on startup and
+ * reloaded periodically, which picks up popularity shifts as well as cities and aliases
+ * added or renamed in the database.
+ */
+@Service
+public class CityAutocompleteIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityAutocompleteIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Shortest prefix worth a fuzzy match when no city name starts with it. */
+    private static final int MIN_FUZZY_PREFIX = 3;
+
+    private final CityRepository cityRepository;
+    private final int maxSuggestions;
+    private final double minMatchScore;
+
+    private volatile Trie trie;
+
+    public CityAutocompleteIndex(CityRepository cityRepository,
+            @Value("${city-autocomplete.max-suggestions:10}") int maxSuggestions,
+            @Value("${city-autocomplete.min-match-score:0.75}") double minMatchScore) {
+        if (maxSuggestions < 1) {
+            throw new IllegalArgumentException("Autocomplete must suggest at least one city");
+        }
+        if (minMatchScore <= 0 || minMatchScore > 1) {
+            throw new IllegalArgumentException("Minimum match score must be above 0 and at most 1");
+        }
+        this.cityRepository = cityRepository;
+        this.maxSuggestions = maxSuggestions;
+        this.minMatchScore = minMatchScore;
+    }
+
+    /**
+     * Suggest the best ranked cities whose name or alias starts with a prefix, ignoring
+     * case, accents and punctuation. If none does, suggest the cities whose name is
+     * closest to the prefix instead.
+     *
+     * @param prefix the typed prefix
+     * @return up to the configured number of suggestions, best first; nothing if the index is not loaded
+     */
+    public Optional<List<CitySuggestion>> suggest(String prefix) {
+        Trie current = trie;
+        if (current == null) {
+            return Optional.empty();
+        }
+        String normalized = prefix != null ? normalize(prefix) : "";
+        if (normalized.isEmpty()) {
+            return Optional.of(new ArrayList<>());
+        }
+
+        List<CitySuggestion> suggestions = current.suggest(normalized);
+        if (suggestions.isEmpty() && normalized.length() >= MIN_FUZZY_PREFIX) {
+            for (FuzzyCityMatcher.Match match : current.matcher.match(normalized, maxSuggestions)) {
+                suggestions.add(current.suggestions[match.getCity()]);
+            }
+        }
+        return Optional.of(suggestions);
+    }
+
+    /**
+     * Find the cities whose name or alias is closest to a possibly misspelled name.
+     *
+     * @param name the typed name
+     * @return up to the configured number of matches, best first; nothing if the index is not loaded
+     */
+    public Optional<List<CityMatch>> match(String name) {
+        Trie current = trie;
+        if (current == null) {
+            return Optional.empty();
+        }
+
+        List<CityMatch> matches = new ArrayList<>();
+        for (FuzzyCityMatcher.Match match : current.matcher.match(name != null ? normalize(name) : "", maxSuggestions)) {
+            CitySuggestion city = current.suggestions[match.getCity()];
+            matches.add(new CityMatch(city.getName(), city.getState(), match.getScore()));
+        }
+        return Optional.of(matches);
+    }
+
+    /**
+     * Resolve a typed name to the canonical name of the one city it most likely means.
+     * A name resolves only if its best match scores at least the configured minimum and
+     * no other city matches as well.
+     *
+     * @param name the typed name
+     * @return the canonical city name; nothing if the index is not loaded or the name is ambiguous or unknown
+     */
+    public Optional<String> resolve(String name) {
+        Trie current = trie;
+        if (current == null || name == null) {
+            return Optional.empty();
+        }
+
+        List<FuzzyCityMatcher.Match> matches = current.matcher.match(normalize(name), 2);
+        if (matches.isEmpty() || matches.get(0).getScore() < minMatchScore
+                || (matches.size() > 1 && matches.get(1).getScore() >= matches.get(0).getScore())) {
+            return Optional.empty();
+        }
+        return Optional.of(current.suggestions[matches.get(0).getCity()].getName());
+    }
+
+    /**
+     * Load all cities with their popularity and aliases, replacing the current index.
+     */
+    public void reload() {
+        List<CityPopularityRow> cities = cityRepository.findAllWithPopularity();
+        List<CityAliasRow> aliases = cityRepository.findAllAliases();
+        trie = Trie.of(cities, aliases, maxSuggestions);
+        logger.info("City autocomplete index loaded {} cities and {} aliases", cities.size(), aliases.size());
+    }
+
+    /**
+     * Get the number of indexed cities.
+     *
+     * @return the city count, 0 if the index is not loaded
+     */
+    public int size() {
+        Trie current = trie;
+        return current != null ? current.suggestions.length : 0;
+    }
+
+    /**
+     * Fold a name to the form it is indexed under: no accents, lower case, and words
+     * separated by single spaces.
+     */
+    static String normalize(String name) {
+        String folded = DIACRITICS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Immutable trie over normalized city names and aliases, with the fuzzy matcher
+     * over the same keys. Cities are numbered by rank, so the best cities below a node
+     * are its lowest city numbers.
+     */
+    private static final class Trie {
+        private final CitySuggestion[] suggestions;
+        private final Node root;
+        private final FuzzyCityMatcher matcher;
+
+        private Trie(CitySuggestion[] suggestions, Node root, FuzzyCityMatcher matcher) {
+            this.suggestions = suggestions;
+            this.root = root;
+            this.matcher = matcher;
+        }
+
+        private static Trie of(List<CityPopularityRow> cities, List<CityAliasRow> aliases, int topK) {
+            List<CityPopularityRow> ranked = new ArrayList<>(cities);
+            ranked.removeIf(city -> city.getName() == null || city.getName().trim().isEmpty());
+            ranked.sort(Comparator
+                    .comparingLong((CityPopularityRow city) -> city.getPopularity() != null ? city.getPopularity() : 0L)
+                    .reversed()
+                    .thenComparing(CityPopularityRow::getName));
+
+            CitySuggestion[] suggestions = new CitySuggestion[ranked.size()];
+            Map<String, Integer> rankById = new HashMap<>();
+            List<String> keys = new ArrayList<>();
+            List<Integer> keyCities = new ArrayList<>();
+            for (int i = 0; i < ranked.size(); i++) {
+                CityPopularityRow city = ranked.get(i);
+                suggestions[i] = new CitySuggestion(city.getName(), city.getState());
+                rankById.put(city.getId(), i);
+                keys.add(normalize(city.getName()));
+                keyCities.add(i);
+            }
+            // Names come first, so a name wins over an alias spelled the same
+            for (CityAliasRow alias : aliases) {
+                Integer city = rankById.get(alias.getCityId());
+                if (city != null && alias.getAlias() != null) {
+                    keys.add(normalize(alias.getAlias()));
+                    keyCities.add(city);
+                }
+            }
+
+            NodeBuilder root = new NodeBuilder();
+            for (int i = 0; i < keys.size(); i++) {
+                NodeBuilder node = root;
+                for (char c : keys.get(i).toCharArray()) {
+                    node = node.children.computeIfAbsent(c, key -> new NodeBuilder());
+                }
+                node.cities.add(keyCities.get(i));
+            }
+            return new Trie(suggestions, root.build(topK), FuzzyCityMatcher.of(keys, keyCities));
+        }
+
+        private List<CitySuggestion> suggest(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+
+            List<CitySuggestion> result = new ArrayList<>();
+            if (node != null) {
+                for (int city : node.top) {
+                    result.add(suggestions[city]);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final int[] top;
+
+        private Node(char[] keys, Node[] children, int[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    private static final class NodeBuilder {
+        private final TreeMap<Character, NodeBuilder> children = new TreeMap<>();
+        private final List<Integer> cities = new ArrayList<>(1);
+
+        private Node build(int topK) {
+            char[] keys = new char[children.size()];
+            Node[] built = new Node[children.size()];
+            int[] candidates = cities.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                built[i] = entry.getValue().build(topK);
+                candidates = merge(candidates, built[i].top, topK);
+                i++;
+            }
+            return new Node(keys, built, candidates.length > topK ? Arrays.copyOf(candidates, topK) : candidates);
+        }
+
+        private static int[] merge(int[] a, int[] b, int limit) {
+            // A city reached through both its name and an alias is kept once
+            int[] merged = new int[Math.min(limit, a.length + b.length)];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (k < merged.length && (i < a.length || j < b.length)) {
+                if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                    merged[k++] = a[i++];
+                } else if (i >= a.length || b[j] < a[i]) {
+                    merged[k++] = b[j++];
+                } else {
+                    merged[k++] = a[i++];
+                    j++;
+                }
+            }
+            return k < merged.length ? Arrays.copyOf(merged, k) : merged;
+        }
+    }
+}
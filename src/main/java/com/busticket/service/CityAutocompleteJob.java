@@ -0,0 +1,39 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the city autocomplete index on startup and reloads it periodically so
+ * city popularity follows the route network.
+ */
+@Component
+public class CityAutocompleteJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityAutocompleteJob.class);
+
+    private final CityAutocompleteIndex cityAutocompleteIndex;
+
+    public CityAutocompleteJob(CityAutocompleteIndex cityAutocompleteIndex) {
+        this.cityAutocompleteIndex = cityAutocompleteIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        reloadIndex();
+    }
+
+    @Scheduled(fixedDelayString = "${city-autocomplete.reload-interval-ms:3600000}",
+            initialDelayString = "${city-autocomplete.reload-interval-ms:3600000}")
+    public void reloadIndex() {
+        try {
+            cityAutocompleteIndex.reload();
+        } catch (RuntimeException e) {
+            logger.warn("City autocomplete reload failed: {}", e.getMessage());
+        }
+    }
+}
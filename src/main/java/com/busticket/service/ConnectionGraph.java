@@ -0,0 +1,410 @@
+package com.busticket.service;
+
+import com.busticket.dto.ItineraryResponse;
+import com.busticket.dto.TripResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.model.BusType;
+import com.busticket.repository.TripIndexRow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+/**
+ * Time-expanded graph of the open trips between cities, for journeys with transfers.
+ *
+ * Every trip is an edge from its departure city at its departure time to its
+ * destination city at its arrival time. Edges are stored grouped by departure city
+ * and ordered by departure within a city, so the trips leaving a city in a time
+ * window are a contiguous range found by binary search. Apart from the available
+ * seat column the graph is immutable and is rebuilt whole.
+ */
+final class ConnectionGraph {
+
+    private static final BusType[] BUS_TYPES = BusType.values();
+
+    private final LocalDate firstDay;
+    private final LocalDate endDay;
+
+    private final String[] cityNames;
+    private final Map<String, Integer> cityIndex;
+
+    // Outgoing edges of city c are [edgeStart[c], edgeStart[c + 1])
+    private final int[] edgeStart;
+    private final String[] tripIds;
+    private final int[] fromCities;
+    private final int[] toCities;
+    private final long[] departureEpochs;
+    private final long[] arrivalEpochs;
+    private final long[] prices;
+    private final byte[] busTypes;
+    private final int[] busRefs;
+    private final AtomicIntegerArray availableSeats;
+    private final BusInfo[] buses;
+    private final Map<String, Integer> edgeByTrip;
+
+    private ConnectionGraph(LocalDate firstDay, LocalDate endDay, List<TripIndexRow> rows,
+            Function<String, List<String>> amenityParser) {
+        this.firstDay = firstDay;
+        this.endDay = endDay;
+
+        Map<String, Integer> cityIds = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        for (TripIndexRow row : rows) {
+            addCity(cityIds, names, row.getDepartureCityId(), row.getDepartureCity());
+            addCity(cityIds, names, row.getDestinationCityId(), row.getDestinationCity());
+        }
+        cityNames = names.toArray(new String[0]);
+        Map<String, Integer> byName = new HashMap<>(cityNames.length * 2);
+        for (int c = 0; c < cityNames.length; c++) {
+            byName.putIfAbsent(normalize(cityNames[c]), c);
+        }
+        cityIndex = Collections.unmodifiableMap(byName);
+
+        List<TripIndexRow> ordered = new ArrayList<>(rows);
+        ordered.sort(Comparator.<TripIndexRow>comparingInt(row -> cityIds.get(row.getDepartureCityId()))
+                .thenComparing(TripIndexRow::getDepartureTime)
+                .thenComparing(TripIndexRow::getId));
+
+        int size = ordered.size();
+        edgeStart = new int[cityNames.length + 1];
+        tripIds = new String[size];
+        fromCities = new int[size];
+        toCities = new int[size];
+        departureEpochs = new long[size];
+        arrivalEpochs = new long[size];
+        prices = new long[size];
+        busTypes = new byte[size];
+        busRefs = new int[size];
+        availableSeats = new AtomicIntegerArray(size);
+        Map<String, Integer> busDictionary = new HashMap<>();
+        List<BusInfo> busList = new ArrayList<>();
+        Map<String, Integer> edgeIndex = new HashMap<>(size * 2);
+
+        for (int e = 0; e < size; e++) {
+            TripIndexRow row = ordered.get(e);
+            tripIds[e] = row.getId();
+            fromCities[e] = cityIds.get(row.getDepartureCityId());
+            toCities[e] = cityIds.get(row.getDestinationCityId());
+            departureEpochs[e] = epochSecond(row.getDepartureTime());
+            arrivalEpochs[e] = epochSecond(row.getArrivalTime());
+            prices[e] = row.getPrice().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            busTypes[e] = (byte) (row.getBusType() != null ? row.getBusType().ordinal() : -1);
+            availableSeats.set(e, row.getAvailableSeats() != null ? row.getAvailableSeats() : 0);
+            edgeStart[fromCities[e] + 1]++;
+            edgeIndex.put(row.getId(), e);
+
+            Integer busRef = busDictionary.get(row.getBusId());
+            if (busRef == null) {
+                busRef = busList.size();
+                busDictionary.put(row.getBusId(), busRef);
+                busList.add(new BusInfo(row.getBusId(), row.getBusCompany(), row.getBusNumber(),
+                        row.getTotalSeats(), amenityParser.apply(row.getAmenities())));
+            }
+            busRefs[e] = busRef;
+        }
+        for (int c = 0; c < cityNames.length; c++) {
+            edgeStart[c + 1] += edgeStart[c];
+        }
+        buses = busList.toArray(new BusInfo[0]);
+        edgeByTrip = Collections.unmodifiableMap(edgeIndex);
+    }
+
+    /**
+     * Build the graph of the trips departing in [firstDay, endDay).
+     *
+     * @param firstDay the first day covered
+     * @param endDay the day after the last day covered
+     * @param rows the open trips of the covered days
+     * @param amenityParser parses a bus's amenities JSON, called once per bus
+     * @return the graph
+     */
+    static ConnectionGraph of(LocalDate firstDay, LocalDate endDay, List<TripIndexRow> rows,
+            Function<String, List<String>> amenityParser) {
+        return new ConnectionGraph(firstDay, endDay, rows, amenityParser);
+    }
+
+    boolean covers(LocalDate date) {
+        return !date.isBefore(firstDay) && date.isBefore(endDay);
+    }
+
+    /**
+     * Find the best itinerary for each number of transfers up to a limit, keeping only
+     * those that beat every itinerary with fewer transfers.
+     *
+     * The first leg departs on the request date within its departure time window. Bus
+     * type and operator filters and the minimum available seats (at least one) apply to
+     * every leg, the price range to the total price. Itineraries are cheapest-first for
+     * the CHEAPEST sort option and earliest-arrival-first otherwise.
+     *
+     * @param request the search request
+     * @param now the current time, the first leg departs after it
+     * @param maxTransfers the maximum number of bus changes
+     * @param minConnectionSeconds the minimum time between arriving and departing at a transfer city
+     * @param maxLayoverSeconds the maximum time between arriving and departing at a transfer city
+     * @return the itineraries
+     */
+    List<ItineraryResponse> search(TripSearchRequest request, LocalDateTime now, int maxTransfers,
+            long minConnectionSeconds, long maxLayoverSeconds) {
+        Integer origin = cityIndex.get(normalize(request.getDepartureCity()));
+        Integer destination = cityIndex.get(normalize(request.getDestinationCity()));
+        if (origin == null || destination == null || origin.equals(destination)) {
+            return new ArrayList<>();
+        }
+
+        LegFilter filter = new LegFilter(request);
+        boolean cheapest = "CHEAPEST".equalsIgnoreCase(request.getSortBy());
+
+        LocalDate date = request.getDate();
+        long earliest = Math.max(epochSecond(date.atStartOfDay()), epochSecond(now) + 1);
+        if (request.getDepartureTimeStart() != null) {
+            earliest = Math.max(earliest, epochSecond(date.atTime(request.getDepartureTimeStart())));
+        }
+        long latest = epochSecond(date.plusDays(1).atStartOfDay()) - 1;
+        if (request.getDepartureTimeEnd() != null) {
+            latest = Math.min(latest, epochSecond(date.atTime(request.getDepartureTimeEnd())));
+        }
+
+        // Round r holds the cheapest way found to ride each edge as leg r + 1
+        Map<Integer, Long> bestCost = new HashMap<>();
+        Map<Integer, Label> round = new HashMap<>();
+        for (int e = firstDeparture(origin, earliest); e < edgeStart[origin + 1]
+                && departureEpochs[e] <= latest; e++) {
+            if (filter.accepts(e)) {
+                round.put(e, new Label(e, prices[e], null));
+                bestCost.put(e, prices[e]);
+            }
+        }
+
+        List<Label> arrivals = new ArrayList<>();
+        for (int transfers = 0; !round.isEmpty(); transfers++) {
+            Label best = null;
+            for (Label label : round.values()) {
+                if (toCities[label.edge] == destination && filter.acceptsTotal(label.cost)
+                        && (best == null || better(label, best, cheapest))) {
+                    best = label;
+                }
+            }
+            if (best != null && (arrivals.isEmpty() || better(best, arrivals.get(arrivals.size() - 1), cheapest))) {
+                arrivals.add(best);
+            }
+            if (transfers == maxTransfers) {
+                break;
+            }
+
+            Map<Integer, Label> next = new HashMap<>();
+            for (Label label : round.values()) {
+                int city = toCities[label.edge];
+                if (city == destination) {
+                    continue;
+                }
+                long ready = arrivalEpochs[label.edge] + minConnectionSeconds;
+                long giveUp = arrivalEpochs[label.edge] + maxLayoverSeconds;
+                for (int f = firstDeparture(city, ready); f < edgeStart[city + 1]
+                        && departureEpochs[f] <= giveUp; f++) {
+                    long cost = label.cost + prices[f];
+                    if (cost < bestCost.getOrDefault(f, Long.MAX_VALUE) && filter.accepts(f)
+                            && !label.visits(toCities[f], fromCities)) {
+                        next.put(f, new Label(f, cost, label));
+                        bestCost.put(f, cost);
+                    }
+                }
+            }
+            round = next;
+        }
+
+        List<ItineraryResponse> itineraries = new ArrayList<>(arrivals.size());
+        arrivals.sort((a, b) -> better(a, b, cheapest) ? -1 : better(b, a, cheapest) ? 1 : 0);
+        for (Label label : arrivals) {
+            itineraries.add(toItinerary(label));
+        }
+        return itineraries;
+    }
+
+    /**
+     * Add to the available seat counter of a trip.
+     *
+     * @param tripId the trip ID
+     * @param delta the seats freed (positive) or taken (negative)
+     */
+    void addAvailableSeats(String tripId, int delta) {
+        Integer edge = edgeByTrip.get(tripId);
+        if (edge != null) {
+            availableSeats.addAndGet(edge, delta);
+        }
+    }
+
+    int size() {
+        return tripIds.length;
+    }
+
+    private boolean better(Label a, Label b, boolean cheapest) {
+        long arrivalA = arrivalEpochs[a.edge];
+        long arrivalB = arrivalEpochs[b.edge];
+        if (cheapest) {
+            return a.cost < b.cost || (a.cost == b.cost && arrivalA < arrivalB);
+        }
+        return arrivalA < arrivalB || (arrivalA == arrivalB && a.cost < b.cost);
+    }
+
+    /**
+     * Find the first edge leaving a city at or after a time.
+     */
+    private int firstDeparture(int city, long epochSecond) {
+        int low = edgeStart[city];
+        int high = edgeStart[city + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureEpochs[mid] < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private ItineraryResponse toItinerary(Label last) {
+        List<TripResponse> legs = new ArrayList<>();
+        for (Label label = last; label != null; label = label.parent) {
+            legs.add(0, toLeg(label.edge));
+        }
+        return new ItineraryResponse(legs, BigDecimal.valueOf(last.cost, 2));
+    }
+
+    private TripResponse toLeg(int edge) {
+        BusInfo bus = buses[busRefs[edge]];
+        return new TripResponse(
+                tripIds[edge],
+                bus.id,
+                bus.company,
+                bus.number,
+                cityNames[fromCities[edge]],
+                cityNames[toCities[edge]],
+                LocalDateTime.ofEpochSecond(departureEpochs[edge], 0, ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(arrivalEpochs[edge], 0, ZoneOffset.UTC),
+                (arrivalEpochs[edge] - departureEpochs[edge]) / 60,
+                Math.max(0, availableSeats.get(edge)),
+                bus.totalSeats,
+                BigDecimal.valueOf(prices[edge], 2),
+                busTypes[edge] >= 0 ? BUS_TYPES[busTypes[edge]] : null,
+                bus.amenities,
+                null);
+    }
+
+    private static void addCity(Map<String, Integer> cityIds, List<String> names, String cityId, String name) {
+        if (!cityIds.containsKey(cityId)) {
+            cityIds.put(cityId, names.size());
+            names.add(name);
+        }
+    }
+
+    private static String normalize(String cityName) {
+        return cityName != null ? cityName.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Per-leg filters of a search request, resolved once per query.
+     */
+    private final class LegFilter {
+        private final boolean[] busTypeAllowed;
+        private final Set<String> operators;
+        private final int minSeats;
+        private final long minTotal;
+        private final long maxTotal;
+
+        private LegFilter(TripSearchRequest request) {
+            if (request.getBusTypes() != null && !request.getBusTypes().isEmpty()) {
+                busTypeAllowed = new boolean[BUS_TYPES.length];
+                for (BusType type : request.getBusTypes()) {
+                    if (type != null) {
+                        busTypeAllowed[type.ordinal()] = true;
+                    }
+                }
+            } else {
+                busTypeAllowed = null;
+            }
+            operators = request.getBusOperators() != null && !request.getBusOperators().isEmpty()
+                    ? new HashSet<>(request.getBusOperators()) : null;
+            minSeats = request.getMinAvailableSeats() != null ? Math.max(1, request.getMinAvailableSeats()) : 1;
+            minTotal = request.getMinPrice() != null
+                    ? request.getMinPrice().movePointRight(2).setScale(0, RoundingMode.CEILING).longValue()
+                    : Long.MIN_VALUE;
+            maxTotal = request.getMaxPrice() != null
+                    ? request.getMaxPrice().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue()
+                    : Long.MAX_VALUE;
+        }
+
+        private boolean accepts(int edge) {
+            if (availableSeats.get(edge) < minSeats) {
+                return false;
+            }
+            if (busTypeAllowed != null && (busTypes[edge] < 0 || !busTypeAllowed[busTypes[edge]])) {
+                return false;
+            }
+            return operators == null || operators.contains(buses[busRefs[edge]].company);
+        }
+
+        private boolean acceptsTotal(long cost) {
+            return cost >= minTotal && cost <= maxTotal;
+        }
+    }
+
+    /**
+     * The cheapest known way to ride an edge: its cumulative cost and the label of the previous leg.
+     */
+    private static final class Label {
+        private final int edge;
+        private final long cost;
+        private final Label parent;
+
+        private Label(int edge, long cost, Label parent) {
+            this.edge = edge;
+            this.cost = cost;
+            this.parent = parent;
+        }
+
+        private boolean visits(int city, int[] fromCities) {
+            for (Label label = this; label != null; label = label.parent) {
+                if (fromCities[label.edge] == city) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class BusInfo {
+        private final String id;
+        private final String company;
+        private final String number;
+        private final Integer totalSeats;
+        private final List<String> amenities;
+
+        private BusInfo(String id, String company, String number, Integer totalSeats, List<String> amenities) {
+            this.id = id;
+            this.company = company;
+            this.number = number;
+            this.totalSeats = totalSeats;
+            this.amenities = amenities;
+        }
+    }
+}
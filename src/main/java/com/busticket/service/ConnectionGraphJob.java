@@ -0,0 +1,39 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the connection graph on startup and rebuilds it periodically so the
+ * searchable days move forward and new trips show up.
+ */
+@Component
+public class ConnectionGraphJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionGraphJob.class);
+
+    private final ConnectionSearchService connectionSearchService;
+
+    public ConnectionGraphJob(ConnectionSearchService connectionSearchService) {
+        this.connectionSearchService = connectionSearchService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildGraph() {
+        rebuildGraph();
+    }
+
+    @Scheduled(fixedDelayString = "${connection-search.rebuild-interval-ms:600000}",
+            initialDelayString = "${connection-search.rebuild-interval-ms:600000}")
+    public void rebuildGraph() {
+        try {
+            connectionSearchService.rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Connection graph rebuild failed: {}", e.getMessage());
+        }
+    }
+}
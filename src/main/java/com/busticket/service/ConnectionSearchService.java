@@ -0,0 +1,209 @@
+package com.busticket.service;
+
+import com.busticket.dto.ItineraryResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.event.SeatBookedEvent;
+import com.busticket.event.SeatEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.event.TripChangedEvent;
+import com.busticket.repository.TripIndexRow;
+import com.busticket.repository.TripRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds journeys between cities with no or poor direct service by changing buses.
+ *
+ * Searches run against an in-memory {@link ConnectionGraph} of the open trips in the
+ * next days, never against the database. The graph is rebuilt periodically, which is
+ * how trips created or edited in the database are picked up, and after a
+ * {@link TripChangedEvent} such as a trip cancellation. Trip changes arriving within
+ * a short delay of each other share one rebuild. Booked and cancelled seats update
+ * the graph in place.
+ */
+@Service
+public class ConnectionSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionSearchService.class);
+
+    private final TripRepository tripRepository;
+    private final ObjectMapper objectMapper;
+    private final int days;
+    private final int maxTransfers;
+    private final long minConnectionSeconds;
+    private final long maxLayoverSeconds;
+    private final long tripChangeDelayMs;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ScheduledExecutorService rebuildScheduler;
+    private volatile ConnectionGraph graph;
+
+    public ConnectionSearchService(TripRepository tripRepository,
+            ObjectMapper objectMapper,
+            @Value("${connection-search.days:30}") int days,
+            @Value("${connection-search.max-transfers:2}") int maxTransfers,
+            @Value("${connection-search.min-connection-minutes:30}") int minConnectionMinutes,
+            @Value("${connection-search.max-layover-minutes:720}") int maxLayoverMinutes,
+            @Value("${connection-search.trip-change-delay-ms:5000}") long tripChangeDelayMs) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Connection search must cover at least one day");
+        }
+        if (maxTransfers < 0) {
+            throw new IllegalArgumentException("Maximum transfers must not be negative");
+        }
+        if (minConnectionMinutes < 0 || maxLayoverMinutes < minConnectionMinutes) {
+            throw new IllegalArgumentException("Layover must be at least the minimum connection time");
+        }
+        if (tripChangeDelayMs < 0) {
+            throw new IllegalArgumentException("Trip change delay must not be negative");
+        }
+        this.tripRepository = tripRepository;
+        this.objectMapper = objectMapper;
+        this.days = days;
+        this.maxTransfers = maxTransfers;
+        this.minConnectionSeconds = minConnectionMinutes * 60L;
+        this.maxLayoverSeconds = maxLayoverMinutes * 60L;
+        this.tripChangeDelayMs = tripChangeDelayMs;
+        this.rebuildScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-graph-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Search itineraries with up to the configured number of transfers.
+     *
+     * @param request the search request
+     * @return the itineraries, best first
+     */
+    public List<ItineraryResponse> searchConnections(TripSearchRequest request) {
+        return searchConnections(request, maxTransfers);
+    }
+
+    /**
+     * Search itineraries from the departure to the destination city whose first leg
+     * departs on the request date. For each number of transfers the best itinerary is
+     * returned if it beats all itineraries with fewer transfers: the cheapest for the
+     * CHEAPEST sort option, the earliest arriving otherwise.
+     *
+     * @param request the search request
+     * @param transfers the maximum number of bus changes
+     * @return the itineraries, best first; empty if the date lies outside the searchable days
+     * @throws IllegalArgumentException if transfers is negative or above the configured maximum
+     */
+    public List<ItineraryResponse> searchConnections(TripSearchRequest request, int transfers) {
+        if (transfers < 0 || transfers > maxTransfers) {
+            throw new IllegalArgumentException("Transfers must be between 0 and " + maxTransfers);
+        }
+
+        ConnectionGraph current = graph;
+        if (current == null || request.getDate() == null || !current.covers(request.getDate())) {
+            return new ArrayList<>();
+        }
+        return current.search(request, LocalDateTime.now(), transfers, minConnectionSeconds, maxLayoverSeconds);
+    }
+
+    /**
+     * Rebuild the graph from the open trips departing from today until the end of the
+     * searchable days.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            LocalDate firstDay = LocalDate.now();
+            LocalDate endDay = firstDay.plusDays(days);
+            List<TripIndexRow> rows = tripRepository.findTripIndexRows(firstDay.atStartOfDay(), endDay.atStartOfDay());
+
+            Map<String, List<String>> amenitiesByJson = new HashMap<>();
+            graph = ConnectionGraph.of(firstDay, endDay, rows,
+                    json -> amenitiesByJson.computeIfAbsent(json, this::parseAmenities));
+            logger.info("Connection graph built with {} trips from {} to {}", rows.size(), firstDay, endDay);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Keep available seats current as bookings are confirmed and cancelled on this node.
+     *
+     * @param event the seat event
+     */
+    @EventListener
+    public void onSeatEvent(SeatEvent event) {
+        ConnectionGraph current = graph;
+        if (current == null) {
+            return;
+        }
+        if (event instanceof SeatBookedEvent) {
+            current.addAvailableSeats(event.getTripId(), -event.getSeatNumbers().size());
+        } else if (event instanceof SeatReleasedEvent released
+                && released.getReason() == SeatReleasedEvent.Reason.CANCELLED) {
+            current.addAvailableSeats(event.getTripId(), event.getSeatNumbers().size());
+        }
+    }
+
+    /**
+     * Schedule a rebuild after a trip changed. Changes arriving before the scheduled
+     * rebuild starts are covered by it; a change arriving while it runs schedules
+     * the next one.
+     *
+     * @param event the trip change
+     */
+    @EventListener
+    public void onTripChanged(TripChangedEvent event) {
+        if (graph == null || !rebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildScheduler.schedule(this::rebuildAfterTripChange, tripChangeDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildScheduler.shutdownNow();
+    }
+
+    private void rebuildAfterTripChange() {
+        // Cleared before reading trips so a change committed during the rebuild is not lost
+        rebuildPending.set(false);
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // The next scheduled rebuild picks the change up
+            logger.warn("Failed to rebuild connection graph after trip changes: {}", e.getMessage());
+        }
+    }
+
+    private List<String> parseAmenities(String amenitiesJson) {
+        if (amenitiesJson == null || amenitiesJson.trim().isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            return List.copyOf(objectMapper.readValue(amenitiesJson, new TypeReference<List<String>>() {
+            }));
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+    }
+}
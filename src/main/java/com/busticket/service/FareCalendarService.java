@@ -0,0 +1,117 @@
+package com.busticket.service;
+
+import com.busticket.dto.FareCalendarDay;
+import com.busticket.model.City;
+import com.busticket.repository.CityRepository;
+import com.busticket.repository.FareCalendarRow;
+import com.busticket.repository.TripRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cheapest fare and availability per day around a travel date, for flexible-date browsing.
+ *
+ * City names are resolved through the {@link CityAutocompleteIndex} first, like trip
+ * search does, so misspelled and aliased names find the same city pair.
+ * Days covered by the {@link TripSearchIndex} are summarized from memory, which is as
+ * current as the index: seat changes and cancelled trips at once, other trip edits after
+ * its next reload. Any remaining days are aggregated by a single grouped query.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FareCalendarService {
+
+    private final CityRepository cityRepository;
+    private final TripRepository tripRepository;
+    private final TripSearchIndex tripSearchIndex;
+    private final CityAutocompleteIndex cityAutocompleteIndex;
+    private final int maxFlexDays;
+
+    public FareCalendarService(CityRepository cityRepository,
+            TripRepository tripRepository,
+            TripSearchIndex tripSearchIndex,
+            CityAutocompleteIndex cityAutocompleteIndex,
+            @Value("${fare-calendar.max-flex-days:15}") int maxFlexDays) {
+        this.cityRepository = cityRepository;
+        this.tripRepository = tripRepository;
+        this.tripSearchIndex = tripSearchIndex;
+        this.cityAutocompleteIndex = cityAutocompleteIndex;
+        this.maxFlexDays = maxFlexDays;
+    }
+
+    /**
+     * Get the fare calendar of a city pair from flexDays before to flexDays after a date.
+     * Days in the past are left out.
+     *
+     * @param departureCity the departure city name
+     * @param destinationCity the destination city name
+     * @param date the preferred travel date
+     * @param flexDays the number of days to include on each side of the date
+     * @return one entry per day in date order, days without trips included
+     * @throws IllegalArgumentException if flexDays is negative or above the configured maximum
+     */
+    public List<FareCalendarDay> getFareCalendar(String departureCity, String destinationCity,
+            LocalDate date, int flexDays) {
+        if (flexDays < 0 || flexDays > maxFlexDays) {
+            throw new IllegalArgumentException("Flexible days must be between 0 and " + maxFlexDays);
+        }
+        departureCity = cityAutocompleteIndex.resolve(departureCity).orElse(departureCity);
+        destinationCity = cityAutocompleteIndex.resolve(destinationCity).orElse(destinationCity);
+
+        LocalDate today = LocalDate.now();
+        LocalDate first = date.minusDays(flexDays).isBefore(today) ? today : date.minusDays(flexDays);
+        LocalDate last = date.plusDays(flexDays);
+
+        // Answer what the index covers, remember the rest
+        Map<LocalDate, FareCalendarDay> days = new HashMap<>();
+        LocalDate missingFrom = null;
+        LocalDate missingUntil = null;
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            Optional<FareCalendarDay> summary = tripSearchIndex.summarizeDay(departureCity, destinationCity, day);
+            if (summary.isPresent()) {
+                days.put(day, summary.get());
+            } else {
+                missingFrom = missingFrom == null ? day : missingFrom;
+                missingUntil = day;
+            }
+        }
+
+        if (missingFrom != null) {
+            for (FareCalendarDay day : queryFareCalendar(departureCity, destinationCity, missingFrom, missingUntil)) {
+                days.putIfAbsent(day.getDate(), day);
+            }
+        }
+
+        List<FareCalendarDay> calendar = new ArrayList<>();
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            calendar.add(days.getOrDefault(day, FareCalendarDay.empty(day)));
+        }
+        return calendar;
+    }
+
+    private List<FareCalendarDay> queryFareCalendar(String departureCity, String destinationCity,
+            LocalDate first, LocalDate last) {
+        Optional<City> from = cityRepository.findByNameIgnoreCase(departureCity);
+        Optional<City> to = cityRepository.findByNameIgnoreCase(destinationCity);
+        if (from.isEmpty() || to.isEmpty()) {
+            return List.of();
+        }
+
+        List<FareCalendarDay> days = new ArrayList<>();
+        for (FareCalendarRow row : tripRepository.findFareCalendar(from.get().getId(), to.get().getId(),
+                first.atStartOfDay(), last.plusDays(1).atStartOfDay())) {
+            days.add(new FareCalendarDay(row.getDay(), row.getCheapestPrice(),
+                    row.getAvailableSeats() != null ? row.getAvailableSeats().intValue() : 0,
+                    row.getTripCount() != null ? row.getTripCount().intValue() : 0));
+        }
+        return days;
+    }
+}
@@ -0,0 +1,183 @@
+package com.busticket.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typo-tolerant lookup of normalized city names and aliases.
+ *
+ * Keys are held in a BK-tree keyed by Levenshtein distance, so a query only computes
+ * distances to the keys whose subtree can still be within the allowed number of edits.
+ * The allowed edits grow with the query length, and a query gives up after a fixed
+ * number of distance computations, keeping its cost bounded whatever the city set.
+ */
+final class FuzzyCityMatcher {
+
+    static final int MAX_QUERY_LENGTH = 64;
+    static final int MAX_VISITED_KEYS = 4096;
+
+    private final Map<String, Integer> exact;
+    private final Node root;
+
+    private FuzzyCityMatcher(Map<String, Integer> exact, Node root) {
+        this.exact = exact;
+        this.root = root;
+    }
+
+    /**
+     * Build a matcher. A key may appear once; later duplicates are ignored.
+     *
+     * @param keys the normalized names and aliases
+     * @param cities the city number of each key, lower numbers rank higher
+     * @return the matcher
+     */
+    static FuzzyCityMatcher of(List<String> keys, List<Integer> cities) {
+        Map<String, Integer> exact = new HashMap<>(keys.size() * 2);
+        Node root = null;
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            if (key.isEmpty() || exact.putIfAbsent(key, cities.get(i)) != null) {
+                continue;
+            }
+            Node node = new Node(key, cities.get(i));
+            if (root == null) {
+                root = node;
+            } else {
+                root.add(node);
+            }
+        }
+        return new FuzzyCityMatcher(exact, root);
+    }
+
+    /**
+     * Find the cities closest to a normalized query, best first. Each city appears
+     * once, with the score of its best matching name or alias.
+     *
+     * @param query the normalized query
+     * @param limit the maximum number of matches
+     * @return the matches
+     */
+    List<Match> match(String query, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (query.isEmpty() || root == null) {
+            return matches;
+        }
+
+        Integer exactCity = exact.get(query);
+        if (exactCity != null) {
+            matches.add(new Match(exactCity, 1.0));
+            return matches;
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            return matches;
+        }
+
+        int tolerance = tolerance(query.length());
+        Map<Integer, Match> bestByCity = new HashMap<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        int visited = 0;
+        while (!pending.isEmpty() && visited < MAX_VISITED_KEYS) {
+            Node node = pending.pop();
+            visited++;
+
+            int distance = distance(query, node.key);
+            if (distance <= tolerance) {
+                double score = 1.0 - (double) distance / Math.max(query.length(), node.key.length());
+                Match best = bestByCity.get(node.city);
+                if (best == null || score > best.score) {
+                    bestByCity.put(node.city, new Match(node.city, score));
+                }
+            }
+
+            // Only subtrees at distance d from this key, with |d - distance| <= tolerance, can match
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= tolerance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+
+        matches.addAll(bestByCity.values());
+        matches.sort(Comparator.comparingDouble((Match match) -> match.score).reversed()
+                .thenComparingInt(match -> match.city));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Edits allowed for a query: one for short names, where two edits make most names
+     * alike, up to three for long ones.
+     */
+    static int tolerance(int length) {
+        if (length <= 4) {
+            return 1;
+        }
+        return length <= 9 ? 2 : 3;
+    }
+
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    static final class Match {
+        private final int city;
+        private final double score;
+
+        private Match(int city, double score) {
+            this.city = city;
+            this.score = score;
+        }
+
+        int getCity() {
+            return city;
+        }
+
+        double getScore() {
+            return score;
+        }
+    }
+
+    private static final class Node {
+        private final String key;
+        private final int city;
+        private final Map<Integer, Node> children = new HashMap<>(4);
+
+        private Node(String key, int city) {
+            this.key = key;
+            this.city = city;
+        }
+
+        private void add(Node node) {
+            Node parent = this;
+            while (true) {
+                int distance = distance(node.key, parent.key);
+                Node child = parent.children.get(distance);
+                if (child == null) {
+                    parent.children.put(distance, node);
+                    return;
+                }
+                parent = child;
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.busticket.service;
+
+import com.busticket.dto.GatewayStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead, deadline and circuit breaker around the calls to one remote gateway.
+ *
+ * At most a fixed number of calls run at once, each on a thread of the guard's own, and
+ * a call beyond that fails at once instead of queueing, so a slow gateway holds on to
+ * its own threads and never to the caller's. A call that misses its deadline is
+ * interrupted and counts as failed. The outcomes of the last calls are kept in a
+ * sliding window; once enough of them failed the circuit opens and every call fails
+ * fast until the open period ends. Then a few probe calls are let through, and the
+ * circuit closes if they all succeed or opens again on the first failure.
+ *
+ * Only exceptions and missed deadlines are failures. An answer from the gateway, even
+ * a declined one, shows the gateway is working.
+ */
+final class GatewayGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayGuard.class);
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final long timeoutMs;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openMs;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final ThreadPoolExecutor callers;
+
+    // Circuit state, guarded by this
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCalls;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final AtomicLong successfulCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong timedOutCalls = new AtomicLong();
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+    private final AtomicLong circuitRejections = new AtomicLong();
+
+    /**
+     * @param name the gateway name, used in thread names, logs and metrics
+     * @param maxConcurrent the most calls running at once
+     * @param timeoutMs the deadline of a call
+     * @param windowSize the number of recent calls the failure rate is taken over
+     * @param minimumCalls the calls needed in the window before the circuit can open
+     * @param failureRateThreshold the failure percentage that opens the circuit
+     * @param openMs how long the circuit stays open before probing
+     * @param halfOpenCalls the probe calls that must succeed to close the circuit
+     */
+    GatewayGuard(String name, int maxConcurrent, long timeoutMs, int windowSize, int minimumCalls,
+            int failureRateThreshold, long openMs, int halfOpenCalls) {
+        this(name, maxConcurrent, timeoutMs, windowSize, minimumCalls, failureRateThreshold, openMs, halfOpenCalls,
+                System::currentTimeMillis);
+    }
+
+    GatewayGuard(String name, int maxConcurrent, long timeoutMs, int windowSize, int minimumCalls,
+            int failureRateThreshold, long openMs, int halfOpenCalls, LongSupplier clock) {
+        if (maxConcurrent < 1 || timeoutMs < 1 || windowSize < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Gateway " + name
+                    + " needs positive concurrency, timeout, window size and probe calls");
+        }
+        if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Gateway " + name + " minimum calls must be between 1 and the window size");
+        }
+        if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("Gateway " + name + " failure rate threshold must be between 1 and 100");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMs = timeoutMs;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMs = openMs;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.bulkhead = new Semaphore(maxConcurrent);
+
+        // A thread returns its permit just before it is free for the next call, so that
+        // call may wait in the queue for a moment; the permits keep the queue short
+        AtomicInteger threadCount = new AtomicInteger();
+        this.callers = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-gateway-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.callers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Call the gateway.
+     *
+     * @param action the gateway call
+     * @return the gateway's answer
+     * @throws GatewayUnavailableException if the call was not made, failed or missed its deadline
+     */
+    <T> T call(Supplier<T> action) {
+        boolean probe = admit();
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.incrementAndGet();
+            if (probe) {
+                abandonProbe();
+            }
+            throw new GatewayUnavailableException(name + " gateway is busy");
+        }
+
+        Future<T> future;
+        try {
+            // The permit is returned when the call ends, not when the caller gives up on it
+            future = callers.submit(() -> {
+                try {
+                    return action.get();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            bulkhead.release();
+            if (probe) {
+                abandonProbe();
+            }
+            throw new GatewayUnavailableException(name + " gateway is shut down");
+        }
+
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            successfulCalls.incrementAndGet();
+            record(true);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOutCalls.incrementAndGet();
+            record(false);
+            throw new GatewayUnavailableException(name + " gateway did not answer within " + timeoutMs + "ms",
+                    true);
+        } catch (ExecutionException | CancellationException e) {
+            failedCalls.incrementAndGet();
+            record(false);
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new GatewayUnavailableException(name + " gateway call failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            // The caller gave up, which says nothing about the gateway
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            if (probe) {
+                abandonProbe();
+            }
+            throw new GatewayUnavailableException("Interrupted calling the " + name + " gateway", e, true);
+        }
+    }
+
+    /**
+     * Get the current state and counters.
+     *
+     * @return the status
+     */
+    GatewayStatus status() {
+        State current;
+        int calls;
+        int failures;
+        synchronized (this) {
+            current = currentState();
+            calls = windowCalls;
+            failures = windowFailures;
+        }
+        GatewayStatus status = new GatewayStatus();
+        status.setName(name);
+        status.setState(current.name());
+        status.setFailureRate(calls > 0 ? failures * 100.0 / calls : 0.0);
+        status.setWindowCalls(calls);
+        status.setInFlightCalls(maxConcurrent - bulkhead.availablePermits());
+        status.setMaxConcurrentCalls(maxConcurrent);
+        status.setSuccessfulCalls(successfulCalls.get());
+        status.setFailedCalls(failedCalls.get());
+        status.setTimedOutCalls(timedOutCalls.get());
+        status.setBulkheadRejections(bulkheadRejections.get());
+        status.setCircuitRejections(circuitRejections.get());
+        return status;
+    }
+
+    synchronized State getState() {
+        return currentState();
+    }
+
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    /**
+     * Let a call through the circuit, or fail it fast.
+     *
+     * @return true if the call is a half-open probe
+     */
+    private synchronized boolean admit() {
+        State current = currentState();
+        if (current == State.HALF_OPEN && state == State.OPEN) {
+            transition(State.HALF_OPEN);
+        }
+        if (current == State.CLOSED) {
+            return false;
+        }
+        if (current == State.HALF_OPEN && probesStarted < halfOpenCalls) {
+            probesStarted++;
+            return true;
+        }
+        circuitRejections.incrementAndGet();
+        throw new GatewayUnavailableException(name + " gateway is unavailable, circuit is " + current);
+    }
+
+    private synchronized void abandonProbe() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    private synchronized void record(boolean success) {
+        switch (state) {
+            case HALF_OPEN:
+                if (!success) {
+                    transition(State.OPEN);
+                } else if (++probesSucceeded >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+                break;
+            case CLOSED:
+                if (windowCalls == window.length) {
+                    windowFailures -= window[windowNext] ? 0 : 1;
+                } else {
+                    windowCalls++;
+                }
+                window[windowNext] = success;
+                windowFailures += success ? 0 : 1;
+                windowNext = (windowNext + 1) % window.length;
+                if (windowCalls >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCalls) {
+                    transition(State.OPEN);
+                }
+                break;
+            default:
+                // A call admitted before the circuit opened; the window starts over when it closes
+                break;
+        }
+    }
+
+    /**
+     * Get the state, reading an open circuit whose open period ended as half open.
+     */
+    private State currentState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMs) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void transition(State next) {
+        logger.warn("{} gateway circuit {} -> {} (failures {}/{})", name, state, next, windowFailures, windowCalls);
+        state = next;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = clock.getAsLong();
+        } else if (next == State.CLOSED) {
+            windowNext = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+        }
+    }
+
+    /**
+     * A gateway call that was refused, failed or missed its deadline. A call that was
+     * cut off while in flight may still have taken effect at the gateway.
+     */
+    static class GatewayUnavailableException extends IllegalStateException {
+
+        private final boolean outcomeUnknown;
+
+        GatewayUnavailableException(String message) {
+            this(message, false);
+        }
+
+        GatewayUnavailableException(String message, boolean outcomeUnknown) {
+            super(message);
+            this.outcomeUnknown = outcomeUnknown;
+        }
+
+        GatewayUnavailableException(String message, Throwable cause) {
+            this(message, cause, false);
+        }
+
+        GatewayUnavailableException(String message, Throwable cause, boolean outcomeUnknown) {
+            super(message, cause);
+            this.outcomeUnknown = outcomeUnknown;
+        }
+
+        /**
+         * @return true if the call was abandoned in flight, so it may have gone through
+         */
+        boolean isOutcomeUnknown() {
+            return outcomeUnknown;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.busticket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per client-supplied idempotency key.
+ *
+ * Keys are scoped by operation and user. The first request with a key claims it in the
+ * {@link IdempotencyStore} and runs; a retry after it succeeded gets the stored response
+ * back without running again, and a duplicate that arrives while it runs waits for its
+ * response. Duplicates on the same node wait on the running request directly, those on
+ * other nodes poll the store. A failed request stores nothing, so it can be retried.
+ * Reusing a key for a different request is rejected.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Duration inFlightTtl;
+    private final Duration responseTtl;
+    private final long pollIntervalMs;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper,
+            @Value("${idempotency.in-flight-ttl-ms:120000}") long inFlightTtlMs,
+            @Value("${idempotency.response-ttl-hours:24}") long responseTtlHours,
+            @Value("${idempotency.poll-interval-ms:100}") long pollIntervalMs) {
+        if (inFlightTtlMs < 1 || responseTtlHours < 1 || pollIntervalMs < 1) {
+            throw new IllegalArgumentException("Idempotency TTLs and poll interval must be positive");
+        }
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.inFlightTtl = Duration.ofMillis(inFlightTtlMs);
+        this.responseTtl = Duration.ofHours(responseTtlHours);
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    /**
+     * Run a request once per idempotency key, or replay the response of the run that did.
+     *
+     * @param operation the operation the key is scoped to, e.g. {@code booking}
+     * @param userId the user the key is scoped to
+     * @param idempotencyKey the client-supplied key, or null to run the request unconditionally
+     * @param request what identifies the request; a key reused with a different request is rejected
+     * @param responseType the response type
+     * @param action runs the request
+     * @return the response of the single run
+     * @throws IllegalArgumentException if the key is invalid or was used for a different request
+     * @throws IllegalStateException if the run with this key did not finish in time
+     */
+    public <T> T execute(String operation, String userId, String idempotencyKey, Object request,
+            Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String key = operation + ":" + (userId != null ? userId : "-") + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        Pending mine = new Pending(fingerprint);
+        Pending running = pending.putIfAbsent(key, mine);
+        if (running != null) {
+            checkFingerprint(running.fingerprint, fingerprint);
+            return responseType.cast(await(running.response));
+        }
+
+        try {
+            T response = responseType.cast(claimAndRun(key, fingerprint, action));
+            mine.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.response.completeExceptionally(e);
+            throw e;
+        } finally {
+            pending.remove(key, mine);
+        }
+    }
+
+    private Object claimAndRun(String key, String fingerprint, Supplier<?> action) {
+        long deadline = System.nanoTime() + inFlightTtl.toNanos();
+        while (true) {
+            IdempotencyStore.Claim claim = idempotencyStore.claim(key, fingerprint, inFlightTtl);
+            IdempotencyStore.Record record = claim.getRecord();
+
+            if (claim.isClaimed()) {
+                Object response;
+                try {
+                    response = action.get();
+                } catch (RuntimeException e) {
+                    idempotencyStore.release(key, record);
+                    throw e;
+                }
+                if (!idempotencyStore.complete(key, record, response, responseTtl)) {
+                    logger.warn("Idempotency claim on {} expired before the request finished", key);
+                }
+                return response;
+            }
+
+            checkFingerprint(record.getFingerprint(), fingerprint);
+            if (record.isCompleted()) {
+                logger.info("Replaying response for idempotency key {}", key);
+                return record.getResponse();
+            }
+
+            // Running on another node; wait for it to settle or give the key up
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("A request with this idempotency key is still in progress");
+            }
+            try {
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a request with the same idempotency key", e);
+            }
+        }
+    }
+
+    private Object await(CompletableFuture<Object> response) {
+        try {
+            return response.get(inFlightTtl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A request with this idempotency key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a request with the same idempotency key", e);
+        }
+    }
+
+    private static void checkFingerprint(String stored, String fingerprint) {
+        if (!fingerprint.equals(stored)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] json = request != null ? objectMapper.writeValueAsBytes(request) : "null".getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Request cannot be fingerprinted: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A request running on this node that local duplicates wait for.
+     */
+    private static final class Pending {
+        private final String fingerprint;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        private Pending(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
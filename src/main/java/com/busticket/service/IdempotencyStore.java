@@ -0,0 +1,173 @@
+package com.busticket.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency records shared by all application nodes, kept in Redis.
+ *
+ * A record is stored in flight when a request with a new key starts, and replaced by
+ * the completed record carrying the response when the request succeeds. Both expire:
+ * an in-flight record whose request died with its node frees the key after its TTL,
+ * and a completed record is kept only as long as clients are expected to retry.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final RedisScript<Long> SETTLE_SCRIPT = loadScript("idempotency_settle.lua");
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public IdempotencyStore(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Claim a key for a request, or find the record already stored under it.
+     *
+     * @param key the scoped idempotency key
+     * @param fingerprint the fingerprint of the request
+     * @param inFlightTtl how long the claim holds if the request never settles
+     * @return a claim holding either the caller's new in-flight record or the existing record
+     */
+    public Claim claim(String key, String fingerprint, Duration inFlightTtl) {
+        Record inFlight = new Record(fingerprint, UUID.randomUUID().toString(), false, null);
+        while (true) {
+            Boolean stored = redisTemplate.opsForValue().setIfAbsent(storeKey(key), inFlight,
+                    inFlightTtl.toMillis(), TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(stored)) {
+                return new Claim(inFlight, true);
+            }
+            Record existing = (Record) redisTemplate.opsForValue().get(storeKey(key));
+            if (existing != null) {
+                return new Claim(existing, false);
+            }
+            // The record expired between the two calls; try to claim it again
+        }
+    }
+
+    /**
+     * Replace the caller's in-flight record with the response.
+     *
+     * @param key the scoped idempotency key
+     * @param inFlight the in-flight record returned by {@link #claim}
+     * @param response the response to replay
+     * @param ttl how long to keep the response
+     * @return true if stored, false if the claim expired in the meantime
+     */
+    public boolean complete(String key, Record inFlight, Object response, Duration ttl) {
+        Record completed = new Record(inFlight.getFingerprint(), inFlight.getToken(), true, response);
+        Long settled = redisTemplate.execute(SETTLE_SCRIPT, List.of(storeKey(key)), inFlight, completed, ttl.toMillis());
+        return settled != null && settled == 1L;
+    }
+
+    /**
+     * Drop the caller's in-flight record, so the request can be retried under the same key.
+     *
+     * @param key the scoped idempotency key
+     * @param inFlight the in-flight record returned by {@link #claim}
+     */
+    public void release(String key, Record inFlight) {
+        redisTemplate.execute(SETTLE_SCRIPT, List.of(storeKey(key)), inFlight);
+    }
+
+    private static String storeKey(String key) {
+        return KEY_PREFIX + key;
+    }
+
+    private static RedisScript<Long> loadScript(String name) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/" + name)));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * Outcome of a claim: the caller's own record, or the one found under the key.
+     */
+    public static class Claim {
+        private final Record record;
+        private final boolean claimed;
+
+        Claim(Record record, boolean claimed) {
+            this.record = record;
+            this.claimed = claimed;
+        }
+
+        public Record getRecord() {
+            return record;
+        }
+
+        /**
+         * Whether the caller now owns the key and must run the request.
+         */
+        public boolean isClaimed() {
+            return claimed;
+        }
+    }
+
+    /**
+     * A request stored under an idempotency key.
+     */
+    public static class Record {
+        private String fingerprint;
+        private String token;
+        private boolean completed;
+        private Object response;
+
+        public Record() {
+        }
+
+        public Record(String fingerprint, String token, boolean completed, Object response) {
+            this.fingerprint = fingerprint;
+            this.token = token;
+            this.completed = completed;
+            this.response = response;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public void setFingerprint(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Random token telling this request's record apart from a later one under the same key.
+         */
+        public String getToken() {
+            return token;
+        }
+
+        public void setToken(String token) {
+            this.token = token;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public void setCompleted(boolean completed) {
+            this.completed = completed;
+        }
+
+        public Object getResponse() {
+            return response;
+        }
+
+        public void setResponse(Object response) {
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package com.busticket.service;
+
+import com.busticket.event.SeatHoldExpiredEvent;
+import com.busticket.event.SeatLockExtendedEvent;
+import com.busticket.event.SeatLockedEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Seat locks kept in this JVM, for single-node deployments and load tests.
+ *
+ * Every trip gets an array with one slot per seat of its layout, and seats are
+ * claimed by compare-and-set on their slot, so no lock is ever taken. Expired
+ * holds are treated as free as soon as their deadline passes and are cleared
+ * from the slots by a hashed timer wheel. A trip's slots are dropped once no
+ * hold is left in them, and claims made on slots dropped meanwhile are retried.
+ *
+ * Only the holds live in memory; this backend still needs Redis. Booked seats come
+ * from {@link SeatOccupancyService}, which keeps them in a Redis bitmap, and
+ * BookingService maps holds to their bookings under lock_booking keys in Redis.
+ */
+@Service
+@ConditionalOnProperty(name = "seat-lock.backend", havingValue = "memory")
+public class InMemorySeatLockManager implements SeatLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemorySeatLockManager.class);
+    private static final int WHEEL_SIZE = 512;
+    private static final long TICK_MILLIS = 1000;
+
+    private final SeatOccupancyService seatOccupancyService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final Map<String, TripSeats> trips = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    // Shared by all trips, so tokens keep increasing when a trip's slots are dropped and recreated
+    private final AtomicLong fence = new AtomicLong();
+    private final TimerWheel timerWheel;
+    private final ScheduledExecutorService ticker;
+
+    @Autowired
+    public InMemorySeatLockManager(SeatOccupancyService seatOccupancyService,
+                                   ApplicationEventPublisher eventPublisher) {
+        this(seatOccupancyService, eventPublisher, Clock.systemDefaultZone(), true);
+    }
+
+    InMemorySeatLockManager(SeatOccupancyService seatOccupancyService, ApplicationEventPublisher eventPublisher,
+                            Clock clock, boolean startTicker) {
+        this.seatOccupancyService = seatOccupancyService;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.timerWheel = new TimerWheel(clock.millis());
+        if (startTicker) {
+            this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "seat-lock-timer-wheel");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ticker.scheduleAtFixedRate(this::expireDueHolds, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Acquire locks for multiple seats on a trip, all or nothing.
+     * Seats are claimed one by one with compare-and-set; if any of them is taken,
+     * the seats claimed so far are handed back before returning.
+     *
+     * @param tripId the trip ID
+     * @param seatNumbers the list of seat numbers to lock
+     * @param userId the user ID acquiring the locks
+     * @return LockAttempt holding the lock, or the seats that prevented it
+     */
+    @Override
+    public LockAttempt tryAcquireLock(String tripId, List<String> seatNumbers, String userId) {
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            throw new IllegalArgumentException("At least one seat is required");
+        }
+
+        long now = clock.millis();
+        long deadline = now + TimeUnit.MINUTES.toMillis(LOCK_TIMEOUT_MINUTES);
+        String lockId = UUID.randomUUID().toString();
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId,
+                LocalDateTime.now(clock).plusMinutes(LOCK_TIMEOUT_MINUTES));
+        Hold hold = new Hold(lockInfo, deadline);
+
+        TripSeats tripSeats;
+        List<String> conflicts = new ArrayList<>();
+        List<String> claimed = new ArrayList<>(seatNumbers.size());
+        while (true) {
+            tripSeats = tripSeats(tripId);
+            for (String seatNumber : seatNumbers) {
+                if (!conflicts.isEmpty()) {
+                    // Already failed; only collect the remaining conflicts
+                    if (tripSeats.holder(seatNumber, now) != null) {
+                        conflicts.add(seatNumber);
+                    }
+                } else if (tripSeats.claim(seatNumber, hold, now)) {
+                    claimed.add(seatNumber);
+                } else {
+                    conflicts.add(seatNumber);
+                }
+            }
+            if (!tripSeats.dropped) {
+                break;
+            }
+            // The slots were dropped while this claim was made; claim on their replacement
+            for (String seatNumber : claimed) {
+                tripSeats.free(seatNumber, hold);
+            }
+            conflicts.clear();
+            claimed.clear();
+        }
+
+        if (conflicts.isEmpty()) {
+            // Confirmation marks seats booked before it releases their hold, so checking
+            // after the claim cannot miss a seat that was confirmed in the meantime
+            conflicts.addAll(seatOccupancyService.findBookedSeats(tripId, tripSeats.seatIndex, seatNumbers));
+        }
+
+        if (!conflicts.isEmpty()) {
+            for (String seatNumber : claimed) {
+                tripSeats.free(seatNumber, hold);
+            }
+            dropIfEmpty(tripId, tripSeats);
+            return LockAttempt.conflict(conflicts);
+        }
+
+        // Tokens never go below the current time, matching the Redis backend
+        lockInfo.setFencingToken(fence.updateAndGet(last -> Math.max(last + 1, now)));
+        holds.put(lockId, hold);
+        timerWheel.schedule(hold, now);
+        eventPublisher.publishEvent(new SeatLockedEvent(tripId, seatNumbers, lockId, lockInfo.getExpiresAt()));
+        return LockAttempt.acquired(lockInfo);
+    }
+
+    @Override
+    public boolean releaseLock(String lockId) {
+        Hold hold = holds.remove(lockId);
+        if (hold == null) {
+            return false; // Lock already expired or doesn't exist
+        }
+
+        boolean wasActive = hold.deadline.getAndSet(Hold.RELEASED) > clock.millis();
+        List<String> freedSeats = freeSeats(hold);
+        if (wasActive && !freedSeats.isEmpty()) {
+            eventPublisher.publishEvent(new SeatReleasedEvent(hold.lockInfo.getTripId(),
+                    freedSeats, lockId, SeatReleasedEvent.Reason.RELEASED));
+        }
+        return wasActive;
+    }
+
+    @Override
+    public boolean extendLock(String lockId, int additionalMinutes) {
+        Hold hold = holds.get(lockId);
+        if (hold == null) {
+            return false; // Lock doesn't exist
+        }
+
+        long extension = TimeUnit.MINUTES.toMillis(additionalMinutes);
+        long now = clock.millis();
+        while (true) {
+            long deadline = hold.deadline.get();
+            if (deadline <= now) {
+                return false; // Expired or released concurrently
+            }
+            if (hold.deadline.compareAndSet(deadline, deadline + extension)) {
+                break;
+            }
+        }
+
+        LockInfo lockInfo = hold.lockInfo;
+        lockInfo.setExpiresAt(lockInfo.getExpiresAt().plusMinutes(additionalMinutes));
+        eventPublisher.publishEvent(new SeatLockExtendedEvent(lockInfo.getTripId(), lockInfo.getSeatNumbers(),
+                lockId, lockInfo.getExpiresAt()));
+        return true;
+    }
+
+    @Override
+    public boolean isLocked(String tripId, String seatNumber) {
+        TripSeats tripSeats = trips.get(tripId);
+        return tripSeats != null && tripSeats.holder(seatNumber, clock.millis()) != null;
+    }
+
+    @Override
+    public boolean isBooked(String tripId, String seatNumber) {
+        return seatOccupancyService.isBooked(tripId, seatNumber);
+    }
+
+    @Override
+    public Map<String, SeatStatus> getSeatStatuses(String tripId, Map<String, Integer> seatIndex,
+                                                   List<String> seatNumbers) {
+        Map<String, SeatStatus> statuses = new LinkedHashMap<>();
+        if (seatNumbers.isEmpty()) {
+            return statuses;
+        }
+
+        Set<String> bookedSeats = new HashSet<>(seatOccupancyService.findBookedSeats(tripId, seatIndex, seatNumbers));
+        for (String seatNumber : seatNumbers) {
+            if (bookedSeats.contains(seatNumber)) {
+                statuses.put(seatNumber, SeatStatus.BOOKED);
+            } else if (isLocked(tripId, seatNumber)) {
+                statuses.put(seatNumber, SeatStatus.LOCKED);
+            } else {
+                statuses.put(seatNumber, SeatStatus.AVAILABLE);
+            }
+        }
+
+        return statuses;
+    }
+
+    @Override
+    public LockInfo getLockInfo(String lockId) {
+        Hold hold = holds.get(lockId);
+        if (hold == null || !hold.isActive(clock.millis())) {
+            return null;
+        }
+        return hold.lockInfo;
+    }
+
+    @Override
+    public LockInfo verifyHold(String lockId, String tripId, List<String> seatNumbers) {
+        long now = clock.millis();
+        Hold hold = holds.get(lockId);
+        TripSeats tripSeats = trips.get(tripId);
+        if (hold == null || tripSeats == null || !hold.isActive(now) || !tripId.equals(hold.lockInfo.getTripId())) {
+            return null;
+        }
+
+        for (String seatNumber : seatNumbers) {
+            if (tripSeats.holder(seatNumber, now) != hold) {
+                return null;
+            }
+        }
+        return hold.lockInfo;
+    }
+
+    @Override
+    public boolean isLockValid(String lockId) {
+        return getLockInfo(lockId) != null;
+    }
+
+    @Override
+    public List<String> getLockedSeats(String tripId) {
+        TripSeats tripSeats = trips.get(tripId);
+        if (tripSeats == null) {
+            return List.of();
+        }
+        return tripSeats.lockedSeats(clock.millis());
+    }
+
+    /**
+     * Sweep every hold for expired ones the timer wheel has not reached yet.
+     */
+    @Override
+    public void cleanupExpiredLocks() {
+        long now = clock.millis();
+        for (Hold hold : holds.values()) {
+            expire(hold, now);
+        }
+    }
+
+    /**
+     * Advance the timer wheel to the current time and expire the holds it passes.
+     */
+    void expireDueHolds() {
+        long now = clock.millis();
+        timerWheel.advance(now, hold -> {
+            try {
+                if (!expire(hold, now) && hold.deadline.get() > now) {
+                    timerWheel.schedule(hold, now); // Extended since it was scheduled
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to expire seat hold {}: {}", hold.lockInfo.getLockId(), e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private boolean expire(Hold hold, long now) {
+        long deadline = hold.deadline.get();
+        if (deadline == Hold.RELEASED || deadline > now || !hold.deadline.compareAndSet(deadline, Hold.RELEASED)) {
+            return false;
+        }
+
+        LockInfo lockInfo = hold.lockInfo;
+        holds.remove(lockInfo.getLockId(), hold);
+        // Seats claimed by a newer hold since this one expired are not released
+        List<String> freedSeats = freeSeats(hold);
+        if (!freedSeats.isEmpty()) {
+            eventPublisher.publishEvent(new SeatReleasedEvent(lockInfo.getTripId(), freedSeats,
+                    lockInfo.getLockId(), SeatReleasedEvent.Reason.EXPIRED));
+        }
+        eventPublisher.publishEvent(new SeatHoldExpiredEvent(lockInfo.getLockId()));
+        return true;
+    }
+
+    /**
+     * Free the seats a hold still occupies.
+     *
+     * @return the seats freed
+     */
+    private List<String> freeSeats(Hold hold) {
+        String tripId = hold.lockInfo.getTripId();
+        TripSeats tripSeats = trips.get(tripId);
+        if (tripSeats == null) {
+            return List.of();
+        }
+        List<String> freedSeats = new ArrayList<>();
+        for (String seatNumber : hold.lockInfo.getSeatNumbers()) {
+            if (tripSeats.free(seatNumber, hold)) {
+                freedSeats.add(seatNumber);
+            }
+        }
+        dropIfEmpty(tripId, tripSeats);
+        return freedSeats;
+    }
+
+    /**
+     * Drop a trip's slots once no hold is left in them. The slots are marked dropped
+     * before they are checked, so a claim racing the check either is seen by it or
+     * sees the mark and retries on new slots.
+     */
+    private void dropIfEmpty(String tripId, TripSeats tripSeats) {
+        if (!tripSeats.isEmpty()) {
+            return;
+        }
+        trips.computeIfPresent(tripId, (id, current) -> {
+            if (current != tripSeats) {
+                return current;
+            }
+            current.dropped = true;
+            if (current.isEmpty()) {
+                return null;
+            }
+            current.dropped = false;
+            return current;
+        });
+    }
+
+    private TripSeats tripSeats(String tripId) {
+        TripSeats tripSeats = trips.get(tripId);
+        if (tripSeats == null) {
+            tripSeats = trips.computeIfAbsent(tripId, id -> new TripSeats(seatOccupancyService.getSeatIndex(id)));
+        }
+        return tripSeats;
+    }
+
+    /**
+     * A seat hold. The deadline is the single source of truth for its state:
+     * extension, release and expiry all move it with compare-and-set.
+     */
+    private static final class Hold {
+        static final long RELEASED = Long.MIN_VALUE;
+
+        final LockInfo lockInfo;
+        final AtomicLong deadline;
+
+        Hold(LockInfo lockInfo, long deadline) {
+            this.lockInfo = lockInfo;
+            this.deadline = new AtomicLong(deadline);
+        }
+
+        boolean isActive(long now) {
+            return deadline.get() > now;
+        }
+    }
+
+    /**
+     * Seat slots of one trip, indexed like the bus layout. Seats missing from the
+     * layout fall back to a concurrent map with the same claim semantics.
+     */
+    private static final class TripSeats {
+        final Map<String, Integer> seatIndex;
+        final String[] seatNumbers;
+        final AtomicReferenceArray<Hold> slots;
+        final ConcurrentHashMap<String, Hold> unindexed = new ConcurrentHashMap<>();
+        volatile boolean dropped;
+
+        TripSeats(Map<String, Integer> seatIndex) {
+            this.seatIndex = Map.copyOf(seatIndex);
+            int size = seatIndex.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+            this.seatNumbers = new String[size];
+            seatIndex.forEach((seatNumber, index) -> seatNumbers[index] = seatNumber);
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        boolean claim(String seatNumber, Hold hold, long now) {
+            Integer index = seatIndex.get(seatNumber);
+            if (index == null) {
+                Hold current = unindexed.putIfAbsent(seatNumber, hold);
+                if (current == null || current == hold) {
+                    return true;
+                }
+                return !current.isActive(now) && unindexed.replace(seatNumber, current, hold);
+            }
+
+            while (true) {
+                Hold current = slots.get(index);
+                if (current == hold) {
+                    return true; // Seat listed twice
+                }
+                if (current != null && current.isActive(now)) {
+                    return false;
+                }
+                if (slots.compareAndSet(index, current, hold)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return true if the seat was still held by the hold and is now free
+         */
+        boolean free(String seatNumber, Hold hold) {
+            Integer index = seatIndex.get(seatNumber);
+            if (index == null) {
+                return unindexed.remove(seatNumber, hold);
+            }
+            return slots.compareAndSet(index, hold, null);
+        }
+
+        boolean isEmpty() {
+            for (int i = 0; i < slots.length(); i++) {
+                if (slots.get(i) != null) {
+                    return false;
+                }
+            }
+            return unindexed.isEmpty();
+        }
+
+        Hold holder(String seatNumber, long now) {
+            Integer index = seatIndex.get(seatNumber);
+            Hold current = index == null ? unindexed.get(seatNumber) : slots.get(index);
+            return current != null && current.isActive(now) ? current : null;
+        }
+
+        List<String> lockedSeats(long now) {
+            List<String> lockedSeats = new ArrayList<>();
+            for (int i = 0; i < slots.length(); i++) {
+                Hold current = slots.get(i);
+                if (current != null && current.isActive(now)) {
+                    lockedSeats.add(seatNumbers[i]);
+                }
+            }
+            unindexed.forEach((seatNumber, current) -> {
+                if (current.isActive(now)) {
+                    lockedSeats.add(seatNumber);
+                }
+            });
+            return lockedSeats;
+        }
+    }
+
+    /**
+     * Hashed timer wheel with one bucket per tick. Holds due more than a full turn
+     * ahead are simply looked at again when their bucket comes round.
+     */
+    private static final class TimerWheel {
+        private final List<ConcurrentLinkedQueue<Hold>> buckets = new ArrayList<>(WHEEL_SIZE);
+        private long currentTick;
+
+        TimerWheel(long startMillis) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                buckets.add(new ConcurrentLinkedQueue<>());
+            }
+            this.currentTick = startMillis / TICK_MILLIS;
+        }
+
+        void schedule(Hold hold, long now) {
+            long dueTick = Math.max(hold.deadline.get() / TICK_MILLIS + 1, now / TICK_MILLIS + 1);
+            buckets.get((int) (dueTick % WHEEL_SIZE)).add(hold);
+        }
+
+        void advance(long now, Consumer<Hold> onDue) {
+            long targetTick = now / TICK_MILLIS;
+            long ticks = Math.min(targetTick - currentTick, WHEEL_SIZE);
+            for (long i = 1; i <= ticks; i++) {
+                ConcurrentLinkedQueue<Hold> bucket = buckets.get((int) ((currentTick + i) % WHEEL_SIZE));
+                List<Hold> due = new ArrayList<>();
+                for (Hold hold; (hold = bucket.poll()) != null; ) {
+                    due.add(hold);
+                }
+                due.forEach(onDue);
+            }
+            currentTick = Math.max(currentTick, targetTick);
+        }
+    }
+}
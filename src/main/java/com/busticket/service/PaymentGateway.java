@@ -0,0 +1,148 @@
+package com.busticket.service;
+
+import com.busticket.dto.GatewayStatus;
+import com.busticket.dto.PaymentRequest;
+import com.busticket.model.Payment;
+import com.busticket.model.Refund;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Mock payment gateway. Calls block for the simulated network round trip, so they
+ * must not be made while holding a database connection.
+ *
+ * Charges and refunds each go through their own {@link GatewayGuard}, so a slow or
+ * failing gateway path is cut off by its bulkhead, deadline and circuit breaker
+ * before it ties up the threads that serve search and seat selection.
+ */
+@Component
+public class PaymentGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentGateway.class);
+
+    private final Random random = new Random();
+    private final GatewayGuard chargeGuard;
+    private final GatewayGuard refundGuard;
+
+    public PaymentGateway(@Value("${gateway.payment.max-concurrent:8}") int paymentMaxConcurrent,
+            @Value("${gateway.payment.timeout-ms:10000}") long paymentTimeoutMs,
+            @Value("${gateway.refund.max-concurrent:8}") int refundMaxConcurrent,
+            @Value("${gateway.refund.timeout-ms:5000}") long refundTimeoutMs,
+            @Value("${gateway.circuit.window-size:50}") int windowSize,
+            @Value("${gateway.circuit.minimum-calls:10}") int minimumCalls,
+            @Value("${gateway.circuit.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${gateway.circuit.open-ms:30000}") long openMs,
+            @Value("${gateway.circuit.half-open-calls:3}") int halfOpenCalls) {
+        this.chargeGuard = new GatewayGuard("payment", paymentMaxConcurrent, paymentTimeoutMs,
+                windowSize, minimumCalls, failureRateThreshold, openMs, halfOpenCalls);
+        this.refundGuard = new GatewayGuard("refund", refundMaxConcurrent, refundTimeoutMs,
+                windowSize, minimumCalls, failureRateThreshold, openMs, halfOpenCalls);
+    }
+
+    /**
+     * Charge a payment.
+     *
+     * @param payment the payment to charge
+     * @param request the card or wallet details
+     * @return the gateway's answer
+     * @throws IllegalStateException if the gateway is unavailable or did not answer in time;
+     *         after a missed deadline the charge may still have gone through
+     */
+    public GatewayResult charge(Payment payment, PaymentRequest request) {
+        return chargeGuard.call(() -> chargeThroughMock(payment));
+    }
+
+    /**
+     * Refund part or all of a charged payment.
+     *
+     * @param refund the refund to pay out
+     * @param originalPayment the payment being refunded
+     * @return the gateway's answer
+     * @throws IllegalStateException if the gateway is unavailable or did not answer in time
+     */
+    public GatewayResult refund(Refund refund, Payment originalPayment) {
+        return refundGuard.call(() -> refundThroughMock(refund));
+    }
+
+    /**
+     * Get the circuit state and call counters of the charge and refund paths.
+     *
+     * @return one status per gateway path
+     */
+    public List<GatewayStatus> getStatuses() {
+        return List.of(chargeGuard.status(), refundGuard.status());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chargeGuard.shutdown();
+        refundGuard.shutdown();
+    }
+
+    private GatewayResult chargeThroughMock(Payment payment) {
+        // Mock payment gateway - simulate payment processing
+        logger.info("Processing payment through mock gateway: {}", payment.getId());
+
+        // Simulate processing delay
+        try {
+            Thread.sleep(1000); // 1 second delay
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Mock success/failure logic (90% success rate)
+        boolean success = random.nextDouble() < 0.9;
+
+        if (success) {
+            String transactionId = "TXN_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            return new GatewayResult(true, transactionId, null);
+        } else {
+            return new GatewayResult(false, null, "Insufficient funds or card declined");
+        }
+    }
+
+    private GatewayResult refundThroughMock(Refund refund) {
+        // Mock refund gateway - simulate refund processing
+        logger.info("Processing refund through mock gateway: {}", refund.getId());
+
+        // Simulate processing delay
+        try {
+            Thread.sleep(500); // 0.5 second delay
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Mock success (95% success rate for refunds)
+        boolean success = random.nextDouble() < 0.95;
+
+        if (success) {
+            String transactionId = "REF_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            return new GatewayResult(true, transactionId, null);
+        } else {
+            return new GatewayResult(false, null, "Refund processing failed at gateway");
+        }
+    }
+
+    public static class GatewayResult {
+        private final boolean success;
+        private final String transactionId;
+        private final String errorMessage;
+
+        public GatewayResult(boolean success, String transactionId, String errorMessage) {
+            this.success = success;
+            this.transactionId = transactionId;
+            this.errorMessage = errorMessage;
+        }
+
+        public boolean isSuccess() { return success; }
+        public String getTransactionId() { return transactionId; }
+        public String getErrorMessage() { return errorMessage; }
+    }
+}
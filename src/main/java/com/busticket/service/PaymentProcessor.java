@@ -0,0 +1,292 @@
+package com.busticket.service;
+
+import com.busticket.dto.PaymentRequest;
+import com.busticket.model.Payment;
+import com.busticket.model.PaymentStatus;
+import com.busticket.model.Refund;
+import com.busticket.model.RefundStatus;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs submitted payments through the gateway off the request thread.
+ *
+ * Each payment is claimed (PENDING to PROCESSING) in one short transaction, charged
+ * with no transaction open, and settled (SUCCESS with the booking confirmed, or FAILED)
+ * in a second short transaction. Every transition is conditional on the current state,
+ * so a payment settles once even when the timeout sweep races a slow gateway call.
+ * A charge that went through for a booking that can no longer be confirmed, because its
+ * hold expired, its seats were fenced or the sweep failed the payment meanwhile, is
+ * kept as SUCCESS with a refund of the full amount queued in the same transaction,
+ * and the {@link RefundProcessor} is woken to pay it out.
+ * A fixed pool of workers bounds the gateway calls in flight; when its queue is full
+ * new payments fail at once instead of waiting.
+ *
+ * In virtual thread mode every payment gets its own virtual thread instead, and the
+ * same limits are kept by semaphores: one admits at most workers plus queue capacity
+ * payments, the other lets at most the worker count of them call the gateway at once.
+ */
+@Component
+public class PaymentProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentProcessor.class);
+
+    private final PaymentRepository paymentRepository;
+    private final RefundRepository refundRepository;
+    private final RefundProcessor refundProcessor;
+    private final BookingService bookingService;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor workers;
+    private final SimpleAsyncTaskExecutor virtualWorkers;
+    private final Semaphore admitted;
+    private final Semaphore gatewayCalls;
+
+    public PaymentProcessor(PaymentRepository paymentRepository,
+            RefundRepository refundRepository,
+            RefundProcessor refundProcessor,
+            BookingService bookingService,
+            PaymentGateway paymentGateway,
+            PlatformTransactionManager transactionManager,
+            @Value("${payment.pipeline.workers:8}") int workerCount,
+            @Value("${payment.pipeline.queue-capacity:200}") int queueCapacity,
+            @Value("${payment.pipeline.timeout-ms:60000}") long timeoutMs,
+            @Value("${payment.pipeline.virtual-threads:false}") boolean virtualThreads) {
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Payment pipeline needs at least one worker and one queue slot");
+        }
+        this.paymentRepository = paymentRepository;
+        this.refundRepository = refundRepository;
+        this.refundProcessor = refundProcessor;
+        this.bookingService = bookingService;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timeoutMs = timeoutMs;
+
+        this.virtualWorkers = virtualThreads ? virtualThreadExecutor() : null;
+        if (virtualWorkers != null) {
+            this.admitted = new Semaphore(workerCount + queueCapacity);
+            this.gatewayCalls = new Semaphore(workerCount, true);
+            this.workers = null;
+        } else {
+            this.admitted = null;
+            this.gatewayCalls = null;
+            AtomicInteger threadCount = new AtomicInteger();
+            this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, "payment-worker-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Queue a pending payment for charging. The payment must be committed before it is
+     * submitted.
+     *
+     * @param payment the pending payment
+     * @param request the card or wallet details, kept in memory only
+     */
+    public void submit(Payment payment, PaymentRequest request) {
+        try {
+            if (virtualWorkers != null) {
+                submitVirtual(payment, request);
+            } else {
+                workers.execute(() -> process(payment, request));
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("Payment pipeline full, failing payment: {}", payment.getId());
+            fail(payment, PaymentStatus.PENDING, "Payment pipeline is full");
+        }
+    }
+
+    /**
+     * Charge a pending payment and settle it.
+     */
+    void process(Payment payment, PaymentRequest request) {
+        Integer claimed = transactionTemplate.execute(status ->
+                paymentRepository.claimForProcessing(payment.getId(), LocalDateTime.now()));
+        if (claimed == null || claimed == 0) {
+            logger.info("Payment {} was settled before it was processed", payment.getId());
+            return;
+        }
+
+        PaymentGateway.GatewayResult result;
+        try {
+            result = charge(payment, request);
+        } catch (GatewayGuard.GatewayUnavailableException e) {
+            if (e.isOutcomeUnknown()) {
+                // The charge may have gone through: refund it instead of keeping money for a released booking
+                logger.warn("Payment {} outcome at the gateway is unknown, reversing it: {}",
+                        payment.getId(), e.getMessage());
+                reverse(payment, null, "Charge outcome unknown: " + e.getMessage());
+                return;
+            }
+            logger.error("Payment gateway error for payment: {}", payment.getId(), e);
+            result = new PaymentGateway.GatewayResult(false, null, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Payment gateway error for payment: {}", payment.getId(), e);
+            result = new PaymentGateway.GatewayResult(false, null, e.getMessage());
+        }
+
+        if (result.isSuccess()) {
+            succeed(payment, result.getTransactionId());
+        } else {
+            fail(payment, PaymentStatus.PROCESSING, result.getErrorMessage());
+        }
+    }
+
+    /**
+     * Fail every payment that has not settled within the timeout, counted from when it
+     * was queued while pending and from when it was claimed once in flight.
+     *
+     * @return the number of payments failed
+     */
+    public int expireStalePayments() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        Integer expired = transactionTemplate.execute(status -> paymentRepository.failUnsettledPayments(cutoff));
+        return expired != null ? expired : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Payments still queued stay PENDING and are failed by the timeout sweep
+        if (virtualWorkers != null) {
+            virtualWorkers.close();
+            return;
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submitVirtual(Payment payment, PaymentRequest request) {
+        if (!admitted.tryAcquire()) {
+            throw new RejectedExecutionException("Payment pipeline is full");
+        }
+        try {
+            virtualWorkers.execute(() -> {
+                try {
+                    process(payment, request);
+                } finally {
+                    admitted.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+
+    private PaymentGateway.GatewayResult charge(Payment payment, PaymentRequest request) {
+        if (gatewayCalls == null) {
+            return paymentGateway.charge(payment, request);
+        }
+        try {
+            gatewayCalls.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new PaymentGateway.GatewayResult(false, null, "Interrupted waiting for the payment gateway");
+        }
+        try {
+            return paymentGateway.charge(payment, request);
+        } finally {
+            gatewayCalls.release();
+        }
+    }
+
+    private static SimpleAsyncTaskExecutor virtualThreadExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-worker-");
+        try {
+            executor.setVirtualThreads(true);
+        } catch (UnsupportedOperationException e) {
+            logger.warn("Virtual threads need Java 21, payments run on a fixed worker pool");
+            return null;
+        }
+        executor.setTaskTerminationTimeout(5000);
+        return executor;
+    }
+
+    private void succeed(Payment payment, String transactionId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (paymentRepository.markSucceeded(payment.getId(), transactionId, LocalDateTime.now()) == 0) {
+                    throw new IllegalStateException("Payment timed out while the gateway charged it");
+                }
+                bookingService.confirmBooking(payment.getBookingId(), payment.getId());
+            });
+            logger.info("Payment successful: {}, transaction: {}", payment.getId(), transactionId);
+        } catch (RuntimeException e) {
+            // The charge went through but the booking cannot be honoured
+            logger.warn("Payment {} charged as {} but not settled, reversing it: {}",
+                    payment.getId(), transactionId, e.getMessage());
+            reverse(payment, transactionId, "Booking could not be confirmed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record a charge that cannot be honoured, or may have gone through unseen, together
+     * with a refund of its full amount.
+     */
+    private void reverse(Payment payment, String transactionId, String reason) {
+        try {
+            Boolean queued = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (paymentRepository.markChargedForReversal(payment.getId(), transactionId, now) == 0) {
+                    return false; // Already settled by another path
+                }
+                Refund refund = new Refund();
+                refund.setId(UUID.randomUUID().toString());
+                refund.setPaymentId(payment.getId());
+                refund.setBookingId(payment.getBookingId());
+                refund.setAmount(payment.getAmount());
+                refund.setReason(reason);
+                refund.setStatus(RefundStatus.PENDING);
+                refund.setCreatedAt(now);
+                refundRepository.save(refund);
+                return true;
+            });
+            if (Boolean.TRUE.equals(queued)) {
+                refundProcessor.wakeUp();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Payment {} charged as {} but its reversal could not be recorded: {}",
+                    payment.getId(), transactionId, e.getMessage());
+        }
+    }
+
+    private void fail(Payment payment, PaymentStatus from, String reason) {
+        try {
+            Integer failed = transactionTemplate.execute(status ->
+                    paymentRepository.transitionStatus(payment.getId(), from, PaymentStatus.FAILED));
+            if (failed != null && failed > 0) {
+                logger.warn("Payment failed: {}, reason: {}", payment.getId(), reason);
+            }
+        } catch (RuntimeException e) {
+            // Left unsettled, the timeout sweep fails it later
+            logger.warn("Failed to mark payment {} as failed: {}", payment.getId(), e.getMessage());
+        }
+    }
+}
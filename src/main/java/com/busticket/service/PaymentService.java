@@ -14,12 +14,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Optional;
-import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -33,23 +32,26 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final BookingRepository bookingRepository;
     private final RefundRepository refundRepository;
-    private final BookingService bookingService;
-    private final SeatLockManager seatLockManager;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RefundProcessor refundProcessor;
+    private final PaymentProcessor paymentProcessor;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
     public PaymentService(PaymentRepository paymentRepository,
                          BookingRepository bookingRepository,
                          RefundRepository refundRepository,
-                         BookingService bookingService,
-                         SeatLockManager seatLockManager,
-                         RedisTemplate<String, Object> redisTemplate) {
+                         RedisTemplate<String, Object> redisTemplate,
+                         RefundProcessor refundProcessor,
+                         PaymentProcessor paymentProcessor,
+                         IdempotencyService idempotencyService) {
         this.paymentRepository = paymentRepository;
         this.bookingRepository = bookingRepository;
         this.refundRepository = refundRepository;
-        this.bookingService = bookingService;
-        this.seatLockManager = seatLockManager;
         this.redisTemplate = redisTemplate;
+        this.refundProcessor = refundProcessor;
+        this.paymentProcessor = paymentProcessor;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
@@ -91,9 +93,11 @@ public class PaymentService {
     }
 
     /**
-     * Processes a payment using the provided payment details
+     * Starts processing a payment using the provided payment details. The payment is
+     * stored as PENDING and charged in the background by the {@link PaymentProcessor},
+     * so no connection or request thread waits for the gateway; poll the payment for
+     * its outcome.
      */
-    @Transactional
     public Payment processPayment(String sessionId, PaymentRequest paymentRequest) {
         logger.info("Processing payment for session: {}", sessionId);
         
@@ -103,7 +107,7 @@ public class PaymentService {
             throw new IllegalStateException("Payment session expired or invalid");
         }
         
-        // Create payment record
+        // Create payment record, committed on its own before the gateway is called
         Payment payment = new Payment();
         payment.setId(UUID.randomUUID().toString());
         payment.setBookingId(session.getBookingId());
@@ -114,48 +118,31 @@ public class PaymentService {
         
         payment = paymentRepository.save(payment);
         
-        try {
-            // Process payment through mock gateway
-            PaymentGatewayResult result = processPaymentThroughGateway(payment, paymentRequest);
-            
-            // Update payment status based on result
-            if (result.isSuccess()) {
-                payment.setStatus(PaymentStatus.SUCCESS);
-                payment.setTransactionId(result.getTransactionId());
-                payment.setCompletedAt(LocalDateTime.now());
-                
-                // Confirm booking
-                bookingService.confirmBooking(payment.getBookingId(), payment.getId());
-                
-                logger.info("Payment successful: {}, transaction: {}", payment.getId(), result.getTransactionId());
-            } else {
-                payment.setStatus(PaymentStatus.FAILED);
-                
-                // Release seat locks for failed payment
-                releaseSeatLocksForBooking(payment.getBookingId());
-                
-                logger.warn("Payment failed: {}, reason: {}", payment.getId(), result.getErrorMessage());
-            }
-            
-            payment = paymentRepository.save(payment);
-            
-            // Clean up payment session
-            redisTemplate.delete(PAYMENT_SESSION_PREFIX + sessionId);
-            
-            return payment;
-            
-        } catch (Exception e) {
-            logger.error("Payment processing error for payment: {}", payment.getId(), e);
-            
-            // Mark payment as failed
-            payment.setStatus(PaymentStatus.FAILED);
-            payment = paymentRepository.save(payment);
-            
-            // Release seat locks
-            releaseSeatLocksForBooking(payment.getBookingId());
-            
-            throw new RuntimeException("Payment processing failed: " + e.getMessage(), e);
-        }
+        // A session pays once
+        redisTemplate.delete(PAYMENT_SESSION_PREFIX + sessionId);
+        
+        paymentProcessor.submit(payment, paymentRequest);
+        return payment;
+    }
+
+    /**
+     * Starts processing a payment once per idempotency key. A retry with the same key
+     * gets the payment started by the first request instead of charging again, even
+     * though the first request used up the payment session.
+     *
+     * @param sessionId the payment session ID
+     * @param paymentRequest the payment details
+     * @param userId the paying user, the key is scoped to
+     * @param idempotencyKey the client-supplied key, or null to always start a payment
+     * @return the payment as it was started
+     */
+    public Payment processPayment(String sessionId, PaymentRequest paymentRequest, String userId,
+            String idempotencyKey) {
+        // Card details stay out of the fingerprint
+        Object request = Arrays.asList(sessionId, paymentRequest.getBookingId(), paymentRequest.getAmount(),
+                paymentRequest.getMethod());
+        return idempotencyService.execute("payment", userId, idempotencyKey, request, Payment.class,
+                () -> processPayment(sessionId, paymentRequest));
     }
 
     /**
@@ -174,11 +161,11 @@ public class PaymentService {
     }
 
     /**
-     * Processes a refund for a payment
+     * Queues a refund for a payment. The refund is paid out in the background by the
+     * {@link RefundProcessor}, so it is returned still PENDING.
      */
-    @Transactional
     public Refund refundPayment(String paymentId, BigDecimal refundAmount, String reason) {
-        logger.info("Processing refund for payment: {}, amount: {}", paymentId, refundAmount);
+        logger.info("Queueing refund for payment: {}, amount: {}", paymentId, refundAmount);
         
         Payment payment = getPayment(paymentId);
         
@@ -201,34 +188,8 @@ public class PaymentService {
         refund.setCreatedAt(LocalDateTime.now());
         
         refund = refundRepository.save(refund);
-        
-        try {
-            // Process refund through mock gateway
-            RefundGatewayResult result = processRefundThroughGateway(refund, payment);
-            
-            if (result.isSuccess()) {
-                refund.setStatus(RefundStatus.COMPLETED);
-                refund.setTransactionId(result.getTransactionId());
-                refund.setCompletedAt(LocalDateTime.now());
-                
-                logger.info("Refund successful: {}, transaction: {}", refund.getId(), result.getTransactionId());
-            } else {
-                refund.setStatus(RefundStatus.FAILED);
-                
-                logger.warn("Refund failed: {}, reason: {}", refund.getId(), result.getErrorMessage());
-            }
-            
-            refund = refundRepository.save(refund);
-            return refund;
-            
-        } catch (Exception e) {
-            logger.error("Refund processing error for refund: {}", refund.getId(), e);
-            
-            refund.setStatus(RefundStatus.FAILED);
-            refund = refundRepository.save(refund);
-            
-            throw new RuntimeException("Refund processing failed: " + e.getMessage(), e);
-        }
+        refundProcessor.wakeUp();
+        return refund;
     }
 
     // Private helper methods
@@ -237,64 +198,7 @@ public class PaymentService {
         return (PaymentSession) redisTemplate.opsForValue().get(PAYMENT_SESSION_PREFIX + sessionId);
     }
 
-    private PaymentGatewayResult processPaymentThroughGateway(Payment payment, PaymentRequest request) {
-        // Mock payment gateway - simulate payment processing
-        logger.info("Processing payment through mock gateway: {}", payment.getId());
-        
-        // Simulate processing delay
-        try {
-            Thread.sleep(1000); // 1 second delay
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        // Mock success/failure logic (90% success rate)
-        Random random = new Random();
-        boolean success = random.nextDouble() < 0.9;
-        
-        if (success) {
-            String transactionId = "TXN_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-            return new PaymentGatewayResult(true, transactionId, null);
-        } else {
-            return new PaymentGatewayResult(false, null, "Insufficient funds or card declined");
-        }
-    }
-
-    private RefundGatewayResult processRefundThroughGateway(Refund refund, Payment originalPayment) {
-        // Mock refund gateway - simulate refund processing
-        logger.info("Processing refund through mock gateway: {}", refund.getId());
-        
-        // Simulate processing delay
-        try {
-            Thread.sleep(500); // 0.5 second delay
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        // Mock success (95% success rate for refunds)
-        Random random = new Random();
-        boolean success = random.nextDouble() < 0.95;
-        
-        if (success) {
-            String transactionId = "REF_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-            return new RefundGatewayResult(true, transactionId, null);
-        } else {
-            return new RefundGatewayResult(false, null, "Refund processing failed at gateway");
-        }
-    }
-
-    private void releaseSeatLocksForBooking(String bookingId) {
-        try {
-            // This is a simplified approach - in production, you'd need a more robust way
-            // to track and release locks associated with a booking
-            logger.info("Releasing seat locks for failed payment, booking: {}", bookingId);
-            // Implementation would depend on how you store the booking-lock relationship
-        } catch (Exception e) {
-            logger.warn("Failed to release seat locks for booking {}: {}", bookingId, e.getMessage());
-        }
-    }
-
-    // Inner classes for payment session and gateway results
+    // Inner class for payment session
 
     public static class PaymentSession {
         private final String sessionId;
@@ -314,36 +218,4 @@ public class PaymentService {
         public BigDecimal getAmount() { return amount; }
         public LocalDateTime getExpiresAt() { return expiresAt; }
     }
-
-    private static class PaymentGatewayResult {
-        private final boolean success;
-        private final String transactionId;
-        private final String errorMessage;
-
-        public PaymentGatewayResult(boolean success, String transactionId, String errorMessage) {
-            this.success = success;
-            this.transactionId = transactionId;
-            this.errorMessage = errorMessage;
-        }
-
-        public boolean isSuccess() { return success; }
-        public String getTransactionId() { return transactionId; }
-        public String getErrorMessage() { return errorMessage; }
-    }
-
-    private static class RefundGatewayResult {
-        private final boolean success;
-        private final String transactionId;
-        private final String errorMessage;
-
-        public RefundGatewayResult(boolean success, String transactionId, String errorMessage) {
-            this.success = success;
-            this.transactionId = transactionId;
-            this.errorMessage = errorMessage;
-        }
-
-        public boolean isSuccess() { return success; }
-        public String getTransactionId() { return transactionId; }
-        public String getErrorMessage() { return errorMessage; }
-    }
-}
\ No newline at end of file
+}
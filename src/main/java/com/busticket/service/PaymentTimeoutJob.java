@@ -0,0 +1,34 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically fails payments stuck before settling, such as payments whose worker
+ * died or whose gateway call never returned.
+ */
+@Component
+public class PaymentTimeoutJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentTimeoutJob.class);
+
+    private final PaymentProcessor paymentProcessor;
+
+    public PaymentTimeoutJob(PaymentProcessor paymentProcessor) {
+        this.paymentProcessor = paymentProcessor;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.pipeline.sweep-interval-ms:30000}")
+    public void expireStalePayments() {
+        try {
+            int expired = paymentProcessor.expireStalePayments();
+            if (expired > 0) {
+                logger.warn("Failed {} payments that did not settle in time", expired);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Payment timeout sweep failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.busticket.service;
+
+import com.busticket.event.SeatHoldExpiredEvent;
+import com.busticket.event.SeatLockExtendedEvent;
+import com.busticket.event.SeatLockedEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis backed seat locks, shared by every application node.
+ *
+ * Holds, their seat keys and the per-trip lock index are only ever changed by
+ * Lua scripts, so each operation is atomic across nodes.
+ */
+@Service
+@ConditionalOnProperty(name = "seat-lock.backend", havingValue = "redis", matchIfMissing = true)
+public class RedisSeatLockManager implements SeatLockManager {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SeatOccupancyService seatOccupancyService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final String LOCK_PREFIX = "lock:";
+    private static final String SEAT_LOCK_PREFIX = "seat_lock:";
+    private static final String TRIP_LOCKS_PREFIX = "trip_locks:";
+    private static final String LOCK_FENCE_PREFIX = "lock_fence:";
+    private static final String LOCK_BOOKING_PREFIX = "lock_booking:";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE_SCRIPT = loadScript("seat_lock_acquire.lua", List.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = loadScript("seat_lock_release.lua", Long.class);
+    private static final RedisScript<Long> EXTEND_SCRIPT = loadScript("seat_lock_extend.lua", Long.class);
+    private static final RedisScript<LockInfo> VERIFY_SCRIPT = loadScript("seat_lock_verify.lua", LockInfo.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> INDEX_SCRIPT = loadScript("seat_lock_index.lua", List.class);
+
+    public RedisSeatLockManager(RedisTemplate<String, Object> redisTemplate,
+                                SeatOccupancyService seatOccupancyService,
+                                ApplicationEventPublisher eventPublisher) {
+        this.redisTemplate = redisTemplate;
+        this.seatOccupancyService = seatOccupancyService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Acquire locks for multiple seats on a trip, all or nothing.
+     * All seat keys and the lock record are claimed by a single Redis script,
+     * so two users can never end up holding overlapping seats. The same script
+     * hands out the hold's fencing token.
+     * 
+     * @param tripId the trip ID
+     * @param seatNumbers the list of seat numbers to lock
+     * @param userId the user ID acquiring the locks
+     * @return LockAttempt holding the lock, or the seats that prevented it
+     */
+    @Override
+    public LockAttempt tryAcquireLock(String tripId, List<String> seatNumbers, String userId) {
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            throw new IllegalArgumentException("At least one seat is required");
+        }
+
+        // Fail fast on booked seats; this also makes sure the occupancy bitmap is built
+        Map<String, Integer> seatIndex = seatOccupancyService.getSeatIndex(tripId);
+        List<String> bookedSeats = seatOccupancyService.findBookedSeats(tripId, seatIndex, seatNumbers);
+        if (!bookedSeats.isEmpty()) {
+            return LockAttempt.conflict(bookedSeats);
+        }
+
+        String lockId = UUID.randomUUID().toString();
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(LOCK_TIMEOUT_MINUTES);
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, expiresAt);
+
+        // The script re-checks the occupancy bits, so a seat confirmed in the meantime is never held
+        List<String> keys = new ArrayList<>(seatNumbers.size() + 4);
+        keys.add(LOCK_PREFIX + lockId);
+        keys.add(SeatOccupancyService.occupancyKey(tripId));
+        keys.add(tripLocksKey(tripId));
+        keys.add(LOCK_FENCE_PREFIX + tripId);
+        List<Object> args = new ArrayList<>(2 * seatNumbers.size() + 3);
+        args.add(lockInfo);
+        args.add(lockId);
+        args.add(TimeUnit.MINUTES.toSeconds(LOCK_TIMEOUT_MINUTES));
+        for (String seatNumber : seatNumbers) {
+            keys.add(SEAT_LOCK_PREFIX + tripId + ":" + seatNumber);
+            Integer index = seatIndex.get(seatNumber);
+            args.add(index != null ? SeatOccupancyService.bitOffset(index) : 0L);
+        }
+        args.addAll(seatNumbers);
+
+        List<?> result = redisTemplate.execute(ACQUIRE_SCRIPT, keys, args.toArray());
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("No result from seat lock script for trip " + tripId);
+        }
+
+        long fencingToken = ((Number) result.get(0)).longValue();
+        if (fencingToken > 0) {
+            lockInfo.setFencingToken(fencingToken);
+            eventPublisher.publishEvent(new SeatLockedEvent(tripId, seatNumbers, lockId, expiresAt));
+            return LockAttempt.acquired(lockInfo);
+        }
+
+        List<String> lockedSeats = new ArrayList<>(result.size() - 1);
+        for (Object position : result.subList(1, result.size())) {
+            lockedSeats.add(seatNumbers.get(((Number) position).intValue() - 1));
+        }
+        return LockAttempt.conflict(lockedSeats);
+    }
+
+    /**
+     * Release a lock and free all associated seats.
+     * 
+     * @param lockId the lock ID to release
+     * @return true if lock was released, false if lock didn't exist
+     */
+    @Override
+    public boolean releaseLock(String lockId) {
+        LockInfo lockInfo = getLockInfo(lockId);
+
+        if (lockInfo == null) {
+            return false; // Lock already expired or doesn't exist
+        }
+
+        List<Object> args = new ArrayList<>(lockInfo.getSeatNumbers().size() + 1);
+        args.add(lockId);
+        args.addAll(lockInfo.getSeatNumbers());
+
+        Long released = redisTemplate.execute(RELEASE_SCRIPT, lockKeys(lockInfo), args.toArray());
+        if (released == null || released != 1L) {
+            return false;
+        }
+
+        eventPublisher.publishEvent(new SeatReleasedEvent(lockInfo.getTripId(), lockInfo.getSeatNumbers(),
+                lockId, SeatReleasedEvent.Reason.RELEASED));
+        return true;
+    }
+
+    /**
+     * Extend the expiration time of a lock.
+     * 
+     * @param lockId the lock ID to extend
+     * @param additionalMinutes additional minutes to extend the lock
+     * @return true if lock was extended, false if lock doesn't exist
+     */
+    @Override
+    public boolean extendLock(String lockId, int additionalMinutes) {
+        LockInfo lockInfo = getLockInfo(lockId);
+
+        if (lockInfo == null) {
+            return false; // Lock doesn't exist
+        }
+
+        // Update expiration time
+        lockInfo.setExpiresAt(lockInfo.getExpiresAt().plusMinutes(additionalMinutes));
+
+        List<Object> args = new ArrayList<>(lockInfo.getSeatNumbers().size() + 3);
+        args.add(lockInfo);
+        args.add(lockId);
+        args.add(TimeUnit.MINUTES.toMillis(additionalMinutes));
+        args.addAll(lockInfo.getSeatNumbers());
+
+        // Lock record, seat keys and trip index entries are pushed out by the same amount in one step
+        Long extended = redisTemplate.execute(EXTEND_SCRIPT, lockKeys(lockInfo), args.toArray());
+        if (extended == null || extended != 1L) {
+            return false;
+        }
+
+        eventPublisher.publishEvent(new SeatLockExtendedEvent(lockInfo.getTripId(), lockInfo.getSeatNumbers(),
+                lockId, lockInfo.getExpiresAt()));
+        return true;
+    }
+
+    /**
+     * Check if a specific seat is locked.
+     * 
+     * @param tripId the trip ID
+     * @param seatNumber the seat number
+     * @return true if the seat is locked, false otherwise
+     */
+    @Override
+    public boolean isLocked(String tripId, String seatNumber) {
+        String seatLockKey = SEAT_LOCK_PREFIX + tripId + ":" + seatNumber;
+        String lockId = (String) redisTemplate.opsForValue().get(seatLockKey);
+        return lockId != null;
+    }
+
+    /**
+     * Check if a specific seat is booked (confirmed booking).
+     * 
+     * @param tripId the trip ID
+     * @param seatNumber the seat number
+     * @return true if the seat is booked, false otherwise
+     */
+    @Override
+    public boolean isBooked(String tripId, String seatNumber) {
+        return seatOccupancyService.isBooked(tripId, seatNumber);
+    }
+
+    /**
+     * Resolve the status of many seats at once.
+     * Lock states come from the trip's lock index and booked states from the occupancy bitmap,
+     * so the number of round trips does not grow with the number of seats.
+     * 
+     * @param tripId the trip ID
+     * @param seatIndex the trip's seat index
+     * @param seatNumbers the seat numbers to resolve
+     * @return seat status keyed by seat number, in the order given
+     */
+    @Override
+    public Map<String, SeatStatus> getSeatStatuses(String tripId, Map<String, Integer> seatIndex,
+                                                   List<String> seatNumbers) {
+        Map<String, SeatStatus> statuses = new LinkedHashMap<>();
+        if (seatNumbers.isEmpty()) {
+            return statuses;
+        }
+
+        Set<String> lockedSeats = new HashSet<>(getLockedSeats(tripId));
+        Set<String> bookedSeats = new HashSet<>(seatOccupancyService.findBookedSeats(tripId, seatIndex, seatNumbers));
+
+        for (String seatNumber : seatNumbers) {
+            if (bookedSeats.contains(seatNumber)) {
+                statuses.put(seatNumber, SeatStatus.BOOKED);
+            } else if (lockedSeats.contains(seatNumber)) {
+                statuses.put(seatNumber, SeatStatus.LOCKED);
+            } else {
+                statuses.put(seatNumber, SeatStatus.AVAILABLE);
+            }
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Get lock information by lock ID.
+     * 
+     * @param lockId the lock ID
+     * @return LockInfo if found, null otherwise
+     */
+    @Override
+    public LockInfo getLockInfo(String lockId) {
+        String lockKey = LOCK_PREFIX + lockId;
+        return (LockInfo) redisTemplate.opsForValue().get(lockKey);
+    }
+
+    /**
+     * Check in one step that a hold still exists and still owns all the given seats.
+     * The lock record and every seat key are read by a single Redis script.
+     * 
+     * @param lockId the lock ID
+     * @param tripId the trip ID the seats belong to
+     * @param seatNumbers the seats the hold must cover
+     * @return LockInfo with the hold's fencing token, or null if the hold is gone or lost a seat
+     */
+    @Override
+    public LockInfo verifyHold(String lockId, String tripId, List<String> seatNumbers) {
+        List<String> keys = new ArrayList<>(seatNumbers.size() + 1);
+        keys.add(LOCK_PREFIX + lockId);
+        for (String seatNumber : seatNumbers) {
+            keys.add(SEAT_LOCK_PREFIX + tripId + ":" + seatNumber);
+        }
+
+        LockInfo lockInfo = redisTemplate.execute(VERIFY_SCRIPT, keys, lockId);
+        if (lockInfo == null || !tripId.equals(lockInfo.getTripId())) {
+            return null;
+        }
+        return lockInfo;
+    }
+
+    /**
+     * Get all locked seats for a trip.
+     * Reads the trip's lock index, a sorted set of held seats scored by expiry,
+     * and trims members whose hold has already expired.
+     * 
+     * @param tripId the trip ID
+     * @return list of locked seat numbers
+     */
+    @Override
+    public List<String> getLockedSeats(String tripId) {
+        List<?> members = redisTemplate.execute(INDEX_SCRIPT, List.of(tripLocksKey(tripId)));
+        if (members == null) {
+            return List.of();
+        }
+
+        List<String> lockedSeats = new ArrayList<>(members.size());
+        for (Object member : members) {
+            lockedSeats.add(String.valueOf(member));
+        }
+        return lockedSeats;
+    }
+
+    /**
+     * Clean up expired locks (called by scheduled job).
+     * Seat keys and lock records expire through their TTL and expiry notifications;
+     * this is the backstop for notifications that were missed, since Redis pub/sub
+     * does not redeliver. Any booking mapping whose lock record is gone is reported
+     * as an expired hold.
+     */
+    @Override
+    public void cleanupExpiredLocks() {
+        ScanOptions options = ScanOptions.scanOptions().match(LOCK_BOOKING_PREFIX + "*").count(500).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String lockId = cursor.next().substring(LOCK_BOOKING_PREFIX.length());
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(LOCK_PREFIX + lockId))) {
+                    eventPublisher.publishEvent(new SeatHoldExpiredEvent(lockId));
+                }
+            }
+        }
+    }
+
+    private static String tripLocksKey(String tripId) {
+        return TRIP_LOCKS_PREFIX + tripId;
+    }
+
+    private static List<String> lockKeys(LockInfo lockInfo) {
+        List<String> keys = new ArrayList<>(lockInfo.getSeatNumbers().size() + 2);
+        keys.add(LOCK_PREFIX + lockInfo.getLockId());
+        keys.add(tripLocksKey(lockInfo.getTripId()));
+        for (String seatNumber : lockInfo.getSeatNumbers()) {
+            keys.add(SEAT_LOCK_PREFIX + lockInfo.getTripId() + ":" + seatNumber);
+        }
+        return keys;
+    }
+
+    private static <T> RedisScript<T> loadScript(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/" + name)));
+        script.setResultType(resultType);
+        return script;
+    }
+}
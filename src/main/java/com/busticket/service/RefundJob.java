@@ -0,0 +1,31 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically wakes the refund engine, picking up refunds queued on other nodes and
+ * refunds whose claim lapsed.
+ */
+@Component
+public class RefundJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefundJob.class);
+
+    private final RefundProcessor refundProcessor;
+
+    public RefundJob(RefundProcessor refundProcessor) {
+        this.refundProcessor = refundProcessor;
+    }
+
+    @Scheduled(fixedDelayString = "${refund.engine.poll-interval-ms:30000}")
+    public void processRefunds() {
+        try {
+            refundProcessor.wakeUp();
+        } catch (RuntimeException e) {
+            logger.warn("Refund engine wake-up failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.busticket.service;
+
+import com.busticket.model.Payment;
+import com.busticket.model.Refund;
+import com.busticket.model.RefundStatus;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pays out pending refunds in the background, in batches.
+ *
+ * A batch of pending refunds is claimed in one short transaction that locks them with
+ * {@code FOR UPDATE SKIP LOCKED}, so workers on several nodes never claim the same refund,
+ * and stamps each with a claim time. The batch is then sent to the gateway by a fixed
+ * number of workers with no transaction open, and the outcomes are written back in one
+ * more transaction as batched updates. A refund that failed, or whose node died before
+ * recording it, is claimed again once its claim lapses, until it runs out of attempts.
+ *
+ * In virtual thread mode every refund of a batch gets its own virtual thread instead,
+ * and a semaphore keeps the gateway calls in flight to the same parallelism.
+ */
+@Component
+public class RefundProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefundProcessor.class);
+
+    private final RefundRepository refundRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final ExecutorService workers;
+    private final SimpleAsyncTaskExecutor virtualWorkers;
+    private final Semaphore gatewayCalls;
+    private final ExecutorService engine;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean wokenUp = new AtomicBoolean();
+
+    public RefundProcessor(RefundRepository refundRepository,
+            PaymentRepository paymentRepository,
+            PaymentGateway paymentGateway,
+            PlatformTransactionManager transactionManager,
+            @Value("${refund.engine.batch-size:100}") int batchSize,
+            @Value("${refund.engine.parallelism:8}") int parallelism,
+            @Value("${refund.engine.lease-ms:300000}") long leaseMs,
+            @Value("${refund.engine.max-attempts:5}") int maxAttempts,
+            @Value("${refund.engine.virtual-threads:false}") boolean virtualThreads) {
+        if (batchSize < 1 || parallelism < 1 || leaseMs < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Refund engine batch size, parallelism, lease and attempts must be positive");
+        }
+        this.refundRepository = refundRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.virtualWorkers = virtualThreads ? virtualThreadExecutor() : null;
+        if (virtualWorkers != null) {
+            this.gatewayCalls = new Semaphore(parallelism, true);
+            this.workers = null;
+        } else {
+            this.gatewayCalls = null;
+            this.workers = Executors.newFixedThreadPool(parallelism, daemonThreads("refund-worker-"));
+        }
+        this.engine = Executors.newSingleThreadExecutor(daemonThreads("refund-engine-"));
+    }
+
+    /**
+     * Start paying out the claimable refunds in the background, unless that is already
+     * under way. Returns at once.
+     */
+    public void wakeUp() {
+        wokenUp.set(true);
+        if (draining.compareAndSet(false, true)) {
+            engine.execute(this::drainInBackground);
+        }
+    }
+
+    /**
+     * Pay out claimable refunds batch by batch until none are left.
+     *
+     * @return the number of refunds sent to the gateway
+     */
+    public int drain() {
+        int processed = 0;
+        int batch;
+        do {
+            batch = processBatch();
+            processed += batch;
+        } while (batch == batchSize);
+        return processed;
+    }
+
+    /**
+     * Claim one batch of refunds, send it to the gateway and record the outcomes.
+     *
+     * @return the number of refunds in the batch
+     */
+    int processBatch() {
+        // Stored at the database's precision, so the claim can be recognized when recording
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Refund> refunds = transactionTemplate.execute(status -> {
+            List<String> ids = refundRepository.lockClaimableRefundIds(
+                    claimedAt.minusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)), batchSize);
+            if (ids.isEmpty()) {
+                return List.<Refund>of();
+            }
+            refundRepository.claimRefunds(ids, claimedAt);
+            return refundRepository.findAllById(ids);
+        });
+        if (refunds == null || refunds.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Payment> payments = paymentRepository.findAllById(
+                        refunds.stream().map(Refund::getPaymentId).distinct().collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Payment::getId, Function.identity()));
+
+        Executor executor = virtualWorkers != null ? virtualWorkers : workers;
+        List<CompletableFuture<Outcome>> calls = new ArrayList<>(refunds.size());
+        for (Refund refund : refunds) {
+            calls.add(CompletableFuture.supplyAsync(() -> payOut(refund, payments.get(refund.getPaymentId())), executor));
+        }
+        Map<String, Outcome> outcomes = new HashMap<>();
+        for (CompletableFuture<Outcome> call : calls) {
+            Outcome outcome = call.join();
+            outcomes.put(outcome.refundId, outcome);
+        }
+
+        record(outcomes, claimedAt);
+        return refunds.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Claimed refunds not yet recorded are claimed again once their claim lapses
+        engine.shutdownNow();
+        if (virtualWorkers != null) {
+            virtualWorkers.close();
+        } else {
+            workers.shutdownNow();
+        }
+    }
+
+    private void drainInBackground() {
+        try {
+            do {
+                wokenUp.set(false);
+                int processed = drain();
+                if (processed > 0) {
+                    logger.info("Refund engine processed {} refunds", processed);
+                }
+            } while (wokenUp.get());
+        } catch (RuntimeException e) {
+            logger.warn("Refund engine stopped early: {}", e.getMessage());
+        } finally {
+            draining.set(false);
+        }
+        // A wake-up that came in after the last check but before the flag was cleared
+        if (wokenUp.get() && draining.compareAndSet(false, true)) {
+            engine.execute(this::drainInBackground);
+        }
+    }
+
+    private Outcome payOut(Refund refund, Payment payment) {
+        if (payment == null) {
+            return new Outcome(refund.getId(), null, "Payment not found: " + refund.getPaymentId());
+        }
+        try {
+            PaymentGateway.GatewayResult result = refund(refund, payment);
+            return result.isSuccess()
+                    ? new Outcome(refund.getId(), result.getTransactionId(), null)
+                    : new Outcome(refund.getId(), null, result.getErrorMessage());
+        } catch (RuntimeException e) {
+            return new Outcome(refund.getId(), null, e.getMessage());
+        }
+    }
+
+    private PaymentGateway.GatewayResult refund(Refund refund, Payment payment) {
+        if (gatewayCalls == null) {
+            return paymentGateway.refund(refund, payment);
+        }
+        try {
+            gatewayCalls.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new PaymentGateway.GatewayResult(false, null, "Interrupted waiting for the refund gateway");
+        }
+        try {
+            return paymentGateway.refund(refund, payment);
+        } finally {
+            gatewayCalls.release();
+        }
+    }
+
+    private void record(Map<String, Outcome> outcomes, LocalDateTime claimedAt) {
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Refund> settled = new ArrayList<>(outcomes.size());
+            for (Refund refund : refundRepository.findAllById(outcomes.keySet())) {
+                // Skip refunds claimed again after this batch's claim lapsed
+                if (refund.getStatus() != RefundStatus.PENDING || !claimedAt.equals(refund.getClaimedAt())) {
+                    continue;
+                }
+                Outcome outcome = outcomes.get(refund.getId());
+                if (outcome.transactionId != null) {
+                    refund.setStatus(RefundStatus.COMPLETED);
+                    refund.setTransactionId(outcome.transactionId);
+                    refund.setCompletedAt(LocalDateTime.now());
+                    completed.incrementAndGet();
+                } else if (refund.getAttempts() >= maxAttempts) {
+                    refund.setStatus(RefundStatus.FAILED);
+                    failed.incrementAndGet();
+                    logger.warn("Refund failed after {} attempts: {}, reason: {}",
+                            refund.getAttempts(), refund.getId(), outcome.errorMessage);
+                } else {
+                    // Left claimed, so it is retried once the claim lapses
+                    logger.info("Refund attempt {} failed: {}, reason: {}",
+                            refund.getAttempts(), refund.getId(), outcome.errorMessage);
+                    continue;
+                }
+                settled.add(refund);
+            }
+            refundRepository.saveAll(settled);
+        });
+        logger.info("Refund batch of {} recorded: {} completed, {} failed", outcomes.size(), completed, failed);
+    }
+
+    private static SimpleAsyncTaskExecutor virtualThreadExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("refund-worker-");
+        try {
+            executor.setVirtualThreads(true);
+        } catch (UnsupportedOperationException e) {
+            logger.warn("Virtual threads need Java 21, refunds run on a fixed worker pool");
+            return null;
+        }
+        executor.setTaskTerminationTimeout(5000);
+        return executor;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The gateway's answer to one refund: a transaction ID, or the reason it failed.
+     */
+    private static final class Outcome {
+        private final String refundId;
+        private final String transactionId;
+        private final String errorMessage;
+
+        private Outcome(String refundId, String transactionId, String errorMessage) {
+            this.refundId = refundId;
+            this.transactionId = transactionId;
+            this.errorMessage = errorMessage;
+        }
+    }
+}
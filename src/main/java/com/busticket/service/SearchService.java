@@ -1,5 +1,7 @@
 package com.busticket.service;
 
+import com.busticket.dto.CitySuggestion;
+import com.busticket.dto.TripPage;
 import com.busticket.dto.TripResponse;
 import com.busticket.dto.TripSearchRequest;
 import com.busticket.model.*;
@@ -16,30 +18,44 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class SearchService {
 
+    /** Largest page a paged trip search returns. */
+    static final int MAX_PAGE_SIZE = 100;
+
     private final CityRepository cityRepository;
     private final BusRepository busRepository;
     private final RouteRepository routeRepository;
     private final TripRepository tripRepository;
     private final ObjectMapper objectMapper;
+    private final TripSearchIndex tripSearchIndex;
+    private final CityAutocompleteIndex cityAutocompleteIndex;
 
     public SearchService(CityRepository cityRepository,
             BusRepository busRepository,
             RouteRepository routeRepository,
             TripRepository tripRepository,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            TripSearchIndex tripSearchIndex,
+            CityAutocompleteIndex cityAutocompleteIndex) {
         this.cityRepository = cityRepository;
         this.busRepository = busRepository;
         this.routeRepository = routeRepository;
         this.tripRepository = tripRepository;
         this.objectMapper = objectMapper;
+        this.tripSearchIndex = tripSearchIndex;
+        this.cityAutocompleteIndex = cityAutocompleteIndex;
     }
 
     /**
@@ -50,6 +66,14 @@ public class SearchService {
      * @return a list of trip responses matching the criteria
      */
     public List<TripResponse> searchTrips(TripSearchRequest request) {
+        resolveCities(request);
+
+        // Dates within the in-memory index are answered without touching the database
+        Optional<List<TripResponse>> indexed = tripSearchIndex.search(request);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
         // Find cities by name
         Optional<City> departureCity = cityRepository.findByNameIgnoreCase(request.getDepartureCity());
         Optional<City> destinationCity = cityRepository.findByNameIgnoreCase(request.getDestinationCity());
@@ -67,27 +91,31 @@ public class SearchService {
             return new ArrayList<>();
         }
 
-        // Search trips for all routes
-        List<Trip> allTrips = new ArrayList<>();
+        // Search trips on all routes in one query, with bus and city names joined in
+        Set<String> routeIds = new LinkedHashSet<>();
         for (Route route : routes) {
-            List<Trip> routeTrips = tripRepository.searchTrips(
-                    departureCity.get().getId(),
-                    destinationCity.get().getId(),
-                    request.getDate(),
-                    request.getMinPrice(),
-                    request.getMaxPrice(),
-                    request.getDepartureTimeStart(),
-                    request.getDepartureTimeEnd(),
-                    request.getBusTypes(),
-                    request.getMinAvailableSeats(),
-                    request.getBusOperators());
-            allTrips.addAll(routeTrips);
+            routeIds.add(route.getId());
         }
+        List<TripSearchRow> rows = tripRepository.searchTripRows(
+                routeIds,
+                request.getDate(),
+                request.getMinPrice(),
+                request.getMaxPrice(),
+                request.getDepartureTimeStart(),
+                request.getDepartureTimeEnd(),
+                request.getBusTypes(),
+                request.getMinAvailableSeats(),
+                request.getBusOperators());
+
+        // A trip is returned once even if the query yields it more than once
+        Map<String, TripSearchRow> uniqueRows = new LinkedHashMap<>();
+        for (TripSearchRow row : rows) {
+            uniqueRows.putIfAbsent(row.getId(), row);
+        }
+        rows = new ArrayList<>(uniqueRows.values());
 
         // Convert to TripResponse and apply sorting
-        List<TripResponse> tripResponses = allTrips.stream()
-                .map(this::convertToTripResponse)
-                .collect(Collectors.toList());
+        List<TripResponse> tripResponses = convertToTripResponses(rows);
 
         // Apply sorting
         applySorting(tripResponses, request.getSortBy());
@@ -95,21 +123,125 @@ public class SearchService {
         return tripResponses;
     }
 
+    /**
+     * Search one page of trips. The first page is asked for with a search request and
+     * no cursor; every further page with only the cursor returned by the page before,
+     * which carries the filters and sort order. Pages are read in sort order directly,
+     * so a page costs the same however many trips match in total. Sorted by
+     * MOST_AVAILABLE, a trip whose seat count changes between pages can be skipped or
+     * repeated, since the order follows live availability.
+     * 
+     * @param request the search request, ignored when a cursor is given
+     * @param cursor the cursor of the previous page, null for the first page
+     * @param pageSize the maximum number of trips per page
+     * @return the page of trips, with the cursor of the next page if there is one
+     * @throws IllegalArgumentException if the page size is out of range, the cursor is invalid,
+     *                                  or there is no cursor and the request lacks cities or a date
+     */
+    public TripPage searchTripsPage(TripSearchRequest request, String cursor, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        TripSearchCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            after = TripSearchCursor.decode(cursor);
+            request = after.getRequest();
+        } else {
+            if (request == null || request.getDepartureCity() == null || request.getDestinationCity() == null
+                    || request.getDate() == null) {
+                throw new IllegalArgumentException("Departure city, destination city and date are required");
+            }
+            resolveCities(request);
+        }
+
+        // One trip beyond the page tells whether another page follows
+        Optional<List<TripResponse>> indexed = tripSearchIndex.searchPage(request, after, pageSize + 1);
+        List<TripResponse> trips = indexed.isPresent() ? indexed.get() : queryTripPage(request, after, pageSize + 1);
+        if (trips.size() <= pageSize) {
+            return new TripPage(trips, null);
+        }
+
+        List<TripResponse> page = new ArrayList<>(trips.subList(0, pageSize));
+        return new TripPage(page, TripSearchCursor.encode(request, page.get(pageSize - 1)));
+    }
+
+    private List<TripResponse> queryTripPage(TripSearchRequest request, TripSearchCursor after, int limit) {
+        Optional<City> departureCity = cityRepository.findByNameIgnoreCase(request.getDepartureCity());
+        Optional<City> destinationCity = cityRepository.findByNameIgnoreCase(request.getDestinationCity());
+        if (departureCity.isEmpty() || destinationCity.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> routeIds = new LinkedHashSet<>();
+        for (Route route : routeRepository.findByDepartureCityIdAndDestinationCityId(
+                departureCity.get().getId(), destinationCity.get().getId())) {
+            routeIds.add(route.getId());
+        }
+        if (routeIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return convertToTripResponses(tripRepository.findTripRowPage(
+                routeIds,
+                request.getDate(),
+                request.getMinPrice(),
+                request.getMaxPrice(),
+                request.getDepartureTimeStart(),
+                request.getDepartureTimeEnd(),
+                request.getBusTypes(),
+                request.getMinAvailableSeats(),
+                request.getBusOperators(),
+                TripSearchCursor.Sort.of(request.getSortBy()).name(),
+                after != null ? after.getSortKey() : null,
+                after != null ? after.getDepartureTime() : null,
+                after != null ? after.getTripId() : null,
+                limit));
+    }
+
+    /**
+     * Replace misspelled, aliased or oddly spaced city names of a request with the
+     * names of the cities they mean.
+     */
+    private void resolveCities(TripSearchRequest request) {
+        cityAutocompleteIndex.resolve(request.getDepartureCity()).ifPresent(request::setDepartureCity);
+        cityAutocompleteIndex.resolve(request.getDestinationCity()).ifPresent(request::setDestinationCity);
+    }
+
     /**
      * Get city suggestions based on prefix for auto-complete functionality.
      * 
      * @param prefix the prefix to search for
-     * @return a list of city names starting with the prefix
+     * @return the names of the best ranked cities starting with the prefix
      */
-    @Cacheable(value = "citySuggestions", key = "#prefix")
     public List<String> getCitySuggestions(String prefix) {
+        return suggestCities(prefix)
+                .stream()
+                .map(CitySuggestion::getName)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Suggest cities whose name starts with a prefix, most popular first. Answered
+     * from the in-memory autocomplete index; the database is only asked while the
+     * index is not loaded yet.
+     * 
+     * @param prefix the prefix to search for
+     * @return the suggested cities with their state
+     */
+    public List<CitySuggestion> suggestCities(String prefix) {
         if (prefix == null || prefix.trim().isEmpty()) {
             return new ArrayList<>();
         }
 
+        Optional<List<CitySuggestion>> indexed = cityAutocompleteIndex.suggest(prefix);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
         return cityRepository.findByNameStartsWithIgnoreCaseOrderByName(prefix.trim())
                 .stream()
-                .map(City::getName)
+                .map(city -> new CitySuggestion(city.getName(), city.getState()))
                 .collect(Collectors.toList());
     }
 
@@ -120,7 +252,7 @@ public class SearchService {
      * @return the number of available seats
      */
     public Integer getAvailableSeats(String tripId) {
-        Integer availableSeats = tripRepository.calculateAvailableSeats(tripId);
+        Integer availableSeats = tripRepository.findAvailableSeats(tripId);
         return availableSeats != null ? availableSeats : 0;
     }
 
@@ -210,58 +342,43 @@ public class SearchService {
     }
 
     /**
-     * Convert Trip entity to TripResponse DTO.
+     * Convert trip search rows to TripResponse DTOs.
      * 
-     * @param trip the trip entity
-     * @return the trip response DTO
+     * @param rows the trip search rows
+     * @return the trip response DTOs, in row order
      */
-    private TripResponse convertToTripResponse(Trip trip) {
-        // Get bus details
-        Optional<Bus> bus = busRepository.findById(trip.getBusId());
-        if (bus.isEmpty()) {
-            throw new IllegalStateException("Bus not found for trip: " + trip.getId());
-        }
-
-        // Get route details
-        Optional<Route> route = routeRepository.findById(trip.getRouteId());
-        if (route.isEmpty()) {
-            throw new IllegalStateException("Route not found for trip: " + trip.getId());
+    private List<TripResponse> convertToTripResponses(List<TripSearchRow> rows) {
+        // Trips of the same bus share its amenities
+        Map<String, List<String>> amenitiesByBus = new HashMap<>();
+
+        List<TripResponse> responses = new ArrayList<>(rows.size());
+        for (TripSearchRow row : rows) {
+            List<String> amenities = amenitiesByBus.computeIfAbsent(row.getBusId(),
+                    busId -> parseAmenities(row.getAmenities()));
+            int availableSeats = Math.max(0, row.getAvailableSeats() != null ? row.getAvailableSeats() : 0);
+
+            // Calculate duration
+            Duration duration = Duration.between(row.getDepartureTime(), row.getArrivalTime());
+
+            responses.add(new TripResponse(
+                    row.getId(),
+                    row.getBusId(),
+                    row.getBusCompany(),
+                    row.getBusNumber(),
+                    row.getDepartureCity(),
+                    row.getDestinationCity(),
+                    row.getDepartureTime(),
+                    row.getArrivalTime(),
+                    duration.toMinutes(),
+                    availableSeats,
+                    row.getTotalSeats(),
+                    row.getPrice(),
+                    row.getBusType(),
+                    amenities,
+                    null // Rating will be calculated separately if needed
+            ));
         }
-
-        // Get city names
-        Optional<City> departureCity = cityRepository.findById(route.get().getDepartureCityId());
-        Optional<City> destinationCity = cityRepository.findById(route.get().getDestinationCityId());
-
-        if (departureCity.isEmpty() || destinationCity.isEmpty()) {
-            throw new IllegalStateException("Cities not found for route: " + route.get().getId());
-        }
-
-        // Calculate available seats
-        Integer availableSeats = getAvailableSeats(trip.getId());
-
-        // Parse amenities from JSON
-        List<String> amenities = parseAmenities(bus.get().getAmenities());
-
-        // Calculate duration
-        Duration duration = Duration.between(trip.getDepartureTime(), trip.getArrivalTime());
-
-        return new TripResponse(
-                trip.getId(),
-                trip.getBusId(),
-                bus.get().getCompanyName(),
-                bus.get().getBusNumber(),
-                departureCity.get().getName(),
-                destinationCity.get().getName(),
-                trip.getDepartureTime(),
-                trip.getArrivalTime(),
-                duration.toMinutes(),
-                availableSeats,
-                bus.get().getTotalSeats(),
-                trip.getPrice(),
-                bus.get().getBusType(),
-                amenities,
-                null // Rating will be calculated separately if needed
-        );
+        return responses;
     }
 
     /**
@@ -305,6 +422,9 @@ public class SearchService {
             case "EARLIEST_DEPARTURE":
                 trips.sort(Comparator.comparing(TripResponse::getDepartureTime));
                 break;
+            case "MOST_AVAILABLE":
+                trips.sort(Comparator.comparing(TripResponse::getAvailableSeats).reversed());
+                break;
             default:
                 // No sorting applied for unknown sort options
                 break;
@@ -0,0 +1,122 @@
+package com.busticket.service;
+
+import com.busticket.model.Bus;
+import com.busticket.service.SeatSelectionService.SeatLayoutConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of parsed seat layouts, one entry per bus.
+ *
+ * Each entry remembers the layout JSON it was parsed from, so a bus whose layout
+ * changed is re-parsed on its next read. Least recently used buses are dropped
+ * once the cache is full.
+ */
+@Service
+public class SeatLayoutCache {
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> templates;
+
+    public SeatLayoutCache(ObjectMapper objectMapper,
+            @Value("${seat-layout.cache-size:1024}") int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Seat layout cache size must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the parsed seat layout of a bus, parsing it only if it is not cached
+     * or the bus layout changed since it was cached.
+     *
+     * @param bus the bus
+     * @return the seat layout template
+     * @throws IllegalArgumentException if the layout is empty or not valid JSON
+     */
+    public SeatLayoutTemplate getTemplate(Bus bus) {
+        String layoutJson = bus.getSeatLayout();
+        if (layoutJson == null || layoutJson.trim().isEmpty()) {
+            throw new IllegalArgumentException("Seat layout is empty");
+        }
+
+        Entry entry;
+        synchronized (templates) {
+            entry = templates.get(bus.getId());
+        }
+        if (entry != null && entry.matches(layoutJson)) {
+            return entry.template;
+        }
+
+        // Parse outside the lock; a concurrent parse of the same layout is harmless
+        Entry parsed = new Entry(layoutJson, SeatLayoutTemplate.of(parse(layoutJson), layoutJson.hashCode()));
+        synchronized (templates) {
+            templates.put(bus.getId(), parsed);
+        }
+        return parsed.template;
+    }
+
+    /**
+     * Drop the cached layout of a bus, e.g. after the bus was updated.
+     *
+     * @param busId the bus ID
+     */
+    public void evict(String busId) {
+        synchronized (templates) {
+            templates.remove(busId);
+        }
+    }
+
+    /**
+     * Drop all cached layouts.
+     */
+    public void clear() {
+        synchronized (templates) {
+            templates.clear();
+        }
+    }
+
+    /**
+     * Get the number of cached layouts.
+     *
+     * @return the number of cached buses
+     */
+    public int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    private SeatLayoutConfig parse(String layoutJson) {
+        try {
+            return objectMapper.readValue(layoutJson, SeatLayoutConfig.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid seat layout JSON: " + e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final String layoutJson;
+        private final SeatLayoutTemplate template;
+
+        private Entry(String layoutJson, SeatLayoutTemplate template) {
+            this.layoutJson = layoutJson;
+            this.template = template;
+        }
+
+        private boolean matches(String otherJson) {
+            return template.getVersion() == otherJson.hashCode() && layoutJson.equals(otherJson);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.busticket.service;
+
+import com.busticket.service.SeatSelectionService.SeatConfig;
+import com.busticket.service.SeatSelectionService.SeatLayoutConfig;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-parsed seat layout of a bus.
+ *
+ * Seat i of the layout has its number, row and column at position i of the
+ * backing arrays, which is also its seat index in the occupancy bitmap. One
+ * template is shared by every trip of the bus.
+ */
+public final class SeatLayoutTemplate {
+
+    private final int version;
+    private final int rows;
+    private final int columns;
+    private final String[] numbers;
+    private final int[] seatRows;
+    private final int[] seatColumns;
+    private final Map<String, Integer> seatIndex;
+    private final List<String> seatNumbers;
+
+    private SeatLayoutTemplate(int version, int rows, int columns, String[] numbers, int[] seatRows,
+            int[] seatColumns) {
+        this.version = version;
+        this.rows = rows;
+        this.columns = columns;
+        this.numbers = numbers;
+        this.seatRows = seatRows;
+        this.seatColumns = seatColumns;
+
+        Map<String, Integer> index = new HashMap<>(numbers.length * 2);
+        for (int i = 0; i < numbers.length; i++) {
+            index.putIfAbsent(numbers[i], i);
+        }
+        this.seatIndex = Collections.unmodifiableMap(index);
+        this.seatNumbers = Collections.unmodifiableList(Arrays.asList(numbers));
+    }
+
+    /**
+     * Build a template from a parsed seat layout.
+     *
+     * @param layout the parsed seat layout
+     * @return the seat layout template
+     */
+    public static SeatLayoutTemplate of(SeatLayoutConfig layout) {
+        return of(layout, 0);
+    }
+
+    /**
+     * Build a template from a parsed seat layout.
+     *
+     * @param layout the parsed seat layout
+     * @param version identifies the layout JSON the template was parsed from
+     * @return the seat layout template
+     */
+    public static SeatLayoutTemplate of(SeatLayoutConfig layout, int version) {
+        List<SeatConfig> seats = layout.getSeats() != null ? layout.getSeats() : List.of();
+
+        String[] numbers = new String[seats.size()];
+        int[] seatRows = new int[seats.size()];
+        int[] seatColumns = new int[seats.size()];
+        for (int i = 0; i < seats.size(); i++) {
+            SeatConfig seat = seats.get(i);
+            numbers[i] = seat.getNumber();
+            seatRows[i] = seat.getRow() != null ? seat.getRow() : 0;
+            seatColumns[i] = seat.getColumn() != null ? seat.getColumn() : 0;
+        }
+
+        return new SeatLayoutTemplate(version,
+                layout.getRows() != null ? layout.getRows() : 0,
+                layout.getColumns() != null ? layout.getColumns() : 0,
+                numbers, seatRows, seatColumns);
+    }
+
+    /**
+     * Get the layout version, which changes whenever the bus layout changes.
+     *
+     * @return the layout version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of seats in the layout.
+     *
+     * @return the seat count
+     */
+    public int size() {
+        return numbers.length;
+    }
+
+    public String getNumber(int index) {
+        return numbers[index];
+    }
+
+    public int getRow(int index) {
+        return seatRows[index];
+    }
+
+    public int getColumn(int index) {
+        return seatColumns[index];
+    }
+
+    /**
+     * Get the seat number to seat index mapping.
+     *
+     * @return unmodifiable seat indexes keyed by seat number
+     */
+    public Map<String, Integer> getSeatIndex() {
+        return seatIndex;
+    }
+
+    /**
+     * Get the seat numbers in layout order.
+     *
+     * @return unmodifiable list of seat numbers
+     */
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+}
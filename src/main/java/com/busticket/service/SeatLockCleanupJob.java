@@ -0,0 +1,31 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically runs {@link SeatLockManager#cleanupExpiredLocks()} as a backstop
+ * for expiry notifications that never arrived.
+ */
+@Component
+public class SeatLockCleanupJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatLockCleanupJob.class);
+
+    private final SeatLockManager seatLockManager;
+
+    public SeatLockCleanupJob(SeatLockManager seatLockManager) {
+        this.seatLockManager = seatLockManager;
+    }
+
+    @Scheduled(fixedDelayString = "${seat-lock.cleanup-interval-ms:60000}")
+    public void cleanupExpiredLocks() {
+        try {
+            seatLockManager.cleanupExpiredLocks();
+        } catch (RuntimeException e) {
+            logger.warn("Seat lock cleanup failed: {}", e.getMessage());
+        }
+    }
+}
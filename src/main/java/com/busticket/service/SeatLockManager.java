@@ -1,31 +1,21 @@
 package com.busticket.service;
 
-import com.busticket.model.Booking;
-import com.busticket.model.BookingStatus;
-import com.busticket.repository.BookingRepository;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.stereotype.Service;
+import com.busticket.service.SeatSelectionService.SeatStatus;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
-@Service
-public class SeatLockManager {
+/**
+ * Temporary seat holds taken while a user completes a booking.
+ *
+ * The backend is chosen with the {@code seat-lock.backend} property: {@code redis}
+ * (default) shares holds between application nodes, {@code memory} keeps them in
+ * this JVM for single-node deployments and load tests.
+ */
+public interface SeatLockManager {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final BookingRepository bookingRepository;
-
-    private static final String LOCK_PREFIX = "lock:";
-    private static final String SEAT_LOCK_PREFIX = "seat_lock:";
-    private static final long LOCK_TIMEOUT_MINUTES = 10;
-
-    public SeatLockManager(RedisTemplate<String, Object> redisTemplate,
-                          BookingRepository bookingRepository) {
-        this.redisTemplate = redisTemplate;
-        this.bookingRepository = bookingRepository;
-    }
+    long LOCK_TIMEOUT_MINUTES = 10;
 
     /**
      * Acquire locks for multiple seats on a trip.
@@ -35,61 +25,27 @@ public class SeatLockManager {
      * @param userId the user ID acquiring the locks
      * @return LockInfo if successful, null if any seat is already locked or booked
      */
-    public LockInfo acquireLock(String tripId, List<String> seatNumbers, String userId) {
-        // Check if any seat is already locked or booked
-        for (String seatNumber : seatNumbers) {
-            if (isLocked(tripId, seatNumber)) {
-                return null; // Seat already locked
-            }
-            
-            if (isBooked(tripId, seatNumber)) {
-                return null; // Seat already booked
-            }
-        }
-
-        // Create lock
-        String lockId = UUID.randomUUID().toString();
-        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(LOCK_TIMEOUT_MINUTES);
-
-        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, expiresAt);
-
-        // Store lock info in Redis with TTL
-        String lockKey = LOCK_PREFIX + lockId;
-        redisTemplate.opsForValue().set(lockKey, lockInfo, LOCK_TIMEOUT_MINUTES, TimeUnit.MINUTES);
-
-        // Store seat-to-lock mapping for each seat
-        for (String seatNumber : seatNumbers) {
-            String seatLockKey = SEAT_LOCK_PREFIX + tripId + ":" + seatNumber;
-            redisTemplate.opsForValue().set(seatLockKey, lockId, LOCK_TIMEOUT_MINUTES, TimeUnit.MINUTES);
-        }
-
-        return lockInfo;
+    default LockInfo acquireLock(String tripId, List<String> seatNumbers, String userId) {
+        return tryAcquireLock(tripId, seatNumbers, userId).getLockInfo();
     }
 
+    /**
+     * Acquire locks for multiple seats on a trip, all or nothing.
+     * 
+     * @param tripId the trip ID
+     * @param seatNumbers the list of seat numbers to lock
+     * @param userId the user ID acquiring the locks
+     * @return LockAttempt holding the lock, or the seats that prevented it
+     */
+    LockAttempt tryAcquireLock(String tripId, List<String> seatNumbers, String userId);
+
     /**
      * Release a lock and free all associated seats.
      * 
      * @param lockId the lock ID to release
      * @return true if lock was released, false if lock didn't exist
      */
-    public boolean releaseLock(String lockId) {
-        String lockKey = LOCK_PREFIX + lockId;
-        LockInfo lockInfo = (LockInfo) redisTemplate.opsForValue().get(lockKey);
-
-        if (lockInfo == null) {
-            return false; // Lock already expired or doesn't exist
-        }
-
-        // Remove seat locks
-        for (String seatNumber : lockInfo.getSeatNumbers()) {
-            String seatLockKey = SEAT_LOCK_PREFIX + lockInfo.getTripId() + ":" + seatNumber;
-            redisTemplate.delete(seatLockKey);
-        }
-
-        // Remove lock
-        redisTemplate.delete(lockKey);
-        return true;
-    }
+    boolean releaseLock(String lockId);
 
     /**
      * Extend the expiration time of a lock.
@@ -98,32 +54,7 @@ public class SeatLockManager {
      * @param additionalMinutes additional minutes to extend the lock
      * @return true if lock was extended, false if lock doesn't exist
      */
-    public boolean extendLock(String lockId, int additionalMinutes) {
-        String lockKey = LOCK_PREFIX + lockId;
-        LockInfo lockInfo = (LockInfo) redisTemplate.opsForValue().get(lockKey);
-
-        if (lockInfo == null) {
-            return false; // Lock doesn't exist
-        }
-
-        // Update expiration time
-        LocalDateTime newExpiresAt = lockInfo.getExpiresAt().plusMinutes(additionalMinutes);
-        lockInfo.setExpiresAt(newExpiresAt);
-
-        // Calculate new TTL
-        long newTtlMinutes = LOCK_TIMEOUT_MINUTES + additionalMinutes;
-
-        // Update lock info with new TTL
-        redisTemplate.opsForValue().set(lockKey, lockInfo, newTtlMinutes, TimeUnit.MINUTES);
-
-        // Update seat locks with new TTL
-        for (String seatNumber : lockInfo.getSeatNumbers()) {
-            String seatLockKey = SEAT_LOCK_PREFIX + lockInfo.getTripId() + ":" + seatNumber;
-            redisTemplate.opsForValue().set(seatLockKey, lockId, newTtlMinutes, TimeUnit.MINUTES);
-        }
-
-        return true;
-    }
+    boolean extendLock(String lockId, int additionalMinutes);
 
     /**
      * Check if a specific seat is locked.
@@ -132,11 +63,7 @@ public class SeatLockManager {
      * @param seatNumber the seat number
      * @return true if the seat is locked, false otherwise
      */
-    public boolean isLocked(String tripId, String seatNumber) {
-        String seatLockKey = SEAT_LOCK_PREFIX + tripId + ":" + seatNumber;
-        String lockId = (String) redisTemplate.opsForValue().get(seatLockKey);
-        return lockId != null;
-    }
+    boolean isLocked(String tripId, String seatNumber);
 
     /**
      * Check if a specific seat is booked (confirmed booking).
@@ -145,24 +72,17 @@ public class SeatLockManager {
      * @param seatNumber the seat number
      * @return true if the seat is booked, false otherwise
      */
-    public boolean isBooked(String tripId, String seatNumber) {
-        List<Booking> confirmedBookings = bookingRepository.findByTripIdAndStatus(tripId, BookingStatus.CONFIRMED);
-        
-        for (Booking booking : confirmedBookings) {
-            try {
-                // Parse seat numbers from JSON
-                String seatNumbersJson = booking.getSeatNumbers();
-                if (seatNumbersJson != null && seatNumbersJson.contains("\"" + seatNumber + "\"")) {
-                    return true;
-                }
-            } catch (Exception e) {
-                // Log error and continue checking other bookings
-                continue;
-            }
-        }
-        
-        return false;
-    }
+    boolean isBooked(String tripId, String seatNumber);
+
+    /**
+     * Resolve the status of many seats at once.
+     * 
+     * @param tripId the trip ID
+     * @param seatIndex the trip's seat index
+     * @param seatNumbers the seat numbers to resolve
+     * @return seat status keyed by seat number, in the order given
+     */
+    Map<String, SeatStatus> getSeatStatuses(String tripId, Map<String, Integer> seatIndex, List<String> seatNumbers);
 
     /**
      * Get lock information by lock ID.
@@ -170,10 +90,17 @@ public class SeatLockManager {
      * @param lockId the lock ID
      * @return LockInfo if found, null otherwise
      */
-    public LockInfo getLockInfo(String lockId) {
-        String lockKey = LOCK_PREFIX + lockId;
-        return (LockInfo) redisTemplate.opsForValue().get(lockKey);
-    }
+    LockInfo getLockInfo(String lockId);
+
+    /**
+     * Check in one step that a hold still exists and still owns all the given seats.
+     * 
+     * @param lockId the lock ID
+     * @param tripId the trip ID the seats belong to
+     * @param seatNumbers the seats the hold must cover
+     * @return LockInfo with the hold's fencing token, or null if the hold is gone or lost a seat
+     */
+    LockInfo verifyHold(String lockId, String tripId, List<String> seatNumbers);
 
     /**
      * Check if a lock is still valid (not expired).
@@ -181,7 +108,7 @@ public class SeatLockManager {
      * @param lockId the lock ID
      * @return true if lock is valid, false if expired or doesn't exist
      */
-    public boolean isLockValid(String lockId) {
+    default boolean isLockValid(String lockId) {
         LockInfo lockInfo = getLockInfo(lockId);
         if (lockInfo == null) {
             return false;
@@ -196,21 +123,45 @@ public class SeatLockManager {
      * @param tripId the trip ID
      * @return list of locked seat numbers
      */
-    public List<String> getLockedSeats(String tripId) {
-        // This would require scanning Redis keys, which is expensive
-        // For now, we'll implement this by checking individual seats
-        // In a production system, you might maintain a separate data structure
-        throw new UnsupportedOperationException("getLockedSeats not implemented - use isLocked for individual seats");
-    }
+    List<String> getLockedSeats(String tripId);
 
     /**
      * Clean up expired locks (called by scheduled job).
      * This method is mainly for cleanup of any orphaned data.
      */
-    public void cleanupExpiredLocks() {
-        // Redis TTL handles most cleanup automatically
-        // This method can be used for additional cleanup if needed
-        // For now, we rely on Redis TTL for automatic cleanup
+    void cleanupExpiredLocks();
+
+    /**
+     * Outcome of a lock attempt: either the acquired lock or the seats that blocked it.
+     */
+    public static class LockAttempt {
+        private final LockInfo lockInfo;
+        private final List<String> conflictingSeats;
+
+        private LockAttempt(LockInfo lockInfo, List<String> conflictingSeats) {
+            this.lockInfo = lockInfo;
+            this.conflictingSeats = conflictingSeats;
+        }
+
+        public static LockAttempt acquired(LockInfo lockInfo) {
+            return new LockAttempt(lockInfo, List.of());
+        }
+
+        public static LockAttempt conflict(List<String> conflictingSeats) {
+            return new LockAttempt(null, List.copyOf(conflictingSeats));
+        }
+
+        public boolean isAcquired() {
+            return lockInfo != null;
+        }
+
+        public LockInfo getLockInfo() {
+            return lockInfo;
+        }
+
+        public List<String> getConflictingSeats() {
+            return conflictingSeats;
+        }
     }
 
     /**
@@ -221,6 +172,7 @@ public class SeatLockManager {
         private String tripId;
         private List<String> seatNumbers;
         private String userId;
+        private long fencingToken;
         private LocalDateTime expiresAt;
         private LocalDateTime createdAt;
 
@@ -269,6 +221,18 @@ public class SeatLockManager {
             this.userId = userId;
         }
 
+        /**
+         * Per-trip token that grows with every acquisition, so a write made under
+         * an older hold can be told apart from one made under a newer hold.
+         */
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        public void setFencingToken(long fencingToken) {
+            this.fencingToken = fencingToken;
+        }
+
         public LocalDateTime getExpiresAt() {
             return expiresAt;
         }
@@ -285,4 +249,4 @@ public class SeatLockManager {
             this.createdAt = createdAt;
         }
     }
-}
\ No newline at end of file
+}
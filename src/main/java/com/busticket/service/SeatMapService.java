@@ -0,0 +1,211 @@
+package com.busticket.service;
+
+import com.busticket.dto.SeatMapGeometry;
+import com.busticket.dto.SeatMapStatus;
+import com.busticket.dto.SeatMapStatus.SeatMapChange;
+import com.busticket.event.SeatEvent;
+import com.busticket.event.SeatEventBroadcaster;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.model.Bus;
+import com.busticket.model.Trip;
+import com.busticket.repository.BusRepository;
+import com.busticket.repository.TripRepository;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact seat map for clients that refresh it repeatedly while choosing seats.
+ *
+ * The geometry is sent once and cached by ETag. Statuses are packed two bits per
+ * seat and stamped with a per-trip version; every seat event bumps the version
+ * and is kept in a short Redis change log, so a client can ask for just the
+ * changes since the version it holds.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SeatMapService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatMapService.class);
+
+    private static final String VERSION_PREFIX = "seat_map_version:";
+    private static final String CHANGES_PREFIX = "seat_map_changes:";
+    static final int MAX_LOGGED_CHANGES = 256;
+    private static final long CHANGE_LOG_TTL_HOURS = 24;
+
+    private static final RedisScript<Long> CHANGE_SCRIPT = loadScript("seat_map_change.lua", Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CHANGES_SCRIPT = loadScript("seat_map_changes.lua", List.class);
+
+    private final TripRepository tripRepository;
+    private final BusRepository busRepository;
+    private final SeatLayoutCache seatLayoutCache;
+    private final SeatLockManager seatLockManager;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public SeatMapService(TripRepository tripRepository,
+            BusRepository busRepository,
+            SeatLayoutCache seatLayoutCache,
+            SeatLockManager seatLockManager,
+            RedisTemplate<String, Object> redisTemplate) {
+        this.tripRepository = tripRepository;
+        this.busRepository = busRepository;
+        this.seatLayoutCache = seatLayoutCache;
+        this.seatLockManager = seatLockManager;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Get the seat map geometry of a trip.
+     *
+     * @param tripId the trip ID
+     * @return the geometry, whose version is suitable as an ETag
+     */
+    public SeatMapGeometry getGeometry(String tripId) {
+        Trip trip = findTrip(tripId);
+        SeatLayoutTemplate template = seatLayoutCache.getTemplate(findBus(trip));
+
+        String[] numbers = new String[template.size()];
+        int[] rows = new int[template.size()];
+        int[] columns = new int[template.size()];
+        for (int i = 0; i < template.size(); i++) {
+            numbers[i] = template.getNumber(i);
+            rows[i] = template.getRow(i);
+            columns[i] = template.getColumn(i);
+        }
+
+        SeatMapGeometry geometry = new SeatMapGeometry(tripId, template.getRows(), template.getColumns(),
+                trip.getPrice(), numbers, rows, columns);
+        geometry.setVersion(trip.getBusId() + "-" + Integer.toHexString(template.getVersion()) + "-"
+                + (trip.getPrice() != null ? trip.getPrice().stripTrailingZeros().toPlainString() : "0"));
+        return geometry;
+    }
+
+    /**
+     * Get the seat statuses of a trip.
+     * Returns only the changes after {@code sinceVersion} when the change log still
+     * covers that version, and a full snapshot otherwise.
+     *
+     * @param tripId the trip ID
+     * @param sinceVersion the seat map version the client holds, or null for a snapshot
+     * @return the packed statuses or the changes since the given version
+     */
+    public SeatMapStatus getStatus(String tripId, Long sinceVersion) {
+        SeatLayoutTemplate template = seatLayoutCache.getTemplate(findBus(findTrip(tripId)));
+        List<String> keys = List.of(versionKey(tripId), changesKey(tripId));
+
+        // Read the version before the statuses, so a change racing with the snapshot is sent again, never lost
+        List<?> log = redisTemplate.execute(CHANGES_SCRIPT, keys, sinceVersion != null ? sinceVersion : -1L);
+        long version = log != null && !log.isEmpty() ? ((Number) log.get(0)).longValue() : 0L;
+        boolean covered = log != null && log.size() > 1 && ((Number) log.get(1)).longValue() == 1L;
+
+        if (sinceVersion != null && covered) {
+            List<SeatMapChange> changes = new ArrayList<>(log.size() - 2);
+            for (Object entry : log.subList(2, log.size())) {
+                SeatMapChange change = parseChange((String) entry, template.getSeatIndex());
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+            return SeatMapStatus.delta(tripId, version, template.size(), changes);
+        }
+
+        Map<String, SeatStatus> statuses = seatLockManager.getSeatStatuses(
+                tripId, template.getSeatIndex(), template.getSeatNumbers());
+        byte[] packed = new byte[(template.size() + 3) / 4];
+        for (int i = 0; i < template.size(); i++) {
+            SeatStatus status = statuses.getOrDefault(template.getNumber(i), SeatStatus.AVAILABLE);
+            packed[i >> 2] |= (byte) (status.ordinal() << ((i & 3) * 2));
+        }
+        return SeatMapStatus.snapshot(tripId, version, template.size(), packed);
+    }
+
+    /**
+     * Record a seat status change in the trip's change log.
+     * Failures are logged and swallowed: clients fall back to a full snapshot.
+     *
+     * @param event the seat event
+     */
+    @EventListener
+    public void onSeatEvent(SeatEvent event) {
+        if (event.getSeatNumbers().isEmpty()) {
+            return;
+        }
+        if (event instanceof SeatReleasedEvent released && !released.shouldRecordChange()) {
+            return; // Recorded by the node that claimed it
+        }
+
+        SeatStatus status = SeatStatus.valueOf(SeatEventBroadcaster.toDelta(event).getStatus());
+        List<Object> args = new ArrayList<>();
+        args.add(status.ordinal());
+        args.add(MAX_LOGGED_CHANGES);
+        args.add(TimeUnit.HOURS.toSeconds(CHANGE_LOG_TTL_HOURS));
+        args.addAll(event.getSeatNumbers());
+
+        try {
+            redisTemplate.execute(CHANGE_SCRIPT, List.of(versionKey(event.getTripId()), changesKey(event.getTripId())),
+                    args.toArray());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to record seat map change for trip {}: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    // Private helper methods
+
+    private Trip findTrip(String tripId) {
+        return tripRepository.findById(tripId)
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found: " + tripId));
+    }
+
+    private Bus findBus(Trip trip) {
+        return busRepository.findById(trip.getBusId())
+                .orElseThrow(() -> new IllegalArgumentException("Bus not found for trip: " + trip.getId()));
+    }
+
+    private static SeatMapChange parseChange(String entry, Map<String, Integer> seatIndex) {
+        String[] parts = entry.split("\\|", 3);
+        if (parts.length < 3) {
+            return null;
+        }
+
+        String[] seatNumbers = parts[2].isEmpty() ? new String[0] : parts[2].split(",");
+        int[] seats = new int[seatNumbers.length];
+        int count = 0;
+        for (String seatNumber : seatNumbers) {
+            Integer index = seatIndex.get(seatNumber);
+            if (index != null) {
+                seats[count++] = index;
+            }
+        }
+        return new SeatMapChange(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Arrays.copyOf(seats, count));
+    }
+
+    private static String versionKey(String tripId) {
+        return VERSION_PREFIX + tripId;
+    }
+
+    private static String changesKey(String tripId) {
+        return CHANGES_PREFIX + tripId;
+    }
+
+    private static <T> RedisScript<T> loadScript(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/" + name)));
+        script.setResultType(resultType);
+        return script;
+    }
+}
@@ -0,0 +1,337 @@
+package com.busticket.service;
+
+import com.busticket.model.Booking;
+import com.busticket.model.BookingStatus;
+import com.busticket.model.Bus;
+import com.busticket.model.Trip;
+import com.busticket.repository.BookingRepository;
+import com.busticket.repository.BusRepository;
+import com.busticket.repository.TripRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-trip seat occupancy kept as a Redis bitmap.
+ *
+ * Seats are indexed by their position in the bus seat layout. Bit 0 of the bitmap
+ * marks it as built and seat index i lives at bit i + 1, so a missing or unbuilt
+ * bitmap is rebuilt from confirmed bookings in Postgres on first read. A rebuild
+ * replaces the whole bitmap, and a per-trip write count makes it retry when a
+ * seat is updated while it reads Postgres.
+ */
+@Service
+public class SeatOccupancyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatOccupancyService.class);
+    private static final String OCCUPANCY_PREFIX = "seat_occupancy:";
+    private static final String WRITES_PREFIX = "seat_occupancy_writes:";
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+    private static final long OCCUPANCY_TTL_HOURS = 24;
+
+    private static final ObjectMapper SEAT_NUMBERS_MAPPER = new ObjectMapper();
+    private static final RedisScript<Long> UPDATE_SCRIPT = loadScript("seat_occupancy_update.lua");
+    private static final RedisScript<Long> REBUILD_SCRIPT = loadScript("seat_occupancy_rebuild.lua");
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final BookingRepository bookingRepository;
+    private final TripRepository tripRepository;
+    private final BusRepository busRepository;
+    private final SeatLayoutCache seatLayoutCache;
+
+    public SeatOccupancyService(RedisTemplate<String, Object> redisTemplate,
+            BookingRepository bookingRepository,
+            TripRepository tripRepository,
+            BusRepository busRepository,
+            SeatLayoutCache seatLayoutCache) {
+        this.redisTemplate = redisTemplate;
+        this.bookingRepository = bookingRepository;
+        this.tripRepository = tripRepository;
+        this.busRepository = busRepository;
+        this.seatLayoutCache = seatLayoutCache;
+    }
+
+    /**
+     * Get the seat number to seat index mapping for a trip's bus layout.
+     *
+     * @param tripId the trip ID
+     * @return seat indexes keyed by seat number, empty if the trip or bus is unknown
+     */
+    public Map<String, Integer> getSeatIndex(String tripId) {
+        Trip trip = tripRepository.findById(tripId).orElse(null);
+        if (trip == null) {
+            return Map.of();
+        }
+
+        Bus bus = busRepository.findById(trip.getBusId()).orElse(null);
+        if (bus == null || bus.getSeatLayout() == null) {
+            return Map.of();
+        }
+
+        try {
+            return seatLayoutCache.getTemplate(bus).getSeatIndex();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid seat layout for bus {}: {}", bus.getId(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Get the occupancy bitmap offset of a seat index.
+     *
+     * @param seatIndex the seat index in the layout
+     * @return the bit offset in the occupancy bitmap
+     */
+    public static long bitOffset(int seatIndex) {
+        return seatIndex + 1L;
+    }
+
+    /**
+     * Get the Redis key of a trip's occupancy bitmap.
+     *
+     * @param tripId the trip ID
+     * @return the occupancy key
+     */
+    public static String occupancyKey(String tripId) {
+        return OCCUPANCY_PREFIX + tripId;
+    }
+
+    /**
+     * Get the booked seats of a trip as a bitset of seat indexes.
+     * Rebuilds the bitmap from Postgres if it is missing.
+     *
+     * @param tripId the trip ID
+     * @param seatIndex the trip's seat index
+     * @return booked seat indexes
+     */
+    public BitSet getOccupancy(String tripId, Map<String, Integer> seatIndex) {
+        byte[] bitmap = readBitmap(tripId);
+        if (bitmap == null || !isBitSet(bitmap, 0)) {
+            rebuild(tripId, seatIndex);
+            bitmap = readBitmap(tripId);
+        }
+
+        BitSet booked = new BitSet(seatIndex.size());
+        if (bitmap == null) {
+            return booked;
+        }
+
+        for (int index : seatIndex.values()) {
+            if (isBitSet(bitmap, bitOffset(index))) {
+                booked.set(index);
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Check if a specific seat is booked.
+     *
+     * @param tripId the trip ID
+     * @param seatNumber the seat number
+     * @return true if the seat is booked, false otherwise
+     */
+    public boolean isBooked(String tripId, String seatNumber) {
+        return !findBookedSeats(tripId, getSeatIndex(tripId), List.of(seatNumber)).isEmpty();
+    }
+
+    /**
+     * Find which of the given seats are booked.
+     * Seats missing from the bus layout fall back to a scan of confirmed bookings.
+     *
+     * @param tripId the trip ID
+     * @param seatIndex the trip's seat index
+     * @param seatNumbers the seat numbers to check
+     * @return the booked subset of the given seats
+     */
+    public List<String> findBookedSeats(String tripId, Map<String, Integer> seatIndex, List<String> seatNumbers) {
+        List<String> bookedSeats = new ArrayList<>();
+        List<String> unindexedSeats = new ArrayList<>();
+        BitSet occupancy = null;
+
+        for (String seatNumber : seatNumbers) {
+            Integer index = seatIndex.get(seatNumber);
+            if (index == null) {
+                unindexedSeats.add(seatNumber);
+                continue;
+            }
+
+            if (occupancy == null) {
+                occupancy = getOccupancy(tripId, seatIndex);
+            }
+            if (occupancy.get(index)) {
+                bookedSeats.add(seatNumber);
+            }
+        }
+
+        if (!unindexedSeats.isEmpty()) {
+            Set<String> confirmedSeats = loadConfirmedSeats(tripId);
+            for (String seatNumber : unindexedSeats) {
+                if (confirmedSeats.contains(seatNumber)) {
+                    bookedSeats.add(seatNumber);
+                }
+            }
+        }
+
+        return bookedSeats;
+    }
+
+    /**
+     * Mark seats as booked after a booking is confirmed.
+     *
+     * @param tripId the trip ID
+     * @param seatNumbers the booked seat numbers
+     */
+    public void markBooked(String tripId, Collection<String> seatNumbers) {
+        updateSeats(tripId, seatNumbers, 1);
+    }
+
+    /**
+     * Mark seats as available after a confirmed booking is cancelled.
+     *
+     * @param tripId the trip ID
+     * @param seatNumbers the released seat numbers
+     */
+    public void markAvailable(String tripId, Collection<String> seatNumbers) {
+        updateSeats(tripId, seatNumbers, 0);
+    }
+
+    /**
+     * Rebuild a trip's occupancy bitmap from confirmed bookings in Postgres.
+     * Seats not booked in Postgres are cleared. If seats keep changing while the
+     * bookings are read, the bitmap is left unbuilt for the next read to retry.
+     *
+     * @param tripId the trip ID
+     * @param seatIndex the trip's seat index
+     */
+    public void rebuild(String tripId, Map<String, Integer> seatIndex) {
+        List<String> keys = List.of(occupancyKey(tripId), writesKey(tripId));
+        for (int attempt = 0; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+            List<Object> args = new ArrayList<>();
+            args.add(TimeUnit.HOURS.toSeconds(OCCUPANCY_TTL_HOURS));
+            args.add(readWriteCount(tripId));
+            for (String seatNumber : loadConfirmedSeats(tripId)) {
+                Integer index = seatIndex.get(seatNumber);
+                if (index != null) {
+                    args.add(bitOffset(index));
+                }
+            }
+
+            Long result = redisTemplate.execute(REBUILD_SCRIPT, keys, args.toArray());
+            if (result == null || result >= 0) {
+                return;
+            }
+        }
+        logger.warn("Seats of trip {} kept changing during occupancy rebuild, leaving it unbuilt", tripId);
+    }
+
+    /**
+     * Parse the seat numbers stored on a booking.
+     * Accepts both a JSON array and a comma separated list.
+     *
+     * @param seatNumbers the stored seat numbers
+     * @return the list of seat numbers
+     */
+    public static List<String> parseSeatNumbers(String seatNumbers) {
+        if (seatNumbers == null || seatNumbers.isBlank()) {
+            return List.of();
+        }
+
+        String trimmed = seatNumbers.trim();
+        if (trimmed.startsWith("[")) {
+            try {
+                return SEAT_NUMBERS_MAPPER.readValue(trimmed, new TypeReference<List<String>>() {
+                });
+            } catch (JsonProcessingException e) {
+                trimmed = trimmed.substring(1, trimmed.length() - 1).replace("\"", "");
+            }
+        }
+
+        return Arrays.stream(trimmed.split(","))
+                .map(String::trim)
+                .filter(seat -> !seat.isEmpty())
+                .toList();
+    }
+
+    // Private helper methods
+
+    private void updateSeats(String tripId, Collection<String> seatNumbers, int value) {
+        Map<String, Integer> seatIndex = getSeatIndex(tripId);
+
+        List<Object> args = new ArrayList<>();
+        args.add(value);
+        args.add(TimeUnit.HOURS.toSeconds(OCCUPANCY_TTL_HOURS));
+        for (String seatNumber : seatNumbers) {
+            Integer index = seatIndex.get(seatNumber);
+            if (index != null) {
+                args.add(bitOffset(index));
+            }
+        }
+
+        if (args.size() > 2) {
+            redisTemplate.execute(UPDATE_SCRIPT, List.of(occupancyKey(tripId), writesKey(tripId)), args.toArray());
+        }
+    }
+
+    private Set<String> loadConfirmedSeats(String tripId) {
+        Set<String> seats = new LinkedHashSet<>();
+        for (Booking booking : bookingRepository.findByTripIdAndStatus(tripId, BookingStatus.CONFIRMED)) {
+            seats.addAll(parseSeatNumbers(booking.getSeatNumbers()));
+        }
+        return seats;
+    }
+
+    private static String writesKey(String tripId) {
+        return WRITES_PREFIX + tripId;
+    }
+
+    private long readWriteCount(String tripId) {
+        byte[] key = writesKey(tripId).getBytes(StandardCharsets.UTF_8);
+        byte[] count = redisTemplate.execute((RedisCallback<byte[]>) (RedisConnection connection) ->
+                connection.stringCommands().get(key));
+        return count == null ? 0 : Long.parseLong(new String(count, StandardCharsets.UTF_8));
+    }
+
+    private byte[] readBitmap(String tripId) {
+        byte[] key = occupancyKey(tripId).getBytes(StandardCharsets.UTF_8);
+        return redisTemplate.execute((RedisCallback<byte[]>) (RedisConnection connection) ->
+                connection.stringCommands().get(key));
+    }
+
+    private static boolean isBitSet(byte[] bitmap, long offset) {
+        int byteIndex = (int) (offset >>> 3);
+        if (byteIndex >= bitmap.length) {
+            return false;
+        }
+        // Redis numbers bits from the most significant bit of each byte
+        return (bitmap[byteIndex] & (0x80 >>> (offset & 7))) != 0;
+    }
+
+    private static RedisScript<Long> loadScript(String name) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/" + name)));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
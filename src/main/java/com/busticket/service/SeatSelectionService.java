@@ -4,10 +4,8 @@ import com.busticket.model.Bus;
 import com.busticket.model.Trip;
 import com.busticket.repository.BusRepository;
 import com.busticket.repository.TripRepository;
+import com.busticket.service.SeatLockManager.LockAttempt;
 import com.busticket.service.SeatLockManager.LockInfo;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,6 +13,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -24,16 +23,16 @@ public class SeatSelectionService {
     private final BusRepository busRepository;
     private final TripRepository tripRepository;
     private final SeatLockManager seatLockManager;
-    private final ObjectMapper objectMapper;
+    private final SeatLayoutCache seatLayoutCache;
 
     public SeatSelectionService(BusRepository busRepository,
             TripRepository tripRepository,
             SeatLockManager seatLockManager,
-            ObjectMapper objectMapper) {
+            SeatLayoutCache seatLayoutCache) {
         this.busRepository = busRepository;
         this.tripRepository = tripRepository;
         this.seatLockManager = seatLockManager;
-        this.objectMapper = objectMapper;
+        this.seatLayoutCache = seatLayoutCache;
     }
 
     /**
@@ -55,24 +54,26 @@ public class SeatSelectionService {
             throw new IllegalArgumentException("Bus not found for trip: " + tripId);
         }
 
-        // Parse seat layout from bus configuration
-        SeatLayoutConfig layoutConfig = parseSeatLayout(bus.get().getSeatLayout());
+        // Seat layout is parsed once per bus and shared by all its trips
+        SeatLayoutTemplate template = seatLayoutCache.getTemplate(bus.get());
 
-        // Build seat layout with current statuses
-        List<Seat> seats = new ArrayList<>();
-        for (SeatConfig seatConfig : layoutConfig.getSeats()) {
-            SeatStatus status = determineSeatStatus(tripId, seatConfig.getNumber());
+        // Resolve every seat's status in a constant number of round trips
+        Map<String, SeatStatus> statuses = seatLockManager.getSeatStatuses(
+                tripId, template.getSeatIndex(), template.getSeatNumbers());
 
+        // Build seat layout with current statuses
+        List<Seat> seats = new ArrayList<>(template.size());
+        for (int i = 0; i < template.size(); i++) {
             Seat seat = new Seat(
-                    seatConfig.getNumber(),
-                    seatConfig.getRow(),
-                    seatConfig.getColumn(),
-                    status,
+                    template.getNumber(i),
+                    template.getRow(i),
+                    template.getColumn(i),
+                    statuses.getOrDefault(template.getNumber(i), SeatStatus.AVAILABLE),
                     trip.get().getPrice());
             seats.add(seat);
         }
 
-        return new SeatLayout(tripId, layoutConfig.getRows(), layoutConfig.getColumns(), seats);
+        return new SeatLayout(tripId, template.getRows(), template.getColumns(), seats);
     }
 
     /**
@@ -85,21 +86,13 @@ public class SeatSelectionService {
      */
     @Transactional
     public SeatSelection selectSeat(String tripId, String seatNumber, String userId) {
-        // Check if seat is available
-        if (seatLockManager.isLocked(tripId, seatNumber)) {
-            throw new IllegalStateException("Seat is already locked: " + seatNumber);
-        }
-
-        if (seatLockManager.isBooked(tripId, seatNumber)) {
-            throw new IllegalStateException("Seat is already booked: " + seatNumber);
-        }
-
-        // Acquire lock for the seat
-        LockInfo lockInfo = seatLockManager.acquireLock(tripId, Arrays.asList(seatNumber), userId);
-        if (lockInfo == null) {
-            throw new IllegalStateException("Failed to acquire lock for seat: " + seatNumber);
+        // Availability check and lock acquisition happen atomically in the lock manager
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, Arrays.asList(seatNumber), userId);
+        if (!attempt.isAcquired()) {
+            throw new IllegalStateException("Seat is already locked or booked: " + seatNumber);
         }
 
+        LockInfo lockInfo = attempt.getLockInfo();
         return new SeatSelection(seatNumber, lockInfo.getLockId(), lockInfo.getExpiresAt());
     }
 
@@ -113,23 +106,13 @@ public class SeatSelectionService {
      */
     @Transactional
     public SeatSelection selectSeats(String tripId, List<String> seatNumbers, String userId) {
-        // Check if all seats are available
-        for (String seatNumber : seatNumbers) {
-            if (seatLockManager.isLocked(tripId, seatNumber)) {
-                throw new IllegalStateException("Seat is already locked: " + seatNumber);
-            }
-
-            if (seatLockManager.isBooked(tripId, seatNumber)) {
-                throw new IllegalStateException("Seat is already booked: " + seatNumber);
-            }
-        }
-
-        // Acquire locks for all seats
-        LockInfo lockInfo = seatLockManager.acquireLock(tripId, seatNumbers, userId);
-        if (lockInfo == null) {
-            throw new IllegalStateException("Failed to acquire locks for seats: " + seatNumbers);
+        // Either every seat is locked or none is; conflicts are reported back to the caller
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, seatNumbers, userId);
+        if (!attempt.isAcquired()) {
+            throw new IllegalStateException("Seats are already locked or booked: " + attempt.getConflictingSeats());
         }
 
+        LockInfo lockInfo = attempt.getLockInfo();
         return new SeatSelection(seatNumbers.get(0), lockInfo.getLockId(), lockInfo.getExpiresAt());
     }
 
@@ -202,43 +185,6 @@ public class SeatSelectionService {
         return new FareSummary(baseFare, taxes, serviceFee, totalAmount, seatCount);
     }
 
-    /**
-     * Determine the current status of a seat.
-     * 
-     * @param tripId     the trip ID
-     * @param seatNumber the seat number
-     * @return the current seat status
-     */
-    private SeatStatus determineSeatStatus(String tripId, String seatNumber) {
-        if (seatLockManager.isBooked(tripId, seatNumber)) {
-            return SeatStatus.BOOKED;
-        }
-
-        if (seatLockManager.isLocked(tripId, seatNumber)) {
-            return SeatStatus.LOCKED;
-        }
-
-        return SeatStatus.AVAILABLE;
-    }
-
-    /**
-     * Parse seat layout JSON from bus configuration.
-     * 
-     * @param seatLayoutJson the JSON string containing seat layout
-     * @return parsed seat layout configuration
-     */
-    private SeatLayoutConfig parseSeatLayout(String seatLayoutJson) {
-        if (seatLayoutJson == null || seatLayoutJson.trim().isEmpty()) {
-            throw new IllegalArgumentException("Seat layout is empty");
-        }
-
-        try {
-            return objectMapper.readValue(seatLayoutJson, SeatLayoutConfig.class);
-        } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Invalid seat layout JSON: " + e.getMessage());
-        }
-    }
-
     // Data classes
 
     /**
@@ -0,0 +1,119 @@
+package com.busticket.service;
+
+import com.busticket.event.TripChangedEvent;
+import com.busticket.model.Booking;
+import com.busticket.model.BookingStatus;
+import com.busticket.repository.BookingRepository;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import com.busticket.repository.TripRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cancels a whole trip.
+ *
+ * The trip is closed, its bookings cancelled and a refund queued for every paid booking
+ * in one transaction of a few set-based statements, however many bookings the trip has.
+ * Payments not yet charged are failed in the same transaction so they never are; a
+ * payment whose charge is already in flight is refunded by the {@link PaymentProcessor}
+ * when it finds its booking cancelled. The refunds are paid out afterwards by the
+ * {@link RefundProcessor}, so cancelling returns without waiting on the gateway.
+ */
+@Service
+public class TripCancellationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripCancellationService.class);
+
+    private final TripRepository tripRepository;
+    private final BookingRepository bookingRepository;
+    private final PaymentRepository paymentRepository;
+    private final RefundRepository refundRepository;
+    private final BookingService bookingService;
+    private final RefundProcessor refundProcessor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public TripCancellationService(TripRepository tripRepository,
+            BookingRepository bookingRepository,
+            PaymentRepository paymentRepository,
+            RefundRepository refundRepository,
+            BookingService bookingService,
+            RefundProcessor refundProcessor,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
+        this.tripRepository = tripRepository;
+        this.bookingRepository = bookingRepository;
+        this.paymentRepository = paymentRepository;
+        this.refundRepository = refundRepository;
+        this.bookingService = bookingService;
+        this.refundProcessor = refundProcessor;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Cancel a trip, its bookings, and queue refunds of what was paid for them.
+     *
+     * @param tripId the trip to cancel
+     * @param reason the reason, recorded on the bookings and refunds
+     * @return the number of refunds queued
+     * @throws IllegalArgumentException if the trip does not exist
+     * @throws IllegalStateException if the trip is already closed
+     */
+    public int cancelTrip(String tripId, String reason) {
+        if (!tripRepository.existsById(tripId)) {
+            throw new IllegalArgumentException("Trip not found: " + tripId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Cancellation cancellation = transactionTemplate.execute(status -> {
+            if (tripRepository.closeTrip(tripId) == 0) {
+                throw new IllegalStateException("Trip is already closed: " + tripId);
+            }
+            List<Booking> bookings = bookingRepository.findByTripIdAndStatusIn(tripId,
+                    List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED));
+            int failedPayments = paymentRepository.failTripPendingPayments(tripId);
+            int cancelledBookings = bookingRepository.cancelTripBookings(tripId, now, reason);
+            int freedSeats = bookings.stream()
+                    .filter(booking -> booking.getStatus() == BookingStatus.CONFIRMED)
+                    .mapToInt(booking -> SeatOccupancyService.parseSeatNumbers(booking.getSeatNumbers()).size())
+                    .sum();
+            if (freedSeats > 0) {
+                tripRepository.incrementAvailableSeats(tripId, freedSeats);
+            }
+            // After the bookings, so a confirmation that committed meanwhile is refunded too
+            int refunds = refundRepository.insertTripRefunds(tripId, reason, now);
+            logger.info("Cancelled trip {}: {} bookings cancelled, {} unpaid payments failed, {} refunds queued",
+                    tripId, cancelledBookings, failedPayments, refunds);
+            return new Cancellation(bookings, refunds);
+        });
+
+        bookingService.releaseCancelledBookings(tripId, cancellation.bookings);
+        eventPublisher.publishEvent(new TripChangedEvent(tripId));
+        if (cancellation.refunds > 0) {
+            refundProcessor.wakeUp();
+        }
+        return cancellation.refunds;
+    }
+
+    /**
+     * The bookings a trip cancellation cancelled, as they were before, and the refunds it queued.
+     */
+    private static final class Cancellation {
+        private final List<Booking> bookings;
+        private final int refunds;
+
+        private Cancellation(List<Booking> bookings, int refunds) {
+            this.bookings = bookings;
+            this.refunds = refunds;
+        }
+    }
+}
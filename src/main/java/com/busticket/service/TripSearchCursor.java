@@ -0,0 +1,226 @@
+package com.busticket.service;
+
+import com.busticket.dto.TripResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.model.BusType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Position of a paged trip search, handed to clients as an opaque string.
+ *
+ * A cursor carries the search filters and sort order together with the sort key,
+ * departure and ID of the last trip returned, so the next page is read as the trips
+ * ordered after that one. Nothing about earlier pages has to be kept or re-read.
+ */
+final class TripSearchCursor {
+
+    private static final byte VERSION = 1;
+
+    private final TripSearchRequest request;
+    private final long sortKey;
+    private final LocalDateTime departureTime;
+    private final String tripId;
+
+    private TripSearchCursor(TripSearchRequest request, long sortKey, LocalDateTime departureTime, String tripId) {
+        this.request = request;
+        this.sortKey = sortKey;
+        this.departureTime = departureTime;
+        this.tripId = tripId;
+    }
+
+    /**
+     * Encode the position after a trip of a search.
+     *
+     * @param request the search the trip was found by
+     * @param last the last trip returned
+     * @return the cursor string, safe to use in a URL
+     */
+    static String encode(TripSearchRequest request, TripResponse last) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(request.getDepartureCity());
+            out.writeUTF(request.getDestinationCity());
+            out.writeLong(request.getDate().toEpochDay());
+            writeNullable(out, request.getMinPrice() != null ? request.getMinPrice().toPlainString() : null);
+            writeNullable(out, request.getMaxPrice() != null ? request.getMaxPrice().toPlainString() : null);
+            out.writeLong(request.getDepartureTimeStart() != null ? request.getDepartureTimeStart().toNanoOfDay() : -1);
+            out.writeLong(request.getDepartureTimeEnd() != null ? request.getDepartureTimeEnd().toNanoOfDay() : -1);
+            writeList(out, request.getBusTypes() != null
+                    ? request.getBusTypes().stream().map(BusType::name).collect(Collectors.toList())
+                    : null);
+            out.writeInt(request.getMinAvailableSeats() != null ? request.getMinAvailableSeats() : -1);
+            writeList(out, request.getBusOperators());
+            out.writeUTF(Sort.of(request.getSortBy()).name());
+
+            out.writeLong(Sort.of(request.getSortBy()).key(last));
+            out.writeLong(last.getDepartureTime().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(last.getDepartureTime().getNano());
+            out.writeUTF(last.getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a cursor string.
+     *
+     * @param cursor the cursor string
+     * @return the cursor
+     * @throws IllegalArgumentException if the string is not a cursor
+     */
+    static TripSearchCursor decode(String cursor) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version");
+            }
+            TripSearchRequest request = new TripSearchRequest(in.readUTF(), in.readUTF(), LocalDate.ofEpochDay(in.readLong()));
+            String minPrice = readNullable(in);
+            request.setMinPrice(minPrice != null ? new BigDecimal(minPrice) : null);
+            String maxPrice = readNullable(in);
+            request.setMaxPrice(maxPrice != null ? new BigDecimal(maxPrice) : null);
+            long start = in.readLong();
+            request.setDepartureTimeStart(start >= 0 ? LocalTime.ofNanoOfDay(start) : null);
+            long end = in.readLong();
+            request.setDepartureTimeEnd(end >= 0 ? LocalTime.ofNanoOfDay(end) : null);
+            List<String> busTypes = readList(in);
+            request.setBusTypes(busTypes != null ? busTypes.stream().map(BusType::valueOf).collect(Collectors.toList()) : null);
+            int minSeats = in.readInt();
+            request.setMinAvailableSeats(minSeats >= 0 ? minSeats : null);
+            request.setBusOperators(readList(in));
+            request.setSortBy(Sort.valueOf(in.readUTF()).name());
+
+            long sortKey = in.readLong();
+            LocalDateTime departureTime = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            String tripId = in.readUTF();
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Trailing bytes after cursor");
+            }
+            return new TripSearchCursor(request, sortKey, departureTime, tripId);
+        } catch (IOException | RuntimeException e) {
+            // Truncated or tampered cursors fail in many ways, all of them the client's
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+    }
+
+    /**
+     * Get the search the cursor continues, with its sort order spelled out.
+     */
+    TripSearchRequest getRequest() {
+        return request;
+    }
+
+    Sort getSort() {
+        return Sort.valueOf(request.getSortBy());
+    }
+
+    /**
+     * Get the sort key of the last trip returned, as computed by {@link Sort#key(TripResponse)}.
+     */
+    long getSortKey() {
+        return sortKey;
+    }
+
+    LocalDateTime getDepartureTime() {
+        return departureTime;
+    }
+
+    String getTripId() {
+        return tripId;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values != null ? values.size() : -1);
+        if (values != null) {
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(Math.min(size, 64));
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    /**
+     * Orders a paged search can be sorted in. Trips are ordered by an ascending sort
+     * key, then by departure, then by ID, so every trip has a unique position.
+     *
+     * MOST_AVAILABLE sorts on the live seat count, which moves as seats are booked and
+     * cancelled between page requests. A trip whose count changes across the cursor's
+     * position can be skipped or returned twice; the other orders are stable.
+     */
+    enum Sort {
+        EARLIEST_DEPARTURE,
+        CHEAPEST,
+        FASTEST,
+        MOST_AVAILABLE;
+
+        /**
+         * Get the order of a request's sort option; unknown or missing options sort by departure.
+         */
+        static Sort of(String sortBy) {
+            if (sortBy != null) {
+                for (Sort sort : values()) {
+                    if (sort.name().equals(sortBy.trim().toUpperCase(Locale.ROOT))) {
+                        return sort;
+                    }
+                }
+            }
+            return EARLIEST_DEPARTURE;
+        }
+
+        /**
+         * Get the sort key of a trip: price in minor units, duration in minutes, or
+         * negated available seats so that more seats sort first.
+         */
+        long key(TripResponse trip) {
+            switch (this) {
+                case CHEAPEST:
+                    return trip.getPrice().movePointRight(2).longValue();
+                case FASTEST:
+                    return trip.getDurationMinutes();
+                case MOST_AVAILABLE:
+                    return -trip.getAvailableSeats();
+                default:
+                    return 0;
+            }
+        }
+    }
+}
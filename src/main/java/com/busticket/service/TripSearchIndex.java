@@ -0,0 +1,389 @@
+package com.busticket.service;
+
+import com.busticket.dto.FareCalendarDay;
+import com.busticket.dto.TripResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.event.SeatBookedEvent;
+import com.busticket.event.SeatEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.event.TripChangedEvent;
+import com.busticket.repository.TripIndexRow;
+import com.busticket.repository.TripRepository;
+import com.busticket.repository.TripSeatAvailability;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory search index of the open trips departing in the next days.
+ *
+ * Trips are held in column-oriented partitions, one per city pair and travel day, so a
+ * search only touches the trips it can return and never the database. The index is
+ * loaded in full on startup and periodically after that, which is how trips created
+ * or edited in the database are picked up. In between, booked and cancelled seats
+ * adjust the available seat column in place, and a trip announced by a
+ * {@link TripChangedEvent}, such as a cancelled one, rebuilds only the partitions it
+ * left and joined. Seat changes made on other nodes arrive with the next availability
+ * refresh, so search availability is advisory and booking still checks the seats
+ * themselves.
+ */
+@Service
+public class TripSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripSearchIndex.class);
+
+    private final TripRepository tripRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int days;
+
+    // Serializes reloads and partition rebuilds; searches read the current snapshot without locking.
+    // Not a monitor: holders wait on the database, which would pin a virtual thread's carrier.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public TripSearchIndex(TripRepository tripRepository,
+            ObjectMapper objectMapper,
+            @Value("${trip-search-index.enabled:true}") boolean enabled,
+            @Value("${trip-search-index.days:90}") int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Trip search index must cover at least one day");
+        }
+        this.tripRepository = tripRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.days = days;
+    }
+
+    /**
+     * Search the index. Returns nothing when the index is disabled, not loaded yet
+     * or the travel date lies outside the indexed days, in which case the caller
+     * searches the database instead.
+     *
+     * @param request the search request
+     * @return the matching trips, if the index can answer the request
+     */
+    public Optional<List<TripResponse>> search(TripSearchRequest request) {
+        Snapshot current = snapshot;
+        if (current == null || request.getDate() == null || !current.covers(request.getDate())) {
+            return Optional.empty();
+        }
+
+        String departureCityId = current.cityIds.get(normalize(request.getDepartureCity()));
+        String destinationCityId = current.cityIds.get(normalize(request.getDestinationCity()));
+        if (departureCityId == null || destinationCityId == null) {
+            // No open trip leaves from or arrives at the city in the indexed days
+            return Optional.of(new ArrayList<>());
+        }
+
+        TripSearchPartition partition = current.partitions.get(
+                new PartitionKey(departureCityId, destinationCityId, request.getDate()));
+        if (partition == null) {
+            return Optional.of(new ArrayList<>());
+        }
+        return Optional.of(partition.search(request, LocalDateTime.now()));
+    }
+
+    /**
+     * Search one page of the index. Returns nothing when the index cannot answer the
+     * request, like {@link #search(TripSearchRequest)}.
+     *
+     * @param request the search request
+     * @param after the position to continue after, null for the first page
+     * @param limit the maximum number of trips
+     * @return the page of matching trips, if the index can answer the request
+     */
+    Optional<List<TripResponse>> searchPage(TripSearchRequest request, TripSearchCursor after, int limit) {
+        Snapshot current = snapshot;
+        if (current == null || request.getDate() == null || !current.covers(request.getDate())) {
+            return Optional.empty();
+        }
+
+        String departureCityId = current.cityIds.get(normalize(request.getDepartureCity()));
+        String destinationCityId = current.cityIds.get(normalize(request.getDestinationCity()));
+        TripSearchPartition partition = departureCityId != null && destinationCityId != null
+                ? current.partitions.get(new PartitionKey(departureCityId, destinationCityId, request.getDate()))
+                : null;
+        return Optional.of(partition != null
+                ? partition.searchPage(request, LocalDateTime.now(), after, limit)
+                : new ArrayList<>());
+    }
+
+    /**
+     * Summarize one travel day between two cities for the fare calendar. Returns nothing
+     * when the index cannot answer for the day, like {@link #search(TripSearchRequest)}.
+     *
+     * @param departureCity the departure city name
+     * @param destinationCity the destination city name
+     * @param date the travel day
+     * @return the day's cheapest fare and availability, if the index covers the day
+     */
+    public Optional<FareCalendarDay> summarizeDay(String departureCity, String destinationCity, LocalDate date) {
+        Snapshot current = snapshot;
+        if (current == null || !current.covers(date)) {
+            return Optional.empty();
+        }
+
+        String departureCityId = current.cityIds.get(normalize(departureCity));
+        String destinationCityId = current.cityIds.get(normalize(destinationCity));
+        TripSearchPartition partition = departureCityId != null && destinationCityId != null
+                ? current.partitions.get(new PartitionKey(departureCityId, destinationCityId, date))
+                : null;
+        return Optional.of(partition != null
+                ? partition.summarize(date, LocalDateTime.now())
+                : FareCalendarDay.empty(date));
+    }
+
+    /**
+     * Load all open trips departing from today until the end of the indexed days,
+     * replacing the current index.
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            LocalDate firstDay = LocalDate.now();
+            LocalDate endDay = firstDay.plusDays(days);
+            List<TripIndexRow> rows = tripRepository.findTripIndexRows(firstDay.atStartOfDay(), endDay.atStartOfDay());
+
+            Snapshot loaded = new Snapshot(firstDay, endDay);
+            Map<PartitionKey, List<TripIndexRow>> rowsByPartition = new HashMap<>();
+            for (TripIndexRow row : rows) {
+                loaded.addCities(row);
+                rowsByPartition.computeIfAbsent(PartitionKey.of(row), key -> new ArrayList<>()).add(row);
+            }
+
+            Map<String, List<String>> amenitiesByJson = new HashMap<>();
+            for (Map.Entry<PartitionKey, List<TripIndexRow>> entry : rowsByPartition.entrySet()) {
+                loaded.put(entry.getKey(), TripSearchPartition.of(entry.getValue(),
+                        json -> amenitiesByJson.computeIfAbsent(json, this::parseAmenities)));
+            }
+
+            snapshot = loaded;
+            logger.info("Trip search index loaded {} trips in {} partitions from {} to {}",
+                    rows.size(), rowsByPartition.size(), firstDay, endDay);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Overwrite the available seats of the indexed trips with their database counters,
+     * picking up seats booked or cancelled on other nodes.
+     */
+    public void refreshAvailability() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+
+        List<TripSeatAvailability> counters = tripRepository.findAvailableSeatsDepartingBetween(
+                current.firstDay.atStartOfDay(), current.endDay.atStartOfDay());
+        for (TripSeatAvailability counter : counters) {
+            TripSearchPartition partition = current.partitionOf(counter.getId());
+            if (partition != null && counter.getAvailableSeats() != null) {
+                partition.setAvailableSeats(counter.getId(), counter.getAvailableSeats());
+            }
+        }
+    }
+
+    /**
+     * Rebuild the partitions a trip was and is now in, after the trip changed.
+     *
+     * @param tripId the trip ID
+     */
+    public void refreshTrip(String tripId) {
+        writeLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+
+            Set<PartitionKey> affected = new LinkedHashSet<>();
+            PartitionKey previous = current.keyByTrip.get(tripId);
+            if (previous != null) {
+                affected.add(previous);
+            }
+            Optional<TripIndexRow> row = tripRepository.findTripIndexRow(tripId,
+                    current.firstDay.atStartOfDay(), current.endDay.atStartOfDay());
+            if (row.isPresent()) {
+                current.addCities(row.get());
+                affected.add(PartitionKey.of(row.get()));
+            }
+
+            for (PartitionKey key : affected) {
+                List<TripIndexRow> rows = tripRepository.findTripIndexRows(
+                        key.departureCityId, key.destinationCityId, key.date);
+                current.put(key, rows.isEmpty() ? null : TripSearchPartition.of(rows, this::parseAmenities));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Keep available seats current as bookings are confirmed and cancelled on this node.
+     * Seats held or released from a hold do not change the trip's seat counter.
+     *
+     * @param event the seat event
+     */
+    @EventListener
+    public void onSeatEvent(SeatEvent event) {
+        int delta;
+        if (event instanceof SeatBookedEvent) {
+            delta = -event.getSeatNumbers().size();
+        } else if (event instanceof SeatReleasedEvent released
+                && released.getReason() == SeatReleasedEvent.Reason.CANCELLED) {
+            delta = event.getSeatNumbers().size();
+        } else {
+            return;
+        }
+
+        Snapshot current = snapshot;
+        TripSearchPartition partition = current != null ? current.partitionOf(event.getTripId()) : null;
+        if (partition != null) {
+            partition.addAvailableSeats(event.getTripId(), delta);
+        }
+    }
+
+    @EventListener
+    public void onTripChanged(TripChangedEvent event) {
+        try {
+            refreshTrip(event.getTripId());
+        } catch (RuntimeException e) {
+            // The next full reload picks the change up
+            logger.warn("Failed to refresh trip {} in search index: {}", event.getTripId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Get the number of indexed trips.
+     *
+     * @return the trip count, 0 if the index is not loaded
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.keyByTrip.size() : 0;
+    }
+
+    private List<String> parseAmenities(String amenitiesJson) {
+        if (amenitiesJson == null || amenitiesJson.trim().isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            return List.copyOf(objectMapper.readValue(amenitiesJson, new TypeReference<List<String>>() {
+            }));
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+    }
+
+    private static String normalize(String cityName) {
+        return cityName != null ? cityName.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * The indexed days and their partitions. Partitions are replaced whole, so a search
+     * sees either the old or the new version of a partition.
+     */
+    private static final class Snapshot {
+        private final LocalDate firstDay;
+        private final LocalDate endDay;
+        private final Map<String, String> cityIds = new ConcurrentHashMap<>();
+        private final Map<PartitionKey, TripSearchPartition> partitions = new ConcurrentHashMap<>();
+        private final Map<String, PartitionKey> keyByTrip = new ConcurrentHashMap<>();
+
+        private Snapshot(LocalDate firstDay, LocalDate endDay) {
+            this.firstDay = firstDay;
+            this.endDay = endDay;
+        }
+
+        private boolean covers(LocalDate date) {
+            return !date.isBefore(firstDay) && date.isBefore(endDay);
+        }
+
+        private void addCities(TripIndexRow row) {
+            cityIds.put(normalize(row.getDepartureCity()), row.getDepartureCityId());
+            cityIds.put(normalize(row.getDestinationCity()), row.getDestinationCityId());
+        }
+
+        private TripSearchPartition partitionOf(String tripId) {
+            PartitionKey key = keyByTrip.get(tripId);
+            return key != null ? partitions.get(key) : null;
+        }
+
+        private void put(PartitionKey key, TripSearchPartition partition) {
+            TripSearchPartition replaced = partition != null ? partitions.put(key, partition) : partitions.remove(key);
+            if (replaced != null) {
+                for (String tripId : replaced.getTripIds()) {
+                    keyByTrip.remove(tripId, key);
+                }
+            }
+            if (partition != null) {
+                for (String tripId : partition.getTripIds()) {
+                    keyByTrip.put(tripId, key);
+                }
+            }
+        }
+    }
+
+    private static final class PartitionKey {
+        private final String departureCityId;
+        private final String destinationCityId;
+        private final LocalDate date;
+
+        private PartitionKey(String departureCityId, String destinationCityId, LocalDate date) {
+            this.departureCityId = departureCityId;
+            this.destinationCityId = destinationCityId;
+            this.date = date;
+        }
+
+        private static PartitionKey of(TripIndexRow row) {
+            return new PartitionKey(row.getDepartureCityId(), row.getDestinationCityId(),
+                    row.getDepartureTime().toLocalDate());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PartitionKey)) {
+                return false;
+            }
+            PartitionKey other = (PartitionKey) o;
+            return departureCityId.equals(other.departureCityId)
+                    && destinationCityId.equals(other.destinationCityId)
+                    && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(departureCityId, destinationCityId, date);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the trip search index on startup, reloads it periodically so the indexed
+ * days move forward and new trips show up, and refreshes its seat counts in between.
+ * While the index is not loaded, searches go to the database.
+ */
+@Component
+public class TripSearchIndexJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripSearchIndexJob.class);
+
+    private final TripSearchIndex tripSearchIndex;
+
+    public TripSearchIndexJob(TripSearchIndex tripSearchIndex) {
+        this.tripSearchIndex = tripSearchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        reloadIndex();
+    }
+
+    @Scheduled(fixedDelayString = "${trip-search-index.reload-interval-ms:600000}",
+            initialDelayString = "${trip-search-index.reload-interval-ms:600000}")
+    public void reloadIndex() {
+        try {
+            tripSearchIndex.reload();
+        } catch (RuntimeException e) {
+            logger.warn("Trip search index reload failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trip-search-index.availability-refresh-ms:30000}",
+            initialDelayString = "${trip-search-index.availability-refresh-ms:30000}")
+    public void refreshAvailability() {
+        try {
+            tripSearchIndex.refreshAvailability();
+        } catch (RuntimeException e) {
+            logger.warn("Trip search index availability refresh failed: {}", e.getMessage());
+        }
+    }
+}
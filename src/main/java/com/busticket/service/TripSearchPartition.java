@@ -0,0 +1,434 @@
+package com.busticket.service;
+
+import com.busticket.dto.FareCalendarDay;
+import com.busticket.dto.TripResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.model.BusType;
+import com.busticket.repository.TripIndexRow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Column-oriented store of the open trips between two cities on one travel day.
+ *
+ * Row i of every column describes the same trip. Rows are ordered by departure, so a
+ * departure time window is a contiguous row range; the remaining filters clear bits of
+ * a row bitset. Only the available seat column changes in place, any other change to a
+ * trip rebuilds its whole partition.
+ */
+final class TripSearchPartition {
+
+    private static final BusType[] BUS_TYPES = BusType.values();
+
+    private final String departureCity;
+    private final String destinationCity;
+
+    // Departure and arrival as wall clock epoch seconds, trip times carry no zone
+    private final String[] tripIds;
+    private final long[] departureEpochs;
+    private final long[] arrivalEpochs;
+    private final long[] prices;
+    private final byte[] busTypes;
+    private final int[] operatorIds;
+    private final int[] routeIds;
+    private final int[] busRefs;
+    private final AtomicIntegerArray availableSeats;
+
+    // Dictionaries the ID columns point into
+    private final String[] operators;
+    private final String[] routes;
+    private final BusInfo[] buses;
+
+    private final BitSet[] rowsByBusType;
+    private final BitSet[] rowsByOperator;
+    private final Map<String, Integer> operatorIndex;
+    private final Map<String, Integer> rowByTrip;
+
+    private TripSearchPartition(List<TripIndexRow> rows, Function<String, List<String>> amenityParser) {
+        int size = rows.size();
+        TripIndexRow first = size > 0 ? rows.get(0) : null;
+        this.departureCity = first != null ? first.getDepartureCity() : null;
+        this.destinationCity = first != null ? first.getDestinationCity() : null;
+
+        tripIds = new String[size];
+        departureEpochs = new long[size];
+        arrivalEpochs = new long[size];
+        prices = new long[size];
+        busTypes = new byte[size];
+        operatorIds = new int[size];
+        routeIds = new int[size];
+        busRefs = new int[size];
+        availableSeats = new AtomicIntegerArray(size);
+
+        Map<String, Integer> operatorDictionary = new LinkedHashMap<>();
+        Map<String, Integer> routeDictionary = new LinkedHashMap<>();
+        Map<String, Integer> busDictionary = new LinkedHashMap<>();
+        List<BusInfo> busList = new ArrayList<>();
+        Map<String, Integer> rowIndex = new HashMap<>(size * 2);
+        rowsByBusType = new BitSet[BUS_TYPES.length];
+        for (int t = 0; t < rowsByBusType.length; t++) {
+            rowsByBusType[t] = new BitSet(size);
+        }
+        List<BitSet> operatorRows = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            TripIndexRow row = rows.get(i);
+            tripIds[i] = row.getId();
+            departureEpochs[i] = epochSecond(row.getDepartureTime());
+            arrivalEpochs[i] = epochSecond(row.getArrivalTime());
+            prices[i] = toMinorUnits(row.getPrice());
+            busTypes[i] = (byte) (row.getBusType() != null ? row.getBusType().ordinal() : -1);
+            availableSeats.set(i, row.getAvailableSeats() != null ? row.getAvailableSeats() : 0);
+            rowIndex.put(row.getId(), i);
+
+            if (busTypes[i] >= 0) {
+                rowsByBusType[busTypes[i]].set(i);
+            }
+
+            Integer operatorId = operatorDictionary.get(row.getBusCompany());
+            if (operatorId == null) {
+                operatorId = operatorDictionary.size();
+                operatorDictionary.put(row.getBusCompany(), operatorId);
+                operatorRows.add(new BitSet(size));
+            }
+            operatorIds[i] = operatorId;
+            operatorRows.get(operatorId).set(i);
+
+            routeIds[i] = routeDictionary.computeIfAbsent(row.getRouteId(), id -> routeDictionary.size());
+
+            Integer busRef = busDictionary.get(row.getBusId());
+            if (busRef == null) {
+                busRef = busList.size();
+                busDictionary.put(row.getBusId(), busRef);
+                busList.add(new BusInfo(row.getBusId(), row.getBusNumber(), row.getTotalSeats(),
+                        amenityParser.apply(row.getAmenities())));
+            }
+            busRefs[i] = busRef;
+        }
+
+        operators = operatorDictionary.keySet().toArray(new String[0]);
+        routes = routeDictionary.keySet().toArray(new String[0]);
+        buses = busList.toArray(new BusInfo[0]);
+        rowsByOperator = operatorRows.toArray(new BitSet[0]);
+        operatorIndex = Collections.unmodifiableMap(operatorDictionary);
+        rowByTrip = Collections.unmodifiableMap(rowIndex);
+    }
+
+    /**
+     * Build a partition from the trips of one city pair and day.
+     *
+     * @param rows the trips, in any order
+     * @param amenityParser parses a bus's amenities JSON, called once per bus
+     * @return the partition
+     */
+    static TripSearchPartition of(List<TripIndexRow> rows, Function<String, List<String>> amenityParser) {
+        List<TripIndexRow> ordered = new ArrayList<>(rows);
+        ordered.sort(Comparator.comparing(TripIndexRow::getDepartureTime).thenComparing(TripIndexRow::getId));
+        return new TripSearchPartition(ordered, amenityParser);
+    }
+
+    /**
+     * Find the trips matching the filters of a search request, sorted by its sort option.
+     * Trips without a known sort option come back in departure order.
+     *
+     * @param request the search request; its cities are assumed to match the partition
+     * @param now the current time, only trips departing after it are returned
+     * @return the matching trips
+     */
+    List<TripResponse> search(TripSearchRequest request, LocalDateTime now) {
+        BitSet rows = selectRows(request, now);
+
+        int[] selected = rows.stream().toArray();
+        String sortBy = request.getSortBy();
+        if (sortBy != null) {
+            switch (sortBy.toUpperCase()) {
+                case "CHEAPEST":
+                    selected = sortBy(selected, i -> prices[i]);
+                    break;
+                case "FASTEST":
+                    selected = sortBy(selected, i -> arrivalEpochs[i] - departureEpochs[i]);
+                    break;
+                case "MOST_AVAILABLE":
+                    selected = sortBy(selected, i -> -Math.max(0, availableSeats.get(i)));
+                    break;
+                default:
+                    // EARLIEST_DEPARTURE is the row order
+                    break;
+            }
+        }
+
+        List<TripResponse> responses = new ArrayList<>(selected.length);
+        for (int row : selected) {
+            responses.add(toResponse(row));
+        }
+        return responses;
+    }
+
+    /**
+     * Find one page of the trips matching a search request. Only the trips of the page
+     * are turned into responses.
+     *
+     * @param request the search request; its cities are assumed to match the partition
+     * @param now the current time, only trips departing after it are returned
+     * @param after the position to continue after, null for the first page
+     * @param limit the maximum number of trips
+     * @return the matching trips ordered after the position
+     */
+    List<TripResponse> searchPage(TripSearchRequest request, LocalDateTime now, TripSearchCursor after, int limit) {
+        BitSet rows = selectRows(request, now);
+
+        TripSearchCursor.Sort sort = TripSearchCursor.Sort.of(request.getSortBy());
+        IntToLongFunction key;
+        switch (sort) {
+            case CHEAPEST:
+                key = i -> prices[i];
+                break;
+            case FASTEST:
+                key = i -> (arrivalEpochs[i] - departureEpochs[i]) / 60;
+                break;
+            case MOST_AVAILABLE:
+                key = i -> -Math.max(0, availableSeats.get(i));
+                break;
+            default:
+                key = i -> 0;
+                break;
+        }
+
+        if (after != null) {
+            long afterDeparture = epochSecond(after.getDepartureTime());
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                long rowKey = key.applyAsLong(i);
+                if (rowKey < after.getSortKey() || (rowKey == after.getSortKey()
+                        && (departureEpochs[i] < afterDeparture || (departureEpochs[i] == afterDeparture
+                                && tripIds[i].compareTo(after.getTripId()) <= 0)))) {
+                    rows.clear(i);
+                }
+            }
+        }
+
+        int[] selected = sort == TripSearchCursor.Sort.EARLIEST_DEPARTURE
+                ? rows.stream().limit(limit).toArray()
+                : sortBy(rows.stream().toArray(), key);
+        List<TripResponse> responses = new ArrayList<>(Math.min(limit, selected.length));
+        for (int i = 0; i < selected.length && i < limit; i++) {
+            responses.add(toResponse(selected[i]));
+        }
+        return responses;
+    }
+
+    /**
+     * Summarize the trips still to depart for the fare calendar.
+     *
+     * @param date the travel day of the partition
+     * @param now the current time
+     * @return the cheapest price with seats left, the seats left and the trip count
+     */
+    FareCalendarDay summarize(LocalDate date, LocalDateTime now) {
+        long cheapest = Long.MAX_VALUE;
+        int seats = 0;
+        int trips = 0;
+        for (int i = firstRowDepartingAfter(epochSecond(now)); i < tripIds.length; i++) {
+            int available = availableSeats.get(i);
+            if (available > 0) {
+                cheapest = Math.min(cheapest, prices[i]);
+                seats += available;
+            }
+            trips++;
+        }
+        return new FareCalendarDay(date, cheapest != Long.MAX_VALUE ? BigDecimal.valueOf(cheapest, 2) : null,
+                seats, trips);
+    }
+
+    private BitSet selectRows(TripSearchRequest request, LocalDateTime now) {
+        int size = tripIds.length;
+        LocalDate date = request.getDate();
+
+        // Departure bounds narrow the row range: after now, within [start, end] of the day
+        long after = epochSecond(now);
+        int from = firstRowDepartingAfter(after);
+        if (request.getDepartureTimeStart() != null) {
+            from = Math.max(from, firstRowDepartingAfter(epochSecond(date.atTime(request.getDepartureTimeStart())) - 1));
+        }
+        int until = size;
+        if (request.getDepartureTimeEnd() != null) {
+            until = firstRowDepartingAfter(epochSecond(date.atTime(request.getDepartureTimeEnd())));
+        }
+
+        BitSet rows = new BitSet(size);
+        if (from >= until) {
+            return rows;
+        }
+        rows.set(from, until);
+
+        List<BusType> types = request.getBusTypes();
+        if (types != null && !types.isEmpty()) {
+            BitSet matching = new BitSet(size);
+            for (BusType type : types) {
+                if (type != null) {
+                    matching.or(rowsByBusType[type.ordinal()]);
+                }
+            }
+            rows.and(matching);
+        }
+
+        List<String> operatorNames = request.getBusOperators();
+        if (operatorNames != null && !operatorNames.isEmpty()) {
+            BitSet matching = new BitSet(size);
+            for (String operator : operatorNames) {
+                Integer operatorId = operatorIndex.get(operator);
+                if (operatorId != null) {
+                    matching.or(rowsByOperator[operatorId]);
+                }
+            }
+            rows.and(matching);
+        }
+
+        long minPrice = request.getMinPrice() != null
+                ? request.getMinPrice().movePointRight(2).setScale(0, RoundingMode.CEILING).longValue()
+                : Long.MIN_VALUE;
+        long maxPrice = request.getMaxPrice() != null
+                ? request.getMaxPrice().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue()
+                : Long.MAX_VALUE;
+        Integer minSeats = request.getMinAvailableSeats();
+
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            if (prices[i] < minPrice || prices[i] > maxPrice
+                    || (minSeats != null && availableSeats.get(i) < minSeats)) {
+                rows.clear(i);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Add to the available seat counter of a trip.
+     *
+     * @param tripId the trip ID
+     * @param delta the seats freed (positive) or taken (negative)
+     * @return true if the trip is in this partition
+     */
+    boolean addAvailableSeats(String tripId, int delta) {
+        Integer row = rowByTrip.get(tripId);
+        if (row == null) {
+            return false;
+        }
+        availableSeats.addAndGet(row, delta);
+        return true;
+    }
+
+    /**
+     * Overwrite the available seat counter of a trip.
+     *
+     * @param tripId the trip ID
+     * @param seats the available seats
+     * @return true if the trip is in this partition
+     */
+    boolean setAvailableSeats(String tripId, int seats) {
+        Integer row = rowByTrip.get(tripId);
+        if (row == null) {
+            return false;
+        }
+        availableSeats.set(row, seats);
+        return true;
+    }
+
+    Set<String> getTripIds() {
+        return rowByTrip.keySet();
+    }
+
+    String getRouteId(String tripId) {
+        Integer row = rowByTrip.get(tripId);
+        return row != null ? routes[routeIds[row]] : null;
+    }
+
+    int size() {
+        return tripIds.length;
+    }
+
+    private TripResponse toResponse(int row) {
+        BusInfo bus = buses[busRefs[row]];
+        LocalDateTime departure = LocalDateTime.ofEpochSecond(departureEpochs[row], 0, ZoneOffset.UTC);
+        LocalDateTime arrival = LocalDateTime.ofEpochSecond(arrivalEpochs[row], 0, ZoneOffset.UTC);
+        return new TripResponse(
+                tripIds[row],
+                bus.id,
+                operators[operatorIds[row]],
+                bus.number,
+                departureCity,
+                destinationCity,
+                departure,
+                arrival,
+                (arrivalEpochs[row] - departureEpochs[row]) / 60,
+                Math.max(0, availableSeats.get(row)),
+                bus.totalSeats,
+                BigDecimal.valueOf(prices[row], 2),
+                busTypes[row] >= 0 ? BUS_TYPES[busTypes[row]] : null,
+                bus.amenities,
+                null);
+    }
+
+    /**
+     * Find the first row departing strictly after a time.
+     */
+    private int firstRowDepartingAfter(long epochSecond) {
+        int low = 0;
+        int high = departureEpochs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureEpochs[mid] <= epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] sortBy(int[] rows, IntToLongFunction key) {
+        // Stable, so ties keep departure order
+        return Arrays.stream(rows)
+                .boxed()
+                .sorted(Comparator.comparingLong(key::applyAsLong))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long toMinorUnits(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static final class BusInfo {
+        private final String id;
+        private final String number;
+        private final Integer totalSeats;
+        private final List<String> amenities;
+
+        private BusInfo(String id, String number, Integer totalSeats, List<String> amenities) {
+            this.id = id;
+            this.number = number;
+            this.totalSeats = totalSeats;
+            this.amenities = amenities;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.busticket.service;
+
+import com.busticket.repository.TripRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the per-trip available seat counter honest.
+ *
+ * Confirm and cancel adjust the counter in the booking's own transaction. This
+ * service recomputes it from confirmed bookings for trips where the two disagree,
+ * e.g. after manual data fixes.
+ */
+@Service
+public class TripSeatCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripSeatCounterService.class);
+
+    private final TripRepository tripRepository;
+
+    public TripSeatCounterService(TripRepository tripRepository) {
+        this.tripRepository = tripRepository;
+    }
+
+    /**
+     * Find upcoming trips whose counter does not match their confirmed bookings.
+     *
+     * @return the IDs of trips to reconcile
+     */
+    @Transactional(readOnly = true)
+    public List<String> findDriftedTrips() {
+        return tripRepository.findTripsWithSeatCounterDrift(LocalDateTime.now());
+    }
+
+    /**
+     * Recompute a trip's available seat counter from its confirmed bookings.
+     * The trip row is locked first, so a confirmation committing meanwhile is
+     * either fully counted or waits for the new value.
+     *
+     * @param tripId the trip ID
+     * @return true if the counter was corrected
+     */
+    @Transactional
+    public boolean reconcile(String tripId) {
+        if (tripRepository.lockTrip(tripId).isEmpty()) {
+            return false;
+        }
+
+        Integer expected = tripRepository.calculateAvailableSeats(tripId);
+        Integer current = tripRepository.findAvailableSeats(tripId);
+        if (expected == null || expected.equals(current)) {
+            return false;
+        }
+
+        tripRepository.setAvailableSeats(tripId, expected);
+        logger.warn("Corrected available seats of trip {}: {} -> {}", tripId, current, expected);
+        return true;
+    }
+}
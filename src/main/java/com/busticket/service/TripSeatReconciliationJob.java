@@ -0,0 +1,50 @@
+package com.busticket.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically recomputes available seat counters that drifted from the
+ * confirmed bookings of their trip.
+ */
+@Component
+public class TripSeatReconciliationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripSeatReconciliationJob.class);
+
+    private final TripSeatCounterService tripSeatCounterService;
+
+    public TripSeatReconciliationJob(TripSeatCounterService tripSeatCounterService) {
+        this.tripSeatCounterService = tripSeatCounterService;
+    }
+
+    @Scheduled(fixedDelayString = "${trip-seats.reconcile-interval-ms:900000}")
+    public void reconcileAvailableSeats() {
+        List<String> driftedTrips;
+        try {
+            driftedTrips = tripSeatCounterService.findDriftedTrips();
+        } catch (RuntimeException e) {
+            logger.warn("Available seat reconciliation failed: {}", e.getMessage());
+            return;
+        }
+
+        // One trip that cannot be reconciled must not hold back the others
+        int corrected = 0;
+        for (String tripId : driftedTrips) {
+            try {
+                if (tripSeatCounterService.reconcile(tripId)) {
+                    corrected++;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to reconcile available seats of trip {}: {}", tripId, e.getMessage());
+            }
+        }
+        if (corrected > 0) {
+            logger.info("Reconciled available seats of {} trips", corrected);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+-- Fencing token of the seat hold each booking was created under
+ALTER TABLE bookings ADD COLUMN fencing_token BIGINT;
+
+-- Highest fencing token that has written each seat of a trip
+CREATE TABLE seat_fences (
+    trip_id VARCHAR(36) NOT NULL,
+    seat_number VARCHAR(20) NOT NULL,
+    fencing_token BIGINT NOT NULL,
+    booking_id VARCHAR(36) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (trip_id, seat_number),
+    FOREIGN KEY (trip_id) REFERENCES trips(id)
+);
+
+-- Create index for looking up the seats a booking holds
+CREATE INDEX idx_seat_fences_booking_id ON seat_fences(booking_id);
@@ -0,0 +1,14 @@
+-- Trip search only reads open trips of a set of routes within a departure range.
+-- A partial index over open trips keeps closed and past-season rows out of the scan,
+-- and the included columns let price filters and ordering run without heap lookups.
+CREATE INDEX idx_trips_open_route_departure ON trips(route_id, departure_time)
+    INCLUDE (price, arrival_time, bus_id)
+    WHERE is_open = TRUE;
+
+-- Date and time window searches that are not scoped to a route
+CREATE INDEX idx_trips_open_departure ON trips(departure_time)
+    WHERE is_open = TRUE;
+
+-- Seat counts and the minimum available seats filter only look at confirmed bookings
+CREATE INDEX idx_bookings_trip_confirmed ON bookings(trip_id)
+    WHERE status = 'CONFIRMED';
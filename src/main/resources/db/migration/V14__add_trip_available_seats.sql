@@ -0,0 +1,33 @@
+-- Available seat counter per trip, kept in step with confirmed bookings
+ALTER TABLE trips ADD COLUMN available_seats INTEGER;
+
+UPDATE trips t
+SET available_seats = b.total_seats - COALESCE((
+        SELECT SUM(CASE WHEN jsonb_typeof(bk.seat_numbers) = 'array'
+                        THEN jsonb_array_length(bk.seat_numbers) ELSE 0 END)
+        FROM bookings bk
+        WHERE bk.trip_id = t.id AND bk.status = 'CONFIRMED'), 0)
+FROM buses b
+WHERE b.id = t.bus_id;
+
+ALTER TABLE trips ALTER COLUMN available_seats SET NOT NULL;
+
+-- New trips start with every seat of their bus available
+CREATE FUNCTION init_trip_available_seats() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.available_seats IS NULL THEN
+        SELECT total_seats INTO NEW.available_seats FROM buses WHERE id = NEW.bus_id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_trips_init_available_seats
+    BEFORE INSERT ON trips
+    FOR EACH ROW EXECUTE FUNCTION init_trip_available_seats();
+
+-- Let availability filters and sorting be answered from the search index
+DROP INDEX idx_trips_open_route_departure;
+CREATE INDEX idx_trips_open_route_departure ON trips(route_id, departure_time)
+    INCLUDE (price, arrival_time, bus_id, available_seats)
+    WHERE is_open = TRUE;
@@ -0,0 +1,19 @@
+-- Other names a city is searched by: former names, local spellings and transliterations
+CREATE TABLE city_aliases (
+    alias VARCHAR(100) PRIMARY KEY,
+    city_id VARCHAR(36) NOT NULL REFERENCES cities(id) ON DELETE CASCADE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_city_aliases_city ON city_aliases(city_id);
+
+INSERT INTO city_aliases (alias, city_id) VALUES
+('Bombay', 'c1'),
+('Mumbai City', 'c1'),
+('New Delhi', 'c2'),
+('Dilli', 'c2'),
+('Bengaluru', 'c3'),
+('Bangaluru', 'c3'),
+('Poona', 'c4'),
+('Hyderabad Deccan', 'c5'),
+('Bhagyanagar', 'c5');
@@ -0,0 +1,16 @@
+-- Trip duration in whole minutes, so the fastest-first search can order and page on a column
+ALTER TABLE trips ADD COLUMN duration_minutes INTEGER
+    GENERATED ALWAYS AS (FLOOR(EXTRACT(EPOCH FROM (arrival_time - departure_time)) / 60)::INTEGER) STORED;
+
+-- Paged searches resume after the last trip of the previous page by (sort key, departure, id),
+-- so each sort order reads its page as one index range within a route
+CREATE INDEX idx_trips_open_route_price ON trips(route_id, price, departure_time, id)
+    WHERE is_open = TRUE;
+
+CREATE INDEX idx_trips_open_route_duration ON trips(route_id, duration_minutes, departure_time, id)
+    WHERE is_open = TRUE;
+
+DROP INDEX idx_trips_open_route_departure;
+CREATE INDEX idx_trips_open_route_departure ON trips(route_id, departure_time, id)
+    INCLUDE (price, arrival_time, bus_id, available_seats)
+    WHERE is_open = TRUE;
@@ -0,0 +1,8 @@
+-- Payments move PENDING -> PROCESSING -> SUCCESS or FAILED; PROCESSING marks a gateway call in flight
+ALTER TABLE payments DROP CONSTRAINT payments_status_check;
+ALTER TABLE payments ADD CONSTRAINT payments_status_check
+    CHECK (status IN ('PENDING', 'PROCESSING', 'SUCCESS', 'FAILED'));
+
+-- The timeout sweep only reads payments that have not settled
+CREATE INDEX idx_payments_unsettled_created ON payments(created_at)
+    WHERE status IN ('PENDING', 'PROCESSING');
@@ -0,0 +1,10 @@
+-- Refunds are paid out in the background: a worker claims a batch of pending refunds for a
+-- lease period, and a refund whose lease ran out without settling is claimed again
+ALTER TABLE refunds ADD COLUMN IF NOT EXISTS transaction_id VARCHAR(100);
+ALTER TABLE refunds ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE refunds ADD COLUMN claimed_at TIMESTAMP;
+
+-- The refund engine only reads refunds that have not settled, oldest first
+CREATE INDEX idx_refunds_pending_created ON refunds(created_at)
+    WHERE status = 'PENDING';
+
@@ -0,0 +1,6 @@
+-- A payment's timeout runs from when a worker claims it, not from when it was queued
+ALTER TABLE payments ADD COLUMN processing_started_at TIMESTAMP;
+
+-- The timeout sweep reads payments in flight by their claim time
+CREATE INDEX idx_payments_processing_started ON payments(processing_started_at)
+    WHERE status = 'PROCESSING';
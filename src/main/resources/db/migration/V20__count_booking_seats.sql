@@ -0,0 +1,21 @@
+-- Number of seats in a booking's seat_numbers, read the way SeatOccupancyService.parseSeatNumbers
+-- reads them: either a JSON array of seat numbers or a JSON string of comma separated seat numbers
+CREATE FUNCTION booking_seat_count(seat_numbers JSONB) RETURNS INTEGER AS $$
+    SELECT CASE jsonb_typeof(seat_numbers)
+        WHEN 'array' THEN jsonb_array_length(seat_numbers)
+        WHEN 'string' THEN (
+            SELECT COUNT(*)::INTEGER
+            FROM unnest(string_to_array(translate(seat_numbers #>> '{}', '[]"', ''), ',')) AS seat
+            WHERE btrim(seat) <> '')
+        ELSE 0
+    END
+$$ LANGUAGE SQL IMMUTABLE;
+
+-- V14 counted bookings stored as comma separated strings as no seats; recompute every counter
+UPDATE trips t
+SET available_seats = b.total_seats - COALESCE((
+        SELECT SUM(booking_seat_count(bk.seat_numbers))
+        FROM bookings bk
+        WHERE bk.trip_id = t.id AND bk.status = 'CONFIRMED'), 0)
+FROM buses b
+WHERE b.id = t.bus_id;
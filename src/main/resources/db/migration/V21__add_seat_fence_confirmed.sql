@@ -0,0 +1,7 @@
+-- A seat whose fence belongs to a confirmed booking is sold: no newer hold may take its fence
+ALTER TABLE seat_fences ADD COLUMN confirmed BOOLEAN NOT NULL DEFAULT FALSE;
+
+UPDATE seat_fences f
+SET confirmed = TRUE
+FROM bookings b
+WHERE b.id = f.booking_id AND b.status = 'CONFIRMED';
@@ -0,0 +1,20 @@
+-- Complete or drop an in-flight idempotency record, if it is still the caller's.
+--
+-- KEYS[1]    idempotency:{operation}:{userId}:{key}
+-- ARGV[1]    serialized in-flight record the caller stored
+-- ARGV[2]    serialized completed record (complete only)
+-- ARGV[3]    time to keep the completed record, in milliseconds (complete only)
+--
+-- Returns 1 if the record was settled, 0 if it expired or another request took it over.
+
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+
+if #ARGV == 1 then
+    redis.call('DEL', KEYS[1])
+else
+    redis.call('SET', KEYS[1], ARGV[2], 'PX', tonumber(ARGV[3]))
+end
+
+return 1
@@ -0,0 +1,55 @@
+-- Atomically claim every seat of a hold, or none of them.
+--
+-- KEYS[1]    lock:{lockId}
+-- KEYS[2]    seat_occupancy:{tripId}
+-- KEYS[3]    trip_locks:{tripId} (held seats scored by expiry in epoch millis)
+-- KEYS[4]    lock_fence:{tripId} (last fencing token handed out for the trip)
+-- KEYS[5..n] seat_lock:{tripId}:{seatNumber}
+-- ARGV[1]    serialized LockInfo; its fencingToken field is set here
+-- ARGV[2]    serialized lock ID (value stored under each seat key)
+-- ARGV[3]    hold TTL in seconds
+-- ARGV[4..]  occupancy bit offset of each seat, in KEYS order (0 = not in layout)
+-- ARGV[..m]  serialized seat number of each seat, in KEYS order
+--
+-- Returns {fencingToken} when the hold was created, or {0, positions...} with the
+-- 1-based positions (within the requested seats) of seats already held or booked.
+
+local seatCount = #KEYS - 4
+local conflicts = {0}
+for i = 1, seatCount do
+    local offset = tonumber(ARGV[3 + i])
+    if redis.call('EXISTS', KEYS[4 + i]) == 1
+            or (offset > 0 and redis.call('GETBIT', KEYS[2], offset) == 1) then
+        conflicts[#conflicts + 1] = i
+    end
+end
+
+if #conflicts > 1 then
+    return conflicts
+end
+
+local ttlMillis = tonumber(ARGV[3]) * 1000
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local expiresAt = now + ttlMillis
+
+-- Tokens never go below the current time, so they keep increasing even if the counter is lost
+local token = redis.call('INCR', KEYS[4])
+if token < now then
+    token = now
+    redis.call('SET', KEYS[4], string.format('%.0f', token))
+end
+-- Set as a JSON field, not patched into the text, so it does not depend on how the record is formatted
+local lockInfo = cjson.decode(ARGV[1])
+lockInfo['fencingToken'] = token
+
+for i = 1, seatCount do
+    redis.call('SET', KEYS[4 + i], ARGV[2], 'EX', ARGV[3])
+    redis.call('ZADD', KEYS[3], expiresAt, ARGV[3 + seatCount + i])
+end
+redis.call('SET', KEYS[1], cjson.encode(lockInfo), 'EX', ARGV[3])
+if redis.call('PTTL', KEYS[3]) < ttlMillis then
+    redis.call('PEXPIRE', KEYS[3], ttlMillis)
+end
+
+return {token}
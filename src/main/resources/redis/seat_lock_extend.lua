@@ -0,0 +1,36 @@
+-- Extend a hold and every seat key that still belongs to it by the same amount.
+--
+-- KEYS[1]    lock:{lockId}
+-- KEYS[2]    trip_locks:{tripId}
+-- KEYS[3..n] seat_lock:{tripId}:{seatNumber}
+-- ARGV[1]    serialized LockInfo with the new expiry
+-- ARGV[2]    serialized lock ID (value stored under each seat key)
+-- ARGV[3]    extension in milliseconds
+-- ARGV[4..n] serialized seat number of each seat, in KEYS order
+--
+-- Returns 1 if the hold was extended, 0 if it no longer exists.
+
+local remaining = redis.call('PTTL', KEYS[1])
+if remaining == -2 then
+    return 0
+end
+if remaining < 0 then
+    remaining = 0
+end
+
+local ttl = remaining + tonumber(ARGV[3])
+local time = redis.call('TIME')
+local expiresAt = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) + ttl
+
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ttl)
+for i = 3, #KEYS do
+    if redis.call('GET', KEYS[i]) == ARGV[2] then
+        redis.call('PEXPIRE', KEYS[i], ttl)
+        redis.call('ZADD', KEYS[2], expiresAt, ARGV[i + 1])
+    end
+end
+if redis.call('PTTL', KEYS[2]) < ttl then
+    redis.call('PEXPIRE', KEYS[2], ttl)
+end
+
+return 1
@@ -0,0 +1,11 @@
+-- List the seats currently held on a trip, trimming expired entries first.
+--
+-- KEYS[1]    trip_locks:{tripId}
+--
+-- Returns the serialized seat numbers whose hold has not expired yet.
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+return redis.call('ZRANGEBYSCORE', KEYS[1], '(' .. now, '+inf')
@@ -0,0 +1,23 @@
+-- Release a hold and every seat key that still belongs to it.
+--
+-- KEYS[1]    lock:{lockId}
+-- KEYS[2]    trip_locks:{tripId}
+-- KEYS[3..n] seat_lock:{tripId}:{seatNumber}
+-- ARGV[1]    serialized lock ID (value stored under each seat key)
+-- ARGV[2..n] serialized seat number of each seat, in KEYS order
+--
+-- Returns 1 if the hold was released, 0 if it no longer exists.
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+
+for i = 3, #KEYS do
+    if redis.call('GET', KEYS[i]) == ARGV[1] then
+        redis.call('DEL', KEYS[i])
+        redis.call('ZREM', KEYS[2], ARGV[i - 1])
+    end
+end
+redis.call('DEL', KEYS[1])
+
+return 1
@@ -0,0 +1,20 @@
+-- Check that a hold still exists and still owns every one of its seats.
+--
+-- KEYS[1]    lock:{lockId}
+-- KEYS[2..n] seat_lock:{tripId}:{seatNumber}
+-- ARGV[1]    serialized lock ID (value stored under each seat key)
+--
+-- Returns the serialized LockInfo, or nil if the hold expired or lost a seat.
+
+local lockInfo = redis.call('GET', KEYS[1])
+if not lockInfo then
+    return nil
+end
+
+for i = 2, #KEYS do
+    if redis.call('GET', KEYS[i]) ~= ARGV[1] then
+        return nil
+    end
+end
+
+return lockInfo
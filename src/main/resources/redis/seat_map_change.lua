@@ -0,0 +1,34 @@
+-- Record a seat status change in a trip's seat map change log.
+--
+-- KEYS[1]    seat_map_version:{tripId}
+-- KEYS[2]    seat_map_changes:{tripId}
+-- ARGV[1]    new seat status code
+-- ARGV[2]    number of changes kept in the log
+-- ARGV[3]    TTL of the version and log in seconds
+-- ARGV[4..n] serialized seat numbers that changed
+--
+-- Log entries are serialized strings of the form "version|status|seat,seat".
+-- Returns the new seat map version.
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- Versions never go below the current time, so they keep increasing even if the counter expires
+local version = redis.call('INCR', KEYS[1])
+if version < now then
+    version = now
+    redis.call('SET', KEYS[1], string.format('%.0f', version))
+end
+
+local seats = {}
+for i = 4, #ARGV do
+    seats[#seats + 1] = cjson.decode(ARGV[i])
+end
+
+local entry = string.format('%.0f', version) .. '|' .. tonumber(ARGV[1]) .. '|' .. table.concat(seats, ',')
+redis.call('RPUSH', KEYS[2], cjson.encode(entry))
+redis.call('LTRIM', KEYS[2], -tonumber(ARGV[2]), -1)
+redis.call('EXPIRE', KEYS[1], ARGV[3])
+redis.call('EXPIRE', KEYS[2], ARGV[3])
+
+return version
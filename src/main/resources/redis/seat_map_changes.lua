@@ -0,0 +1,28 @@
+-- Read a trip's seat map version and the changes logged after a given version.
+--
+-- KEYS[1]    seat_map_version:{tripId}
+-- KEYS[2]    seat_map_changes:{tripId}
+-- ARGV[1]    version the caller already has
+--
+-- Returns {version, covered, entries...}. covered is 1 when the log still holds
+-- every change made after ARGV[1], i.e. ARGV[1] is the current version or a logged
+-- one; only then are the newer entries returned.
+
+local version = tonumber(redis.call('GET', KEYS[1]) or '0')
+local since = tonumber(ARGV[1])
+if since == version then
+    return {version, 1}
+end
+
+local entries = redis.call('LRANGE', KEYS[2], 0, -1)
+local result = {version, 0}
+for i = 1, #entries do
+    local entryVersion = tonumber(string.match(cjson.decode(entries[i]), '^(%d+)|'))
+    if entryVersion == since then
+        result[2] = 1
+    elseif entryVersion > since and result[2] == 1 then
+        result[#result + 1] = entries[i]
+    end
+end
+
+return result
@@ -0,0 +1,31 @@
+-- Rebuild a trip occupancy bitmap from the booked seats in Postgres.
+--
+-- KEYS[1]    seat_occupancy:{tripId}
+-- KEYS[2]    seat_occupancy_writes:{tripId}
+-- ARGV[1]    bitmap TTL in seconds
+-- ARGV[2]    write count read before the booked seats were loaded
+-- ARGV[3..n] bit offsets of the booked seats
+--
+-- Bit 0 marks the bitmap as built. The bitmap is replaced, so bits left by
+-- updates that were never undone are cleared. If any seat was updated while
+-- the rebuild was reading Postgres, the booked seats may be out of date and
+-- nothing is written.
+-- Returns 1 if the bitmap was built, 0 if another caller already built it,
+-- -1 if seats were updated since the write count was read.
+
+if redis.call('GETBIT', KEYS[1], 0) == 1 then
+    return 0
+end
+
+if tonumber(redis.call('GET', KEYS[2]) or '0') ~= tonumber(ARGV[2]) then
+    return -1
+end
+
+redis.call('DEL', KEYS[1])
+for i = 3, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+end
+redis.call('SETBIT', KEYS[1], 0, 1)
+redis.call('EXPIRE', KEYS[1], ARGV[1])
+
+return 1
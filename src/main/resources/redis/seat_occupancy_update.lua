@@ -0,0 +1,20 @@
+-- Set or clear seat bits in a trip occupancy bitmap.
+--
+-- KEYS[1]    seat_occupancy:{tripId}
+-- KEYS[2]    seat_occupancy_writes:{tripId}
+-- ARGV[1]    bit value (1 = booked, 0 = available)
+-- ARGV[2]    bitmap TTL in seconds
+-- ARGV[3..n] bit offsets of the seats to update
+--
+-- Bits are written even when the bitmap has not been built yet, and the write
+-- count is bumped so a rebuild racing with the update retries instead of
+-- overwriting it.
+
+for i = 3, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], ARGV[1])
+end
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+redis.call('INCR', KEYS[2])
+redis.call('EXPIRE', KEYS[2], ARGV[2])
+
+return 1
@@ -0,0 +1,93 @@
+package com.busticket.event;
+
+import com.busticket.dto.SeatDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisSeatEventRelayTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private SeatEventBroadcaster broadcaster;
+
+    @Mock
+    private RedisSerializer<Object> valueSerializer;
+
+    private RedisSeatEventRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new RedisSeatEventRelay(redisTemplate, listenerContainer, broadcaster);
+    }
+
+    @Test
+    void constructor_ShouldSubscribeOncePerNode() {
+        // Then
+        verify(listenerContainer).addMessageListener(relay, new ChannelTopic(RedisSeatEventRelay.CHANNEL));
+    }
+
+    @Test
+    void onSeatEvent_ShouldPublishLocalChanges() {
+        // When
+        relay.onSeatEvent(new SeatLockedEvent("trip-1", List.of("A1"), "lock-1", LocalDateTime.now()));
+
+        // Then
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate).convertAndSend(eq(RedisSeatEventRelay.CHANNEL), message.capture());
+        RedisSeatEventRelay.RelayedDelta relayed = (RedisSeatEventRelay.RelayedDelta) message.getValue();
+        assertEquals("LOCKED", relayed.getDelta().getStatus());
+    }
+
+    @Test
+    void onSeatEvent_ShouldNotRelayExpiries() {
+        // When
+        relay.onSeatEvent(new SeatReleasedEvent("trip-1", List.of("A1"), null, SeatReleasedEvent.Reason.EXPIRED));
+
+        // Then
+        verify(redisTemplate, never()).convertAndSend(anyString(), any());
+    }
+
+    @Test
+    void onMessage_ShouldBroadcastOnlyOtherNodesChanges() {
+        // Given
+        relay.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A1"), "booking-1"));
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate).convertAndSend(eq(RedisSeatEventRelay.CHANNEL), sent.capture());
+        RedisSeatEventRelay.RelayedDelta own = (RedisSeatEventRelay.RelayedDelta) sent.getValue();
+        SeatDelta remoteDelta = new SeatDelta("trip-1", List.of("B1"), "LOCKED", null);
+        RedisSeatEventRelay.RelayedDelta remote = new RedisSeatEventRelay.RelayedDelta("other-node", remoteDelta);
+
+        doReturn(valueSerializer).when(redisTemplate).getValueSerializer();
+        when(valueSerializer.deserialize(any())).thenReturn(own, remote);
+
+        // When
+        relay.onMessage(new DefaultMessage(new byte[0], new byte[0]), null);
+        relay.onMessage(new DefaultMessage(new byte[0], new byte[0]), null);
+
+        // Then
+        verify(broadcaster, times(1)).broadcast(any());
+        verify(broadcaster).broadcast(remoteDelta);
+    }
+}
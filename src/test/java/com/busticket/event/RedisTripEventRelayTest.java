@@ -0,0 +1,73 @@
+package com.busticket.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisTripEventRelayTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private RedisSerializer<Object> valueSerializer;
+
+    private RedisTripEventRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new RedisTripEventRelay(redisTemplate, listenerContainer, eventPublisher);
+    }
+
+    @Test
+    void onTripChanged_ShouldNotRelayChangesFromOtherNodes() {
+        // When
+        relay.onTripChanged(new TripChangedEvent("trip-1", true));
+
+        // Then
+        verify(redisTemplate, never()).convertAndSend(anyString(), any());
+    }
+
+    @Test
+    void onMessage_ShouldRepublishOnlyOtherNodesChanges() {
+        // Given
+        relay.onTripChanged(new TripChangedEvent("trip-1"));
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate).convertAndSend(eq(RedisTripEventRelay.CHANNEL), sent.capture());
+        RedisTripEventRelay.RelayedTripChange own = (RedisTripEventRelay.RelayedTripChange) sent.getValue();
+        RedisTripEventRelay.RelayedTripChange remote = new RedisTripEventRelay.RelayedTripChange("other-node", "trip-2");
+
+        doReturn(valueSerializer).when(redisTemplate).getValueSerializer();
+        when(valueSerializer.deserialize(any())).thenReturn(own, remote);
+
+        // When
+        relay.onMessage(new DefaultMessage(new byte[0], new byte[0]), null);
+        relay.onMessage(new DefaultMessage(new byte[0], new byte[0]), null);
+
+        // Then
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(1)).publishEvent(published.capture());
+        TripChangedEvent relayed = (TripChangedEvent) published.getValue();
+        assertEquals("trip-2", relayed.getTripId());
+        assertTrue(relayed.isFromOtherNode());
+    }
+}
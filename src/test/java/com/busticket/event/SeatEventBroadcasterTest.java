@@ -0,0 +1,192 @@
+package com.busticket.event;
+
+import com.busticket.dto.SeatDelta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatEventBroadcasterTest {
+
+    private SeatEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        // 2 dispatcher threads, 3 queued events per client, writes blocked for 100ms time out
+        broadcaster = new SeatEventBroadcaster(new ObjectMapper(), 2, 3, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void toDelta_ShouldMapLockedEventWithExpiry() {
+        // Given
+        LocalDateTime expiresAt = LocalDateTime.of(2024, 1, 1, 10, 10);
+
+        // When
+        SeatDelta delta = SeatEventBroadcaster.toDelta(
+                new SeatLockedEvent("trip-1", List.of("A1", "A2"), "lock-1", expiresAt));
+
+        // Then
+        assertEquals("trip-1", delta.getTripId());
+        assertEquals(List.of("A1", "A2"), delta.getSeatNumbers());
+        assertEquals("LOCKED", delta.getStatus());
+        assertEquals(expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), delta.getExpiresAt());
+    }
+
+    @Test
+    void toDelta_ShouldMapBookedAndReleasedEvents() {
+        // When
+        SeatDelta booked = SeatEventBroadcaster.toDelta(new SeatBookedEvent("trip-1", List.of("A1"), "booking-1"));
+        SeatDelta released = SeatEventBroadcaster.toDelta(
+                new SeatReleasedEvent("trip-1", List.of("A1"), null, SeatReleasedEvent.Reason.EXPIRED));
+
+        // Then
+        assertEquals("BOOKED", booked.getStatus());
+        assertNull(booked.getExpiresAt());
+        assertEquals("AVAILABLE", released.getStatus());
+    }
+
+    @Test
+    void subscribe_ShouldShareOneChannelPerTrip() {
+        // When
+        broadcaster.subscribe("trip-1");
+        broadcaster.subscribe("trip-1");
+        broadcaster.subscribe("trip-2");
+
+        // Then
+        assertEquals(2, broadcaster.getSubscriberCount("trip-1"));
+        assertEquals(1, broadcaster.getSubscriberCount("trip-2"));
+        assertEquals(0, broadcaster.getSubscriberCount("trip-3"));
+    }
+
+    @Test
+    void broadcast_WithoutSubscribers_ShouldDoNothing() {
+        // When & Then
+        assertDoesNotThrow(() -> broadcaster.onSeatEvent(
+                new SeatBookedEvent("trip-1", List.of("A1"), "booking-1")));
+    }
+
+    @Test
+    void broadcast_WithStuckClient_ShouldStillReachOthers() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stuck = new RecordingEmitter(release);
+        RecordingEmitter healthy = new RecordingEmitter(null);
+        broadcaster.subscribe("trip-1", stuck);
+        broadcaster.subscribe("trip-1", healthy);
+
+        // When
+        broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A1"), "booking-1"));
+        broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A2"), "booking-2"));
+
+        // Then
+        assertTrue(stuck.sending.await(5, TimeUnit.SECONDS));
+        assertNotNull(healthy.sent.poll(1, TimeUnit.SECONDS));
+        assertNotNull(healthy.sent.poll(1, TimeUnit.SECONDS));
+        assertTrue(stuck.sent.isEmpty());
+        release.countDown();
+    }
+
+    @Test
+    void broadcast_WhenClientFallsQueueBehind_ShouldDisconnectIt() throws Exception {
+        // Given: the first event blocks the client, the next three fill its queue
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        broadcaster.subscribe("trip-1", slow);
+        broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A1"), "booking-1"));
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A2"), "booking-2"));
+        }
+        assertEquals(1, broadcaster.getSubscriberCount("trip-1"));
+
+        // When
+        broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A3"), "booking-3"));
+
+        // Then
+        assertEquals(0, broadcaster.getSubscriberCount("trip-1"));
+        release.countDown();
+    }
+
+    @Test
+    void sendHeartbeat_WhenClientWriteBlockedPastTimeout_ShouldDisconnectIt() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stuck = new RecordingEmitter(release);
+        broadcaster.subscribe("trip-1", stuck);
+        broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A1"), "booking-1"));
+        assertTrue(stuck.sending.await(5, TimeUnit.SECONDS));
+        Thread.sleep(150);
+
+        // When
+        broadcaster.sendHeartbeat();
+
+        // Then
+        assertEquals(0, broadcaster.getSubscriberCount("trip-1"));
+        release.countDown();
+    }
+
+    @Test
+    void broadcast_WhenClientGone_ShouldUnsubscribeIt() throws Exception {
+        // Given
+        RecordingEmitter gone = new RecordingEmitter(null);
+        gone.fail = true;
+        broadcaster.subscribe("trip-1", gone);
+
+        // When
+        broadcaster.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A1"), "booking-1"));
+
+        // Then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (broadcaster.getSubscriberCount("trip-1") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, broadcaster.getSubscriberCount("trip-1"));
+    }
+
+    /**
+     * Records what it is sent, optionally blocking every write until released.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release;
+        volatile boolean fail;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(builder);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.busticket.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeatHoldExpiryListenerTest {
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SeatHoldExpiryListener listener;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        listener = new SeatHoldExpiryListener(listenerContainer, redisTemplate, eventPublisher);
+    }
+
+    @Test
+    void seatLockExpiry_ShouldPublishSeatReleasedEvent() {
+        // When
+        listener.doHandleMessage(expired("seat_lock:trip-1:A1"));
+
+        // Then
+        verify(eventPublisher).publishEvent(argThat((Object event) -> {
+            if (!(event instanceof SeatReleasedEvent released)) {
+                return false;
+            }
+            assertEquals("trip-1", released.getTripId());
+            assertEquals(List.of("A1"), released.getSeatNumbers());
+            assertEquals(SeatReleasedEvent.Reason.EXPIRED, released.getReason());
+            return true;
+        }));
+    }
+
+    @Test
+    void seatLockExpiry_ShouldBeRecordedOnlyByClaimingNode() {
+        // Given
+        when(valueOperations.setIfAbsent(eq("seat_lock_expired:trip-1:A1"), any(), anyLong(), eq(TimeUnit.MINUTES)))
+                .thenReturn(true, false);
+
+        // When - two nodes see the same notification
+        listener.doHandleMessage(expired("seat_lock:trip-1:A1"));
+        listener.doHandleMessage(expired("seat_lock:trip-1:A1"));
+
+        // Then - both push the release to their clients, only one records it
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent released
+                && released.shouldRecordChange()));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent released
+                && !released.shouldRecordChange()));
+    }
+
+    @Test
+    void lockExpiry_ShouldPublishHoldExpiredOnlyOnce() {
+        // Given
+        when(valueOperations.setIfAbsent(eq("lock_expired:lock-123"), any(), anyLong(), eq(TimeUnit.MINUTES)))
+                .thenReturn(true, false);
+
+        // When - two nodes see the same notification
+        listener.doHandleMessage(expired("lock:lock-123"));
+        listener.doHandleMessage(expired("lock:lock-123"));
+
+        // Then
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof SeatHoldExpiredEvent expired
+                && expired.getLockId().equals("lock-123")));
+    }
+
+    @Test
+    void unrelatedKeyExpiry_ShouldBeIgnored() {
+        // When
+        listener.doHandleMessage(expired("lock_booking:lock-123"));
+        listener.doHandleMessage(expired("payment_session:abc"));
+
+        // Then
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static Message expired(String key) {
+        return new DefaultMessage("__keyevent@0__:expired".getBytes(StandardCharsets.UTF_8),
+                key.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package com.busticket.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that trip search predicates can be answered by index range scans.
+ *
+ * Needs a scratch PostgreSQL database, which is migrated with Flyway:
+ * set TRIP_SEARCH_PLAN_DB_URL (and TRIP_SEARCH_PLAN_DB_USER / TRIP_SEARCH_PLAN_DB_PASSWORD).
+ * Sequential scans are disabled so the plan shows whether an index is usable at all,
+ * independent of how many rows the database holds.
+ */
+@EnabledIfEnvironmentVariable(named = "TRIP_SEARCH_PLAN_DB_URL", matches = ".+")
+class TripSearchPlanTest {
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        String url = System.getenv("TRIP_SEARCH_PLAN_DB_URL");
+        String user = System.getenv().getOrDefault("TRIP_SEARCH_PLAN_DB_USER", "postgres");
+        String password = System.getenv().getOrDefault("TRIP_SEARCH_PLAN_DB_PASSWORD", "");
+
+        Flyway.configure()
+                .dataSource(url, user, password)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        connection = DriverManager.getConnection(url, user, password);
+        connection.setAutoCommit(false);
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @BeforeEach
+    void disableSequentialScans() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL enable_seqscan = off");
+        }
+    }
+
+    @Test
+    void searchByRoutesAndDay_ShouldRangeScanOpenTripsIndex() throws Exception {
+        // When
+        String plan = explain("SELECT t.id, t.price FROM trips t " +
+                "WHERE t.route_id IN (?, ?) " +
+                "AND t.departure_time >= ? AND t.departure_time < ? " +
+                "AND t.departure_time > CURRENT_TIMESTAMP " +
+                "AND t.is_open = true", "route-1", "route-2", dayStart(), nextDayStart());
+
+        // Then
+        assertTrue(plan.contains("idx_trips_open_route_departure"), plan);
+        assertTrue(plan.matches("(?s).*Index Cond: .*departure_time >= .*"), plan);
+    }
+
+    @Test
+    void dateFunctionPredicate_ShouldNotBeUsableAsIndexCondition() throws Exception {
+        // When: the old DATE(departure_time) form
+        String plan = explain("SELECT t.id FROM trips t " +
+                "WHERE t.route_id = ? AND DATE(t.departure_time) = ? AND t.is_open = true",
+                "route-1", java.sql.Date.valueOf(LocalDate.now().plusDays(1)));
+
+        // Then
+        assertFalse(plan.matches("(?s).*Index Cond: .*departure_time.*"), plan);
+    }
+
+    @Test
+    void confirmedSeatCount_ShouldUsePartialBookingIndex() throws Exception {
+        // When
+        String plan = explain("SELECT bk.trip_id, COUNT(*) FROM bookings bk " +
+                "WHERE bk.trip_id IN (?, ?) AND bk.status = 'CONFIRMED' GROUP BY bk.trip_id",
+                "trip-1", "trip-2");
+
+        // Then
+        assertTrue(plan.contains("idx_bookings_trip_confirmed"), plan);
+    }
+
+    private static String explain(String sql, Object... params) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private static Timestamp dayStart() {
+        return Timestamp.valueOf(LocalDate.now().plusDays(1).atStartOfDay());
+    }
+
+    private static Timestamp nextDayStart() {
+        return Timestamp.valueOf(LocalDate.now().plusDays(2).atStartOfDay());
+    }
+}
@@ -3,6 +3,8 @@ package com.busticket.service;
 import com.busticket.dto.BookingRequest;
 import com.busticket.dto.BookingResponse;
 import com.busticket.dto.PassengerInfo;
+import com.busticket.event.SeatHoldExpiredEvent;
+import com.busticket.event.SeatReleasedEvent;
 import com.busticket.model.Booking;
 import com.busticket.model.BookingStatus;
 import com.busticket.model.Trip;
@@ -15,14 +17,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -43,22 +48,35 @@ class BookingServiceTest {
     @Mock
     private SeatLockManager seatLockManager;
 
+    @Mock
+    private SeatOccupancyService seatOccupancyService;
+
     @Mock
     private RedisTemplate<String, Object> redisTemplate;
 
     @Mock
     private ValueOperations<String, Object> valueOperations;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private BookingService bookingService;
 
     private Trip mockTrip;
     private BookingRequest mockBookingRequest;
     private List<PassengerInfo> mockPassengers;
+    private SeatLockManager.LockInfo mockLockInfo;
 
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
 
         mockTrip = new Trip();
         mockTrip.setId("trip-1");
@@ -86,14 +104,16 @@ class BookingServiceTest {
         mockBookingRequest.setPassengers(mockPassengers);
         mockBookingRequest.setUserId("user-1");
         mockBookingRequest.setLockId("lock-123");
+
+        mockLockInfo = new SeatLockManager.LockInfo("lock-123", "trip-1", Arrays.asList("A1", "A2"),
+                "user-1", LocalDateTime.now().plusMinutes(10));
+        mockLockInfo.setFencingToken(7L);
     }
 
     @Test
     void createBooking_ShouldSucceedWithValidRequest() {
         // Given
-        when(valueOperations.get("lock:lock-123")).thenReturn("valid-lock");
-        when(seatLockManager.isLocked("trip-1", "A1")).thenReturn(true);
-        when(seatLockManager.isLocked("trip-1", "A2")).thenReturn(true);
+        when(seatLockManager.verifyHold("lock-123", "trip-1", Arrays.asList("A1", "A2"))).thenReturn(mockLockInfo);
         when(tripRepository.findById("trip-1")).thenReturn(Optional.of(mockTrip));
         when(bookingRepository.existsByPnr(anyString())).thenReturn(false);
 
@@ -110,6 +130,7 @@ class BookingServiceTest {
         savedBooking.setCreatedAt(LocalDateTime.now());
 
         when(bookingRepository.save(any(Booking.class))).thenReturn(savedBooking);
+        when(bookingRepository.fenceSeats(eq("trip-1"), eq("A1,A2"), eq(7L), anyString())).thenReturn(2);
 
         // When
         BookingResponse response = bookingService.createBooking(mockBookingRequest);
@@ -127,13 +148,28 @@ class BookingServiceTest {
         assertEquals("PENDING", response.getStatus());
 
         verify(bookingRepository).save(any(Booking.class));
-        verify(valueOperations).set(eq("lock_booking:lock-123"), anyString(), eq(15L), any());
+        verify(valueOperations).set(eq("lock_booking:lock-123"), anyString(), eq(24L), eq(TimeUnit.HOURS));
     }
 
     @Test
     void createBooking_ShouldFailWithExpiredLock() {
         // Given
-        when(valueOperations.get("lock:lock-123")).thenReturn(null);
+        when(seatLockManager.verifyHold("lock-123", "trip-1", Arrays.asList("A1", "A2"))).thenReturn(null);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> {
+            bookingService.createBooking(mockBookingRequest);
+        });
+
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void createBooking_ShouldFailWhenNewerLockFencedASeat() {
+        // Given
+        when(seatLockManager.verifyHold("lock-123", "trip-1", Arrays.asList("A1", "A2"))).thenReturn(mockLockInfo);
+        when(tripRepository.findById("trip-1")).thenReturn(Optional.of(mockTrip));
+        when(bookingRepository.fenceSeats(eq("trip-1"), eq("A1,A2"), eq(7L), anyString())).thenReturn(1);
 
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
@@ -146,9 +182,7 @@ class BookingServiceTest {
     @Test
     void createBooking_ShouldFailWithMismatchedPassengerCount() {
         // Given
-        when(valueOperations.get("lock:lock-123")).thenReturn("valid-lock");
-        when(seatLockManager.isLocked("trip-1", "A1")).thenReturn(true);
-        when(seatLockManager.isLocked("trip-1", "A2")).thenReturn(true);
+        when(seatLockManager.verifyHold("lock-123", "trip-1", Arrays.asList("A1", "A2"))).thenReturn(mockLockInfo);
 
         // Remove one passenger to create mismatch
         mockBookingRequest.setPassengers(Arrays.asList(mockPassengers.get(0)));
@@ -164,9 +198,7 @@ class BookingServiceTest {
     @Test
     void createBooking_ShouldFailWithInvalidTrip() {
         // Given
-        when(valueOperations.get("lock:lock-123")).thenReturn("valid-lock");
-        when(seatLockManager.isLocked("trip-1", "A1")).thenReturn(true);
-        when(seatLockManager.isLocked("trip-1", "A2")).thenReturn(true);
+        when(seatLockManager.verifyHold("lock-123", "trip-1", Arrays.asList("A1", "A2"))).thenReturn(mockLockInfo);
         when(tripRepository.findById("trip-1")).thenReturn(Optional.empty());
 
         // When & Then
@@ -213,6 +245,71 @@ class BookingServiceTest {
         verify(bookingRepository).save(any(Booking.class));
     }
 
+    @Test
+    void confirmBooking_ShouldTakeSeatsOffTripCounter() {
+        // Given
+        Booking booking = new Booking();
+        booking.setId("booking-1");
+        booking.setPnr("ABC1234567");
+        booking.setTripId("trip-1");
+        booking.setSeatNumbers("[\"A1\", \"A2\"]");
+        booking.setStatus(BookingStatus.PENDING);
+        booking.setTotalAmount(new BigDecimal("1230.00"));
+
+        when(bookingRepository.findById("booking-1")).thenReturn(Optional.of(booking));
+        when(tripRepository.findById("trip-1")).thenReturn(Optional.of(mockTrip));
+
+        // When
+        bookingService.confirmBooking("booking-1", "payment-1");
+
+        // Then
+        verify(tripRepository).decrementAvailableSeats("trip-1", 2);
+    }
+
+    @Test
+    void confirmBooking_ShouldMarkFencedSeatsSold() {
+        // Given
+        Booking booking = new Booking();
+        booking.setId("booking-1");
+        booking.setPnr("ABC1234567");
+        booking.setTripId("trip-1");
+        booking.setSeatNumbers("A1,A2");
+        booking.setFencingToken(7L);
+        booking.setStatus(BookingStatus.PENDING);
+        booking.setTotalAmount(new BigDecimal("1230.00"));
+
+        when(bookingRepository.findById("booking-1")).thenReturn(Optional.of(booking));
+        when(bookingRepository.confirmFencedSeats("booking-1")).thenReturn(2);
+        when(tripRepository.findById("trip-1")).thenReturn(Optional.of(mockTrip));
+
+        // When
+        bookingService.confirmBooking("booking-1", "payment-1");
+
+        // Then
+        assertEquals(BookingStatus.CONFIRMED, booking.getStatus());
+        verify(tripRepository).decrementAvailableSeats("trip-1", 2);
+    }
+
+    @Test
+    void confirmBooking_WhenNewerHoldFencedASeat_ShouldFail() {
+        // Given
+        Booking booking = new Booking();
+        booking.setId("booking-1");
+        booking.setTripId("trip-1");
+        booking.setSeatNumbers("A1,A2");
+        booking.setFencingToken(7L);
+        booking.setStatus(BookingStatus.PENDING);
+
+        when(bookingRepository.findById("booking-1")).thenReturn(Optional.of(booking));
+        when(bookingRepository.confirmFencedSeats("booking-1")).thenReturn(1);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> bookingService.confirmBooking("booking-1", "payment-1"));
+
+        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(tripRepository, never()).decrementAvailableSeats(anyString(), anyInt());
+    }
+
     @Test
     void confirmBooking_ShouldFailForNonPendingBooking() {
         // Given
@@ -228,6 +325,7 @@ class BookingServiceTest {
         });
 
         verify(bookingRepository, never()).save(any(Booking.class));
+        verify(tripRepository, never()).decrementAvailableSeats(anyString(), anyInt());
     }
 
     @Test
@@ -249,6 +347,57 @@ class BookingServiceTest {
 
         // Then
         verify(bookingRepository).save(any(Booking.class));
+        verify(tripRepository, never()).incrementAvailableSeats(anyString(), anyInt());
+    }
+
+    @Test
+    void cancelBooking_ShouldFreeSeatsOfConfirmedBooking() {
+        // Given
+        Booking booking = new Booking();
+        booking.setId("booking-1");
+        booking.setPnr("ABC1234567");
+        booking.setTripId("trip-1");
+        booking.setUserId("user-1");
+        booking.setSeatNumbers("[\"A1\", \"A2\"]");
+        booking.setStatus(BookingStatus.CONFIRMED);
+
+        when(bookingRepository.findById("booking-1")).thenReturn(Optional.of(booking));
+
+        // When
+        bookingService.cancelBooking("booking-1", "user-1");
+
+        // Then
+        verify(tripRepository).incrementAvailableSeats("trip-1", 2);
+        verify(bookingRepository).releaseFencedSeats("booking-1");
+        verify(seatOccupancyService).markAvailable("trip-1", Arrays.asList("A1", "A2"));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent released
+                && released.getReason() == SeatReleasedEvent.Reason.CANCELLED
+                && released.getSeatNumbers().equals(Arrays.asList("A1", "A2"))));
+    }
+
+    @Test
+    void releaseCancelledBookings_ShouldReleaseHoldsAndFreeConfirmedSeats() {
+        // Given
+        Booking pending = new Booking();
+        pending.setId("booking-1");
+        pending.setStatus(BookingStatus.PENDING);
+        pending.setSeatNumbers("[\"A1\"]");
+        Booking confirmed = new Booking();
+        confirmed.setId("booking-2");
+        confirmed.setStatus(BookingStatus.CONFIRMED);
+        confirmed.setSeatNumbers("[\"B1\", \"B2\"]");
+        when(valueOperations.get("booking_lock:booking-1")).thenReturn("lock-123");
+
+        // When
+        bookingService.releaseCancelledBookings("trip-1", List.of(pending, confirmed));
+
+        // Then
+        verify(seatLockManager).releaseLock("lock-123");
+        verify(redisTemplate).delete(List.of("lock_booking:lock-123", "booking_lock:booking-1"));
+        verify(seatOccupancyService).markAvailable("trip-1", List.of("B1", "B2"));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent released
+                && released.getReason() == SeatReleasedEvent.Reason.CANCELLED
+                && released.getSeatNumbers().equals(List.of("B1", "B2"))));
     }
 
     @Test
@@ -356,4 +505,30 @@ class BookingServiceTest {
         assertEquals("booking-1", responses.get(0).getId());
         assertEquals("booking-2", responses.get(1).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void onSeatHoldExpired_ShouldExpirePendingBookingOfLock() {
+        // Given
+        when(valueOperations.get("lock_booking:lock-123")).thenReturn("booking-1");
+        when(bookingRepository.expirePendingBooking(eq("booking-1"), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        bookingService.onSeatHoldExpired(new SeatHoldExpiredEvent("lock-123"));
+
+        // Then
+        verify(bookingRepository).expirePendingBooking(eq("booking-1"), any(LocalDateTime.class));
+        verify(redisTemplate).delete(List.of("lock_booking:lock-123", "booking_lock:booking-1"));
+    }
+
+    @Test
+    void onSeatHoldExpired_WithoutBooking_ShouldDoNothing() {
+        // Given
+        when(valueOperations.get("lock_booking:lock-123")).thenReturn(null);
+
+        // When
+        bookingService.onSeatHoldExpired(new SeatHoldExpiredEvent("lock-123"));
+
+        // Then
+        verify(bookingRepository, never()).expirePendingBooking(anyString(), any());
+    }
+}
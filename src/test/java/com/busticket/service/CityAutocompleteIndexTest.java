@@ -0,0 +1,176 @@
+package com.busticket.service;
+
+import com.busticket.dto.CityMatch;
+import com.busticket.dto.CitySuggestion;
+import com.busticket.repository.CityAliasRow;
+import com.busticket.repository.CityPopularityRow;
+import com.busticket.repository.CityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CityAutocompleteIndexTest {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    @Mock
+    private CityRepository cityRepository;
+
+    private CityAutocompleteIndex cityAutocompleteIndex;
+
+    @BeforeEach
+    void setUp() {
+        cityAutocompleteIndex = new CityAutocompleteIndex(cityRepository, 2, 0.75);
+    }
+
+    @Test
+    void suggest_BeforeLoad_ShouldReturnNothing() {
+        assertTrue(cityAutocompleteIndex.suggest("Mu").isEmpty());
+    }
+
+    @Test
+    void suggest_ShouldRankByPopularityThenName() {
+        // Given
+        load();
+
+        // When / Then
+        assertEquals(List.of("Mumbai", "Mysore"), names("M"));
+        assertEquals(List.of("Mumbai", "Mumbai Bandra"), names("mu"));
+        assertEquals(List.of("Mumbai Bandra"), names("MUMBAI B"));
+        assertEquals(List.of(), names("Mx"));
+    }
+
+    @Test
+    void suggest_ShouldIncludeState() {
+        // Given
+        load();
+
+        // When
+        CitySuggestion suggestion = cityAutocompleteIndex.suggest("del").orElseThrow().get(0);
+
+        // Then
+        assertEquals("Delhi", suggestion.getName());
+        assertEquals("Delhi NCR", suggestion.getState());
+    }
+
+    @Test
+    void suggest_ShouldFollowAliasesAndIgnoreAccents() {
+        // Given
+        load();
+
+        // When / Then
+        assertEquals(List.of("Mumbai"), names("bomb"));
+        assertEquals(List.of("Mumbai", "Mumbai Bandra"), names("  MUMBAI"));
+        assertEquals(List.of("Delhi"), names("Dèlhi"));
+    }
+
+    @Test
+    void suggest_WithMisspelledName_ShouldFallBackToClosestCities() {
+        // Given
+        load();
+
+        // When / Then
+        assertEquals(List.of("Mysore"), names("Mysroe"));
+        assertEquals(List.of(), names("Mx"));
+    }
+
+    @Test
+    void match_ShouldScoreClosestCitiesFirst() {
+        // Given
+        load();
+
+        // When
+        List<CityMatch> matches = cityAutocompleteIndex.match("Meerat").orElseThrow();
+
+        // Then
+        assertEquals(1, matches.size());
+        assertEquals("Meerut", matches.get(0).getName());
+        assertEquals(1.0 - 1.0 / 6, matches.get(0).getScore(), 1e-9);
+        assertEquals(1.0, cityAutocompleteIndex.match("Bombay").orElseThrow().get(0).getScore());
+    }
+
+    @Test
+    void resolve_ShouldReturnCanonicalNameOfConfidentMatch() {
+        // Given
+        load();
+
+        // When / Then
+        assertEquals(Optional.of("Mumbai"), cityAutocompleteIndex.resolve("Mumbai "));
+        assertEquals(Optional.of("Mumbai"), cityAutocompleteIndex.resolve("bombay"));
+        assertEquals(Optional.of("Mumbai Bandra"), cityAutocompleteIndex.resolve("mumbai-bandra"));
+        assertEquals(Optional.of("Delhi"), cityAutocompleteIndex.resolve("Delhii"));
+        assertEquals(Optional.empty(), cityAutocompleteIndex.resolve("Goa"));
+    }
+
+    @Test
+    void resolve_WhenTwoCitiesMatchEqually_ShouldNotGuess() {
+        // Given
+        when(cityRepository.findAllWithPopularity()).thenReturn(List.of(
+                city("Rampur", "Uttar Pradesh", 3L),
+                city("Raipur", "Chhattisgarh", 8L)));
+        cityAutocompleteIndex.reload();
+
+        // When / Then
+        assertEquals(Optional.empty(), cityAutocompleteIndex.resolve("Ranpur"));
+        assertEquals(Optional.of("Raipur"), cityAutocompleteIndex.resolve("raipur"));
+    }
+
+    @Test
+    void resolve_BeforeLoad_ShouldReturnNothing() {
+        assertTrue(cityAutocompleteIndex.resolve("Mumbai").isEmpty());
+        assertTrue(cityAutocompleteIndex.match("Mumbai").isEmpty());
+    }
+
+    @Test
+    void reload_ShouldReplaceIndexedCities() {
+        // Given
+        load();
+        when(cityRepository.findAllWithPopularity()).thenReturn(List.of(city("Madurai", "Tamil Nadu", 50L)));
+
+        // When
+        cityAutocompleteIndex.reload();
+
+        // Then
+        assertEquals(List.of("Madurai"), names("m"));
+        assertEquals(1, cityAutocompleteIndex.size());
+    }
+
+    private void load() {
+        when(cityRepository.findAllWithPopularity()).thenReturn(List.of(
+                city("Mumbai Bandra", "Maharashtra", 2L),
+                city("Mysore", "Karnataka", 5L),
+                city("Mumbai", "Maharashtra", 9L),
+                city("Meerut", "Uttar Pradesh", 2L),
+                city("Delhi", "Delhi NCR", 12L)));
+        when(cityRepository.findAllAliases()).thenReturn(List.of(alias("Bombay", "city-mumbai")));
+        cityAutocompleteIndex.reload();
+    }
+
+    private List<String> names(String prefix) {
+        return cityAutocompleteIndex.suggest(prefix).orElseThrow().stream()
+                .map(CitySuggestion::getName)
+                .collect(Collectors.toList());
+    }
+
+    private CityAliasRow alias(String alias, String cityId) {
+        return PROJECTIONS.createProjection(CityAliasRow.class, Map.of("alias", alias, "cityId", cityId));
+    }
+
+    private CityPopularityRow city(String name, String state, Long popularity) {
+        return PROJECTIONS.createProjection(CityPopularityRow.class,
+                Map.of("id", "city-" + name.toLowerCase(), "name", name, "state", state, "popularity", popularity));
+    }
+}
@@ -0,0 +1,180 @@
+package com.busticket.service;
+
+import com.busticket.dto.ItineraryResponse;
+import com.busticket.dto.TripResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.event.SeatBookedEvent;
+import com.busticket.event.TripChangedEvent;
+import com.busticket.model.BusType;
+import com.busticket.repository.TripIndexRow;
+import com.busticket.repository.TripRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionSearchServiceTest {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    @Mock
+    private TripRepository tripRepository;
+
+    private ConnectionSearchService connectionSearchService;
+
+    @BeforeEach
+    void setUp() {
+        connectionSearchService = new ConnectionSearchService(tripRepository, new ObjectMapper(), 30, 2, 30, 720, 0);
+
+        // Mumbai -> Pune -> Delhi, a slow direct bus, and a full bus via Surat
+        when(tripRepository.findTripIndexRows(any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(List.of(
+                trip("direct", "mumbai", "delhi", 7, 0, 23, 0, "1500.00", 10),
+                trip("to-pune", "mumbai", "pune", 8, 0, 11, 0, "300.00", 10),
+                trip("tight", "pune", "delhi", 11, 20, 18, 0, "100.00", 10),
+                trip("slow", "pune", "delhi", 12, 0, 20, 0, "500.00", 10),
+                trip("quick", "pune", "delhi", 13, 0, 19, 0, "900.00", 10),
+                trip("back", "pune", "mumbai", 12, 0, 15, 0, "100.00", 10),
+                trip("to-surat", "mumbai", "surat", 6, 0, 9, 0, "200.00", 10),
+                trip("full", "surat", "delhi", 10, 0, 17, 0, "200.00", 0)));
+        connectionSearchService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionSearchService.shutdown();
+    }
+
+    @Test
+    void searchConnections_ShouldFindEarliestArrivalPerTransferCount() {
+        // When
+        List<ItineraryResponse> result = connectionSearchService.searchConnections(request(null));
+
+        // Then: the tight and full connections are not offered
+        assertEquals(List.of(List.of("to-pune", "quick"), List.of("direct")), legs(result));
+        ItineraryResponse best = result.get(0);
+        assertEquals(1, best.getTransfers());
+        assertEquals(new BigDecimal("1200.00"), best.getTotalPrice());
+        assertEquals(TOMORROW.atTime(8, 0), best.getDepartureTime());
+        assertEquals(TOMORROW.atTime(19, 0), best.getArrivalTime());
+        assertEquals(660L, best.getDurationMinutes());
+        assertEquals("Pune", best.getLegs().get(0).getDestinationCity());
+    }
+
+    @Test
+    void searchConnections_ShouldFindCheapestItinerary() {
+        // When
+        List<ItineraryResponse> result = connectionSearchService.searchConnections(request("CHEAPEST"));
+
+        // Then
+        assertEquals(List.of(List.of("to-pune", "slow"), List.of("direct")), legs(result));
+        assertEquals(new BigDecimal("800.00"), result.get(0).getTotalPrice());
+    }
+
+    @Test
+    void searchConnections_ShouldRespectTransferLimit() {
+        // When
+        List<ItineraryResponse> result = connectionSearchService.searchConnections(request(null), 0);
+
+        // Then
+        assertEquals(List.of(List.of("direct")), legs(result));
+        assertThrows(IllegalArgumentException.class,
+                () -> connectionSearchService.searchConnections(request(null), 3));
+    }
+
+    @Test
+    void searchConnections_ShouldSkipLegsWithoutEnoughSeats() {
+        // Given
+        connectionSearchService.onSeatEvent(new SeatBookedEvent("quick",
+                Collections.nCopies(10, "A1"), "booking-1"));
+
+        // When
+        List<ItineraryResponse> result = connectionSearchService.searchConnections(request(null));
+
+        // Then
+        assertEquals(List.of(List.of("to-pune", "slow"), List.of("direct")), legs(result));
+    }
+
+    @Test
+    void searchConnections_OutsideSearchableDays_ShouldReturnNothing() {
+        // When
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(30));
+
+        // Then
+        assertTrue(connectionSearchService.searchConnections(request).isEmpty());
+    }
+
+    @Test
+    void onTripChanged_ShouldCoalesceChangesIntoOneRebuild() {
+        // Given
+        ConnectionSearchService delayed = new ConnectionSearchService(tripRepository, new ObjectMapper(),
+                30, 2, 30, 720, 100);
+        delayed.rebuild();
+
+        try {
+            // When
+            delayed.onTripChanged(new TripChangedEvent("slow"));
+            delayed.onTripChanged(new TripChangedEvent("quick"));
+            delayed.onTripChanged(new TripChangedEvent("direct"));
+
+            // Then: one build each from setUp and this test, plus one for all three changes
+            verify(tripRepository, after(500).times(3))
+                    .findTripIndexRows(any(LocalDateTime.class), any(LocalDateTime.class));
+        } finally {
+            delayed.shutdown();
+        }
+    }
+
+    private TripSearchRequest request(String sortBy) {
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", TOMORROW);
+        request.setSortBy(sortBy);
+        return request;
+    }
+
+    private List<List<String>> legs(List<ItineraryResponse> itineraries) {
+        return itineraries.stream()
+                .map(itinerary -> itinerary.getLegs().stream().map(TripResponse::getId).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    private TripIndexRow trip(String id, String from, String to, int departHour, int departMinute,
+            int arriveHour, int arriveMinute, String price, int availableSeats) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("routeId", "route-" + from + "-" + to);
+        row.put("departureCityId", "city-" + from);
+        row.put("destinationCityId", "city-" + to);
+        row.put("departureCity", Character.toUpperCase(from.charAt(0)) + from.substring(1));
+        row.put("destinationCity", Character.toUpperCase(to.charAt(0)) + to.substring(1));
+        row.put("busId", "bus-" + id);
+        row.put("busCompany", "Test Travels");
+        row.put("busNumber", "MH01");
+        row.put("departureTime", TOMORROW.atTime(departHour, departMinute));
+        row.put("arrivalTime", TOMORROW.atTime(arriveHour, arriveMinute));
+        row.put("price", new BigDecimal(price));
+        row.put("busType", BusType.AC);
+        row.put("totalSeats", 40);
+        row.put("availableSeats", availableSeats);
+        row.put("amenities", null);
+        return PROJECTIONS.createProjection(TripIndexRow.class, row);
+    }
+}
@@ -0,0 +1,155 @@
+package com.busticket.service;
+
+import com.busticket.dto.FareCalendarDay;
+import com.busticket.model.City;
+import com.busticket.repository.CityRepository;
+import com.busticket.repository.FareCalendarRow;
+import com.busticket.repository.TripRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FareCalendarServiceTest {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    @Mock
+    private CityRepository cityRepository;
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private TripSearchIndex tripSearchIndex;
+
+    @Mock
+    private CityAutocompleteIndex cityAutocompleteIndex;
+
+    private FareCalendarService fareCalendarService;
+
+    @BeforeEach
+    void setUp() {
+        fareCalendarService = new FareCalendarService(cityRepository, tripRepository, tripSearchIndex,
+                cityAutocompleteIndex, 15);
+    }
+
+    @Test
+    void getFareCalendar_WhenIndexCoversWindow_ShouldNotQueryDatabase() {
+        // Given
+        LocalDate date = LocalDate.now().plusDays(10);
+        when(tripSearchIndex.summarizeDay(eq("Mumbai"), eq("Delhi"), any(LocalDate.class)))
+                .thenAnswer(invocation -> Optional.of(new FareCalendarDay(invocation.getArgument(2),
+                        new BigDecimal("500.00"), 20, 2)));
+
+        // When
+        List<FareCalendarDay> calendar = fareCalendarService.getFareCalendar("Mumbai", "Delhi", date, 3);
+
+        // Then
+        assertEquals(7, calendar.size());
+        assertEquals(date.minusDays(3), calendar.get(0).getDate());
+        assertEquals(date.plusDays(3), calendar.get(6).getDate());
+        assertEquals(new BigDecimal("500.00"), calendar.get(3).getCheapestPrice());
+        verifyNoInteractions(cityRepository, tripRepository);
+    }
+
+    @Test
+    void getFareCalendar_ShouldResolveAliasedCityNames() {
+        // Given
+        LocalDate date = LocalDate.now().plusDays(10);
+        when(cityAutocompleteIndex.resolve("Bombay")).thenReturn(Optional.of("Mumbai"));
+        when(cityAutocompleteIndex.resolve("delhi ")).thenReturn(Optional.of("Delhi"));
+        when(tripSearchIndex.summarizeDay(eq("Mumbai"), eq("Delhi"), any(LocalDate.class)))
+                .thenAnswer(invocation -> Optional.of(new FareCalendarDay(invocation.getArgument(2),
+                        new BigDecimal("500.00"), 20, 2)));
+
+        // When
+        List<FareCalendarDay> calendar = fareCalendarService.getFareCalendar("Bombay", "delhi ", date, 1);
+
+        // Then
+        assertEquals(3, calendar.size());
+        assertEquals(new BigDecimal("500.00"), calendar.get(1).getCheapestPrice());
+    }
+
+    @Test
+    void getFareCalendar_ShouldAggregateUncoveredDaysInOneQuery() {
+        // Given: the index is not loaded, and only two days have trips
+        LocalDate date = LocalDate.now().plusDays(10);
+        City mumbai = city("city-mumbai");
+        City delhi = city("city-delhi");
+        when(tripSearchIndex.summarizeDay(anyString(), anyString(), any(LocalDate.class))).thenReturn(Optional.empty());
+        when(cityRepository.findByNameIgnoreCase("Mumbai")).thenReturn(Optional.of(mumbai));
+        when(cityRepository.findByNameIgnoreCase("Delhi")).thenReturn(Optional.of(delhi));
+        when(tripRepository.findFareCalendar("city-mumbai", "city-delhi",
+                date.minusDays(2).atStartOfDay(), date.plusDays(3).atStartOfDay()))
+                .thenReturn(List.of(row(date.minusDays(1), "450.00", 12L, 3L), row(date, null, 0L, 1L)));
+
+        // When
+        List<FareCalendarDay> calendar = fareCalendarService.getFareCalendar("Mumbai", "Delhi", date, 2);
+
+        // Then
+        Map<LocalDate, FareCalendarDay> byDate = calendar.stream()
+                .collect(Collectors.toMap(FareCalendarDay::getDate, day -> day));
+        assertEquals(5, calendar.size());
+        assertEquals(new BigDecimal("450.00"), byDate.get(date.minusDays(1)).getCheapestPrice());
+        assertEquals(12, byDate.get(date.minusDays(1)).getAvailableSeats());
+        assertNull(byDate.get(date).getCheapestPrice());
+        assertEquals(1, byDate.get(date).getTripCount());
+        assertEquals(0, byDate.get(date.plusDays(2)).getTripCount());
+        verify(tripRepository, times(1)).findFareCalendar(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void getFareCalendar_ShouldLeaveOutPastDays() {
+        // Given
+        when(tripSearchIndex.summarizeDay(anyString(), anyString(), any(LocalDate.class)))
+                .thenAnswer(invocation -> Optional.of(FareCalendarDay.empty(invocation.getArgument(2))));
+
+        // When
+        List<FareCalendarDay> calendar = fareCalendarService.getFareCalendar("Mumbai", "Delhi",
+                LocalDate.now().plusDays(1), 3);
+
+        // Then
+        assertEquals(5, calendar.size());
+        assertEquals(LocalDate.now(), calendar.get(0).getDate());
+    }
+
+    @Test
+    void getFareCalendar_WithTooManyFlexibleDays_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> fareCalendarService.getFareCalendar("Mumbai", "Delhi", LocalDate.now(), 16));
+        assertThrows(IllegalArgumentException.class,
+                () -> fareCalendarService.getFareCalendar("Mumbai", "Delhi", LocalDate.now(), -1));
+    }
+
+    private City city(String id) {
+        City city = new City();
+        city.setId(id);
+        return city;
+    }
+
+    private FareCalendarRow row(LocalDate day, String cheapestPrice, Long availableSeats, Long tripCount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("day", day);
+        row.put("cheapestPrice", cheapestPrice != null ? new BigDecimal(cheapestPrice) : null);
+        row.put("availableSeats", availableSeats);
+        row.put("tripCount", tripCount);
+        return PROJECTIONS.createProjection(FareCalendarRow.class, row);
+    }
+}
@@ -0,0 +1,200 @@
+package com.busticket.service;
+
+import com.busticket.dto.GatewayStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayGuardTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private GatewayGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        // 2 concurrent calls, opens at 50% failures over the last 4 calls, probes 2 calls after 1s
+        guard = new GatewayGuard("test", 2, 5000, 4, 4, 50, 1000, 2, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void call_WhenGatewayAnswers_ShouldReturnAnswer() {
+        // When
+        String answer = guard.call(() -> "ok");
+
+        // Then
+        assertEquals("ok", answer);
+        GatewayStatus status = guard.status();
+        assertEquals("CLOSED", status.getState());
+        assertEquals(1, status.getSuccessfulCalls());
+        assertEquals(0.0, status.getFailureRate());
+    }
+
+    @Test
+    void call_WhenFailureRateReached_ShouldOpenAndFailFast() {
+        // Given
+        succeed(2);
+        fail(2);
+
+        // When
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(GatewayGuard.GatewayUnavailableException.class, () -> guard.call(calls::incrementAndGet));
+
+        // Then
+        assertEquals(GatewayGuard.State.OPEN, guard.getState());
+        assertEquals(0, calls.get());
+        assertEquals(1, guard.status().getCircuitRejections());
+    }
+
+    @Test
+    void call_BelowMinimumCalls_ShouldStayClosed() {
+        // When
+        fail(3);
+
+        // Then
+        assertEquals(GatewayGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void call_WhenProbesSucceed_ShouldClose() {
+        // Given
+        fail(4);
+        now.addAndGet(1000);
+        assertEquals(GatewayGuard.State.HALF_OPEN, guard.getState());
+
+        // When
+        succeed(2);
+
+        // Then
+        assertEquals(GatewayGuard.State.CLOSED, guard.getState());
+        assertEquals(0, guard.status().getWindowCalls());
+    }
+
+    @Test
+    void call_WhenProbeFails_ShouldOpenAgain() {
+        // Given
+        fail(4);
+        now.addAndGet(1000);
+
+        // When
+        fail(1);
+
+        // Then
+        assertEquals(GatewayGuard.State.OPEN, guard.getState());
+        now.addAndGet(999);
+        assertEquals(GatewayGuard.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void call_WhenHalfOpen_ShouldLetOnlyProbesThrough() throws Exception {
+        // Given
+        fail(4);
+        now.addAndGet(1000);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> guard.call(() -> block(release)));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> guard.call(() -> block(release)));
+        waitForInFlight(2);
+
+        // When & Then: both probes are in flight, a third call fails fast
+        assertThrows(GatewayGuard.GatewayUnavailableException.class, () -> guard.call(() -> "third"));
+        release.countDown();
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", second.get(5, TimeUnit.SECONDS));
+        assertEquals(GatewayGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void call_WhenDeadlineMissed_ShouldInterruptAndCountFailure() {
+        // Given
+        CountDownLatch interrupted = new CountDownLatch(1);
+        guard.shutdown();
+        guard = new GatewayGuard("test", 2, 200, 4, 4, 50, 1000, 2, now::get);
+
+        // When
+        GatewayGuard.GatewayUnavailableException exception = assertThrows(
+                GatewayGuard.GatewayUnavailableException.class, () -> guard.call(() -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "late";
+                }));
+
+        // Then
+        assertTrue(exception.getMessage().contains("did not answer within 200ms"));
+        assertTrue(exception.isOutcomeUnknown());
+        assertEquals(1, guard.status().getTimedOutCalls());
+        assertEquals(100.0, guard.status().getFailureRate());
+        assertDoesNotThrow(() -> assertTrue(interrupted.await(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void call_WhenBulkheadFull_ShouldRejectWithoutWaiting() throws Exception {
+        // Given: both slots taken by slow calls
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> guard.call(() -> block(release)));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> guard.call(() -> block(release)));
+        waitForInFlight(2);
+
+        // When & Then
+        long started = System.nanoTime();
+        GatewayGuard.GatewayUnavailableException rejected = assertThrows(
+                GatewayGuard.GatewayUnavailableException.class, () -> guard.call(() -> "third"));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+        assertFalse(rejected.isOutcomeUnknown());
+        assertEquals(1, guard.status().getBulkheadRejections());
+
+        release.countDown();
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", second.get(5, TimeUnit.SECONDS));
+        // Rejections are not gateway failures
+        assertEquals(0.0, guard.status().getFailureRate());
+    }
+
+    @Test
+    void constructor_WithMinimumCallsAboveWindow_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new GatewayGuard("bad", 1, 100, 4, 5, 50, 1000, 1));
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            guard.call(() -> "ok");
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertThrows(GatewayGuard.GatewayUnavailableException.class, () -> guard.call(() -> {
+                throw new IllegalStateException("Gateway error");
+            }));
+        }
+    }
+
+    private void waitForInFlight(int calls) throws InterruptedException {
+        while (guard.status().getInFlightCalls() < calls) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static String block(CountDownLatch release) {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+}
@@ -0,0 +1,184 @@
+package com.busticket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyStore, new ObjectMapper(), 5000, 24, 10);
+    }
+
+    @Test
+    void execute_WithoutKey_ShouldRunWithoutStore() {
+        // When
+        String response = idempotencyService.execute("booking", "user-1", null, "request", String.class, () -> "done");
+
+        // Then
+        assertEquals("done", response);
+        verifyNoInteractions(idempotencyStore);
+    }
+
+    @Test
+    void execute_WithNewKey_ShouldRunAndStoreResponse() {
+        // Given
+        when(idempotencyStore.claim(eq("booking:user-1:key-1"), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> claimed(invocation.getArgument(1)));
+        when(idempotencyStore.complete(eq("booking:user-1:key-1"), any(), eq("done"), eq(Duration.ofHours(24))))
+                .thenReturn(true);
+
+        // When
+        String response = idempotencyService.execute("booking", "user-1", "key-1", "request", String.class, () -> "done");
+
+        // Then
+        assertEquals("done", response);
+        verify(idempotencyStore, never()).release(anyString(), any());
+    }
+
+    @Test
+    void execute_WhenAlreadyCompleted_ShouldReplayResponse() {
+        // Given
+        when(idempotencyStore.claim(eq("booking:user-1:key-1"), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> existing(invocation.getArgument(1), true, "first"));
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        String response = idempotencyService.execute("booking", "user-1", "key-1", "request", String.class,
+                () -> "second-" + runs.incrementAndGet());
+
+        // Then
+        assertEquals("first", response);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void execute_WhenKeyUsedForDifferentRequest_ShouldThrow() {
+        // Given
+        when(idempotencyStore.claim(eq("booking:user-1:key-1"), anyString(), any(Duration.class)))
+                .thenReturn(existing("other-fingerprint", true, "first"));
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("booking", "user-1", "key-1", "request", String.class, () -> "done"));
+        assertTrue(exception.getMessage().contains("different request"));
+    }
+
+    @Test
+    void execute_WhenRequestFails_ShouldReleaseKey() {
+        // Given
+        when(idempotencyStore.claim(eq("payment:user-1:key-1"), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> claimed(invocation.getArgument(1)));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("payment", "user-1", "key-1",
+                "request", String.class, () -> {
+                    throw new IllegalStateException("Payment session expired or invalid");
+                }));
+        verify(idempotencyStore).release(eq("payment:user-1:key-1"), any());
+        verify(idempotencyStore, never()).complete(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void execute_WhenRunningOnAnotherNode_ShouldWaitForItsResponse() {
+        // Given: in flight on the first look, completed on the second
+        AtomicInteger looks = new AtomicInteger();
+        when(idempotencyStore.claim(eq("booking:user-1:key-1"), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> existing(invocation.getArgument(1), looks.incrementAndGet() > 1, "first"));
+
+        // When
+        String response = idempotencyService.execute("booking", "user-1", "key-1", "request", String.class, () -> "second");
+
+        // Then
+        assertEquals("first", response);
+        assertEquals(2, looks.get());
+    }
+
+    @Test
+    void execute_WithConcurrentDuplicates_ShouldRunOnce() throws Exception {
+        // Given
+        when(idempotencyStore.claim(eq("booking:user-1:key-1"), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> claimed(invocation.getArgument(1)));
+        when(idempotencyStore.complete(anyString(), any(), any(), any())).thenReturn(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // When: one request runs while three duplicates arrive
+            Future<String> first = executor.submit(() -> idempotencyService.execute("booking", "user-1", "key-1",
+                    "request", String.class, () -> {
+                        started.countDown();
+                        await(finish);
+                        return "booking-" + runs.incrementAndGet();
+                    }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<String>> duplicates = List.of(
+                    executor.submit(() -> idempotencyService.execute("booking", "user-1", "key-1", "request",
+                            String.class, () -> "booking-" + runs.incrementAndGet())),
+                    executor.submit(() -> idempotencyService.execute("booking", "user-1", "key-1", "request",
+                            String.class, () -> "booking-" + runs.incrementAndGet())),
+                    executor.submit(() -> idempotencyService.execute("booking", "user-1", "key-1", "request",
+                            String.class, () -> "booking-" + runs.incrementAndGet())));
+            Thread.sleep(50);
+            finish.countDown();
+
+            // Then
+            assertEquals("booking-1", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> duplicate : duplicates) {
+                assertEquals("booking-1", duplicate.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+            verify(idempotencyStore, times(1)).claim(anyString(), anyString(), any(Duration.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_WithOverlongKey_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("booking", "user-1",
+                "k".repeat(129), "request", String.class, () -> "done"));
+    }
+
+    private static IdempotencyStore.Claim claimed(String fingerprint) {
+        return new IdempotencyStore.Claim(new IdempotencyStore.Record(fingerprint, "token-1", false, null), true);
+    }
+
+    private static IdempotencyStore.Claim existing(String fingerprint, boolean completed, Object response) {
+        return new IdempotencyStore.Claim(
+                new IdempotencyStore.Record(fingerprint, "token-0", completed, completed ? response : null), false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
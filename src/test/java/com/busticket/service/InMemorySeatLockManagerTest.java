@@ -0,0 +1,317 @@
+package com.busticket.service;
+
+import com.busticket.event.SeatHoldExpiredEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.service.SeatLockManager.LockAttempt;
+import com.busticket.service.SeatLockManager.LockInfo;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InMemorySeatLockManagerTest {
+
+    @Mock
+    private SeatOccupancyService seatOccupancyService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private MutableClock clock;
+    private InMemorySeatLockManager seatLockManager;
+
+    private final String tripId = "trip-123";
+    private final List<String> seatNumbers = Arrays.asList("A1", "A2");
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(seatOccupancyService.getSeatIndex(tripId)).thenReturn(Map.of("A1", 0, "A2", 1, "B1", 2));
+        lenient().when(seatOccupancyService.findBookedSeats(eq(tripId), anyMap(), anyList())).thenReturn(List.of());
+
+        clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        seatLockManager = new InMemorySeatLockManager(seatOccupancyService, eventPublisher, clock, false);
+    }
+
+    @Test
+    void tryAcquireLock_WithAvailableSeats_ShouldLockAllSeats() {
+        // Act
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, seatNumbers, "user-1");
+
+        // Assert
+        assertTrue(attempt.isAcquired());
+        assertTrue(seatLockManager.isLocked(tripId, "A1"));
+        assertTrue(seatLockManager.isLocked(tripId, "A2"));
+        assertFalse(seatLockManager.isLocked(tripId, "B1"));
+        assertEquals(attempt.getLockInfo(), seatLockManager.getLockInfo(attempt.getLockInfo().getLockId()));
+    }
+
+    @Test
+    void tryAcquireLock_ShouldHandOutIncreasingFencingTokens() {
+        // Arrange
+        LockInfo first = seatLockManager.acquireLock(tripId, List.of("A1"), "user-1");
+        seatLockManager.releaseLock(first.getLockId());
+
+        // Act
+        LockInfo second = seatLockManager.acquireLock(tripId, List.of("A1"), "user-2");
+
+        // Assert
+        assertTrue(second.getFencingToken() > first.getFencingToken());
+        assertNull(seatLockManager.verifyHold(first.getLockId(), tripId, List.of("A1")));
+        assertEquals(second, seatLockManager.verifyHold(second.getLockId(), tripId, List.of("A1")));
+        assertNull(seatLockManager.verifyHold(second.getLockId(), tripId, List.of("A1", "A2")));
+    }
+
+    @Test
+    void tryAcquireLock_WithOverlappingSeats_ShouldClaimNothing() {
+        // Arrange
+        seatLockManager.tryAcquireLock(tripId, List.of("A2"), "user-1");
+
+        // Act
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, Arrays.asList("A1", "A2", "B1"), "user-2");
+
+        // Assert
+        assertFalse(attempt.isAcquired());
+        assertEquals(List.of("A2"), attempt.getConflictingSeats());
+        assertFalse(seatLockManager.isLocked(tripId, "A1"));
+        assertFalse(seatLockManager.isLocked(tripId, "B1"));
+    }
+
+    @Test
+    void tryAcquireLock_WithBookedSeat_ShouldReleaseClaimedSeats() {
+        // Arrange
+        when(seatOccupancyService.findBookedSeats(eq(tripId), anyMap(), eq(seatNumbers))).thenReturn(List.of("A1"));
+
+        // Act
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, seatNumbers, "user-1");
+
+        // Assert
+        assertFalse(attempt.isAcquired());
+        assertEquals(List.of("A1"), attempt.getConflictingSeats());
+        assertTrue(seatLockManager.getLockedSeats(tripId).isEmpty());
+    }
+
+    @Test
+    void tryAcquireLock_WithSeatOutsideLayout_ShouldStillBeExclusive() {
+        // Act
+        LockAttempt first = seatLockManager.tryAcquireLock(tripId, List.of("Z9"), "user-1");
+        LockAttempt second = seatLockManager.tryAcquireLock(tripId, List.of("Z9"), "user-2");
+
+        // Assert
+        assertTrue(first.isAcquired());
+        assertFalse(second.isAcquired());
+        assertEquals(List.of("Z9"), seatLockManager.getLockedSeats(tripId));
+    }
+
+    @Test
+    void tryAcquireLock_WithNoSeats_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            seatLockManager.tryAcquireLock(tripId, List.of(), "user-1");
+        });
+    }
+
+    @Test
+    void tryAcquireLock_WithConcurrentUsers_ShouldGrantSeatOnce() throws Exception {
+        // Arrange
+        int users = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<LockAttempt>> attempts = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String userId = "user-" + i;
+            attempts.add(executor.submit(() -> {
+                start.await();
+                return seatLockManager.tryAcquireLock(tripId, seatNumbers, userId);
+            }));
+        }
+
+        // Act
+        start.countDown();
+        int acquired = 0;
+        for (Future<LockAttempt> attempt : attempts) {
+            if (attempt.get(5, TimeUnit.SECONDS).isAcquired()) {
+                acquired++;
+            }
+        }
+        executor.shutdown();
+
+        // Assert
+        assertTrue(acquired <= 1);
+        assertEquals(acquired == 1 ? seatNumbers : List.of(), seatLockManager.getLockedSeats(tripId));
+    }
+
+    @Test
+    void releaseLock_ShouldFreeSeats() {
+        // Arrange
+        LockInfo lockInfo = seatLockManager.acquireLock(tripId, seatNumbers, "user-1");
+
+        // Act
+        boolean released = seatLockManager.releaseLock(lockInfo.getLockId());
+
+        // Assert
+        assertTrue(released);
+        assertFalse(seatLockManager.releaseLock(lockInfo.getLockId()));
+        assertFalse(seatLockManager.isLocked(tripId, "A1"));
+        assertNull(seatLockManager.getLockInfo(lockInfo.getLockId()));
+        assertTrue(seatLockManager.tryAcquireLock(tripId, seatNumbers, "user-2").isAcquired());
+    }
+
+    @Test
+    void extendLock_ShouldPushBackExpiry() {
+        // Arrange
+        LockInfo lockInfo = seatLockManager.acquireLock(tripId, seatNumbers, "user-1");
+        LocalDateTime originalExpiry = lockInfo.getExpiresAt();
+
+        // Act
+        boolean extended = seatLockManager.extendLock(lockInfo.getLockId(), 5);
+        clock.advance(Duration.ofMinutes(12));
+
+        // Assert
+        assertTrue(extended);
+        assertEquals(originalExpiry.plusMinutes(5), lockInfo.getExpiresAt());
+        assertTrue(seatLockManager.isLocked(tripId, "A1"));
+        assertTrue(seatLockManager.isLockValid(lockInfo.getLockId()));
+    }
+
+    @Test
+    void expiredHold_ShouldFreeSeatsAndBeSweptByTimerWheel() {
+        // Arrange
+        LockInfo lockInfo = seatLockManager.acquireLock(tripId, seatNumbers, "user-1");
+
+        // Act
+        clock.advance(Duration.ofMinutes(SeatLockManager.LOCK_TIMEOUT_MINUTES).plusSeconds(2));
+
+        // Assert - expired holds are free before the wheel reaches them
+        assertFalse(seatLockManager.isLocked(tripId, "A1"));
+        assertFalse(seatLockManager.extendLock(lockInfo.getLockId(), 5));
+        assertTrue(seatLockManager.tryAcquireLock(tripId, List.of("A1"), "user-2").isAcquired());
+
+        seatLockManager.expireDueHolds();
+        // A1 belongs to the newer hold, so only A2 is released
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent released
+                && released.getReason() == SeatReleasedEvent.Reason.EXPIRED
+                && released.getSeatNumbers().equals(List.of("A2"))));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatHoldExpiredEvent expired
+                && expired.getLockId().equals(lockInfo.getLockId())));
+        assertNull(seatLockManager.getLockInfo(lockInfo.getLockId()));
+        assertFalse(seatLockManager.releaseLock(lockInfo.getLockId()));
+        assertEquals(List.of("A1"), seatLockManager.getLockedSeats(tripId));
+    }
+
+    @Test
+    void expiredHold_WhenEverySeatWasTakenOver_ShouldPublishNoRelease() {
+        // Arrange
+        LockInfo lockInfo = seatLockManager.acquireLock(tripId, List.of("A1"), "user-1");
+        clock.advance(Duration.ofMinutes(SeatLockManager.LOCK_TIMEOUT_MINUTES).plusSeconds(2));
+        seatLockManager.tryAcquireLock(tripId, List.of("A1"), "user-2");
+
+        // Act
+        seatLockManager.cleanupExpiredLocks();
+
+        // Assert
+        verify(eventPublisher, never()).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatHoldExpiredEvent expired
+                && expired.getLockId().equals(lockInfo.getLockId())));
+        assertTrue(seatLockManager.isLocked(tripId, "A1"));
+    }
+
+    @Test
+    void releaseLock_OfLastHold_ShouldDropTripSlots() {
+        // Arrange
+        LockInfo first = seatLockManager.acquireLock(tripId, seatNumbers, "user-1");
+        LockInfo second = seatLockManager.acquireLock(tripId, List.of("B1"), "user-2");
+
+        // Act - the slots are kept while a hold is left in them
+        seatLockManager.releaseLock(first.getLockId());
+        LockInfo third = seatLockManager.acquireLock(tripId, List.of("A1"), "user-3");
+        seatLockManager.releaseLock(second.getLockId());
+        seatLockManager.releaseLock(third.getLockId());
+        LockInfo fourth = seatLockManager.acquireLock(tripId, List.of("A1"), "user-4");
+
+        // Assert - then dropped with the last hold and rebuilt from the layout
+        verify(seatOccupancyService, times(2)).getSeatIndex(tripId);
+        assertEquals(List.of("A1"), seatLockManager.getLockedSeats(tripId));
+        assertTrue(fourth.getFencingToken() > third.getFencingToken());
+    }
+
+    @Test
+    void tryAcquireLock_WithOnlyBookedSeats_ShouldNotKeepTripSlots() {
+        // Arrange
+        when(seatOccupancyService.findBookedSeats(eq(tripId), anyMap(), eq(List.of("A1")))).thenReturn(List.of("A1"));
+
+        // Act
+        seatLockManager.tryAcquireLock(tripId, List.of("A1"), "user-1");
+        seatLockManager.tryAcquireLock(tripId, List.of("A1"), "user-2");
+
+        // Assert
+        verify(seatOccupancyService, times(2)).getSeatIndex(tripId);
+        assertTrue(seatLockManager.getLockedSeats(tripId).isEmpty());
+    }
+
+    @Test
+    void getSeatStatuses_ShouldCombineHoldsAndBookings() {
+        // Arrange
+        List<String> seats = Arrays.asList("A1", "A2", "B1");
+        Map<String, Integer> seatIndex = Map.of("A1", 0, "A2", 1, "B1", 2);
+        seatLockManager.tryAcquireLock(tripId, List.of("A2"), "user-1");
+        when(seatOccupancyService.findBookedSeats(tripId, seatIndex, seats)).thenReturn(List.of("A1"));
+
+        // Act
+        Map<String, SeatStatus> statuses = seatLockManager.getSeatStatuses(tripId, seatIndex, seats);
+
+        // Assert
+        assertEquals(SeatStatus.BOOKED, statuses.get("A1"));
+        assertEquals(SeatStatus.LOCKED, statuses.get("A2"));
+        assertEquals(SeatStatus.AVAILABLE, statuses.get("B1"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
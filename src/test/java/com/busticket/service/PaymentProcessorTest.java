@@ -0,0 +1,261 @@
+package com.busticket.service;
+
+import com.busticket.dto.PaymentRequest;
+import com.busticket.model.Payment;
+import com.busticket.model.PaymentStatus;
+import com.busticket.model.Refund;
+import com.busticket.model.RefundStatus;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentProcessorTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RefundRepository refundRepository;
+
+    @Mock
+    private RefundProcessor refundProcessor;
+
+    @Mock
+    private BookingService bookingService;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentProcessor paymentProcessor;
+    private Payment payment;
+    private PaymentRequest request;
+
+    @BeforeEach
+    void setUp() {
+        paymentProcessor = new PaymentProcessor(paymentRepository, refundRepository,
+                refundProcessor, bookingService, paymentGateway, transactionManager, 1, 1, 60000, false);
+
+        payment = new Payment();
+        payment.setId("payment-1");
+        payment.setBookingId("booking-1");
+        payment.setAmount(new BigDecimal("1230.00"));
+        payment.setStatus(PaymentStatus.PENDING);
+
+        request = new PaymentRequest();
+        request.setMethod("CREDIT_CARD");
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentProcessor.shutdown();
+    }
+
+    @Test
+    void process_WhenGatewayCharges_ShouldSucceedAndConfirmBooking() {
+        // Given
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "TXN_1", null));
+        when(paymentRepository.markSucceeded(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verify(bookingService).confirmBooking("booking-1", "payment-1");
+        verify(paymentRepository, never()).transitionStatus(anyString(), any(), eq(PaymentStatus.FAILED));
+        // Claim and settlement each commit on their own, with the gateway call in between
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void process_WhenGatewayDeclines_ShouldFailPayment() {
+        // Given
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenReturn(new PaymentGateway.GatewayResult(false, null, "Card declined"));
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verify(paymentRepository).transitionStatus("payment-1", PaymentStatus.PROCESSING, PaymentStatus.FAILED);
+        verify(bookingService, never()).confirmBooking(anyString(), anyString());
+    }
+
+    @Test
+    void process_WhenGatewayIsUnavailable_ShouldFailPayment() {
+        // Given: the circuit is open, so no charge was attempted
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenThrow(new GatewayGuard.GatewayUnavailableException("payment gateway is unavailable"));
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verify(paymentRepository).transitionStatus("payment-1", PaymentStatus.PROCESSING, PaymentStatus.FAILED);
+        verify(refundRepository, never()).save(any(Refund.class));
+    }
+
+    @Test
+    void process_WhenChargeMissesDeadline_ShouldRefundInsteadOfFailing() {
+        // Given: the charge was cut off in flight and may have gone through
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request)).thenThrow(new GatewayGuard.GatewayUnavailableException(
+                "payment gateway did not answer within 10000ms", true));
+        when(paymentRepository.markChargedForReversal(eq("payment-1"), isNull(), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verify(paymentRepository, never()).transitionStatus("payment-1", PaymentStatus.PROCESSING, PaymentStatus.FAILED);
+        verify(bookingService, never()).confirmBooking(anyString(), anyString());
+        verify(refundRepository).save(argThat((Refund refund) -> "payment-1".equals(refund.getPaymentId())
+                && new BigDecimal("1230.00").equals(refund.getAmount())
+                && refund.getReason().startsWith("Charge outcome unknown")));
+        verify(refundProcessor).wakeUp();
+    }
+
+    @Test
+    void process_WhenAlreadySettled_ShouldNotCallGateway() {
+        // Given: the timeout sweep failed the payment first
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verifyNoInteractions(paymentGateway, bookingService);
+    }
+
+    @Test
+    void process_WhenBookingCannotBeConfirmed_ShouldRecordReversal() {
+        // Given
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "TXN_1", null));
+        when(paymentRepository.markSucceeded(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class))).thenReturn(1);
+        when(bookingService.confirmBooking("booking-1", "payment-1"))
+                .thenThrow(new IllegalStateException("Booking already processed: EXPIRED"));
+        when(paymentRepository.markChargedForReversal(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then: the settlement rolled back and the charge was kept with a full refund queued
+        verify(transactionManager).rollback(any());
+        verify(paymentRepository, never()).transitionStatus("payment-1", PaymentStatus.PROCESSING, PaymentStatus.FAILED);
+        verify(refundRepository).save(argThat((Refund refund) -> "payment-1".equals(refund.getPaymentId())
+                && "booking-1".equals(refund.getBookingId())
+                && new BigDecimal("1230.00").equals(refund.getAmount())
+                && refund.getStatus() == RefundStatus.PENDING));
+        verify(refundProcessor).wakeUp();
+    }
+
+    @Test
+    void process_WhenTimedOutDuringCharge_ShouldRecordReversal() {
+        // Given: the sweep failed the payment while the gateway was charging it
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "TXN_1", null));
+        when(paymentRepository.markSucceeded(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class))).thenReturn(0);
+        when(paymentRepository.markChargedForReversal(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verify(bookingService, never()).confirmBooking(anyString(), anyString());
+        verify(refundRepository).save(any(Refund.class));
+    }
+
+    @Test
+    void process_WhenReversalAlreadyRecorded_ShouldNotQueueAnotherRefund() {
+        // Given
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "TXN_1", null));
+        when(paymentRepository.markSucceeded(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class))).thenReturn(0);
+        when(paymentRepository.markChargedForReversal(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        // When
+        paymentProcessor.process(payment, request);
+
+        // Then
+        verify(refundRepository, never()).save(any(Refund.class));
+        verify(refundProcessor, never()).wakeUp();
+    }
+
+    @Test
+    void expireStalePayments_ShouldFailUnsettledPaymentsPastTimeout() {
+        // Given
+        when(paymentRepository.failUnsettledPayments(any(LocalDateTime.class))).thenReturn(3);
+
+        // When
+        int expired = paymentProcessor.expireStalePayments();
+
+        // Then
+        assertEquals(3, expired);
+        verify(paymentRepository).failUnsettledPayments(argThat(cutoff -> cutoff.isBefore(LocalDateTime.now().minusSeconds(59))));
+    }
+
+    @Test
+    void submit_InVirtualThreadMode_ShouldProcessPayment() {
+        // Given: runs on virtual threads on Java 21, on the worker pool before that
+        PaymentProcessor virtualProcessor = new PaymentProcessor(paymentRepository, refundRepository,
+                refundProcessor, bookingService, paymentGateway, transactionManager, 1, 1, 60000, true);
+        when(paymentRepository.claimForProcessing(eq("payment-1"), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(paymentGateway.charge(payment, request))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "TXN_1", null));
+        when(paymentRepository.markSucceeded(eq("payment-1"), eq("TXN_1"), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        try {
+            virtualProcessor.submit(payment, request);
+
+            // Then
+            verify(bookingService, timeout(5000)).confirmBooking("booking-1", "payment-1");
+        } finally {
+            virtualProcessor.shutdown();
+        }
+    }
+
+    @Test
+    void constructor_WithoutWorkers_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new PaymentProcessor(paymentRepository,
+                refundRepository, refundProcessor, bookingService, paymentGateway, transactionManager,
+                0, 1, 60000, false));
+    }
+}
@@ -37,16 +37,19 @@ class PaymentServiceTest {
     private RefundRepository refundRepository;
 
     @Mock
-    private BookingService bookingService;
+    private RedisTemplate<String, Object> redisTemplate;
 
     @Mock
-    private SeatLockManager seatLockManager;
+    private ValueOperations<String, Object> valueOperations;
 
     @Mock
-    private RedisTemplate<String, Object> redisTemplate;
+    private RefundProcessor refundProcessor;
 
     @Mock
-    private ValueOperations<String, Object> valueOperations;
+    private PaymentProcessor paymentProcessor;
+
+    @Mock
+    private IdempotencyService idempotencyService;
 
     @InjectMocks
     private PaymentService paymentService;
@@ -149,14 +152,11 @@ class PaymentServiceTest {
     }
 
     @Test
-    void processPayment_ShouldSucceedWithValidSession() {
+    void processPayment_ShouldStorePendingPaymentAndChargeInBackground() {
         // Given
         PaymentSession session = new PaymentSession("session-1", "booking-1", new BigDecimal("1230.00"), LocalDateTime.now().plusMinutes(15));
         when(valueOperations.get("payment_session:session-1")).thenReturn(session);
         when(paymentRepository.save(any(Payment.class))).thenReturn(mockPayment);
-        
-        // Mock successful booking confirmation
-        doNothing().when(bookingService).confirmBooking("booking-1", "payment-1");
 
         // When
         Payment result = paymentService.processPayment("session-1", mockPaymentRequest);
@@ -167,9 +167,10 @@ class PaymentServiceTest {
         assertEquals("booking-1", result.getBookingId());
         assertEquals(new BigDecimal("1230.00"), result.getAmount());
         assertEquals("CREDIT_CARD", result.getMethod());
+        assertEquals(PaymentStatus.PENDING, result.getStatus());
 
-        verify(paymentRepository, times(2)).save(any(Payment.class)); // Once for creation, once for update
-        verify(bookingService).confirmBooking("booking-1", "payment-1");
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentProcessor).submit(mockPayment, mockPaymentRequest);
         verify(redisTemplate).delete("payment_session:session-1");
     }
 
@@ -184,7 +185,7 @@ class PaymentServiceTest {
         });
 
         verify(paymentRepository, never()).save(any(Payment.class));
-        verify(bookingService, never()).confirmBooking(anyString(), anyString());
+        verify(paymentProcessor, never()).submit(any(), any());
     }
 
     @Test
@@ -256,8 +257,10 @@ class PaymentServiceTest {
         assertEquals("payment-1", result.getPaymentId());
         assertEquals("booking-1", result.getBookingId());
         assertEquals(new BigDecimal("1230.00"), result.getAmount());
+        assertEquals(RefundStatus.PENDING, result.getStatus());
 
-        verify(refundRepository, times(2)).save(any(Refund.class)); // Once for creation, once for update
+        verify(refundRepository, times(1)).save(any(Refund.class));
+        verify(refundProcessor).wakeUp();
     }
 
     @Test
@@ -275,6 +278,7 @@ class PaymentServiceTest {
         });
 
         verify(refundRepository, never()).save(any(Refund.class));
+        verify(refundProcessor, never()).wakeUp();
     }
 
     @Test
@@ -0,0 +1,436 @@
+package com.busticket.service;
+
+import com.busticket.event.SeatHoldExpiredEvent;
+import com.busticket.event.SeatLockedEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.service.SeatLockManager.LockInfo;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisSeatLockManagerTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private SeatOccupancyService seatOccupancyService;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private RedisSeatLockManager seatLockManager;
+
+    private final String tripId = "trip-123";
+    private final String userId = "user-123";
+    private final List<String> seatNumbers = Arrays.asList("A1", "A2");
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void acquireLock_WithAvailableSeats_ShouldCreateLock() {
+        // Arrange
+        when(seatOccupancyService.getSeatIndex(tripId)).thenReturn(Map.of("A1", 0, "A2", 1));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(42L)); // Fencing token, no conflicting seats
+
+        // Act
+        LockInfo result = seatLockManager.acquireLock(tripId, seatNumbers, userId);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(tripId, result.getTripId());
+        assertEquals(seatNumbers, result.getSeatNumbers());
+        assertEquals(userId, result.getUserId());
+        assertNotNull(result.getLockId());
+        assertTrue(result.getExpiresAt().isAfter(LocalDateTime.now()));
+        assertEquals(42L, result.getFencingToken());
+
+        // Verify lock record and every seat key are claimed in a single script call
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(Arrays.asList("lock:" + result.getLockId(),
+                        "seat_occupancy:" + tripId,
+                        "trip_locks:" + tripId,
+                        "lock_fence:" + tripId,
+                        "seat_lock:" + tripId + ":A1",
+                        "seat_lock:" + tripId + ":A2")),
+                eq(result), eq(result.getLockId()), eq(600L), eq(1L), eq(2L), eq("A1"), eq("A2"));
+        verify(valueOperations, never()).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatLockedEvent locked
+                && locked.getLockId().equals(result.getLockId())));
+    }
+
+    @Test
+    void acquireLock_WithLockedSeat_ShouldReturnNull() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(0L, 1L)); // A1 is held by another lock
+
+        // Act
+        LockInfo result = seatLockManager.acquireLock(tripId, seatNumbers, userId);
+
+        // Assert
+        assertNull(result);
+    }
+
+    @Test
+    void tryAcquireLock_WithLockedSeats_ShouldReportConflicts() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(0L, 2L));
+
+        // Act
+        SeatLockManager.LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, seatNumbers, userId);
+
+        // Assert
+        assertFalse(attempt.isAcquired());
+        assertNull(attempt.getLockInfo());
+        assertEquals(List.of("A2"), attempt.getConflictingSeats());
+    }
+
+    @Test
+    void acquireLock_WithBookedSeat_ShouldReturnNull() {
+        // Arrange
+        when(seatOccupancyService.getSeatIndex(tripId)).thenReturn(Map.of("A1", 0, "A2", 1));
+        when(seatOccupancyService.findBookedSeats(eq(tripId), anyMap(), eq(seatNumbers)))
+                .thenReturn(List.of("A1"));
+
+        // Act
+        SeatLockManager.LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, seatNumbers, userId);
+
+        // Assert
+        assertFalse(attempt.isAcquired());
+        assertEquals(List.of("A1"), attempt.getConflictingSeats());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void acquireLock_WithNoSeats_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            seatLockManager.acquireLock(tripId, Collections.emptyList(), userId);
+        });
+    }
+
+    @Test
+    void releaseLock_WithValidLock_ShouldReleaseLock() {
+        // Arrange
+        String lockId = "lock-123";
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, LocalDateTime.now().plusMinutes(10));
+        
+        when(valueOperations.get("lock:" + lockId)).thenReturn(lockInfo);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any())).thenReturn(1L);
+
+        // Act
+        boolean result = seatLockManager.releaseLock(lockId);
+
+        // Assert
+        assertTrue(result);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(Arrays.asList("lock:" + lockId, "trip_locks:" + tripId,
+                        "seat_lock:" + tripId + ":A1", "seat_lock:" + tripId + ":A2")),
+                eq(lockId), eq("A1"), eq("A2"));
+        verify(redisTemplate, never()).delete(anyString());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatReleasedEvent released
+                && released.getReason() == SeatReleasedEvent.Reason.RELEASED
+                && released.getSeatNumbers().equals(seatNumbers)));
+    }
+
+    @Test
+    void releaseLock_WithInvalidLock_ShouldReturnFalse() {
+        // Arrange
+        String lockId = "invalid-lock";
+        when(valueOperations.get("lock:" + lockId)).thenReturn(null);
+
+        // Act
+        boolean result = seatLockManager.releaseLock(lockId);
+
+        // Assert
+        assertFalse(result);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void extendLock_WithValidLock_ShouldExtendExpiration() {
+        // Arrange
+        String lockId = "lock-123";
+        LocalDateTime originalExpiry = LocalDateTime.now().plusMinutes(5);
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, originalExpiry);
+        
+        when(valueOperations.get("lock:" + lockId)).thenReturn(lockInfo);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any()))
+                .thenReturn(1L);
+
+        // Act
+        boolean result = seatLockManager.extendLock(lockId, 5);
+
+        // Assert
+        assertTrue(result);
+        assertEquals(originalExpiry.plusMinutes(5), lockInfo.getExpiresAt());
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(Arrays.asList("lock:" + lockId, "trip_locks:" + tripId,
+                        "seat_lock:" + tripId + ":A1", "seat_lock:" + tripId + ":A2")),
+                eq(lockInfo), eq(lockId), eq(300000L), eq("A1"), eq("A2"));
+    }
+
+    @Test
+    void extendLock_WithInvalidLock_ShouldReturnFalse() {
+        // Arrange
+        String lockId = "invalid-lock";
+        when(valueOperations.get("lock:" + lockId)).thenReturn(null);
+
+        // Act
+        boolean result = seatLockManager.extendLock(lockId, 5);
+
+        // Assert
+        assertFalse(result);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void isLocked_WithLockedSeat_ShouldReturnTrue() {
+        // Arrange
+        String seatNumber = "A1";
+        when(valueOperations.get("seat_lock:" + tripId + ":" + seatNumber)).thenReturn("lock-123");
+
+        // Act
+        boolean result = seatLockManager.isLocked(tripId, seatNumber);
+
+        // Assert
+        assertTrue(result);
+    }
+
+    @Test
+    void isLocked_WithUnlockedSeat_ShouldReturnFalse() {
+        // Arrange
+        String seatNumber = "A1";
+        when(valueOperations.get("seat_lock:" + tripId + ":" + seatNumber)).thenReturn(null);
+
+        // Act
+        boolean result = seatLockManager.isLocked(tripId, seatNumber);
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void verifyHold_WithIntactHold_ShouldReturnLockInfoInOneCall() {
+        // Arrange
+        LockInfo lockInfo = new LockInfo("lock-123", tripId, seatNumbers, userId, LocalDateTime.now().plusMinutes(10));
+        lockInfo.setFencingToken(42L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(Arrays.asList("lock:lock-123",
+                "seat_lock:" + tripId + ":A1", "seat_lock:" + tripId + ":A2")), eq("lock-123")))
+                .thenReturn(lockInfo);
+
+        // Act
+        LockInfo result = seatLockManager.verifyHold("lock-123", tripId, seatNumbers);
+
+        // Assert
+        assertEquals(42L, result.getFencingToken());
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    void verifyHold_WithHoldOnAnotherTrip_ShouldReturnNull() {
+        // Arrange
+        LockInfo lockInfo = new LockInfo("lock-123", "trip-999", seatNumbers, userId, LocalDateTime.now().plusMinutes(10));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), eq("lock-123"))).thenReturn(lockInfo);
+
+        // Act & Assert
+        assertNull(seatLockManager.verifyHold("lock-123", tripId, seatNumbers));
+    }
+
+    @Test
+    void isBooked_ShouldDelegateToOccupancy() {
+        // Arrange
+        when(seatOccupancyService.isBooked(tripId, "A1")).thenReturn(true);
+
+        // Act & Assert
+        assertTrue(seatLockManager.isBooked(tripId, "A1"));
+        assertFalse(seatLockManager.isBooked(tripId, "A2"));
+    }
+
+    @Test
+    void getSeatStatuses_ShouldResolveAllSeatsFromTripLockIndex() {
+        // Arrange
+        List<String> seats = Arrays.asList("A1", "A2", "B1");
+        Map<String, Integer> seatIndex = Map.of("A1", 0, "A2", 1, "B1", 2);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("trip_locks:" + tripId))))
+                .thenReturn(List.of("A2"));
+        when(seatOccupancyService.findBookedSeats(tripId, seatIndex, seats)).thenReturn(List.of("A1"));
+
+        // Act
+        Map<String, SeatStatus> statuses = seatLockManager.getSeatStatuses(tripId, seatIndex, seats);
+
+        // Assert
+        assertEquals(SeatStatus.BOOKED, statuses.get("A1"));
+        assertEquals(SeatStatus.LOCKED, statuses.get("A2"));
+        assertEquals(SeatStatus.AVAILABLE, statuses.get("B1"));
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    void getLockInfo_WithValidLock_ShouldReturnLockInfo() {
+        // Arrange
+        String lockId = "lock-123";
+        LockInfo expectedLockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, LocalDateTime.now().plusMinutes(10));
+        
+        when(valueOperations.get("lock:" + lockId)).thenReturn(expectedLockInfo);
+
+        // Act
+        LockInfo result = seatLockManager.getLockInfo(lockId);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(expectedLockInfo, result);
+    }
+
+    @Test
+    void getLockInfo_WithInvalidLock_ShouldReturnNull() {
+        // Arrange
+        String lockId = "invalid-lock";
+        when(valueOperations.get("lock:" + lockId)).thenReturn(null);
+
+        // Act
+        LockInfo result = seatLockManager.getLockInfo(lockId);
+
+        // Assert
+        assertNull(result);
+    }
+
+    @Test
+    void isLockValid_WithValidLock_ShouldReturnTrue() {
+        // Arrange
+        String lockId = "lock-123";
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, LocalDateTime.now().plusMinutes(10));
+        
+        when(valueOperations.get("lock:" + lockId)).thenReturn(lockInfo);
+
+        // Act
+        boolean result = seatLockManager.isLockValid(lockId);
+
+        // Assert
+        assertTrue(result);
+    }
+
+    @Test
+    void isLockValid_WithExpiredLock_ShouldReturnFalse() {
+        // Arrange
+        String lockId = "lock-123";
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, LocalDateTime.now().minusMinutes(1));
+        
+        when(valueOperations.get("lock:" + lockId)).thenReturn(lockInfo);
+
+        // Act
+        boolean result = seatLockManager.isLockValid(lockId);
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void isLockValid_WithNonExistentLock_ShouldReturnFalse() {
+        // Arrange
+        String lockId = "invalid-lock";
+        when(valueOperations.get("lock:" + lockId)).thenReturn(null);
+
+        // Act
+        boolean result = seatLockManager.isLockValid(lockId);
+
+        // Assert
+        assertFalse(result);
+    }
+
+    @Test
+    void lockInfo_ShouldHaveCorrectProperties() {
+        // Arrange
+        String lockId = "lock-123";
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(10);
+
+        // Act
+        LockInfo lockInfo = new LockInfo(lockId, tripId, seatNumbers, userId, expiresAt);
+
+        // Assert
+        assertEquals(lockId, lockInfo.getLockId());
+        assertEquals(tripId, lockInfo.getTripId());
+        assertEquals(seatNumbers, lockInfo.getSeatNumbers());
+        assertEquals(userId, lockInfo.getUserId());
+        assertEquals(expiresAt, lockInfo.getExpiresAt());
+        assertNotNull(lockInfo.getCreatedAt());
+        assertTrue(lockInfo.getCreatedAt().isBefore(LocalDateTime.now().plusSeconds(1)));
+    }
+
+    @Test
+    void getLockedSeats_ShouldReadTripLockIndex() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("trip_locks:" + tripId))))
+                .thenReturn(List.of("A1", "B3"));
+
+        // Act
+        List<String> result = seatLockManager.getLockedSeats(tripId);
+
+        // Assert
+        assertEquals(List.of("A1", "B3"), result);
+        verify(redisTemplate, never()).keys(anyString());
+    }
+
+    @Test
+    void getLockedSeats_WithNoIndex_ShouldReturnEmptyList() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("trip_locks:" + tripId))))
+                .thenReturn(null);
+
+        // Act & Assert
+        assertTrue(seatLockManager.getLockedSeats(tripId).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cleanupExpiredLocks_ShouldReportBookingMappingsWithoutLock() {
+        // Arrange
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenReturn(true, true, false);
+        when(cursor.next()).thenReturn("lock_booking:lock-live", "lock_booking:lock-gone");
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        when(redisTemplate.hasKey("lock:lock-live")).thenReturn(true);
+        when(redisTemplate.hasKey("lock:lock-gone")).thenReturn(false);
+
+        // Act
+        seatLockManager.cleanupExpiredLocks();
+
+        // Assert
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof SeatHoldExpiredEvent expired
+                && expired.getLockId().equals("lock-gone")));
+        verifyNoMoreInteractions(eventPublisher);
+        verify(cursor).close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.busticket.service;
+
+import com.busticket.config.RedisConfig;
+import com.busticket.service.SeatLockManager.LockAttempt;
+import com.busticket.service.SeatLockManager.LockInfo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the seat lock Lua scripts against a real Redis.
+ *
+ * Needs a scratch Redis server: set SEAT_LOCK_REDIS_URL, e.g. redis://localhost:6379/15.
+ * Every test works on a trip of its own, so the database is not flushed.
+ */
+@EnabledIfEnvironmentVariable(named = "SEAT_LOCK_REDIS_URL", matches = ".+")
+class RedisSeatLockScriptsTest {
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private final Map<String, Integer> seatIndex = Map.of("A1", 0, "A2", 1, "B1", 2);
+
+    private SeatOccupancyService seatOccupancyService;
+    private RedisSeatLockManager seatLockManager;
+    private String tripId;
+
+    @BeforeAll
+    static void connect() {
+        URI uri = URI.create(System.getenv("SEAT_LOCK_REDIS_URL"));
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(uri.getHost(),
+                uri.getPort() > 0 ? uri.getPort() : 6379);
+        String path = uri.getPath();
+        if (path != null && path.length() > 1) {
+            configuration.setDatabase(Integer.parseInt(path.substring(1)));
+        }
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory, 0, 30000);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        tripId = "trip-" + UUID.randomUUID();
+        seatOccupancyService = mock(SeatOccupancyService.class);
+        when(seatOccupancyService.getSeatIndex(anyString())).thenReturn(seatIndex);
+        // Leave the booked-seat check to the script
+        when(seatOccupancyService.findBookedSeats(anyString(), any(), anyList())).thenReturn(List.of());
+        seatLockManager = new RedisSeatLockManager(redisTemplate, seatOccupancyService,
+                mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void acquire_ShouldStoreFencingTokenInLockRecord() {
+        // When
+        LockAttempt first = seatLockManager.tryAcquireLock(tripId, List.of("A1", "A2"), "user-1");
+        LockAttempt second = seatLockManager.tryAcquireLock(tripId, List.of("B1"), "user-2");
+
+        // Then
+        assertTrue(first.isAcquired());
+        long token = first.getLockInfo().getFencingToken();
+        assertTrue(token > 0);
+        assertEquals(token, seatLockManager.getLockInfo(first.getLockInfo().getLockId()).getFencingToken());
+
+        LockInfo verified = seatLockManager.verifyHold(first.getLockInfo().getLockId(), tripId, List.of("A1", "A2"));
+        assertNotNull(verified);
+        assertEquals(token, verified.getFencingToken());
+        assertEquals(List.of("A1", "A2"), verified.getSeatNumbers());
+
+        assertTrue(second.getLockInfo().getFencingToken() > token);
+    }
+
+    @Test
+    void acquire_WhenSeatHeld_ShouldClaimNoSeats() {
+        // Given
+        seatLockManager.tryAcquireLock(tripId, List.of("A1"), "user-1");
+
+        // When
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, List.of("A2", "A1"), "user-2");
+
+        // Then
+        assertFalse(attempt.isAcquired());
+        assertEquals(List.of("A1"), attempt.getConflictingSeats());
+        assertFalse(seatLockManager.isLocked(tripId, "A2"));
+        assertEquals(List.of("A1"), seatLockManager.getLockedSeats(tripId));
+    }
+
+    @Test
+    void acquire_WhenSeatBooked_ShouldClaimNoSeats() {
+        // Given: A2 confirmed after the fast path looked
+        byte[] key = SeatOccupancyService.occupancyKey(tripId).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Boolean>) (RedisConnection connection) ->
+                connection.stringCommands().setBit(key, SeatOccupancyService.bitOffset(1), true));
+
+        // When
+        LockAttempt attempt = seatLockManager.tryAcquireLock(tripId, List.of("A1", "A2"), "user-1");
+
+        // Then
+        assertFalse(attempt.isAcquired());
+        assertEquals(List.of("A2"), attempt.getConflictingSeats());
+        assertFalse(seatLockManager.isLocked(tripId, "A1"));
+        redisTemplate.delete(SeatOccupancyService.occupancyKey(tripId));
+    }
+
+    @Test
+    void extend_ShouldKeepFencingTokenAndPushExpiry() {
+        // Given
+        LockInfo lockInfo = seatLockManager.tryAcquireLock(tripId, List.of("A1"), "user-1").getLockInfo();
+        String lockKey = "lock:" + lockInfo.getLockId();
+        long ttlBefore = redisTemplate.getExpire(lockKey);
+
+        // When
+        boolean extended = seatLockManager.extendLock(lockInfo.getLockId(), 5);
+
+        // Then
+        assertTrue(extended);
+        LockInfo stored = seatLockManager.getLockInfo(lockInfo.getLockId());
+        assertEquals(lockInfo.getFencingToken(), stored.getFencingToken());
+        assertEquals(lockInfo.getExpiresAt().plusMinutes(5), stored.getExpiresAt());
+        assertTrue(redisTemplate.getExpire(lockKey) >= ttlBefore + 299);
+        assertTrue(redisTemplate.getExpire("seat_lock:" + tripId + ":A1") >= ttlBefore + 299);
+    }
+
+    @Test
+    void release_ShouldLeaveSeatsTakenOverByAnotherHold() {
+        // Given: A2 was handed to another hold after it expired from this one
+        LockInfo lockInfo = seatLockManager.tryAcquireLock(tripId, List.of("A1", "A2"), "user-1").getLockInfo();
+        redisTemplate.opsForValue().set("seat_lock:" + tripId + ":A2", "other-lock");
+
+        // When
+        boolean released = seatLockManager.releaseLock(lockInfo.getLockId());
+
+        // Then
+        assertTrue(released);
+        assertFalse(seatLockManager.isLocked(tripId, "A1"));
+        assertTrue(seatLockManager.isLocked(tripId, "A2"));
+        assertNull(seatLockManager.getLockInfo(lockInfo.getLockId()));
+        assertFalse(seatLockManager.releaseLock(lockInfo.getLockId()));
+        redisTemplate.delete("seat_lock:" + tripId + ":A2");
+    }
+
+    @Test
+    void verifyHold_WhenSeatTakenOver_ShouldReturnNothing() {
+        // Given
+        LockInfo lockInfo = seatLockManager.tryAcquireLock(tripId, List.of("A1", "A2"), "user-1").getLockInfo();
+        redisTemplate.opsForValue().set("seat_lock:" + tripId + ":A1", "other-lock");
+
+        // When
+        LockInfo verified = seatLockManager.verifyHold(lockInfo.getLockId(), tripId, List.of("A1", "A2"));
+
+        // Then
+        assertNull(verified);
+        redisTemplate.delete("seat_lock:" + tripId + ":A1");
+        seatLockManager.releaseLock(lockInfo.getLockId());
+    }
+}
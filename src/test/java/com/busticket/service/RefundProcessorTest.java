@@ -0,0 +1,235 @@
+package com.busticket.service;
+
+import com.busticket.model.Payment;
+import com.busticket.model.PaymentStatus;
+import com.busticket.model.Refund;
+import com.busticket.model.RefundStatus;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefundProcessorTest {
+
+    @Mock
+    private RefundRepository refundRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RefundProcessor refundProcessor;
+    private Payment payment;
+    private Refund first;
+    private Refund second;
+
+    @BeforeEach
+    void setUp() {
+        // Batches of 2, 2 workers, a refund is given up after 3 attempts
+        refundProcessor = new RefundProcessor(refundRepository, paymentRepository, paymentGateway,
+                transactionManager, 2, 2, 60000, 3, false);
+
+        payment = new Payment();
+        payment.setId("payment-1");
+        payment.setBookingId("booking-1");
+        payment.setAmount(new BigDecimal("1230.00"));
+        payment.setStatus(PaymentStatus.SUCCESS);
+
+        first = refund("refund-1");
+        second = refund("refund-2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        refundProcessor.shutdown();
+    }
+
+    @Test
+    void processBatch_WhenGatewayRefunds_ShouldCompleteAllInOneSave() {
+        // Given
+        givenClaimable(first, second);
+        when(paymentGateway.refund(any(Refund.class), eq(payment)))
+                .thenAnswer(invocation -> new PaymentGateway.GatewayResult(true,
+                        "REF_" + invocation.<Refund>getArgument(0).getId(), null));
+
+        // When
+        int processed = refundProcessor.processBatch();
+
+        // Then
+        assertEquals(2, processed);
+        assertEquals(RefundStatus.COMPLETED, first.getStatus());
+        assertEquals("REF_refund-1", first.getTransactionId());
+        assertNotNull(first.getCompletedAt());
+        assertEquals(RefundStatus.COMPLETED, second.getStatus());
+        assertEquals(List.of(first, second), savedRefunds());
+        // Claim and recording each commit on their own, with the gateway calls in between
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void processBatch_WhenRefundFailsWithAttemptsLeft_ShouldLeaveItPending() {
+        // Given
+        givenClaimable(first, second);
+        when(paymentGateway.refund(first, payment)).thenReturn(new PaymentGateway.GatewayResult(false, null, "Declined"));
+        when(paymentGateway.refund(second, payment)).thenThrow(new GatewayGuard.GatewayUnavailableException("busy"));
+
+        // When
+        refundProcessor.processBatch();
+
+        // Then
+        assertEquals(RefundStatus.PENDING, first.getStatus());
+        assertEquals(RefundStatus.PENDING, second.getStatus());
+        assertTrue(savedRefunds().isEmpty());
+    }
+
+    @Test
+    void processBatch_WhenRefundFailsOnLastAttempt_ShouldMarkItFailed() {
+        // Given
+        first.setAttempts(2);
+        givenClaimable(first);
+        when(paymentGateway.refund(first, payment)).thenReturn(new PaymentGateway.GatewayResult(false, null, "Declined"));
+
+        // When
+        refundProcessor.processBatch();
+
+        // Then
+        assertEquals(3, first.getAttempts());
+        assertEquals(RefundStatus.FAILED, first.getStatus());
+        assertEquals(List.of(first), savedRefunds());
+    }
+
+    @Test
+    void processBatch_WhenClaimedAgainMeanwhile_ShouldNotOverwrite() {
+        // Given: the claim lapsed during the gateway call and another worker took the refund
+        givenClaimable(first);
+        when(paymentGateway.refund(first, payment)).thenAnswer(invocation -> {
+            first.setClaimedAt(first.getClaimedAt().plusMinutes(5));
+            return new PaymentGateway.GatewayResult(true, "REF_1", null);
+        });
+
+        // When
+        refundProcessor.processBatch();
+
+        // Then
+        assertEquals(RefundStatus.PENDING, first.getStatus());
+        assertTrue(savedRefunds().isEmpty());
+    }
+
+    @Test
+    void processBatch_WithNothingToClaim_ShouldNotCallGateway() {
+        // Given
+        when(refundRepository.lockClaimableRefundIds(any(LocalDateTime.class), eq(2))).thenReturn(List.of());
+
+        // When
+        int processed = refundProcessor.processBatch();
+
+        // Then
+        assertEquals(0, processed);
+        verify(refundRepository, never()).claimRefunds(any(), any());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    @Test
+    void drain_WhileBatchesAreFull_ShouldKeepClaiming() {
+        // Given: a full batch, then an empty one
+        when(refundRepository.lockClaimableRefundIds(any(LocalDateTime.class), eq(2)))
+                .thenReturn(List.of("refund-1", "refund-2"))
+                .thenReturn(List.of());
+        stubClaim(first, second);
+        when(paymentGateway.refund(any(Refund.class), eq(payment)))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "REF_1", null));
+
+        // When
+        int processed = refundProcessor.drain();
+
+        // Then
+        assertEquals(2, processed);
+        verify(refundRepository, times(2)).lockClaimableRefundIds(any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void processBatch_InVirtualThreadMode_ShouldCompleteBatch() {
+        // Given: runs on virtual threads on Java 21, on the worker pool before that
+        RefundProcessor virtualProcessor = new RefundProcessor(refundRepository, paymentRepository, paymentGateway,
+                transactionManager, 2, 2, 60000, 3, true);
+        givenClaimable(first, second);
+        when(paymentGateway.refund(any(Refund.class), eq(payment)))
+                .thenReturn(new PaymentGateway.GatewayResult(true, "REF_1", null));
+
+        // When
+        try {
+            int processed = virtualProcessor.processBatch();
+
+            // Then
+            assertEquals(2, processed);
+            assertEquals(RefundStatus.COMPLETED, first.getStatus());
+            assertEquals(RefundStatus.COMPLETED, second.getStatus());
+        } finally {
+            virtualProcessor.shutdown();
+        }
+    }
+
+    @Test
+    void constructor_WithZeroParallelism_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new RefundProcessor(refundRepository, paymentRepository,
+                paymentGateway, transactionManager, 2, 0, 60000, 3, false));
+    }
+
+    private void givenClaimable(Refund... refunds) {
+        List<String> ids = Arrays.stream(refunds).map(Refund::getId).toList();
+        when(refundRepository.lockClaimableRefundIds(any(LocalDateTime.class), eq(2))).thenReturn(ids);
+        stubClaim(refunds);
+    }
+
+    private void stubClaim(Refund... refunds) {
+        List<Refund> claimed = List.of(refunds);
+        when(refundRepository.claimRefunds(anyCollection(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            for (Refund refund : claimed) {
+                refund.setClaimedAt(invocation.getArgument(1));
+                refund.setAttempts(refund.getAttempts() + 1);
+            }
+            return claimed.size();
+        });
+        when(refundRepository.findAllById(any())).thenReturn(claimed);
+        when(paymentRepository.findAllById(any())).thenReturn(List.of(payment));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Refund> savedRefunds() {
+        ArgumentCaptor<List<Refund>> saved = ArgumentCaptor.forClass(List.class);
+        verify(refundRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private Refund refund(String id) {
+        Refund refund = new Refund();
+        refund.setId(id);
+        refund.setPaymentId("payment-1");
+        refund.setBookingId("booking-1");
+        refund.setAmount(new BigDecimal("615.00"));
+        refund.setStatus(RefundStatus.PENDING);
+        refund.setCreatedAt(LocalDateTime.now());
+        return refund;
+    }
+}
@@ -1,5 +1,7 @@
 package com.busticket.service;
 
+import com.busticket.dto.CitySuggestion;
+import com.busticket.dto.TripPage;
 import com.busticket.dto.TripResponse;
 import com.busticket.dto.TripSearchRequest;
 import com.busticket.model.*;
@@ -11,6 +13,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -18,8 +22,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -43,9 +51,17 @@ class SearchServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private TripSearchIndex tripSearchIndex;
+
+    @Mock
+    private CityAutocompleteIndex cityAutocompleteIndex;
+
     @InjectMocks
     private SearchService searchService;
 
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
     private City mumbai;
     private City delhi;
     private Bus testBus;
@@ -85,6 +101,7 @@ class SearchServiceTest {
         testTrip.setArrivalTime(LocalDateTime.now().plusDays(1).plusHours(20));
         testTrip.setPrice(BigDecimal.valueOf(1500.0));
         testTrip.setIsOpen(true);
+        testTrip.setAvailableSeats(35);
     }
 
     @Test
@@ -96,14 +113,9 @@ class SearchServiceTest {
         when(cityRepository.findByNameIgnoreCase("Delhi")).thenReturn(Optional.of(delhi));
         when(routeRepository.findByDepartureCityIdAndDestinationCityId("city-mumbai", "city-delhi"))
                 .thenReturn(Arrays.asList(testRoute));
-        when(tripRepository.searchTrips(anyString(), anyString(), any(LocalDate.class),
+        when(tripRepository.searchTripRows(anyCollection(), any(LocalDate.class),
                 any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(Arrays.asList(testTrip));
-        when(busRepository.findById("bus-123")).thenReturn(Optional.of(testBus));
-        when(routeRepository.findById("route-123")).thenReturn(Optional.of(testRoute));
-        when(cityRepository.findById("city-mumbai")).thenReturn(Optional.of(mumbai));
-        when(cityRepository.findById("city-delhi")).thenReturn(Optional.of(delhi));
-        when(tripRepository.calculateAvailableSeats("trip-123")).thenReturn(35);
+                .thenReturn(Arrays.asList(searchRow(testTrip)));
         when(objectMapper.readValue(eq("[\"WiFi\", \"Charging Port\"]"),
                 any(com.fasterxml.jackson.core.type.TypeReference.class)))
                 .thenReturn(Arrays.asList("WiFi", "Charging Port"));
@@ -221,11 +233,25 @@ class SearchServiceTest {
         verifyNoInteractions(cityRepository);
     }
 
+    @Test
+    void getCitySuggestions_WhenIndexLoaded_ShouldNotQueryDatabase() {
+        // Arrange
+        when(cityAutocompleteIndex.suggest("mu"))
+                .thenReturn(Optional.of(List.of(new CitySuggestion("Mumbai", "Maharashtra"))));
+
+        // Act
+        List<String> result = searchService.getCitySuggestions("mu");
+
+        // Assert
+        assertEquals(List.of("Mumbai"), result);
+        verifyNoInteractions(cityRepository);
+    }
+
     @Test
     void getAvailableSeats_WithValidTripId_ShouldReturnSeatCount() {
         // Arrange
         String tripId = "trip-123";
-        when(tripRepository.calculateAvailableSeats(tripId)).thenReturn(25);
+        when(tripRepository.findAvailableSeats(tripId)).thenReturn(25);
 
         // Act
         Integer result = searchService.getAvailableSeats(tripId);
@@ -238,7 +264,7 @@ class SearchServiceTest {
     void getAvailableSeats_WithNullResult_ShouldReturnZero() {
         // Arrange
         String tripId = "trip-123";
-        when(tripRepository.calculateAvailableSeats(tripId)).thenReturn(null);
+        when(tripRepository.findAvailableSeats(tripId)).thenReturn(null);
 
         // Act
         Integer result = searchService.getAvailableSeats(tripId);
@@ -443,4 +469,154 @@ class SearchServiceTest {
                 Arrays.asList("WiFi", "Charging Port"),
                 null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchTrips_ShouldNotLookUpEntitiesPerResult() {
+        // Arrange
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(1));
+        Trip secondTrip = new Trip("trip-456", "route-123", "bus-123", testTrip.getDepartureTime().plusHours(2),
+                testTrip.getArrivalTime().plusHours(2), BigDecimal.valueOf(1200.0));
+        secondTrip.setAvailableSeats(0);
+
+        when(cityRepository.findByNameIgnoreCase("Mumbai")).thenReturn(Optional.of(mumbai));
+        when(cityRepository.findByNameIgnoreCase("Delhi")).thenReturn(Optional.of(delhi));
+        when(routeRepository.findByDepartureCityIdAndDestinationCityId("city-mumbai", "city-delhi"))
+                .thenReturn(Arrays.asList(testRoute));
+        when(tripRepository.searchTripRows(anyCollection(), any(LocalDate.class),
+                any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(searchRow(testTrip), searchRow(secondTrip)));
+
+        // Act
+        List<TripResponse> result = searchService.searchTrips(request);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(35, result.get(0).getAvailableSeats());
+        assertEquals(0, result.get(1).getAvailableSeats());
+        verify(tripRepository, never()).calculateAvailableSeats(anyString());
+        verify(busRepository, never()).findById(anyString());
+        verify(routeRepository, never()).findById(anyString());
+        verify(cityRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void searchTrips_WithAlternateRoutes_ShouldQueryOnceAndDeduplicate() {
+        // Arrange
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(1));
+        Route alternateRoute = new Route();
+        alternateRoute.setId("route-456");
+        alternateRoute.setDepartureCityId("city-mumbai");
+        alternateRoute.setDestinationCityId("city-delhi");
+
+        when(cityRepository.findByNameIgnoreCase("Mumbai")).thenReturn(Optional.of(mumbai));
+        when(cityRepository.findByNameIgnoreCase("Delhi")).thenReturn(Optional.of(delhi));
+        when(routeRepository.findByDepartureCityIdAndDestinationCityId("city-mumbai", "city-delhi"))
+                .thenReturn(Arrays.asList(testRoute, alternateRoute));
+        when(tripRepository.searchTripRows(eq(Set.of("route-123", "route-456")), any(LocalDate.class),
+                any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(searchRow(testTrip), searchRow(testTrip)));
+
+        // Act
+        List<TripResponse> result = searchService.searchTrips(request);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("trip-123", result.get(0).getId());
+        verify(tripRepository, times(1)).searchTripRows(anyCollection(), any(LocalDate.class),
+                any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void searchTrips_WhenIndexCoversDate_ShouldNotQueryDatabase() {
+        // Arrange
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(1));
+        TripResponse indexed = createTripResponse("trip-123", "Test Bus Company");
+        when(tripSearchIndex.search(request)).thenReturn(Optional.of(List.of(indexed)));
+
+        // Act
+        List<TripResponse> result = searchService.searchTrips(request);
+
+        // Assert
+        assertEquals(List.of(indexed), result);
+        verifyNoInteractions(cityRepository, routeRepository, tripRepository);
+    }
+
+    @Test
+    void searchTrips_WithMisspelledCity_ShouldSearchResolvedCity() {
+        // Arrange
+        TripSearchRequest request = new TripSearchRequest("Mumbia", "Delhi", LocalDate.now().plusDays(1));
+        when(cityAutocompleteIndex.resolve("Mumbia")).thenReturn(Optional.of("Mumbai"));
+        when(cityRepository.findByNameIgnoreCase("Mumbai")).thenReturn(Optional.of(mumbai));
+        when(cityRepository.findByNameIgnoreCase("Delhi")).thenReturn(Optional.of(delhi));
+
+        // Act
+        searchService.searchTrips(request);
+
+        // Assert
+        assertEquals("Mumbai", request.getDepartureCity());
+        verify(routeRepository).findByDepartureCityIdAndDestinationCityId("city-mumbai", "city-delhi");
+    }
+
+    @Test
+    void searchTripsPage_ShouldReturnCursorThatContinuesAfterLastTrip() {
+        // Arrange
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(1));
+        request.setSortBy("cheapest");
+        Trip laterTrip = new Trip();
+        laterTrip.setId("trip-456");
+        laterTrip.setDepartureTime(testTrip.getDepartureTime().plusHours(2));
+        laterTrip.setArrivalTime(testTrip.getArrivalTime().plusHours(2));
+        laterTrip.setPrice(BigDecimal.valueOf(1800.0));
+        laterTrip.setAvailableSeats(10);
+
+        when(cityRepository.findByNameIgnoreCase("Mumbai")).thenReturn(Optional.of(mumbai));
+        when(cityRepository.findByNameIgnoreCase("Delhi")).thenReturn(Optional.of(delhi));
+        when(routeRepository.findByDepartureCityIdAndDestinationCityId("city-mumbai", "city-delhi"))
+                .thenReturn(List.of(testRoute));
+        when(tripRepository.findTripRowPage(anyCollection(), any(LocalDate.class), any(), any(), any(), any(),
+                any(), any(), any(), eq("CHEAPEST"), any(), any(), any(), eq(2)))
+                .thenReturn(List.of(searchRow(testTrip), searchRow(laterTrip)))
+                .thenReturn(List.of(searchRow(laterTrip)));
+
+        // Act
+        TripPage first = searchService.searchTripsPage(request, null, 1);
+        TripPage second = searchService.searchTripsPage(null, first.getNextCursor(), 1);
+
+        // Assert
+        assertEquals(List.of("trip-123"), first.getTrips().stream().map(TripResponse::getId).collect(Collectors.toList()));
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of("trip-456"), second.getTrips().stream().map(TripResponse::getId).collect(Collectors.toList()));
+        assertNull(second.getNextCursor());
+        verify(tripRepository).findTripRowPage(anyCollection(), eq(request.getDate()), any(), any(), any(), any(),
+                any(), any(), any(), eq("CHEAPEST"), eq(150000L), eq(testTrip.getDepartureTime()), eq("trip-123"), eq(2));
+    }
+
+    @Test
+    void searchTripsPage_WithInvalidArguments_ShouldThrow() {
+        TripSearchRequest request = new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(1));
+
+        assertThrows(IllegalArgumentException.class, () -> searchService.searchTripsPage(request, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> searchService.searchTripsPage(request, null, 101));
+        assertThrows(IllegalArgumentException.class, () -> searchService.searchTripsPage(null, "not-a-cursor", 20));
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.searchTripsPage(new TripSearchRequest(), null, 20));
+    }
+
+    private TripSearchRow searchRow(Trip trip) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", trip.getId());
+        row.put("busId", testBus.getId());
+        row.put("busCompany", testBus.getCompanyName());
+        row.put("busNumber", testBus.getBusNumber());
+        row.put("departureCity", mumbai.getName());
+        row.put("destinationCity", delhi.getName());
+        row.put("departureTime", trip.getDepartureTime());
+        row.put("arrivalTime", trip.getArrivalTime());
+        row.put("price", trip.getPrice());
+        row.put("busType", testBus.getBusType());
+        row.put("totalSeats", testBus.getTotalSeats());
+        row.put("availableSeats", trip.getAvailableSeats());
+        row.put("amenities", testBus.getAmenities());
+        return PROJECTIONS.createProjection(TripSearchRow.class, row);
+    }
+}
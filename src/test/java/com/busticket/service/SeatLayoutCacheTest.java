@@ -0,0 +1,106 @@
+package com.busticket.service;
+
+import com.busticket.model.Bus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatLayoutCacheTest {
+
+    private static final String LAYOUT = "{\"rows\": 1, \"columns\": 2, \"seats\": ["
+            + "{\"number\": \"A1\", \"row\": 1, \"column\": 1}, {\"number\": \"A2\", \"row\": 1, \"column\": 2}]}";
+
+    private SeatLayoutCache seatLayoutCache;
+
+    @BeforeEach
+    void setUp() {
+        seatLayoutCache = new SeatLayoutCache(new ObjectMapper(), 2);
+    }
+
+    @Test
+    void getTemplate_ShouldExposeSeatsInLayoutOrder() {
+        // When
+        SeatLayoutTemplate template = seatLayoutCache.getTemplate(bus("bus-1", LAYOUT));
+
+        // Then
+        assertEquals(1, template.getRows());
+        assertEquals(2, template.getColumns());
+        assertEquals(List.of("A1", "A2"), template.getSeatNumbers());
+        assertEquals(Map.of("A1", 0, "A2", 1), template.getSeatIndex());
+        assertEquals(1, template.getRow(1));
+        assertEquals(2, template.getColumn(1));
+    }
+
+    @Test
+    void getTemplate_ShouldReuseTemplateForSameLayout() {
+        // Given: a freshly loaded entity carries an equal but distinct JSON string
+        SeatLayoutTemplate first = seatLayoutCache.getTemplate(bus("bus-1", LAYOUT));
+
+        // When
+        SeatLayoutTemplate second = seatLayoutCache.getTemplate(bus("bus-1", new String(LAYOUT)));
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    void getTemplate_ShouldReparseWhenLayoutChanges() {
+        // Given
+        SeatLayoutTemplate first = seatLayoutCache.getTemplate(bus("bus-1", LAYOUT));
+        String updated = "{\"rows\": 1, \"columns\": 1, \"seats\": [{\"number\": \"C1\", \"row\": 1, \"column\": 1}]}";
+
+        // When
+        SeatLayoutTemplate second = seatLayoutCache.getTemplate(bus("bus-1", updated));
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals(List.of("C1"), second.getSeatNumbers());
+        assertEquals(1, seatLayoutCache.size());
+    }
+
+    @Test
+    void getTemplate_ShouldDropLeastRecentlyUsedBus() {
+        // Given
+        SeatLayoutTemplate first = seatLayoutCache.getTemplate(bus("bus-1", LAYOUT));
+        seatLayoutCache.getTemplate(bus("bus-2", LAYOUT));
+        seatLayoutCache.getTemplate(bus("bus-1", LAYOUT));
+
+        // When
+        seatLayoutCache.getTemplate(bus("bus-3", LAYOUT));
+
+        // Then
+        assertEquals(2, seatLayoutCache.size());
+        assertSame(first, seatLayoutCache.getTemplate(bus("bus-1", LAYOUT)));
+    }
+
+    @Test
+    void evict_ShouldForceReparse() {
+        // Given
+        SeatLayoutTemplate first = seatLayoutCache.getTemplate(bus("bus-1", LAYOUT));
+
+        // When
+        seatLayoutCache.evict("bus-1");
+
+        // Then
+        assertNotSame(first, seatLayoutCache.getTemplate(bus("bus-1", LAYOUT)));
+    }
+
+    @Test
+    void getTemplate_ShouldRejectInvalidLayout() {
+        assertThrows(IllegalArgumentException.class, () -> seatLayoutCache.getTemplate(bus("bus-1", "")));
+        assertThrows(IllegalArgumentException.class, () -> seatLayoutCache.getTemplate(bus("bus-1", "{not json")));
+        assertEquals(0, seatLayoutCache.size());
+    }
+
+    private Bus bus(String id, String layout) {
+        Bus bus = new Bus();
+        bus.setId(id);
+        bus.setSeatLayout(layout);
+        return bus;
+    }
+}
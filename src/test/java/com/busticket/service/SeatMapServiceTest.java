@@ -0,0 +1,180 @@
+package com.busticket.service;
+
+import com.busticket.dto.SeatMapGeometry;
+import com.busticket.dto.SeatMapStatus;
+import com.busticket.event.SeatBookedEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.model.Bus;
+import com.busticket.model.Trip;
+import com.busticket.repository.BusRepository;
+import com.busticket.repository.TripRepository;
+import com.busticket.service.SeatSelectionService.SeatStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeatMapServiceTest {
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private BusRepository busRepository;
+
+    @Mock
+    private SeatLockManager seatLockManager;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private SeatMapService seatMapService;
+    private Trip trip;
+
+    @BeforeEach
+    void setUp() {
+        seatMapService = new SeatMapService(tripRepository, busRepository,
+                new SeatLayoutCache(new ObjectMapper(), 16), seatLockManager, redisTemplate);
+
+        Bus bus = new Bus();
+        bus.setId("bus-1");
+        bus.setSeatLayout("{\"rows\": 2, \"columns\": 3, \"seats\": ["
+                + "{\"number\": \"A1\", \"row\": 1, \"column\": 1}, {\"number\": \"A2\", \"row\": 1, \"column\": 2}, "
+                + "{\"number\": \"A3\", \"row\": 1, \"column\": 3}, {\"number\": \"B1\", \"row\": 2, \"column\": 1}, "
+                + "{\"number\": \"B2\", \"row\": 2, \"column\": 2}]}");
+
+        trip = new Trip();
+        trip.setId("trip-1");
+        trip.setBusId("bus-1");
+        trip.setPrice(new BigDecimal("500.00"));
+
+        lenient().when(tripRepository.findById("trip-1")).thenReturn(Optional.of(trip));
+        lenient().when(busRepository.findById("bus-1")).thenReturn(Optional.of(bus));
+    }
+
+    @Test
+    void getGeometry_ShouldSendLayoutOnceWithVersion() {
+        // When
+        SeatMapGeometry geometry = seatMapService.getGeometry("trip-1");
+
+        // Then
+        assertArrayEquals(new String[] { "A1", "A2", "A3", "B1", "B2" }, geometry.getSeatNumbers());
+        assertArrayEquals(new int[] { 1, 1, 1, 2, 2 }, geometry.getSeatRows());
+        assertArrayEquals(new int[] { 1, 2, 3, 1, 2 }, geometry.getSeatColumns());
+        assertEquals(new BigDecimal("500.00"), geometry.getPrice());
+        assertNotNull(geometry.getVersion());
+    }
+
+    @Test
+    void getGeometry_ShouldChangeVersionWhenPriceChanges() {
+        // Given
+        String before = seatMapService.getGeometry("trip-1").getVersion();
+        trip.setPrice(new BigDecimal("550.00"));
+
+        // When
+        String after = seatMapService.getGeometry("trip-1").getVersion();
+
+        // Then
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void getStatus_ShouldPackTwoBitsPerSeat() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), eq(-1L))).thenReturn(List.of(42L, 0L));
+        when(seatLockManager.getSeatStatuses(eq("trip-1"), anyMap(), eq(List.of("A1", "A2", "A3", "B1", "B2"))))
+                .thenReturn(Map.of("A1", SeatStatus.BOOKED, "A2", SeatStatus.AVAILABLE, "A3", SeatStatus.LOCKED,
+                        "B1", SeatStatus.AVAILABLE, "B2", SeatStatus.BOOKED));
+
+        // When
+        SeatMapStatus status = seatMapService.getStatus("trip-1", null);
+
+        // Then: A1=2 (bits 0-1), A3=3 (bits 4-5) in byte 0, B2=2 in bits 0-1 of byte 1
+        assertFalse(status.isDelta());
+        assertEquals(42L, status.getVersion());
+        assertEquals(5, status.getSeatCount());
+        assertArrayEquals(new byte[] { 0b00110010, 0b00000010 }, status.getStatuses());
+    }
+
+    @Test
+    void getStatus_ShouldReturnOnlyChangesSinceLoggedVersion() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), eq(40L)))
+                .thenReturn(List.of(42L, 1L, "41|3|A1,A2", "42|0|A2,Z9"));
+
+        // When
+        SeatMapStatus status = seatMapService.getStatus("trip-1", 40L);
+
+        // Then
+        assertTrue(status.isDelta());
+        assertNull(status.getStatuses());
+        assertEquals(42L, status.getVersion());
+        assertEquals(2, status.getChanges().size());
+        assertEquals(41L, status.getChanges().get(0).getVersion());
+        assertEquals(SeatStatus.LOCKED.ordinal(), status.getChanges().get(0).getStatus());
+        assertArrayEquals(new int[] { 0, 1 }, status.getChanges().get(0).getSeats());
+        assertArrayEquals(new int[] { 1 }, status.getChanges().get(1).getSeats());
+        verify(seatLockManager, never()).getSeatStatuses(anyString(), anyMap(), anyList());
+    }
+
+    @Test
+    void getStatus_ShouldFallBackToSnapshotWhenLogNoLongerCoversVersion() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), eq(7L))).thenReturn(List.of(42L, 0L));
+        when(seatLockManager.getSeatStatuses(eq("trip-1"), anyMap(), anyList())).thenReturn(Map.of());
+
+        // When
+        SeatMapStatus status = seatMapService.getStatus("trip-1", 7L);
+
+        // Then
+        assertFalse(status.isDelta());
+        assertArrayEquals(new byte[2], status.getStatuses());
+    }
+
+    @Test
+    void onSeatEvent_ShouldLogStatusChange() {
+        // When
+        seatMapService.onSeatEvent(new SeatBookedEvent("trip-1", List.of("A1", "A2"), "booking-1"));
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("seat_map_version:trip-1", "seat_map_changes:trip-1")),
+                eq(SeatStatus.BOOKED.ordinal()), eq(SeatMapService.MAX_LOGGED_CHANGES), eq(86400L),
+                eq("A1"), eq("A2"));
+    }
+
+    @Test
+    void onSeatEvent_ShouldSkipExpiryRecordedByAnotherNode() {
+        // When
+        seatMapService.onSeatEvent(new SeatReleasedEvent("trip-1", List.of("A1"), null,
+                SeatReleasedEvent.Reason.EXPIRED, false));
+
+        // Then
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any(), any());
+    }
+
+    @Test
+    void onSeatEvent_ShouldNotFailWhenRedisIsDown() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("Redis unavailable"));
+
+        // When / Then
+        assertDoesNotThrow(() -> seatMapService.onSeatEvent(
+                new SeatBookedEvent("trip-1", List.of("A1"), "booking-1")));
+    }
+}
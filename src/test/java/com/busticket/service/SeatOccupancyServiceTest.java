@@ -0,0 +1,163 @@
+package com.busticket.service;
+
+import com.busticket.model.Booking;
+import com.busticket.model.BookingStatus;
+import com.busticket.model.Bus;
+import com.busticket.model.Trip;
+import com.busticket.repository.BookingRepository;
+import com.busticket.repository.BusRepository;
+import com.busticket.repository.TripRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeatOccupancyServiceTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private BusRepository busRepository;
+
+    private SeatOccupancyService seatOccupancyService;
+
+    private final String tripId = "trip-1";
+    private final Map<String, Integer> seatIndex = Map.of("A1", 0, "A2", 1, "B1", 2, "B2", 3);
+
+    @BeforeEach
+    void setUp() {
+        seatOccupancyService = new SeatOccupancyService(redisTemplate, bookingRepository, tripRepository,
+                busRepository, new SeatLayoutCache(new ObjectMapper(), 16));
+    }
+
+    @Test
+    void getSeatIndex_ShouldFollowLayoutOrder() {
+        // Given
+        Trip trip = new Trip();
+        trip.setId(tripId);
+        trip.setBusId("bus-1");
+        Bus bus = new Bus();
+        bus.setId("bus-1");
+        bus.setSeatLayout("{\"rows\": 1, \"columns\": 2, \"seats\": [{\"number\": \"A1\", \"row\": 1, \"column\": 1}, "
+                + "{\"number\": \"A2\", \"row\": 1, \"column\": 2}]}");
+        when(tripRepository.findById(tripId)).thenReturn(Optional.of(trip));
+        when(busRepository.findById("bus-1")).thenReturn(Optional.of(bus));
+
+        // When
+        Map<String, Integer> result = seatOccupancyService.getSeatIndex(tripId);
+
+        // Then
+        assertEquals(Map.of("A1", 0, "A2", 1), result);
+    }
+
+    @Test
+    void getOccupancy_ShouldDecodeRedisBitmap() {
+        // Given: marker bit 0, A2 (bit 2) and B2 (bit 4) booked
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(new byte[] { (byte) 0b10101000 });
+
+        // When
+        BitSet occupancy = seatOccupancyService.getOccupancy(tripId, seatIndex);
+
+        // Then
+        assertFalse(occupancy.get(0));
+        assertTrue(occupancy.get(1));
+        assertFalse(occupancy.get(2));
+        assertTrue(occupancy.get(3));
+        verify(bookingRepository, never()).findByTripIdAndStatus(anyString(), any());
+    }
+
+    @Test
+    void getOccupancy_ShouldRebuildMissingBitmapFromBookings() {
+        // Given
+        Booking booking = new Booking();
+        booking.setSeatNumbers("[\"A2\", \"B1\"]");
+        when(bookingRepository.findByTripIdAndStatus(tripId, BookingStatus.CONFIRMED))
+                .thenReturn(List.of(booking));
+        // Bitmap missing, no seat writes yet, then the rebuilt bitmap
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn(null)
+                .thenReturn(null)
+                .thenReturn(new byte[] { (byte) 0b10110000 });
+
+        // When
+        BitSet occupancy = seatOccupancyService.getOccupancy(tripId, seatIndex);
+
+        // Then
+        assertTrue(occupancy.get(1));
+        assertTrue(occupancy.get(2));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("seat_occupancy:" + tripId, "seat_occupancy_writes:" + tripId)),
+                eq(86400L), eq(0L), eq(2L), eq(3L));
+    }
+
+    @Test
+    void rebuild_WhenSeatsChangeDuringRead_ShouldRetryWithFreshBookings() {
+        // Given
+        Booking booking = new Booking();
+        booking.setSeatNumbers("A1");
+        when(bookingRepository.findByTripIdAndStatus(tripId, BookingStatus.CONFIRMED))
+                .thenReturn(List.of(booking));
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn("4".getBytes())
+                .thenReturn("5".getBytes());
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any()))
+                .thenReturn(-1L)
+                .thenReturn(1L);
+
+        // When
+        seatOccupancyService.rebuild(tripId, seatIndex);
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq(86400L), eq(4L), eq(1L));
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq(86400L), eq(5L), eq(1L));
+        verify(bookingRepository, times(2)).findByTripIdAndStatus(tripId, BookingStatus.CONFIRMED);
+    }
+
+    @Test
+    void findBookedSeats_ShouldScanBookingsForSeatsOutsideLayout() {
+        // Given
+        Booking booking = new Booking();
+        booking.setSeatNumbers("Z9,Z10");
+        when(bookingRepository.findByTripIdAndStatus(tripId, BookingStatus.CONFIRMED))
+                .thenReturn(List.of(booking));
+
+        // When
+        List<String> booked = seatOccupancyService.findBookedSeats(tripId, Collections.emptyMap(),
+                Arrays.asList("Z9", "Z11"));
+
+        // Then
+        assertEquals(List.of("Z9"), booked);
+        verify(redisTemplate, never()).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    void parseSeatNumbers_ShouldAcceptJsonAndCommaSeparatedValues() {
+        assertEquals(List.of("A1", "A2"), SeatOccupancyService.parseSeatNumbers("[\"A1\", \"A2\"]"));
+        assertEquals(List.of("A1", "A2"), SeatOccupancyService.parseSeatNumbers("A1, A2"));
+        assertEquals(List.of(), SeatOccupancyService.parseSeatNumbers(null));
+    }
+}
@@ -10,17 +10,20 @@ import com.busticket.service.SeatSelectionService.Seat;
 import com.busticket.service.SeatSelectionService.SeatLayout;
 import com.busticket.service.SeatSelectionService.SeatSelection;
 import com.busticket.service.SeatSelectionService.SeatStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,6 +42,9 @@ class SeatSelectionServiceTest {
     @Mock
     private SeatLockManager seatLockManager;
 
+    @Spy
+    private SeatLayoutCache seatLayoutCache = new SeatLayoutCache(new ObjectMapper(), 16);
+
     @InjectMocks
     private SeatSelectionService seatSelectionService;
 
@@ -64,8 +70,9 @@ class SeatSelectionServiceTest {
         // Given
         when(tripRepository.findById("trip-1")).thenReturn(Optional.of(mockTrip));
         when(busRepository.findById("bus-1")).thenReturn(Optional.of(mockBus));
-        when(seatLockManager.isBooked("trip-1", "A1")).thenReturn(true);
-        when(seatLockManager.isLocked("trip-1", "A2")).thenReturn(true);
+        when(seatLockManager.getSeatStatuses(eq("trip-1"), anyMap(), eq(Arrays.asList("A1", "A2", "B1", "B2"))))
+                .thenReturn(Map.of("A1", SeatStatus.BOOKED, "A2", SeatStatus.LOCKED,
+                        "B1", SeatStatus.AVAILABLE, "B2", SeatStatus.AVAILABLE));
 
         // When
         SeatLayout layout = seatSelectionService.getSeatLayout("trip-1");
@@ -100,11 +107,9 @@ class SeatSelectionServiceTest {
     @Test
     void selectSeat_ShouldSucceedForAvailableSeat() {
         // Given
-        when(seatLockManager.isLocked("trip-1", "A1")).thenReturn(false);
-        when(seatLockManager.isBooked("trip-1", "A1")).thenReturn(false);
-        when(seatLockManager.acquireLock(eq("trip-1"), anyList(), eq("user-1")))
-                .thenReturn(new SeatLockManager.LockInfo("lock-123", "trip-1", Arrays.asList("A1"), "user-1",
-                        LocalDateTime.now().plusMinutes(10)));
+        when(seatLockManager.tryAcquireLock(eq("trip-1"), anyList(), eq("user-1")))
+                .thenReturn(SeatLockManager.LockAttempt.acquired(new SeatLockManager.LockInfo("lock-123", "trip-1",
+                        Arrays.asList("A1"), "user-1", LocalDateTime.now().plusMinutes(10))));
 
         // When
         SeatSelection result = seatSelectionService.selectSeat("trip-1", "A1", "user-1");
@@ -114,31 +119,32 @@ class SeatSelectionServiceTest {
         assertEquals("A1", result.getSeatNumber());
         assertEquals("lock-123", result.getLockId());
         assertNotNull(result.getExpiresAt());
-        verify(seatLockManager).acquireLock(eq("trip-1"), eq(Arrays.asList("A1")), eq("user-1"));
+        verify(seatLockManager).tryAcquireLock(eq("trip-1"), eq(Arrays.asList("A1")), eq("user-1"));
     }
 
     @Test
     void selectSeat_ShouldFailForBookedSeat() {
         // Given
-        when(seatLockManager.isBooked("trip-1", "A1")).thenReturn(true);
+        when(seatLockManager.tryAcquireLock(eq("trip-1"), anyList(), eq("user-1")))
+                .thenReturn(SeatLockManager.LockAttempt.conflict(List.of("A1")));
 
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
             seatSelectionService.selectSeat("trip-1", "A1", "user-1");
         });
-        verify(seatLockManager, never()).acquireLock(anyString(), anyList(), anyString());
     }
 
     @Test
     void selectSeat_ShouldFailForLockedSeat() {
         // Given
-        when(seatLockManager.isLocked("trip-1", "A1")).thenReturn(true);
+        when(seatLockManager.tryAcquireLock(eq("trip-1"), anyList(), eq("user-1")))
+                .thenReturn(SeatLockManager.LockAttempt.conflict(List.of("A1")));
 
         // When & Then
-        assertThrows(IllegalStateException.class, () -> {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
             seatSelectionService.selectSeat("trip-1", "A1", "user-1");
         });
-        verify(seatLockManager, never()).acquireLock(anyString(), anyList(), anyString());
+        assertTrue(exception.getMessage().contains("A1"));
     }
 
     @Test
@@ -158,13 +164,9 @@ class SeatSelectionServiceTest {
     void selectSeats_ShouldSucceedForAvailableSeats() {
         // Given
         List<String> seatNumbers = Arrays.asList("A1", "A2");
-        when(seatLockManager.isLocked("trip-1", "A1")).thenReturn(false);
-        when(seatLockManager.isLocked("trip-1", "A2")).thenReturn(false);
-        when(seatLockManager.isBooked("trip-1", "A1")).thenReturn(false);
-        when(seatLockManager.isBooked("trip-1", "A2")).thenReturn(false);
-        when(seatLockManager.acquireLock(eq("trip-1"), eq(seatNumbers), eq("user-1")))
-                .thenReturn(new SeatLockManager.LockInfo("lock-123", "trip-1", seatNumbers, "user-1",
-                        LocalDateTime.now().plusMinutes(10)));
+        when(seatLockManager.tryAcquireLock(eq("trip-1"), eq(seatNumbers), eq("user-1")))
+                .thenReturn(SeatLockManager.LockAttempt.acquired(new SeatLockManager.LockInfo("lock-123", "trip-1",
+                        seatNumbers, "user-1", LocalDateTime.now().plusMinutes(10))));
 
         // When
         SeatSelection result = seatSelectionService.selectSeats("trip-1", seatNumbers, "user-1");
@@ -173,7 +175,21 @@ class SeatSelectionServiceTest {
         assertNotNull(result);
         assertEquals("A1", result.getSeatNumber());
         assertEquals("lock-123", result.getLockId());
-        verify(seatLockManager).acquireLock(eq("trip-1"), eq(seatNumbers), eq("user-1"));
+        verify(seatLockManager).tryAcquireLock(eq("trip-1"), eq(seatNumbers), eq("user-1"));
+    }
+
+    @Test
+    void selectSeats_ShouldReportConflictingSeats() {
+        // Given
+        List<String> seatNumbers = Arrays.asList("A1", "A2");
+        when(seatLockManager.tryAcquireLock(eq("trip-1"), eq(seatNumbers), eq("user-1")))
+                .thenReturn(SeatLockManager.LockAttempt.conflict(List.of("A2")));
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            seatSelectionService.selectSeats("trip-1", seatNumbers, "user-1");
+        });
+        assertTrue(exception.getMessage().contains("A2"));
     }
 
     @Test
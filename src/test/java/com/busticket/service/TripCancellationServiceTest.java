@@ -0,0 +1,143 @@
+package com.busticket.service;
+
+import com.busticket.event.TripChangedEvent;
+import com.busticket.model.Booking;
+import com.busticket.model.BookingStatus;
+import com.busticket.repository.BookingRepository;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import com.busticket.repository.TripRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TripCancellationServiceTest {
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RefundRepository refundRepository;
+
+    @Mock
+    private BookingService bookingService;
+
+    @Mock
+    private RefundProcessor refundProcessor;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TripCancellationService tripCancellationService;
+    private List<Booking> bookings;
+
+    @BeforeEach
+    void setUp() {
+        tripCancellationService = new TripCancellationService(tripRepository, bookingRepository, paymentRepository,
+                refundRepository, bookingService, refundProcessor, eventPublisher, transactionManager);
+
+        bookings = List.of(booking("booking-1", BookingStatus.PENDING, "[\"A1\"]"),
+                booking("booking-2", BookingStatus.CONFIRMED, "[\"B1\", \"B2\"]"));
+    }
+
+    @Test
+    void cancelTrip_ShouldCancelBookingsQueueRefundsAndReleaseSeats() {
+        // Given
+        when(tripRepository.existsById("trip-1")).thenReturn(true);
+        when(tripRepository.closeTrip("trip-1")).thenReturn(1);
+        when(bookingRepository.findByTripIdAndStatusIn("trip-1",
+                List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED))).thenReturn(bookings);
+        when(bookingRepository.cancelTripBookings(eq("trip-1"), any(LocalDateTime.class), eq("Bus breakdown")))
+                .thenReturn(2);
+        when(refundRepository.insertTripRefunds(eq("trip-1"), eq("Bus breakdown"), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        // When
+        int refunds = tripCancellationService.cancelTrip("trip-1", "Bus breakdown");
+
+        // Then
+        assertEquals(1, refunds);
+        InOrder order = inOrder(paymentRepository, bookingRepository, refundRepository, transactionManager,
+                bookingService, refundProcessor);
+        // Unpaid payments are failed and bookings cancelled before paid ones are refunded, all in one transaction
+        order.verify(paymentRepository).failTripPendingPayments("trip-1");
+        order.verify(bookingRepository).cancelTripBookings(eq("trip-1"), any(LocalDateTime.class), eq("Bus breakdown"));
+        order.verify(refundRepository).insertTripRefunds(eq("trip-1"), eq("Bus breakdown"), any(LocalDateTime.class));
+        order.verify(transactionManager).commit(any());
+        order.verify(bookingService).releaseCancelledBookings("trip-1", bookings);
+        order.verify(refundProcessor).wakeUp();
+        verify(tripRepository).incrementAvailableSeats("trip-1", 2);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof TripChangedEvent changed
+                && "trip-1".equals(changed.getTripId())));
+    }
+
+    @Test
+    void cancelTrip_WithoutPaidBookings_ShouldNotWakeRefundEngine() {
+        // Given
+        when(tripRepository.existsById("trip-1")).thenReturn(true);
+        when(tripRepository.closeTrip("trip-1")).thenReturn(1);
+        when(bookingRepository.findByTripIdAndStatusIn(eq("trip-1"), anyCollection())).thenReturn(List.of());
+
+        // When
+        int refunds = tripCancellationService.cancelTrip("trip-1", "Bus breakdown");
+
+        // Then
+        assertEquals(0, refunds);
+        verify(tripRepository, never()).incrementAvailableSeats(anyString(), anyInt());
+        verifyNoInteractions(refundProcessor);
+    }
+
+    @Test
+    void cancelTrip_WhenTripAlreadyClosed_ShouldRollBackAndThrow() {
+        // Given
+        when(tripRepository.existsById("trip-1")).thenReturn(true);
+        when(tripRepository.closeTrip("trip-1")).thenReturn(0);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> tripCancellationService.cancelTrip("trip-1", "Bus breakdown"));
+        verify(transactionManager).rollback(any());
+        verify(bookingRepository, never()).cancelTripBookings(anyString(), any(), anyString());
+        verifyNoInteractions(bookingService, refundProcessor, eventPublisher);
+    }
+
+    @Test
+    void cancelTrip_WithUnknownTrip_ShouldThrow() {
+        // Given
+        when(tripRepository.existsById("trip-9")).thenReturn(false);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> tripCancellationService.cancelTrip("trip-9", "Bus breakdown"));
+        verifyNoInteractions(transactionManager, bookingRepository, refundRepository);
+    }
+
+    private static Booking booking(String id, BookingStatus status, String seatNumbers) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setTripId("trip-1");
+        booking.setStatus(status);
+        booking.setSeatNumbers(seatNumbers);
+        return booking;
+    }
+}
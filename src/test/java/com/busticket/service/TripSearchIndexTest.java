@@ -0,0 +1,295 @@
+package com.busticket.service;
+
+import com.busticket.dto.FareCalendarDay;
+import com.busticket.dto.TripResponse;
+import com.busticket.dto.TripSearchRequest;
+import com.busticket.event.SeatBookedEvent;
+import com.busticket.event.SeatReleasedEvent;
+import com.busticket.event.TripChangedEvent;
+import com.busticket.model.BusType;
+import com.busticket.repository.TripIndexRow;
+import com.busticket.repository.TripRepository;
+import com.busticket.repository.TripSeatAvailability;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TripSearchIndexTest {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    @Mock
+    private TripRepository tripRepository;
+
+    private TripSearchIndex tripSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        tripSearchIndex = new TripSearchIndex(tripRepository, new ObjectMapper(), true, 90);
+    }
+
+    @Test
+    void search_BeforeLoad_ShouldLeaveSearchToDatabase() {
+        // When
+        Optional<List<TripResponse>> result = tripSearchIndex.search(request());
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void search_ShouldReturnTripsOfCityPairAndDayInDepartureOrder() {
+        // Given
+        load();
+
+        // When
+        TripSearchRequest request = new TripSearchRequest("mumbai", "DELHI", TOMORROW);
+        List<TripResponse> result = tripSearchIndex.search(request).orElseThrow();
+
+        // Then
+        assertEquals(List.of("trip-a", "trip-b", "trip-c"), ids(result));
+        TripResponse first = result.get(0);
+        assertEquals("Mumbai", first.getDepartureCity());
+        assertEquals("Delhi", first.getDestinationCity());
+        assertEquals(TOMORROW.atTime(8, 0), first.getDepartureTime());
+        assertEquals(360L, first.getDurationMinutes());
+        assertEquals(new BigDecimal("900.00"), first.getPrice());
+        assertEquals(BusType.AC, first.getBusType());
+        assertEquals("Alpha Travels", first.getBusCompany());
+        assertEquals(List.of("WiFi"), first.getAmenities());
+        assertEquals(40, first.getTotalSeats());
+    }
+
+    @Test
+    void search_ShouldApplyFilters() {
+        // Given
+        load();
+
+        // When
+        TripSearchRequest byType = request();
+        byType.setBusTypes(List.of(BusType.AC));
+        TripSearchRequest byPrice = request();
+        byPrice.setMinPrice(new BigDecimal("800"));
+        byPrice.setMaxPrice(new BigDecimal("1000"));
+        TripSearchRequest byTime = request();
+        byTime.setDepartureTimeStart(LocalTime.of(9, 0));
+        byTime.setDepartureTimeEnd(LocalTime.of(14, 0));
+        TripSearchRequest byOperator = request();
+        byOperator.setBusOperators(List.of("Beta Bus"));
+        TripSearchRequest bySeats = request();
+        bySeats.setMinAvailableSeats(5);
+
+        // Then
+        assertEquals(List.of("trip-a", "trip-c"), ids(tripSearchIndex.search(byType).orElseThrow()));
+        assertEquals(List.of("trip-a"), ids(tripSearchIndex.search(byPrice).orElseThrow()));
+        assertEquals(List.of("trip-b", "trip-c"), ids(tripSearchIndex.search(byTime).orElseThrow()));
+        assertEquals(List.of("trip-b"), ids(tripSearchIndex.search(byOperator).orElseThrow()));
+        assertEquals(List.of("trip-a", "trip-c"), ids(tripSearchIndex.search(bySeats).orElseThrow()));
+    }
+
+    @Test
+    void search_ShouldApplySortOptions() {
+        // Given
+        load();
+
+        // Then
+        assertEquals(List.of("trip-b", "trip-a", "trip-c"), ids(search("CHEAPEST")));
+        assertEquals(List.of("trip-c", "trip-a", "trip-b"), ids(search("FASTEST")));
+        assertEquals(List.of("trip-c", "trip-a", "trip-b"), ids(search("MOST_AVAILABLE")));
+        assertEquals(List.of("trip-a", "trip-b", "trip-c"), ids(search("EARLIEST_DEPARTURE")));
+    }
+
+    @Test
+    void searchPage_ShouldContinueAfterCursorInSortOrder() {
+        // Given
+        load();
+        TripSearchRequest request = request();
+        request.setSortBy("cheapest");
+
+        // When
+        List<TripResponse> first = tripSearchIndex.searchPage(request, null, 2).orElseThrow();
+        TripSearchCursor cursor = TripSearchCursor.decode(TripSearchCursor.encode(request, first.get(1)));
+        List<TripResponse> second = tripSearchIndex.searchPage(cursor.getRequest(), cursor, 2).orElseThrow();
+
+        // Then
+        assertEquals(List.of("trip-b", "trip-a"), ids(first));
+        assertEquals(List.of("trip-c"), ids(second));
+    }
+
+    @Test
+    void search_WithUnknownCityOrOutsideIndexedDays_ShouldBehaveLikeDatabase() {
+        // Given
+        load();
+
+        // Then: unknown cities have no trips, dates past the index go to the database
+        assertEquals(List.of(), tripSearchIndex.search(
+                new TripSearchRequest("Atlantis", "Delhi", TOMORROW)).orElseThrow());
+        assertTrue(tripSearchIndex.search(
+                new TripSearchRequest("Mumbai", "Delhi", LocalDate.now().plusDays(90))).isEmpty());
+    }
+
+    @Test
+    void summarizeDay_ShouldReturnCheapestFareWithSeatsLeft() {
+        // Given
+        load();
+        tripSearchIndex.onSeatEvent(new SeatBookedEvent("trip-b", List.of("B1", "B2"), "booking-1"));
+
+        // When
+        FareCalendarDay day = tripSearchIndex.summarizeDay("Mumbai", "Delhi", TOMORROW).orElseThrow();
+
+        // Then: trip-b is sold out, so trip-a is the cheapest
+        assertEquals(new BigDecimal("900.00"), day.getCheapestPrice());
+        assertEquals(40, day.getAvailableSeats());
+        assertEquals(3, day.getTripCount());
+        assertEquals(0, tripSearchIndex.summarizeDay("Mumbai", "Delhi", TOMORROW.plusDays(1))
+                .orElseThrow().getTripCount());
+        assertTrue(tripSearchIndex.summarizeDay("Mumbai", "Delhi", LocalDate.now().plusDays(90)).isEmpty());
+    }
+
+    @Test
+    void onSeatEvent_ShouldTrackBookedAndCancelledSeats() {
+        // Given
+        load();
+
+        // When
+        tripSearchIndex.onSeatEvent(new SeatBookedEvent("trip-a", List.of("A1", "A2", "A3"), "booking-1"));
+        tripSearchIndex.onSeatEvent(new SeatReleasedEvent("trip-b", List.of("B1"), null,
+                SeatReleasedEvent.Reason.CANCELLED));
+        tripSearchIndex.onSeatEvent(new SeatReleasedEvent("trip-c", List.of("C1"), "lock-1",
+                SeatReleasedEvent.Reason.RELEASED));
+
+        // Then
+        Map<String, Integer> seats = search(null).stream()
+                .collect(Collectors.toMap(TripResponse::getId, TripResponse::getAvailableSeats));
+        assertEquals(Map.of("trip-a", 7, "trip-b", 3, "trip-c", 30), seats);
+    }
+
+    @Test
+    void refreshAvailability_ShouldOverwriteSeatCounts() {
+        // Given
+        load();
+        when(tripRepository.findAvailableSeatsDepartingBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(seats("trip-a", 1), seats("trip-unknown", 5)));
+
+        // When
+        tripSearchIndex.refreshAvailability();
+
+        // Then
+        assertEquals(1, search(null).get(0).getAvailableSeats());
+    }
+
+    @Test
+    void onTripChanged_ShouldMoveTripToItsNewDay() {
+        // Given
+        load();
+        LocalDate dayAfter = TOMORROW.plusDays(1);
+        TripIndexRow moved = row("trip-b", dayAfter.atTime(10, 0), 6, "700.00", BusType.SLEEPER, "Beta Bus", 2);
+        when(tripRepository.findTripIndexRow(eq("trip-b"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(moved));
+        when(tripRepository.findTripIndexRows("city-mumbai", "city-delhi", TOMORROW))
+                .thenReturn(List.of(tripA(), tripC()));
+        when(tripRepository.findTripIndexRows("city-mumbai", "city-delhi", dayAfter))
+                .thenReturn(List.of(moved));
+
+        // When
+        tripSearchIndex.onTripChanged(new TripChangedEvent("trip-b"));
+
+        // Then
+        assertEquals(List.of("trip-a", "trip-c"), ids(search(null)));
+        assertEquals(List.of("trip-b"), ids(tripSearchIndex.search(
+                new TripSearchRequest("Mumbai", "Delhi", dayAfter)).orElseThrow()));
+        assertEquals(4, tripSearchIndex.size());
+    }
+
+    @Test
+    void reload_WhenDisabled_ShouldNotLoad() {
+        // Given
+        tripSearchIndex = new TripSearchIndex(tripRepository, new ObjectMapper(), false, 90);
+
+        // When
+        tripSearchIndex.reload();
+
+        // Then
+        verifyNoInteractions(tripRepository);
+        assertTrue(tripSearchIndex.search(request()).isEmpty());
+    }
+
+    private void load() {
+        TripIndexRow toPune = row("trip-p", TOMORROW.atTime(9, 0), 3, "400.00", BusType.AC, "Alpha Travels", 20);
+        when(tripRepository.findTripIndexRows(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(tripC(), tripA(), toPune,
+                        row("trip-b", TOMORROW.atTime(10, 0), 6, "700.00", BusType.SLEEPER, "Beta Bus", 2)));
+        tripSearchIndex.reload();
+    }
+
+    private TripIndexRow tripA() {
+        return row("trip-a", TOMORROW.atTime(8, 0), 6, "900.00", BusType.AC, "Alpha Travels", 10);
+    }
+
+    private TripIndexRow tripC() {
+        return row("trip-c", TOMORROW.atTime(14, 0), 5, "1200.00", BusType.AC, "Alpha Travels", 30);
+    }
+
+    private TripIndexRow row(String id, LocalDateTime departure, int hours, String price, BusType busType,
+            String company, int availableSeats) {
+        boolean toPune = id.equals("trip-p");
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("routeId", toPune ? "route-pune" : "route-delhi");
+        row.put("departureCityId", "city-mumbai");
+        row.put("destinationCityId", toPune ? "city-pune" : "city-delhi");
+        row.put("busId", "bus-" + company.charAt(0));
+        row.put("busCompany", company);
+        row.put("busNumber", "MH01");
+        row.put("departureCity", "Mumbai");
+        row.put("destinationCity", toPune ? "Pune" : "Delhi");
+        row.put("departureTime", departure);
+        row.put("arrivalTime", departure.plusHours(hours));
+        row.put("price", new BigDecimal(price));
+        row.put("busType", busType);
+        row.put("totalSeats", 40);
+        row.put("availableSeats", availableSeats);
+        row.put("amenities", "[\"WiFi\"]");
+        return PROJECTIONS.createProjection(TripIndexRow.class, row);
+    }
+
+    private TripSeatAvailability seats(String id, int availableSeats) {
+        return PROJECTIONS.createProjection(TripSeatAvailability.class,
+                Map.of("id", id, "availableSeats", availableSeats));
+    }
+
+    private TripSearchRequest request() {
+        return new TripSearchRequest("Mumbai", "Delhi", TOMORROW);
+    }
+
+    private List<TripResponse> search(String sortBy) {
+        TripSearchRequest request = request();
+        request.setSortBy(sortBy);
+        return tripSearchIndex.search(request).orElseThrow();
+    }
+
+    private List<String> ids(List<TripResponse> trips) {
+        return trips.stream().map(TripResponse::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,71 @@
+package com.busticket.service;
+
+import com.busticket.repository.TripRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TripSeatCounterServiceTest {
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @InjectMocks
+    private TripSeatCounterService tripSeatCounterService;
+
+    @Test
+    void reconcile_ShouldRecomputeDriftedCounterUnderTripLock() {
+        // Given
+        when(tripRepository.lockTrip("trip-1")).thenReturn(Optional.of("trip-1"));
+        when(tripRepository.calculateAvailableSeats("trip-1")).thenReturn(38);
+        when(tripRepository.findAvailableSeats("trip-1")).thenReturn(36);
+
+        // When
+        boolean corrected = tripSeatCounterService.reconcile("trip-1");
+
+        // Then
+        assertTrue(corrected);
+        InOrder inOrder = inOrder(tripRepository);
+        inOrder.verify(tripRepository).lockTrip("trip-1");
+        inOrder.verify(tripRepository).calculateAvailableSeats("trip-1");
+        inOrder.verify(tripRepository).setAvailableSeats("trip-1", 38);
+    }
+
+    @Test
+    void reconcile_ShouldLeaveMatchingCounterAlone() {
+        // Given
+        when(tripRepository.lockTrip("trip-1")).thenReturn(Optional.of("trip-1"));
+        when(tripRepository.calculateAvailableSeats("trip-1")).thenReturn(38);
+        when(tripRepository.findAvailableSeats("trip-1")).thenReturn(38);
+
+        // When
+        boolean corrected = tripSeatCounterService.reconcile("trip-1");
+
+        // Then
+        assertFalse(corrected);
+        verify(tripRepository, never()).setAvailableSeats(anyString(), anyInt());
+    }
+
+    @Test
+    void reconcile_ShouldSkipDeletedTrip() {
+        // Given
+        when(tripRepository.lockTrip("trip-1")).thenReturn(Optional.empty());
+
+        // When
+        boolean corrected = tripSeatCounterService.reconcile("trip-1");
+
+        // Then
+        assertFalse(corrected);
+        verify(tripRepository, never()).calculateAvailableSeats(anyString());
+    }
+}
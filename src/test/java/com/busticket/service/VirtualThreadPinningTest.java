@@ -0,0 +1,182 @@
+package com.busticket.service;
+
+import com.busticket.dto.PaymentRequest;
+import com.busticket.model.Payment;
+import com.busticket.model.PaymentStatus;
+import com.busticket.repository.PaymentRepository;
+import com.busticket.repository.RefundRepository;
+import com.busticket.repository.TripRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the code paths that block while holding a lock on virtual threads and fails if
+ * JFR sees any of them pin its carrier thread, as blocking inside {@code synchronized}
+ * does before Java 24.
+ */
+@ExtendWith(MockitoExtension.class)
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int THREADS = 16;
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private RefundRepository refundRepository;
+
+    @Mock
+    private RefundProcessor refundProcessor;
+
+    @Mock
+    private BookingService bookingService;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void indexRebuilds_ShouldNotPinCarrierThreads() throws Exception {
+        // Given: every database read blocks for a while
+        Answer<Object> slowEmpty = invocation -> {
+            Thread.sleep(20);
+            return List.of();
+        };
+        when(tripRepository.findTripIndexRows(any(LocalDateTime.class), any(LocalDateTime.class))).thenAnswer(slowEmpty);
+        TripSearchIndex tripSearchIndex = new TripSearchIndex(tripRepository, new ObjectMapper(), true, 90);
+        ConnectionSearchService connectionSearchService =
+                new ConnectionSearchService(tripRepository, new ObjectMapper(), 30, 2, 30, 720, 0);
+
+        // When
+        List<RecordedEvent> pinned = recordPinning(() -> {
+            tripSearchIndex.reload();
+            tripSearchIndex.refreshTrip("trip-1");
+            connectionSearchService.rebuild();
+        });
+
+        // Then
+        assertTrue(pinned.isEmpty(), () -> "Carrier threads pinned at:\n" + describe(pinned));
+    }
+
+    @Test
+    void paymentProcessing_ShouldNotPinCarrierThreads() throws Exception {
+        // Given: a slow gateway behind the virtual thread pipeline
+        when(paymentRepository.claimForProcessing(anyString(), any(LocalDateTime.class))).thenReturn(1);
+        when(paymentGateway.charge(any(Payment.class), any(PaymentRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return new PaymentGateway.GatewayResult(true, "TXN_1", null);
+        });
+        when(paymentRepository.markSucceeded(anyString(), eq("TXN_1"), any(LocalDateTime.class))).thenReturn(1);
+        PaymentProcessor paymentProcessor = new PaymentProcessor(paymentRepository, refundRepository,
+                refundProcessor, bookingService, paymentGateway, transactionManager, 4, THREADS, 60000, true);
+
+        // When
+        List<RecordedEvent> pinned;
+        try {
+            pinned = recordPinning(() -> paymentProcessor.process(payment(), new PaymentRequest()));
+        } finally {
+            paymentProcessor.shutdown();
+        }
+
+        // Then
+        assertTrue(pinned.isEmpty(), () -> "Carrier threads pinned at:\n" + describe(pinned));
+        verify(bookingService, times(THREADS)).confirmBooking("booking-1", "payment-1");
+    }
+
+    private List<RecordedEvent> recordPinning(Runnable task) throws Exception {
+        Path dump = tempDir.resolve("pinning.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            CountDownLatch done = new CountDownLatch(THREADS);
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("pinning-test-");
+            executor.setVirtualThreads(true);
+            for (int i = 0; i < THREADS; i++) {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS), "Virtual threads did not finish");
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> pinned = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            if (event.getEventType().getName().equals(PINNED_EVENT) && inApplicationCode(event)) {
+                pinned.add(event);
+            }
+        }
+        return pinned;
+    }
+
+    private static boolean inApplicationCode(RecordedEvent event) {
+        return event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                .anyMatch(frame -> frame.isJavaFrame()
+                        && frame.getMethod().getType().getName().startsWith("com.busticket."));
+    }
+
+    private static String describe(List<RecordedEvent> events) {
+        return events.stream()
+                .map(event -> event.getStackTrace().getFrames().stream()
+                        .map(VirtualThreadPinningTest::describe)
+                        .collect(Collectors.joining("\n    ", "  ", "")))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static Payment payment() {
+        Payment payment = new Payment();
+        payment.setId("payment-1");
+        payment.setBookingId("booking-1");
+        payment.setAmount(new BigDecimal("1230.00"));
+        payment.setStatus(PaymentStatus.PENDING);
+        return payment;
+    }
+}